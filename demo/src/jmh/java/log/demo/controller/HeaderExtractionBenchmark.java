@@ -0,0 +1,73 @@
+package log.demo.controller;
+
+import java.util.concurrent.TimeUnit;
+import log.demo.http.LoggingHttpMessage;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.http.header.HeaderView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/*
+ * 요청 헤더를 꺼내는 비용
+ * routingController : RoutingController 가 PassRequestDTO 를 만들 때(대상 서버 호출은 하지 않는다)
+ * loggingCapture : LoggingHttpMessage 가 로그 스냅샷을 뜰 때
+ * controllerThenCapture : 한 요청에서 두 경로를 모두 탈 때, HeaderView 를 공유하므로 복사는 한 번이다.
+ * 매 호출마다 request attribute 의 HeaderView 를 지워 새 요청처럼 만든다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeaderExtractionBenchmark {
+
+    @Param({"8", "64"})
+    int headerCount;
+
+    MockHttpServletRequest request;
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    RoutingController routingController = new RoutingController(
+        passRequestDTO -> ResponseEntity.ok().build());
+
+    @Setup
+    public void setUp() {
+        request = new MockHttpServletRequest("GET", "/api/orders");
+        request.addHeader("Host", "localhost:5237");
+        request.addHeader("Accept", "application/json");
+        for (int i = 2; i < headerCount; i++) {
+            request.addHeader("X-Custom-Header-" + i, "value-" + i);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> routingController() throws Exception {
+        request.removeAttribute(HeaderView.ATTRIBUTE);
+        return routingController.routes(null, request);
+    }
+
+    @Benchmark
+    public HttpExchangeDTO loggingCapture() {
+        request.removeAttribute(HeaderView.ATTRIBUTE);
+        return new LoggingHttpMessage(request, response).capture();
+    }
+
+    @Benchmark
+    public HttpExchangeDTO controllerThenCapture() throws Exception {
+        request.removeAttribute(HeaderView.ATTRIBUTE);
+        routingController.routes(null, request);
+        return new LoggingHttpMessage(request, response).capture();
+    }
+}
@@ -0,0 +1,81 @@
+package log.demo.filter;
+
+import jakarta.servlet.FilterChain;
+import java.util.concurrent.TimeUnit;
+import log.demo.http.SyncHttpLogEmitter;
+import log.demo.support.Payloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/*
+ * LogFilter.doFilter 한 번의 비용
+ * chain 은 요청 body 를 모두 읽어 같은 Content-Type 으로 되돌려주는 echo 이다.
+ * chainOnly 는 mock 생성과 echo 비용만 잰 기준값이라, logFilter 에서 빼면 필터 자체의 비용이 된다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFilterBenchmark {
+
+    @Param({"0", "1024", "65536"})
+    int bodySize;
+
+    @Param({"application/json", "text/plain"})
+    String contentType;
+
+    byte[] body;
+    FilterChain echoChain;
+    LogFilter logFilter = new LogFilter(new SyncHttpLogEmitter());
+
+    @Setup
+    public void setUp() {
+        body = Payloads.of(contentType, bodySize);
+        echoChain = (request, response) -> {
+            final byte[] read = request.getInputStream().readAllBytes();
+            response.setContentType(contentType);
+            response.getOutputStream().write(read);
+        };
+    }
+
+    @Benchmark
+    public MockHttpServletResponse chainOnly() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        echoChain.doFilter(request(), response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse logFilter() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        logFilter.doFilter(request(), response, echoChain);
+        return response;
+    }
+
+    private MockHttpServletRequest request() {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.setQueryString("page=1&size=20");
+        request.addParameter("page", "1");
+        request.addParameter("size", "20");
+        request.addHeader("Host", "localhost:5237");
+        request.addHeader("User-Agent", "jmh");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("Content-Type", contentType);
+        request.setContentType(contentType);
+        request.setContent(body);
+        return request;
+    }
+}
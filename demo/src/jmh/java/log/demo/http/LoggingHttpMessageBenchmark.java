@@ -0,0 +1,95 @@
+package log.demo.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.support.Payloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/*
+ * 스냅샷(HttpExchangeDTO) 하나를 REQUEST/RESPONSE 로그, 또는 EXCHANGE 로그 하나로 직렬화하는 비용
+ * HTTP 로거는 jmh 의 logback-test.xml 에서 HttpEventEncoder 로 인코딩한 뒤 버린다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingHttpMessageBenchmark {
+
+    @Param({"128", "4096", "65536"})
+    int bodySize;
+
+    @Param({"application/json", "text/plain"})
+    String contentType;
+
+    HttpExchangeDTO exchange;
+
+    @Setup
+    public void setUp() {
+        final byte[] body = Payloads.of(contentType, bodySize);
+        final MultiValueMap<String, String> requestHeaders = new LinkedMultiValueMap<>();
+        requestHeaders.add("Host", "localhost:5237");
+        requestHeaders.add("User-Agent", "jmh");
+        requestHeaders.add("Accept", "application/json");
+        requestHeaders.add("Content-Type", contentType);
+        final MultiValueMap<String, String> responseHeaders = new LinkedMultiValueMap<>();
+        responseHeaders.add("Content-Type", contentType);
+        responseHeaders.add("Content-Length", String.valueOf(body.length));
+
+        final long now = System.currentTimeMillis();
+        exchange = HttpExchangeDTO.builder()
+            .requestId("1")
+            .method("POST")
+            .path("/api/orders")
+            .requestHeaders(requestHeaders)
+            .parameters(Map.of("page", "1"))
+            .requestBody(body)
+            .requestBodyLength(body.length)
+            .requestCharset(StandardCharsets.UTF_8.name())
+            .requestContentType(contentType)
+            .protocol("HTTP/1.1")
+            .url("http://localhost:5237/api/orders")
+            .remoteIp("127.0.0.1")
+            .remoteHost("localhost")
+            .remotePort(50000)
+            .requestTimeMillis(now)
+            .statusCode(200)
+            .responseHeaders(responseHeaders)
+            .responseBody(new String(body, StandardCharsets.UTF_8))
+            .responseBodyLength(body.length)
+            .responseContentType(contentType)
+            .responseTimeMillis(now + 3)
+            .build();
+    }
+
+    @Benchmark
+    public void logHttpRequest() throws IOException {
+        LoggingHttpMessage.logHttpRequest(exchange);
+    }
+
+    @Benchmark
+    public void logHttpResponse() {
+        LoggingHttpMessage.logHttpResponse(exchange);
+    }
+
+    @Benchmark
+    public void logHttpExchange() throws IOException {
+        LoggingHttpMessage.logHttpExchange(exchange);
+    }
+}
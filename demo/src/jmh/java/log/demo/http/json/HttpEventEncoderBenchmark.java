@@ -0,0 +1,136 @@
+package log.demo.http.json;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import log.demo.http.LoggingHttpMessage;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.support.Payloads;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/*
+ * 같은 REQUEST/RESPONSE 이벤트를 LogstashEncoder 와 HttpEventEncoder 로 인코딩하는 비용
+ * 이벤트는 setUp 에서 한 번 만들어 두고, 인코딩만 잰다. 할당량은 gc profiler 의 gc.alloc.rate.norm 으로 비교한다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpEventEncoderBenchmark {
+
+    @Param({"128", "4096", "65536"})
+    int bodySize;
+
+    @Param({"application/json", "text/plain"})
+    String contentType;
+
+    LogstashEncoder logstashEncoder;
+    HttpEventEncoder httpEventEncoder;
+    List<ILoggingEvent> events;
+
+    @Setup
+    public void setUp() throws IOException {
+        final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        logstashEncoder = new LogstashEncoder();
+        logstashEncoder.setContext(context);
+        logstashEncoder.start();
+        httpEventEncoder = new HttpEventEncoder();
+        httpEventEncoder.setContext(context);
+        httpEventEncoder.start();
+
+        final ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+        listAppender.start();
+        final Logger logger = (Logger) LoggerFactory.getLogger("HTTP");
+        logger.addAppender(listAppender);
+        final HttpExchangeDTO exchange = exchange();
+        LoggingHttpMessage.logHttpRequest(exchange);
+        LoggingHttpMessage.logHttpResponse(exchange);
+        logger.detachAppender(listAppender);
+        events = List.copyOf(listAppender.list);
+    }
+
+    @TearDown
+    public void tearDown() {
+        logstashEncoder.stop();
+        httpEventEncoder.stop();
+    }
+
+    @Benchmark
+    public int logstashEncoder() {
+        int length = 0;
+        for (ILoggingEvent event : events) {
+            length += logstashEncoder.encode(event).length;
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int httpEventEncoder() {
+        int length = 0;
+        for (ILoggingEvent event : events) {
+            length += httpEventEncoder.encode(event).length;
+        }
+        return length;
+    }
+
+    private HttpExchangeDTO exchange() {
+        final byte[] body = Payloads.of(contentType, bodySize);
+        final MultiValueMap<String, String> requestHeaders = new LinkedMultiValueMap<>();
+        requestHeaders.add("Host", "localhost:5237");
+        requestHeaders.add("User-Agent", "jmh");
+        requestHeaders.add("Accept", "application/json");
+        requestHeaders.add("Content-Type", contentType);
+        final MultiValueMap<String, String> responseHeaders = new LinkedMultiValueMap<>();
+        responseHeaders.add("Content-Type", contentType);
+        responseHeaders.add("Content-Length", String.valueOf(body.length));
+
+        final long now = System.currentTimeMillis();
+        return HttpExchangeDTO.builder()
+            .requestId("1")
+            .method("POST")
+            .path("/api/orders")
+            .requestHeaders(requestHeaders)
+            .parameters(Map.of("page", "1"))
+            .requestBody(body)
+            .requestBodyLength(body.length)
+            .requestCharset(StandardCharsets.UTF_8.name())
+            .requestContentType(contentType)
+            .protocol("HTTP/1.1")
+            .url("http://localhost:5237/api/orders")
+            .remoteIp("127.0.0.1")
+            .remoteHost("localhost")
+            .remotePort(50000)
+            .requestTimeMillis(now)
+            .statusCode(200)
+            .responseHeaders(responseHeaders)
+            .responseBody(new String(body, StandardCharsets.UTF_8))
+            .responseBodyLength(body.length)
+            .responseContentType(contentType)
+            .responseTimeMillis(now + 3)
+            .phaseMicros(Map.of("first-byte", 1200.5, "total", 3000.0))
+            .build();
+    }
+}
@@ -0,0 +1,64 @@
+package log.demo.http.redaction;
+
+import java.util.concurrent.TimeUnit;
+import log.demo.http.json.JsonSupport;
+import log.demo.support.Payloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/*
+ * JSON body 압축에 redaction 을 얹었을 때의 추가 비용
+ * none 은 가릴 경로가 없는 기존 압축, redacted 는 같은 토큰 패스에서 경로를 따라가며 가리는 경우다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedactionBenchmark {
+
+    @Param({"128", "4096", "65536"})
+    int bodySize;
+
+    RedactionPolicy policy;
+    byte[] body;
+    MultiValueMap<String, String> headers;
+
+    @Setup
+    public void setUp() {
+        policy = RedactionPolicy.of("Authorization,Cookie", "password",
+            "$.password,$.items[*].secret,$..token");
+        body = Payloads.json(bodySize);
+        headers = new LinkedMultiValueMap<>();
+        headers.add("Accept", "application/json");
+        headers.add("Authorization", "Bearer abc");
+        headers.add("User-Agent", "jmh");
+    }
+
+    @Benchmark
+    public String none() {
+        return JsonSupport.compactObjectOrNull(body, "UTF-8", RedactionPolicy.none());
+    }
+
+    @Benchmark
+    public String redacted() {
+        return JsonSupport.compactObjectOrNull(body, "UTF-8", policy);
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> headers() {
+        return policy.redactHeaders(headers);
+    }
+}
@@ -0,0 +1,56 @@
+package log.demo.http.time;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import log.demo.constant.DatePatternConst;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * 기존 LoggingHttpMessage.millisToLocalDateTime 과 LogTimestampFormatter 비교
+ * millisStep 이 작을수록 같은 초 안의 요청이 많아 캐시 적중률이 높다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampFormatBenchmark {
+
+    @Param({"1", "1000"})
+    long millisStep;
+
+    long epochMillis = 1672196443123L;
+    LogTimestampFormatter formatter = new LogTimestampFormatter(ZoneId.systemDefault());
+
+    @Benchmark
+    public String legacy() {
+        epochMillis += millisStep;
+        return new Timestamp(epochMillis).toLocalDateTime().format(
+            DateTimeFormatter.ofPattern(DatePatternConst.LogTimeStampPattern)
+        );
+    }
+
+    @Benchmark
+    public String cached() {
+        epochMillis += millisStep;
+        return formatter.format(epochMillis);
+    }
+
+    @Benchmark
+    public String cachedIsoMillis() {
+        epochMillis += millisStep;
+        return formatter.formatIsoMillis(epochMillis);
+    }
+}
@@ -0,0 +1,118 @@
+package log.demo.service.routing;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import log.demo.config.RestTemplateConfig;
+import log.demo.service.dto.PassRequestDTO;
+import log.demo.support.Payloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+/*
+ * RoutingServiceImpl.passHttpRequest 의 왕복 비용
+ * 대상 서버는 같은 프로세스의 JDK HttpServer 로, 요청 body 를 버리고 responseSize 바이트를 돌려준다.
+ * RestTemplate 은 RestTemplateConfig 와 같은 설정(connection pool 포함)으로 만든다.
+ * 여러 스레드로 돌리려면 -t 옵션을 준다. (Scope.Benchmark 라 스레드끼리 pool 을 공유한다)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingServiceBenchmark {
+
+    @Param({"128", "65536"})
+    int responseSize;
+
+    HttpServer upstream;
+    ExecutorService upstreamExecutor;
+    RoutingServiceImpl routingService;
+    PassRequestDTO getRequest;
+    PassRequestDTO postRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final byte[] responseBody = Payloads.json(responseSize);
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "application/json");
+            exchange.sendResponseHeaders(200, responseBody.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(responseBody);
+            }
+        });
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamExecutor);
+        upstream.start();
+
+        final RestTemplateConfig restTemplateConfig = new RestTemplateConfig();
+        ReflectionTestUtils.setField(restTemplateConfig, "responseTimeout", 5000);
+        final RestTemplate restTemplate = restTemplateConfig.restTemplate(
+            restTemplateConfig.httpClient(restTemplateConfig.connectionManager()));
+        routingService = new RoutingServiceImpl(restTemplate);
+        ReflectionTestUtils.setField(routingService, "destHost",
+            "http://127.0.0.1:" + upstream.getAddress().getPort());
+
+        final MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add(HttpHeaders.ACCEPT, "application/json");
+        getRequest = PassRequestDTO.builder()
+            .uri("/api/orders")
+            .queryString("page=1")
+            .method("GET")
+            .headers(headers)
+            .build();
+
+        final MultiValueMap<String, String> postHeaders = new LinkedMultiValueMap<>(headers);
+        postHeaders.add(HttpHeaders.CONTENT_TYPE, "application/json");
+        postRequest = PassRequestDTO.builder()
+            .uri("/api/orders")
+            .method("POST")
+            .headers(postHeaders)
+            .body(Payloads.json(1024))
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> passGet() throws Exception {
+        return routingService.passHttpRequest(getRequest);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> passPost() throws Exception {
+        return routingService.passHttpRequest(postRequest);
+    }
+}
@@ -0,0 +1,18 @@
+package log.demo.support;
+
+import ch.qos.logback.core.OutputStreamAppender;
+import java.io.OutputStream;
+
+/*
+ * 벤치마크용 appender
+ * encoder 로 JSON 직렬화까지는 그대로 하고, 결과 바이트는 버린다.
+ * 디스크/콘솔 I/O 가 측정값을 흔들지 않도록 한다.
+ */
+public class DiscardingAppender<E> extends OutputStreamAppender<E> {
+
+    @Override
+    public void start() {
+        setOutputStream(OutputStream.nullOutputStream());
+        super.start();
+    }
+}
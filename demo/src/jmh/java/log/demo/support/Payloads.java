@@ -0,0 +1,44 @@
+package log.demo.support;
+
+import java.nio.charset.StandardCharsets;
+import org.springframework.http.MediaType;
+
+/*
+ * Content-Type 에 맞는 size 바이트짜리 body 를 만든다.
+ * JSON 은 {"items":["xxxx",...]} 형태라 LoggingHttpMessage 가 raw JSON 으로 넣는 경로를 탄다.
+ */
+public final class Payloads {
+
+    private Payloads() {
+    }
+
+    public static byte[] of(String contentType, int size) {
+        if (size <= 0) {
+            return new byte[0];
+        }
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))) {
+            return json(size);
+        }
+        return text(size);
+    }
+
+    public static byte[] json(int size) {
+        final StringBuilder builder = new StringBuilder(size + 16).append("{\"items\":[");
+        int i = 0;
+        while (builder.length() < size - 16) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"item-").append(i++).append('"');
+        }
+        return builder.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] text(int size) {
+        final byte[] body = new byte[size];
+        for (int i = 0; i < size; i++) {
+            body[i] = (byte) ('a' + (i % 26));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,90 @@
+package log.demo.cache;
+
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Cache-Control 헤더에서 캐시 판단에 쓰는 지시어만 꺼낸다.
+ * no-cache="Set-Cookie" 처럼 필드를 지정한 것도 no-cache 로 본다. (보수적으로)
+ * 초 단위 값이 없거나 숫자가 아니면 -1 이다.
+ */
+final class CacheControl {
+
+    static final CacheControl EMPTY = new CacheControl();
+
+    private boolean noStore;
+    private boolean noCache;
+    private boolean isPrivate;
+    private boolean isPublic;
+    private long maxAgeSeconds = -1;
+    private long sharedMaxAgeSeconds = -1;
+
+    private CacheControl() {
+    }
+
+    static CacheControl parse(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        final CacheControl cacheControl = new CacheControl();
+        for (String value : values) {
+            for (String directive : value.split(",")) {
+                cacheControl.apply(directive.trim());
+            }
+        }
+        return cacheControl;
+    }
+
+    private void apply(String directive) {
+        final int equals = directive.indexOf('=');
+        final String name = ((equals < 0) ? directive : directive.substring(0, equals))
+            .trim().toLowerCase(Locale.ROOT);
+        final String argument = (equals < 0) ? null : directive.substring(equals + 1).trim();
+        switch (name) {
+            case "no-store" -> noStore = true;
+            case "no-cache" -> noCache = true;
+            case "private" -> isPrivate = true;
+            case "public" -> isPublic = true;
+            case "max-age" -> maxAgeSeconds = seconds(argument);
+            case "s-maxage" -> sharedMaxAgeSeconds = seconds(argument);
+            default -> {
+            }
+        }
+    }
+
+    private static long seconds(String argument) {
+        if (argument == null) {
+            return -1;
+        }
+        final String value = argument.replace("\"", "");
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    boolean isNoStore() {
+        return noStore;
+    }
+
+    boolean isNoCache() {
+        return noCache;
+    }
+
+    boolean isPrivate() {
+        return isPrivate;
+    }
+
+    boolean isPublic() {
+        return isPublic;
+    }
+
+    long getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    long getSharedMaxAgeSeconds() {
+        return sharedMaxAgeSeconds;
+    }
+}
@@ -0,0 +1,37 @@
+package log.demo.cache;
+
+import jakarta.servlet.ServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/*
+ * 응답을 어디서 가져왔는지, 로그와 latency 지표에서 캐시로 응답한 요청을 구분하는 데 쓴다.
+ * ResponseCache 가 request attribute 로 남기고, LogFilter 가 읽는다. (GET 이 아니면 남기지 않는다.)
+ */
+public enum CacheStatus {
+
+    //저장된 응답이 신선해서 대상 서버를 부르지 않았다.
+    HIT,
+    //조건부 요청에 304 를 받아 저장된 body 로 응답했다.
+    REVALIDATED,
+    //대상 서버에서 받았다. (저장했을 수도, 아닐 수도 있다.)
+    MISS,
+    //요청이 캐시를 쓰지 않도록 했다. (no-store, 조건부 요청, Range)
+    BYPASS;
+
+    public static final String ATTRIBUTE = CacheStatus.class.getName();
+
+    public static CacheStatus from(ServletRequest request) {
+        return (request.getAttribute(ATTRIBUTE) instanceof CacheStatus cacheStatus)
+            ? cacheStatus : null;
+    }
+
+    //요청 스레드에서 호출되는 RoutingServiceImpl 처럼 요청 객체를 받지 못하는 곳에서 쓴다.
+    static void setCurrent(CacheStatus cacheStatus) {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(ATTRIBUTE, cacheStatus,
+                RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package log.demo.cache;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+/*
+ * 저장된 응답 하나, 만든 뒤에는 바꾸지 않고 재검증하면 새 인스턴스로 바꾼다.
+ * body 는 응답마다 복사하지 않도록 ByteBuffer 하나를 공유한다.
+ * heap 이면 대상 서버에서 받은 byte[] 를 그대로 감싼 것이라 그 배열을 그대로 돌려주고, 받은 쪽은 배열을 고치지 않는다.
+ * 시각은 모두 epoch millis, 나이(age) 계산은 RFC 9111 4.2.3 을 따른다.
+ */
+final class CachedResponse {
+
+    //헤더 한 줄에 붙는 이름, 구분자, 줄바꿈 정도의 대략적인 크기
+    private static final int HEADER_OVERHEAD = 32;
+
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final ByteBuffer body;
+    //Vary 에 나온 요청 헤더 이름 -> 저장할 때의 값
+    private final Map<String, List<String>> varyValues;
+    private final long responseTimeMillis;
+    private final long correctedInitialAgeMillis;
+    private final long freshnessMillis;
+    private final long size;
+
+    CachedResponse(int statusCode, HttpHeaders headers, ByteBuffer body,
+        Map<String, List<String>> varyValues, long responseTimeMillis,
+        long correctedInitialAgeMillis, long freshnessMillis) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+        this.varyValues = varyValues;
+        this.responseTimeMillis = responseTimeMillis;
+        this.correctedInitialAgeMillis = correctedInitialAgeMillis;
+        this.freshnessMillis = freshnessMillis;
+        this.size = body.capacity() + headerBytes(headers);
+    }
+
+    private static long headerBytes(HttpHeaders headers) {
+        long bytes = 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                bytes += HEADER_OVERHEAD + header.getKey().length() + value.length();
+            }
+        }
+        return bytes;
+    }
+
+    long currentAgeMillis(long nowMillis) {
+        return correctedInitialAgeMillis + Math.max(0, nowMillis - responseTimeMillis);
+    }
+
+    boolean isFresh(long nowMillis) {
+        return freshnessMillis > currentAgeMillis(nowMillis);
+    }
+
+    //Vary 에 나온 요청 헤더 값이 저장할 때와 같아야 이 응답을 쓸 수 있다.
+    boolean matches(HttpHeaders requestHeaders) {
+        for (Map.Entry<String, List<String>> vary : varyValues.entrySet()) {
+            final List<String> values = requestHeaders.get(vary.getKey());
+            if (!vary.getValue().equals((values == null) ? List.of() : values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean hasValidators() {
+        return headers.getETag() != null || headers.getLastModified() >= 0;
+    }
+
+    String getETag() {
+        return headers.getETag();
+    }
+
+    String getLastModified() {
+        return headers.getFirst(HttpHeaders.LAST_MODIFIED);
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    ByteBuffer getBody() {
+        return body;
+    }
+
+    HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    Map<String, List<String>> getVaryValues() {
+        return varyValues;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    //저장된 헤더에 현재 Age 를 붙여 응답을 만든다.
+    ResponseEntity<byte[]> toResponseEntity(long nowMillis) {
+        final HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.addAll(headers);
+        responseHeaders.set(HttpHeaders.AGE, String.valueOf(currentAgeMillis(nowMillis) / 1000));
+        return new ResponseEntity<>(bodyBytes(), responseHeaders,
+            HttpStatusCode.valueOf(statusCode));
+    }
+
+    private byte[] bodyBytes() {
+        if (body.hasArray() && body.arrayOffset() == 0 && body.array().length == body.capacity()) {
+            return body.array();
+        }
+        final byte[] bytes = new byte[body.capacity()];
+        body.get(0, bytes);
+        return bytes;
+    }
+}
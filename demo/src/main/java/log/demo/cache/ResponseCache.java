@@ -0,0 +1,309 @@
+package log.demo.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import log.demo.http.header.HeaderView;
+import log.demo.metrics.MetricSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+
+/*
+ * 대상 서버 응답을 저장해 두는 공유(shared) HTTP 캐시, RFC 9111 에서 프록시에 필요한 부분만 따른다.
+ * - GET 응답만 저장한다. 신선도는 s-maxage > max-age > Expires 순으로 정하고, 추정(heuristic)은 하지 않는다.
+ * - 신선도가 없거나 지난 응답은 ETag/Last-Modified 가 있으면 조건부 요청으로 재검증하고, 304 면 저장된 body 로 응답한다.
+ * - no-store, private, Vary: *, Set-Cookie, Authorization 요청(public, s-maxage 가 없으면) 응답은 저장하지 않는다.
+ * - 신선도가 없거나 no-cache 인 응답도 ETag/Last-Modified 가 없으면 저장하지 않는다.
+ * - GET 이 아닌 요청이 성공하면 같은 key 의 응답을 지운다.
+ * 전체 크기(maxBytes)를 넘으면 가장 오래 쓰지 않은 응답부터 버린다. (LRU)
+ */
+public class ResponseCache implements MetricSource {
+
+    private static final Set<Integer> CACHEABLE_STATUS = Set.of(200, 203, 300, 301, 308);
+    private static final Set<String> NOT_UPDATED_HEADERS = Set.of("content-length",
+        "content-type", "content-encoding", "content-range");
+
+    private final ResponseCacheOptions options;
+    private final LinkedHashMap<String, CachedResponse> entries =
+        new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    public ResponseCache(ResponseCacheOptions options) {
+        this.options = options;
+    }
+
+    /*
+     * key 는 요청마다 같은 응답을 가리키는 문자열이다. RoutingServiceImpl 은 "{pool 이름} {경로?쿼리}" 를 넘기고,
+     * pool 이 없으면 대상 URI(쿼리 포함)를 넘긴다. 같은 pool 의 upstream 들은 key 하나를 같이 쓴다.
+     * upstream 은 보낼 요청 헤더를 받아 대상 서버를 부른다. 재검증할 때는 조건부 헤더를 붙인 사본을 넘긴다.
+     */
+    public ResponseEntity<byte[]> exchange(HttpMethod method, String key,
+        MultiValueMap<String, String> requestHeaders,
+        Function<MultiValueMap<String, String>, ResponseEntity<byte[]>> upstream) {
+        if (method != HttpMethod.GET) {
+            final ResponseEntity<byte[]> response = upstream.apply(requestHeaders);
+            if (method != HttpMethod.HEAD && method != HttpMethod.OPTIONS
+                && method != HttpMethod.TRACE && !response.getStatusCode().isError()) {
+                invalidate(key);
+            }
+            return response;
+        }
+        final HttpHeaders headers = (requestHeaders == null) ? new HttpHeaders()
+            : new HttpHeaders(requestHeaders);
+        final CacheControl requestCacheControl = CacheControl.parse(
+            headers.get(HttpHeaders.CACHE_CONTROL));
+        if (requestCacheControl.isNoStore() || headers.containsKey(HttpHeaders.IF_NONE_MATCH)
+            || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+            || headers.containsKey(HttpHeaders.RANGE)) {
+            return record(CacheStatus.BYPASS, upstream.apply(requestHeaders));
+        }
+
+        final CachedResponse cached = lookup(key, headers);
+        final long now = options.getClock().millis();
+        if (cached != null && cached.isFresh(now) && !requiresRevalidation(requestCacheControl,
+            headers)) {
+            return record(CacheStatus.HIT, cached.toResponseEntity(now));
+        }
+        if (cached != null && cached.hasValidators()) {
+            final ResponseEntity<byte[]> response = upstream.apply(
+                conditionalHeaders(headers, cached));
+            final long responseTime = options.getClock().millis();
+            if (response.getStatusCode().value() == 304) {
+                final CachedResponse updated = revalidate(cached, response.getHeaders(),
+                    responseTime);
+                put(key, updated);
+                return record(CacheStatus.REVALIDATED, updated.toResponseEntity(responseTime));
+            }
+            store(key, headers, response, responseTime);
+            return record(CacheStatus.MISS, response);
+        }
+        final ResponseEntity<byte[]> response = upstream.apply(requestHeaders);
+        store(key, headers, response, options.getClock().millis());
+        return record(CacheStatus.MISS, response);
+    }
+
+    //Pragma: no-cache 는 HTTP/1.0 클라이언트가 보내는 no-cache 다.
+    private static boolean requiresRevalidation(CacheControl requestCacheControl,
+        HttpHeaders headers) {
+        return requestCacheControl.isNoCache() || requestCacheControl.getMaxAgeSeconds() == 0
+            || (headers.getCacheControl() == null && "no-cache".equalsIgnoreCase(
+            headers.getPragma()));
+    }
+
+    private ResponseEntity<byte[]> record(CacheStatus cacheStatus,
+        ResponseEntity<byte[]> response) {
+        switch (cacheStatus) {
+            case HIT -> hits.increment();
+            case REVALIDATED -> revalidated.increment();
+            case MISS -> misses.increment();
+            case BYPASS -> bypassed.increment();
+        }
+        CacheStatus.setCurrent(cacheStatus);
+        return response;
+    }
+
+    private CachedResponse lookup(String key, HttpHeaders requestHeaders) {
+        final CachedResponse cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        return (cached != null && cached.matches(requestHeaders)) ? cached : null;
+    }
+
+    private static HttpHeaders conditionalHeaders(HttpHeaders requestHeaders,
+        CachedResponse cached) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.addAll(requestHeaders);
+        if (cached.getETag() != null) {
+            headers.set(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+        }
+        if (cached.getLastModified() != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+        return headers;
+    }
+
+    //304 의 헤더로 저장된 헤더를 갱신한다. body 와 그 표현(Content-*) 헤더는 그대로 둔다.
+    private CachedResponse revalidate(CachedResponse cached, HttpHeaders notModifiedHeaders,
+        long responseTime) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.addAll(cached.getHeaders());
+        notModifiedHeaders.forEach((name, values) -> {
+            if (!isExcluded(name)
+                && !NOT_UPDATED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                headers.put(name, values);
+            }
+        });
+        return new CachedResponse(cached.getStatusCode(), headers, cached.getBody(),
+            cached.getVaryValues(), responseTime, initialAge(notModifiedHeaders, responseTime),
+            Math.max(0, freshness(CacheControl.parse(headers.get(HttpHeaders.CACHE_CONTROL)),
+                headers, responseTime)));
+    }
+
+    private void store(String key, HttpHeaders requestHeaders, ResponseEntity<byte[]> response,
+        long responseTime) {
+        final HttpHeaders responseHeaders = response.getHeaders();
+        final CacheControl cacheControl = CacheControl.parse(
+            responseHeaders.get(HttpHeaders.CACHE_CONTROL));
+        final byte[] body = (response.getBody() == null) ? new byte[0] : response.getBody();
+        final List<String> vary = responseHeaders.getVary();
+        if (!CACHEABLE_STATUS.contains(response.getStatusCode().value())
+            || cacheControl.isNoStore() || cacheControl.isPrivate()
+            || vary.contains("*") || responseHeaders.containsKey(HttpHeaders.SET_COOKIE)
+            || (requestHeaders.containsKey(HttpHeaders.AUTHORIZATION) && !cacheControl.isPublic()
+            && cacheControl.getSharedMaxAgeSeconds() < 0)
+            || body.length > options.getMaxEntryBytes()) {
+            invalidate(key);
+            return;
+        }
+        //신선하지 않은데(no-cache, max-age=0 포함) 재검증할 validator 도 없으면 쓸 수 없다.
+        final long freshness = freshness(cacheControl, responseHeaders, responseTime);
+        if (freshness <= 0 && responseHeaders.getETag() == null
+            && responseHeaders.getLastModified() < 0) {
+            invalidate(key);
+            return;
+        }
+
+        final HttpHeaders headers = new HttpHeaders();
+        responseHeaders.forEach((name, values) -> {
+            if (!isExcluded(name)) {
+                headers.put(name, values);
+            }
+        });
+        final Map<String, List<String>> varyValues = new LinkedHashMap<>();
+        for (String name : vary) {
+            final List<String> values = requestHeaders.get(name);
+            varyValues.put(name, (values == null) ? List.of() : List.copyOf(values));
+        }
+        put(key, new CachedResponse(response.getStatusCode().value(), headers,
+            bodyBuffer(body), varyValues, responseTime, initialAge(responseHeaders, responseTime),
+            Math.max(0, freshness)));
+        stored.increment();
+    }
+
+    //저장하거나 304 로 갱신할 때 넘기지 않는 헤더, Age 는 응답할 때 다시 계산한다.
+    private static boolean isExcluded(String headerName) {
+        return HeaderView.isHopByHopHeader(headerName)
+            || HttpHeaders.AGE.equalsIgnoreCase(headerName);
+    }
+
+    private ByteBuffer bodyBuffer(byte[] body) {
+        if (!options.isOffHeap()) {
+            return ByteBuffer.wrap(body);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(body.length);
+        buffer.put(0, body);
+        return buffer;
+    }
+
+    //-1 이면 신선도 정보가 없다. no-cache 면 0 으로, 쓸 때마다 재검증한다.
+    private static long freshness(CacheControl cacheControl, HttpHeaders headers,
+        long responseTime) {
+        if (cacheControl.isNoCache()) {
+            return 0;
+        }
+        if (cacheControl.getSharedMaxAgeSeconds() >= 0) {
+            return cacheControl.getSharedMaxAgeSeconds() * 1000;
+        }
+        if (cacheControl.getMaxAgeSeconds() >= 0) {
+            return cacheControl.getMaxAgeSeconds() * 1000;
+        }
+        final long expires = headers.getExpires();
+        if (expires >= 0) {
+            final long date = dateOf(headers);
+            return Math.max(0, expires - ((date >= 0) ? date : responseTime));
+        }
+        return -1;
+    }
+
+    //대상 서버(또는 그 앞 캐시)에서 이미 지난 시간, Age 헤더와 Date 로 본 것 중 큰 값
+    private static long initialAge(HttpHeaders headers, long responseTime) {
+        long ageMillis = 0;
+        final String age = headers.getFirst(HttpHeaders.AGE);
+        if (age != null) {
+            try {
+                ageMillis = Math.max(0, Long.parseLong(age.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+                //잘못된 Age 는 없는 것으로 본다.
+            }
+        }
+        final long date = dateOf(headers);
+        final long apparentAge = (date < 0) ? 0 : Math.max(0, responseTime - date);
+        return Math.max(ageMillis, apparentAge);
+    }
+
+    //잘못된 Date 는 없는 것으로 본다.
+    private static long dateOf(HttpHeaders headers) {
+        try {
+            return headers.getDate();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private void put(String key, CachedResponse cached) {
+        synchronized (entries) {
+            final CachedResponse previous = entries.put(key, cached);
+            if (previous != null) {
+                bytes -= previous.getSize();
+            }
+            bytes += cached.getSize();
+            final Iterator<CachedResponse> eldest = entries.values().iterator();
+            while (bytes > options.getMaxBytes() && eldest.hasNext()) {
+                bytes -= eldest.next().getSize();
+                eldest.remove();
+                evicted.increment();
+            }
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            final CachedResponse removed = entries.remove(key);
+            if (removed != null) {
+                bytes -= removed.getSize();
+                invalidated.increment();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "cache";
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        synchronized (entries) {
+            snapshot.put("entries", entries.size());
+            snapshot.put("bytes", bytes);
+        }
+        snapshot.put("max-bytes", options.getMaxBytes());
+        snapshot.put("off-heap", options.isOffHeap());
+        snapshot.put("hits", hits.sum());
+        snapshot.put("revalidated", revalidated.sum());
+        snapshot.put("misses", misses.sum());
+        snapshot.put("bypassed", bypassed.sum());
+        snapshot.put("stored", stored.sum());
+        snapshot.put("evicted", evicted.sum());
+        snapshot.put("invalidated", invalidated.sum());
+        return snapshot;
+    }
+}
@@ -0,0 +1,24 @@
+package log.demo.cache;
+
+import java.time.Clock;
+import lombok.Builder;
+import lombok.Getter;
+
+/*
+ * ResponseCache 설정
+ * maxBytes 는 body 와 헤더를 합친 크기의 상한이고, maxEntryBytes 보다 큰 응답은 저장하지 않는다.
+ * offHeap 이면 body 를 direct buffer 에 두어 heap(GC 대상)을 쓰지 않는 대신 응답할 때마다 복사한다.
+ */
+@Builder
+@Getter
+public class ResponseCacheOptions {
+
+    @Builder.Default
+    private final long maxBytes = 64L * 1024 * 1024;
+    @Builder.Default
+    private final int maxEntryBytes = 1024 * 1024;
+    @Builder.Default
+    private final boolean offHeap = false;
+    @Builder.Default
+    private final Clock clock = Clock.systemUTC();
+}
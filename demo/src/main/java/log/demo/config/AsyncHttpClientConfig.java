@@ -0,0 +1,133 @@
+package log.demo.config;
+
+import log.demo.constant.ProxyModeConst;
+import log.demo.metrics.ConnectionPoolMetrics;
+import log.demo.metrics.latency.UpstreamTimingHandler;
+import log.demo.service.routing.async.Http2Upstreams;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * log.proxy.mode=async 일 때 사용하는 비동기 HTTP client
+ * connection 을 기다리는 요청도 스레드를 잡지 않고 pool 의 대기열에서 기다린다.
+ * timeout 값과 pool 크기는 RestTemplateConfig 와 같은 설정을 쓴다.
+ * log.client.http2.enabled=true 면 HTTP/2 를 하는 대상 서버에는 connection 을 나눠 쓰는 HTTP/2 client 로 보낸다. (Http2Upstreams)
+ * pooling connection manager 는 요청마다 connection 을 하나씩 빌려 가므로 HTTP/2 client 를 따로 둔다.
+ */
+@Configuration
+@ConditionalOnProperty(name = ProxyModeConst.PROPERTY, havingValue = ProxyModeConst.ASYNC)
+public class AsyncHttpClientConfig {
+
+    @Value("${log.response.timeout}")
+    private int responseTimeout;
+    @Value("${log.client.max-conn-total:200}")
+    private int maxConnTotal;
+    @Value("${log.client.max-conn-per-route:200}")
+    private int maxConnPerRoute;
+    @Value("${log.client.connection-request-timeout:2500}")
+    private int connectionRequestTimeout;
+    @Value("${log.client.connect-timeout:2000}")
+    private int connectTimeout;
+    @Value("${log.client.validate-after-inactivity:2000}")
+    private long validateAfterInactivity;
+    @Value("${log.client.time-to-live:0}")
+    private long timeToLive;
+    @Value("${log.client.idle-timeout:30000}")
+    private long idleTimeout;
+    @Value("${log.client.pool-stats-log-interval:0}")
+    private long poolStatsLogInterval;
+    @Value("${log.client.http2.probe-interval-millis:60000}")
+    private long http2ProbeIntervalMillis;
+
+    @Bean
+    public PoolingAsyncClientConnectionManager asyncConnectionManager() {
+        final ConnectionConfig.Builder connectionConfig = ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+            .setSocketTimeout(Timeout.ofMilliseconds(responseTimeout))
+            .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivity));
+        if (timeToLive > 0) {
+            connectionConfig.setTimeToLive(TimeValue.ofMilliseconds(timeToLive));
+        }
+        return PoolingAsyncClientConnectionManagerBuilder.create()
+            .setDefaultConnectionConfig(connectionConfig.build())
+            .setMaxConnTotal(maxConnTotal)
+            .setMaxConnPerRoute(maxConnPerRoute)
+            .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ConnectionPoolMetrics asyncConnectionPoolMetrics(
+        PoolingAsyncClientConnectionManager asyncConnectionManager) {
+        return new ConnectionPoolMetrics("upstream-async-pool", asyncConnectionManager,
+            poolStatsLogInterval);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient httpAsyncClient(
+        PoolingAsyncClientConnectionManager asyncConnectionManager) {
+        final HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+            .setConnectionManager(asyncConnectionManager)
+            .addExecInterceptorAfter(ChainElement.CONNECT.name(), UpstreamTimingHandler.NAME,
+                new UpstreamTimingHandler())
+            .setIOReactorConfig(IOReactorConfig.custom()
+                .setSoTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeout))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .build())
+            //body 를 스트림으로 보내므로 다시 보낼 수 없다.
+            .disableAutomaticRetries()
+            .evictExpiredConnections();
+        if (idleTimeout > 0) {
+            builder.evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout));
+        }
+        final CloseableHttpAsyncClient httpAsyncClient = builder.build();
+        httpAsyncClient.start();
+        return httpAsyncClient;
+    }
+
+    //대상 서버마다 connection 하나를 열어 두고 요청을 stream 으로 싣는다. (server push 는 받지 않는다.)
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "log.client.http2.enabled", havingValue = "true")
+    public Http2Upstreams http2Upstreams() {
+        final H2AsyncClientBuilder builder = H2AsyncClientBuilder.create()
+            .setH2Config(H2Config.custom()
+                .setPushEnabled(false)
+                .build())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .build())
+            .addExecInterceptorAfter(ChainElement.CONNECT.name(), UpstreamTimingHandler.NAME,
+                new UpstreamTimingHandler())
+            .setIOReactorConfig(IOReactorConfig.custom()
+                .setSoTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .build())
+            .disableAutomaticRetries();
+        if (idleTimeout > 0) {
+            builder.evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout));
+        }
+        final CloseableHttpAsyncClient http2Client = builder.build();
+        http2Client.start();
+        return new Http2Upstreams(http2Client, http2ProbeIntervalMillis);
+    }
+}
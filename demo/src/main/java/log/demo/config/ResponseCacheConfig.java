@@ -0,0 +1,33 @@
+package log.demo.config;
+
+import log.demo.cache.ResponseCache;
+import log.demo.cache.ResponseCacheOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * log.cache.enabled=true 일 때 buffered 모드(RoutingServiceImpl.passHttpRequest)의 대상 서버 응답을 캐시한다.
+ * streaming, async 모드는 응답을 모으지 않고 흘려보내므로 캐시를 거치지 않는다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "log.cache.enabled", havingValue = "true")
+public class ResponseCacheConfig {
+
+    @Value("${log.cache.max-bytes:67108864}")
+    private long maxBytes;
+    @Value("${log.cache.max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+    @Value("${log.cache.off-heap:false}")
+    private boolean offHeap;
+
+    @Bean
+    public ResponseCache responseCache() {
+        return new ResponseCache(ResponseCacheOptions.builder()
+            .maxBytes(maxBytes)
+            .maxEntryBytes(maxEntryBytes)
+            .offHeap(offHeap)
+            .build());
+    }
+}
@@ -1,14 +1,21 @@
 package log.demo.config;
 
+import log.demo.metrics.ConnectionPoolMetrics;
+import log.demo.metrics.latency.ExchangeTimer;
+import log.demo.metrics.latency.UpstreamTimingHandler;
 import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
@@ -18,36 +25,110 @@ public class RestTemplateConfig {
 
     @Value("${log.response.timeout}")
     private int responseTimeout;
+    @Value("${log.client.max-conn-total:200}")
+    private int maxConnTotal = 200;
+    @Value("${log.client.max-conn-per-route:200}")
+    private int maxConnPerRoute = 200;
+    @Value("${log.client.connection-request-timeout:2500}")
+    private int connectionRequestTimeout = 2500;
+    @Value("${log.client.connect-timeout:2000}")
+    private int connectTimeout = 2000;
+    @Value("${log.client.validate-after-inactivity:2000}")
+    private long validateAfterInactivity = 2000;
+    @Value("${log.client.time-to-live:0}")
+    private long timeToLive;
+    @Value("${log.client.idle-timeout:30000}")
+    private long idleTimeout = 30000;
+    @Value("${log.client.pool-stats-log-interval:0}")
+    private long poolStatsLogInterval;
 
     @Bean
-    public RestTemplate restTemplate() {
-        final HttpComponentsClientHttpRequestFactory httpRequestFactory = getHttpRequestFactory();
+    public PoolingHttpClientConnectionManager connectionManager() {
+        return getConnectionManager(responseTimeout);
+    }
+
+    @Bean
+    public HttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
+        return getHttpClient(connectionManager);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ConnectionPoolMetrics connectionPoolMetrics(
+        PoolingHttpClientConnectionManager connectionManager) {
+        return new ConnectionPoolMetrics("upstream-pool", connectionManager, poolStatsLogInterval);
+    }
+
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(HttpClient httpClient) {
+        final HttpComponentsClientHttpRequestFactory httpRequestFactory = getHttpRequestFactory(
+            httpClient);
         return new RestTemplate(httpRequestFactory);
     }
 
-    private HttpComponentsClientHttpRequestFactory getHttpRequestFactory() {
-        final HttpClient client = getHttpClient(responseTimeout);
+    //streaming 모드용, request body 를 메모리에 모으지 않고 바로 대상 서버로 흘려보낸다.
+    @Bean
+    public RestTemplate streamingRestTemplate(HttpClient httpClient) {
+        final HttpComponentsClientHttpRequestFactory httpRequestFactory = getHttpRequestFactory(
+            httpClient);
+        httpRequestFactory.setBufferRequestBody(false);
+        return new RestTemplate(httpRequestFactory);
+    }
 
+    private HttpComponentsClientHttpRequestFactory getHttpRequestFactory(HttpClient client) {
         final HttpComponentsClientHttpRequestFactory httpRequestFactory = new HttpComponentsClientHttpRequestFactory();
         httpRequestFactory.setHttpClient(client);
         //대상 서버와 소켓 연결을 맺을 때 timeout 설정(3-way handshake)
-        httpRequestFactory.setConnectTimeout(2000);
+        httpRequestFactory.setConnectTimeout(connectTimeout);
         //connection manager(connection pool)로부터 connection을 꺼내올 때의 timeout 설정
-        httpRequestFactory.setConnectionRequestTimeout(2500);
+        httpRequestFactory.setConnectionRequestTimeout(connectionRequestTimeout);
+        //요청 스레드의 ExchangeTimer 를 client 로 넘겨 대상 서버 구간을 잰다.
+        httpRequestFactory.setHttpContextFactory(
+            (httpMethod, uri) -> UpstreamTimingHandler.newContext(ExchangeTimer.current()));
         return httpRequestFactory;
     }
 
-    private HttpClient getHttpClient(int readTimeoutMilliSeconds) {
+    private PoolingHttpClientConnectionManager getConnectionManager(int readTimeoutMilliSeconds) {
         //setSoTimeout은 대상 서버로부터 request에 대한 응답에 걸리는 시간에 대한 설정
         final SocketConfig socketConfig = SocketConfig.custom()
             .setSoTimeout(Timeout.ofMilliseconds(readTimeoutMilliSeconds)).build();
-        final PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+        return PoolingHttpClientConnectionManagerBuilder.create()
             .setDefaultSocketConfig(socketConfig)
-            .setMaxConnTotal(200)
-            .setMaxConnPerRoute(200)
+            .setDefaultConnectionConfig(getConnectionConfig(readTimeoutMilliSeconds))
+            .setMaxConnTotal(maxConnTotal)
+            .setMaxConnPerRoute(maxConnPerRoute)
             .build();
-        return HttpClientBuilder.create()
+    }
+
+    /*
+     * validateAfterInactivity : 이 시간 이상 놀던 connection 은 꺼낼 때 끊겼는지 확인한다.
+     * timeToLive : connection 을 만든 뒤 이 시간이 지나면 더 쓰지 않는다. (0 이면 제한 없음)
+     */
+    private ConnectionConfig getConnectionConfig(int readTimeoutMilliSeconds) {
+        final ConnectionConfig.Builder builder = ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+            .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMilliSeconds))
+            .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivity));
+        if (timeToLive > 0) {
+            builder.setTimeToLive(TimeValue.ofMilliseconds(timeToLive));
+        }
+        return builder.build();
+    }
+
+    /*
+     * 만료된 connection 과 idleTimeout 이상 놀던 connection 을 background 스레드가 닫는다.
+     * 압축된 응답은 풀지 않고 그대로 전달한다. (Accept-Encoding 은 client 가 보낸 것만 전달한다.)
+     */
+    private HttpClient getHttpClient(PoolingHttpClientConnectionManager connectionManager) {
+        final HttpClientBuilder builder = HttpClientBuilder.create()
             .setConnectionManager(connectionManager)
-            .build();
+            .disableContentCompression()
+            .addExecInterceptorAfter(ChainElement.CONNECT.name(), UpstreamTimingHandler.NAME,
+                new UpstreamTimingHandler())
+            .evictExpiredConnections();
+        if (idleTimeout > 0) {
+            builder.evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout));
+        }
+        return builder.build();
     }
 }
@@ -0,0 +1,170 @@
+package log.demo.config;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import log.demo.thread.VirtualThreads;
+import log.demo.upstream.LoadBalancing;
+import log.demo.upstream.RoutingTable;
+import log.demo.upstream.UpstreamHealthChecker;
+import log.demo.upstream.UpstreamInvoker;
+import log.demo.upstream.UpstreamInvokerOptions;
+import log.demo.upstream.UpstreamPoolOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/*
+ * Host 와 path prefix 로 대상 서버 pool 을 고르는 RoutingTable
+ * log.routing.pools 가 비어 있으면 log.destination.host 하나로 모든 요청을 보낸다. (이전과 같다.)
+ * balancing, health check, outlier 설정은 모든 pool 에 같이 쓰고, balancing 은 pool 마다 바꿀 수 있다.
+ * retry 와 hedge 는 buffered 모드(RoutingServiceImpl.passHttpRequest)에서만 한다.
+ * circuit breaker 와 concurrency limiter 는 pool(route 가 가리키는 대상) 마다 하나씩, 모든 모드에서 쓴다.
+ */
+@Configuration
+public class RoutingConfig {
+
+    @Value("${log.destination.host}")
+    private String destHost;
+    @Value("${log.routing.pools:}")
+    private String pools;
+    @Value("${log.routing.routes:}")
+    private String routes;
+    @Value("${log.routing.balancing:round-robin}")
+    private String balancing;
+    @Value("${log.routing.health-check.path:}")
+    private String healthCheckPath;
+    @Value("${log.routing.health-check.interval-millis:5000}")
+    private long healthCheckIntervalMillis;
+    @Value("${log.routing.health-check.timeout-millis:1000}")
+    private long healthCheckTimeoutMillis;
+    @Value("${log.routing.health-check.unhealthy-threshold:2}")
+    private int unhealthyThreshold;
+    @Value("${log.routing.health-check.healthy-threshold:1}")
+    private int healthyThreshold;
+    @Value("${log.routing.outlier.consecutive-failures:5}")
+    private int consecutiveFailures;
+    @Value("${log.routing.outlier.slow-call-millis:0}")
+    private long slowCallMillis;
+    @Value("${log.routing.outlier.base-ejection-millis:30000}")
+    private long baseEjectionMillis;
+    @Value("${log.routing.outlier.max-ejection-percent:50}")
+    private int maxEjectionPercent;
+    @Value("${log.routing.breaker.enabled:true}")
+    private boolean breakerEnabled;
+    @Value("${log.routing.breaker.failure-rate-threshold:50}")
+    private int breakerFailureRateThreshold;
+    @Value("${log.routing.breaker.slow-call-rate-threshold:80}")
+    private int breakerSlowCallRateThreshold;
+    @Value("${log.routing.breaker.slow-call-millis:0}")
+    private long breakerSlowCallMillis;
+    @Value("${log.routing.breaker.window-millis:10000}")
+    private long breakerWindowMillis;
+    @Value("${log.routing.breaker.minimum-calls:20}")
+    private int breakerMinimumCalls;
+    @Value("${log.routing.breaker.open-millis:10000}")
+    private long breakerOpenMillis;
+    @Value("${log.routing.breaker.half-open-calls:3}")
+    private int breakerHalfOpenCalls;
+    @Value("${log.routing.limiter.enabled:false}")
+    private boolean limiterEnabled;
+    @Value("${log.routing.limiter.initial-limit:20}")
+    private int limiterInitialLimit;
+    @Value("${log.routing.limiter.min-limit:1}")
+    private int limiterMinLimit;
+    @Value("${log.routing.limiter.max-limit:200}")
+    private int limiterMaxLimit;
+    @Value("${log.routing.limiter.backoff-ratio:0.9}")
+    private double limiterBackoffRatio;
+    @Value("${log.routing.limiter.latency-threshold-millis:0}")
+    private long limiterLatencyThresholdMillis;
+    @Value("${log.routing.retry.max-retries:1}")
+    private int maxRetries;
+    @Value("${log.routing.retry.budget-ratio:0.1}")
+    private double budgetRatio;
+    @Value("${log.routing.retry.budget-min-per-second:10}")
+    private int budgetMinPerSecond;
+    @Value("${log.routing.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+    @Value("${log.routing.hedge.methods:GET,HEAD,OPTIONS}")
+    private String hedgeMethods;
+    @Value("${log.routing.hedge.quantile:0.95}")
+    private double hedgeQuantile;
+    @Value("${log.routing.hedge.min-delay-millis:10}")
+    private long hedgeMinDelayMillis;
+    @Value("${log.routing.hedge.window-millis:10000}")
+    private long hedgeWindowMillis;
+
+    @Bean
+    public RoutingTable routingTable() {
+        final UpstreamPoolOptions options = UpstreamPoolOptions.builder()
+            .balancing(LoadBalancing.of(balancing))
+            .consecutiveFailures(consecutiveFailures)
+            .slowCallMillis(slowCallMillis)
+            .baseEjectionMillis(baseEjectionMillis)
+            .maxEjectionPercent(maxEjectionPercent)
+            .healthCheckPath(healthCheckPath.isBlank() ? null : healthCheckPath.trim())
+            .healthCheckIntervalMillis(healthCheckIntervalMillis)
+            .healthCheckTimeoutMillis(healthCheckTimeoutMillis)
+            .unhealthyThreshold(unhealthyThreshold)
+            .healthyThreshold(healthyThreshold)
+            .latencyQuantile(hedgeQuantile)
+            .latencyWindowMillis(hedgeWindowMillis)
+            .breakerEnabled(breakerEnabled)
+            .breakerFailureRateThreshold(breakerFailureRateThreshold)
+            .breakerSlowCallRateThreshold(breakerSlowCallRateThreshold)
+            .breakerSlowCallMillis(breakerSlowCallMillis)
+            .breakerWindowMillis(breakerWindowMillis)
+            .breakerMinimumCalls(breakerMinimumCalls)
+            .breakerOpenMillis(breakerOpenMillis)
+            .breakerHalfOpenCalls(breakerHalfOpenCalls)
+            .limiterEnabled(limiterEnabled)
+            .limiterInitialLimit(limiterInitialLimit)
+            .limiterMinLimit(limiterMinLimit)
+            .limiterMaxLimit(limiterMaxLimit)
+            .limiterBackoffRatio(limiterBackoffRatio)
+            .limiterLatencyThresholdMillis(limiterLatencyThresholdMillis)
+            .build();
+        return RoutingTable.of(pools, routes, destHost, options);
+    }
+
+    @Bean(destroyMethod = "close")
+    public UpstreamInvoker upstreamInvoker() {
+        final UpstreamInvokerOptions options = UpstreamInvokerOptions.builder()
+            .maxRetries(maxRetries)
+            .budgetRatio(budgetRatio)
+            .budgetMinPerSecond(budgetMinPerSecond)
+            .hedgeEnabled(hedgeEnabled)
+            .hedgeMethods(Set.of(StringUtils.commaDelimitedListToStringArray(
+                hedgeMethods.replace(" ", "").toUpperCase(Locale.ROOT))))
+            .hedgeMinDelayMillis(hedgeMinDelayMillis)
+            .build();
+        return new UpstreamInvoker(options, hedgeEnabled ? hedgeExecutor() : null);
+    }
+
+    /*
+     * hedge 를 하는 요청은 대상 서버 호출을 이 executor 에서 한다. 요청 수만큼 스레드가 필요하므로 개수를 묶지 않는다.
+     * Java 21 이상이면 가상 스레드를 쓴다.
+     * Executor bean 으로 등록하면 Spring Boot 의 기본 task executor 가 빠지므로 UpstreamInvoker 가 닫는다.
+     */
+    private ExecutorService hedgeExecutor() {
+        if (VirtualThreads.isSupported()) {
+            return VirtualThreads.newPerTaskExecutor("upstream-hedge-");
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable,
+                "upstream-hedge-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public UpstreamHealthChecker upstreamHealthChecker(RoutingTable routingTable) {
+        return new UpstreamHealthChecker(routingTable.getPools());
+    }
+}
@@ -0,0 +1,47 @@
+package log.demo.config;
+
+import log.demo.thread.ConnectionLeaseGate;
+import log.demo.thread.VirtualThreads;
+import log.demo.upstream.RoutingTable;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * log.thread.virtual.enabled=true 일 때 Tomcat 요청 처리를 가상 스레드에서 한다. (Java 21 이상)
+ * RoutingServiceImpl 의 대상 서버 호출도 요청 스레드에서 하므로 함께 가상 스레드에서 돈다.
+ * 느린 대상 서버를 기다리는 동안 carrier 스레드를 놓아주므로 동시 요청 수가 Tomcat 스레드 수에 묶이지 않는다.
+ * 대신 동시 요청 수는 server.tomcat.max-connections 와 log.client.max-conn-* 로 정해진다.
+ * logback 의 RollingFileAppender 는 rollover 를 synchronized 안에서 하므로 log.async.enabled=true 와 함께 쓴다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "log.thread.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Value("${log.client.max-conn-total:200}")
+    private int maxConnTotal;
+    @Value("${log.client.max-conn-per-route:200}")
+    private int maxConnPerRoute;
+    @Value("${log.client.connection-request-timeout:2500}")
+    private int connectionRequestTimeout;
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(
+            VirtualThreads.newPerTaskExecutor("http-vt-"));
+    }
+
+    /*
+     * upstream 하나가 route 하나이므로 upstream 수 * route 당 최대 connection 수(전체 상한 이하)만큼 허용한다.
+     * 요청이 한 upstream 에 몰리면 pool 에서 기다릴 수 있지만, upstream 이 하나일 때는 이전과 같다.
+     */
+    @Bean
+    public ConnectionLeaseGate connectionLeaseGate(RoutingTable routingTable) {
+        final long permits = Math.min(maxConnTotal,
+            (long) maxConnPerRoute * routingTable.getUpstreamCount());
+        return new ConnectionLeaseGate((int) permits, connectionRequestTimeout);
+    }
+}
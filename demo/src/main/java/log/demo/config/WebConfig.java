@@ -2,6 +2,20 @@ package log.demo.config;
 
 import jakarta.servlet.Filter;
 import log.demo.filter.LogFilter;
+import log.demo.http.HttpLogEmitter;
+import log.demo.http.HttpLogFormat;
+import log.demo.http.HttpLogOptions;
+import log.demo.http.SyncHttpLogEmitter;
+import log.demo.http.TailingHttpLogEmitter;
+import log.demo.http.async.AsyncHttpLogEmitter;
+import log.demo.http.async.OverflowPolicy;
+import log.demo.http.redaction.RedactionPolicy;
+import log.demo.http.sampling.SamplingPolicy;
+import log.demo.http.tail.ExchangeEventBus;
+import log.demo.http.time.TimestampPrecision;
+import log.demo.http.wrapper.BodyCapturePolicy;
+import log.demo.metrics.latency.LatencyMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,10 +23,103 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class WebConfig {
 
+    @Value("${log.async.enabled:false}")
+    private boolean asyncEnabled;
+    @Value("${log.async.queue-capacity:8192}")
+    private int asyncQueueCapacity;
+    @Value("${log.async.batch-size:256}")
+    private int asyncBatchSize;
+    @Value("${log.async.overflow-policy:BLOCK}")
+    private OverflowPolicy asyncOverflowPolicy;
+    @Value("${log.async.sample-every:10}")
+    private int asyncSampleEvery;
+    @Value("${log.timestamp.precision:NONE}")
+    private TimestampPrecision timestampPrecision;
+    @Value("${log.format:SPLIT}")
+    private HttpLogFormat logFormat;
+    @Value("${log.capture.max-request-bytes:16384}")
+    private int captureMaxRequestBytes;
+    @Value("${log.capture.max-response-bytes:16384}")
+    private int captureMaxResponseBytes;
+    @Value("${log.capture.content-type-limits:}")
+    private String captureContentTypeLimits;
+    @Value("${log.capture.allow-types:}")
+    private String captureAllowTypes;
+    @Value("${log.capture.deny-types:" + BodyCapturePolicy.DEFAULT_DENY_TYPES + "}")
+    private String captureDenyTypes;
+    @Value("${log.capture.max-decoded-bytes:65536}")
+    private int captureMaxDecodedBytes;
+    @Value("${log.latency.max-series:128}")
+    private int latencyMaxSeries;
+    @Value("${log.sampling.rules:}")
+    private String samplingRules;
+    @Value("${log.sampling.default-rate:1.0}")
+    private double samplingDefaultRate;
+    @Value("${log.sampling.slow-threshold-millis:0}")
+    private long samplingSlowThresholdMillis;
+    @Value("${log.sampling.max-events-per-second:0}")
+    private int samplingMaxEventsPerSecond;
+    @Value("${log.tail.max-subscribers:16}")
+    private int tailMaxSubscribers;
+    @Value("${log.redaction.headers:" + RedactionPolicy.DEFAULT_HEADERS + "}")
+    private String redactionHeaders;
+    @Value("${log.redaction.parameters:" + RedactionPolicy.DEFAULT_PARAMETERS + "}")
+    private String redactionParameters;
+    @Value("${log.redaction.json-paths:" + RedactionPolicy.DEFAULT_JSON_PATHS + "}")
+    private String redactionJsonPaths;
+
+    //로그와 live tail 이 같은 옵션(redaction 포함)으로 이벤트를 만든다.
+    @Bean
+    public HttpLogOptions httpLogOptions() {
+        return HttpLogOptions.builder()
+            .timestampPrecision(timestampPrecision)
+            .format(logFormat)
+            .redaction(RedactionPolicy.of(redactionHeaders, redactionParameters,
+                redactionJsonPaths))
+            .maxDecodedBodyBytes(captureMaxDecodedBytes)
+            .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HttpLogEmitter httpLogEmitter() {
+        final HttpLogEmitter syncHttpLogEmitter = new SyncHttpLogEmitter(httpLogOptions());
+        if (!asyncEnabled) {
+            return new TailingHttpLogEmitter(syncHttpLogEmitter, exchangeEventBus());
+        }
+        return new TailingHttpLogEmitter(new AsyncHttpLogEmitter(syncHttpLogEmitter,
+            asyncQueueCapacity, asyncBatchSize, asyncOverflowPolicy, asyncSampleEvery),
+            exchangeEventBus());
+    }
+
+    @Bean
+    public ExchangeEventBus exchangeEventBus() {
+        return new ExchangeEventBus(tailMaxSubscribers);
+    }
+
+    @Bean
+    public BodyCapturePolicy bodyCapturePolicy() {
+        return BodyCapturePolicy.of(captureMaxRequestBytes, captureMaxResponseBytes,
+            captureContentTypeLimits, captureAllowTypes, captureDenyTypes);
+    }
+
+    @Bean
+    public LatencyMetrics latencyMetrics() {
+        return new LatencyMetrics(latencyMaxSeries);
+    }
+
+    @Bean
+    public SamplingPolicy samplingPolicy() {
+        return SamplingPolicy.of(samplingRules, samplingDefaultRate, samplingSlowThresholdMillis,
+            samplingMaxEventsPerSecond, logFormat.eventsPerExchange());
+    }
+
     @Bean
-    public FilterRegistrationBean logFilter() {
+    public FilterRegistrationBean logFilter(HttpLogEmitter httpLogEmitter,
+        BodyCapturePolicy bodyCapturePolicy, LatencyMetrics latencyMetrics,
+        SamplingPolicy samplingPolicy) {
         final FilterRegistrationBean<Filter> filterRegistrationBean = new FilterRegistrationBean<>();
-        filterRegistrationBean.setFilter(new LogFilter());
+        filterRegistrationBean.setFilter(
+            new LogFilter(httpLogEmitter, bodyCapturePolicy, latencyMetrics, samplingPolicy));
         filterRegistrationBean.setOrder(1);
         filterRegistrationBean.addUrlPatterns("/*");
         return filterRegistrationBean;
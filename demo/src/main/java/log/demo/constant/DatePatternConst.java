@@ -3,4 +3,7 @@ package log.demo.constant;
 public interface DatePatternConst {
 
     String LogTimeStampPattern = "yyyy-MM-dd HH:mm:ss";
+
+    //ISO-8601, 밀리초와 offset 은 LogTimestampFormatter 가 뒤에 붙인다.
+    String IsoSecondPattern = "yyyy-MM-dd'T'HH:mm:ss";
 }
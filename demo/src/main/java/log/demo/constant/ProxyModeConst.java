@@ -0,0 +1,15 @@
+package log.demo.constant;
+
+public interface ProxyModeConst {
+
+    String PROPERTY = "log.proxy.mode";
+
+    //요청/응답 body 를 byte[] 로 모두 받아서 전달
+    String BUFFERED = "buffered";
+
+    //요청/응답 body 를 chunk 단위로 흘려보내며 전달
+    String STREAMING = "streaming";
+
+    //서블릿 비동기 I/O 와 비동기 HTTP client 로 스레드를 잡지 않고 전달
+    String ASYNC = "async";
+}
@@ -0,0 +1,133 @@
+package log.demo.controller;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import log.demo.constant.ProxyModeConst;
+import log.demo.http.header.HeaderView;
+import log.demo.service.dto.PassRequestDTO;
+import log.demo.service.routing.RoutingService;
+import lombok.RequiredArgsConstructor;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.client.ResourceAccessException;
+
+/*
+ * log.proxy.mode=async 일 때 사용하는 컨트롤러
+ * 서블릿 비동기 모드로 전환한 뒤 바로 반환하고, RoutingService 가 응답을 다 쓰면 complete 한다.
+ */
+@Controller
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = ProxyModeConst.PROPERTY, havingValue = ProxyModeConst.ASYNC)
+public class AsyncRoutingController {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncRoutingController.class);
+
+    private final RoutingService routingService;
+
+    @RequestMapping(value = "/**", method = {
+        RequestMethod.GET, RequestMethod.POST, RequestMethod.OPTIONS, RequestMethod.HEAD,
+        RequestMethod.TRACE, RequestMethod.DELETE, RequestMethod.PATCH, RequestMethod.PUT
+    })
+    public void routes(HttpServletRequest request, HttpServletResponse response)
+        throws URISyntaxException, IOException {
+        MultiValueMap<String, String> headers = HeaderView.from(request);
+        PassRequestDTO passRequestDTO = PassRequestDTO.builder()
+            .queryString(request.getQueryString())
+            .uri(request.getRequestURI())
+            .method(request.getMethod())
+            .headers(headers)
+            .build();
+
+        final AsyncContext asyncContext = request.startAsync();
+        final AtomicBoolean completed = new AtomicBoolean();
+        final AtomicReference<CompletableFuture<Void>> exchange = new AtomicReference<>();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                completed.set(true);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                //대상 서버가 async timeout 안에 응답하지 않았다.
+                cancel(exchange.get());
+                fail(response, HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                complete(asyncContext, completed);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                cancel(exchange.get());
+                complete(asyncContext, completed);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        final CompletableFuture<Void> future = routingService.passHttpRequestAsync(
+            passRequestDTO, request, response);
+        exchange.set(future);
+        future.whenComplete((ignored, throwable) -> {
+            //timeout, error 로 이미 complete 했으면 재활용된 response 를 건드리지 않는다.
+            if (throwable != null && !completed.get()) {
+                fail(response, statusOf(throwable));
+                log.warn("Async routing failed: {} {}", passRequestDTO.getMethod(),
+                    passRequestDTO.getUri(), throwable);
+            }
+            complete(asyncContext, completed);
+        });
+    }
+
+    //대상 서버 호출을 끊어 서블릿 스트림을 더 쓰지 않게 한다. (아직 시작 전이면 null)
+    private void cancel(CompletableFuture<Void> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    //LogFilter 와 같이, 응답이 나가기 전이면 status 를 바꾼다.
+    private void fail(HttpServletResponse response, int status) {
+        if (!response.isCommitted()) {
+            response.setStatus(status);
+        }
+    }
+
+    //ControllerAdvice 와 같이 응답 timeout 은 504, connection pool 대기 timeout 은 503 으로 알린다.
+    private int statusOf(Throwable throwable) {
+        final Throwable cause = (throwable instanceof CompletionException) ? throwable.getCause()
+            : throwable;
+        if (cause instanceof ResourceAccessException) {
+            if (cause.getCause() instanceof SocketTimeoutException) {
+                return HttpServletResponse.SC_GATEWAY_TIMEOUT;
+            }
+            if (cause.getCause() instanceof ConnectionRequestTimeoutException) {
+                return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+            }
+        }
+        return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    }
+
+    private void complete(AsyncContext asyncContext, AtomicBoolean completed) {
+        if (completed.compareAndSet(false, true)) {
+            asyncContext.complete();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package log.demo.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import log.demo.store.LogQuery;
+import log.demo.store.SegmentSearch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/*
+ * SEGMENT_LOG 세그먼트에서 조건에 맞는 이벤트를 찾아 JSON lines 로 돌려준다.
+ * 예) /_log/query?path=/orders&code-type=5XX&last-minutes=60
+ * 조건 : request-id, path, status-code, code-type, remote-ip (모두 같은 값), from, to (ISO-8601), last-minutes, limit
+ * 레코드는 모아 두지 않고 세그먼트에서 읽는 대로 응답에 쓴다.
+ * 인증 없이 다른 클라이언트의 요청 로그를 보여 주고 프록시와 같은 포트의 path 를 차지하므로,
+ * log.query.enabled=true 일 때만 등록한다. (내부망에서만 열 것)
+ */
+@Controller
+@ConditionalOnProperty(name = "log.query.enabled", havingValue = "true")
+public class LogQueryController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Value("${log.query.directory:./logs/segments}")
+    private Path directory;
+    @Value("${log.query.max-limit:10000}")
+    private int maxLimit = 10000;
+
+    @GetMapping("${log.query.path:/_log/query}")
+    public void query(@RequestParam Map<String, String> parameters,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        OffsetDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        OffsetDateTime to,
+        @RequestParam(name = "last-minutes", required = false) Long lastMinutes,
+        @RequestParam(defaultValue = "1000") int limit,
+        HttpServletResponse response) throws IOException {
+        final Map<String, String> terms = new LinkedHashMap<>();
+        for (String field : LogQuery.FIELDS) {
+            if (parameters.get(field) != null) {
+                terms.put(field, parameters.get(field));
+            }
+        }
+        long fromMillis = (from == null) ? Long.MIN_VALUE : from.toInstant().toEpochMilli();
+        if (lastMinutes != null) {
+            fromMillis = Math.max(fromMillis, System.currentTimeMillis() - lastMinutes * 60_000);
+        }
+        final LogQuery query = LogQuery.builder()
+            .terms(terms)
+            .fromMillis(fromMillis)
+            .toMillis((to == null) ? Long.MAX_VALUE : to.toInstant().toEpochMilli())
+            .limit(Math.max(0, Math.min(limit, maxLimit)))
+            .build();
+
+        response.setContentType(NDJSON);
+        final WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        SegmentSearch.search(directory, query, (offset, record) -> {
+            while (record.hasRemaining()) {
+                out.write(record);
+            }
+        });
+    }
+}
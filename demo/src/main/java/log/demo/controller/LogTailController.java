@@ -0,0 +1,121 @@
+package log.demo.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import log.demo.http.HttpLogOptions;
+import log.demo.http.LoggingHttpMessage;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.http.json.JsonSupport;
+import log.demo.http.json.StreamingJsonGenerator;
+import log.demo.http.tail.ExchangeEventBus;
+import log.demo.http.tail.Subscription;
+import log.demo.http.tail.TailFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/*
+ * 로그로 내보내는 exchange 를 Server-Sent Events 로 실시간으로 보낸다. (tail -f 대신)
+ * 예) /_log/tail?path-prefix=/orders&status=5xx&min-latency-millis=500
+ * 이벤트는 로그와 같은 HttpLogOptions(redaction 포함)로 만든다. 조건은 ExchangeEventBus 에서 JSON 으로 만들기 전에 거르고, 구독자마다 전용 스레드가 자기 buffer 에서 꺼내 보낸다.
+ * 느린 구독자는 buffer 가 차면 그 구독자 몫만 버리고, 로그를 남기는 쪽은 기다리지 않는다.
+ * 인증 없이 다른 클라이언트의 exchange 를 실시간으로 보여 주므로 log.tail.enabled=true 일 때만 등록한다. (내부망에서만 열 것)
+ */
+@RestController
+@ConditionalOnProperty(name = "log.tail.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LogTailController {
+
+    private static final long HEARTBEAT_MILLIS = 15_000;
+
+    private final ExchangeEventBus exchangeEventBus;
+    private final HttpLogOptions httpLogOptions;
+    private final AtomicInteger senderCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable,
+            "log-tail-sender-" + senderCount.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+    @Value("${log.tail.buffer-size:1024}")
+    private int bufferSize = 1024;
+    @Value("${log.tail.timeout-millis:1800000}")
+    private long timeoutMillis = 1800000;
+
+    @GetMapping(value = "${log.tail.path:/_log/tail}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter tail(@RequestParam(name = "path-prefix", required = false) String pathPrefix,
+        @RequestParam(required = false) String status,
+        @RequestParam(name = "min-latency-millis", defaultValue = "0") long minLatencyMillis) {
+        final TailFilter filter;
+        final Subscription subscription;
+        try {
+            filter = TailFilter.of(pathPrefix, status, minLatencyMillis);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        try {
+            subscription = exchangeEventBus.subscribe(filter, bufferSize);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+
+        final SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        senders.execute(() -> send(subscription, emitter));
+        return emitter;
+    }
+
+    //이벤트가 없으면 heartbeat 주석을 보내, 끊긴 구독자를 알아챈다.
+    private void send(Subscription subscription, SseEmitter emitter) {
+        try {
+            while (!subscription.isClosed()) {
+                final HttpExchangeDTO exchange = subscription.poll(HEARTBEAT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+                if (exchange == null) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                emitter.send(SseEmitter.event()
+                    .name("exchange")
+                    .id(exchange.getRequestId())
+                    .data(toJson(exchange)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            //구독자가 끊겼거나 이미 끝난 emitter
+        } finally {
+            subscription.close();
+        }
+    }
+
+    private String toJson(HttpExchangeDTO exchange) throws IOException {
+        final StringWriter writer = new StringWriter(1024);
+        try (JsonGenerator generator = new StreamingJsonGenerator(
+            JsonSupport.OBJECT_MAPPER.getFactory().createGenerator(writer))) {
+            LoggingHttpMessage.writeExchange(generator, exchange, httpLogOptions);
+        }
+        return writer.toString();
+    }
+
+    @PreDestroy
+    public void close() {
+        senders.shutdownNow();
+    }
+}
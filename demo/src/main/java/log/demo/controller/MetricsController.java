@@ -0,0 +1,29 @@
+package log.demo.controller;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import log.demo.metrics.MetricSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/*
+ * 등록된 MetricSource 들의 현재 값을 JSON 으로 돌려준다.
+ * 경로가 "/**" 보다 구체적이라 routing 컨트롤러보다 먼저 매칭된다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final List<MetricSource> metricSources;
+
+    @GetMapping("${log.metrics.path:/_log/metrics}")
+    public Map<String, Object> metrics() {
+        final Map<String, Object> metrics = new LinkedHashMap<>();
+        for (MetricSource metricSource : metricSources) {
+            metrics.put(metricSource.getName(), metricSource.snapshot());
+        }
+        return metrics;
+    }
+}
@@ -2,13 +2,14 @@ package log.demo.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.net.URISyntaxException;
-import java.util.Enumeration;
+import log.demo.constant.ProxyModeConst;
+import log.demo.http.header.HeaderView;
 import log.demo.service.dto.PassRequestDTO;
 import log.demo.service.routing.RoutingService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -17,6 +18,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 
 @Controller
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = ProxyModeConst.PROPERTY, havingValue = ProxyModeConst.BUFFERED,
+    matchIfMissing = true)
 public class RoutingController {
 
     private final RoutingService routingService;
@@ -27,7 +30,8 @@ public class RoutingController {
     })
     public ResponseEntity<byte[]> routes(@RequestBody(required = false) byte[] body,
         HttpServletRequest request) throws URISyntaxException {
-        MultiValueMap<String, String> headers = getHeaders(request);
+        //로그에서도 같은 view 를 쓰므로 헤더는 요청당 한 번만 복사된다.
+        MultiValueMap<String, String> headers = HeaderView.from(request);
         PassRequestDTO passRequestDTO = PassRequestDTO.builder()
             .queryString(request.getQueryString())
             .uri(request.getRequestURI())
@@ -42,14 +46,4 @@ public class RoutingController {
     public ResponseEntity<String> doGet() {
         return ResponseEntity.ok("get");
     }
-
-    private MultiValueMap<String, String> getHeaders(HttpServletRequest request) {
-        final MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
-        request.getHeaderNames().asIterator().forEachRemaining(headerName -> {
-            Enumeration<String> headerValues = request.getHeaders(headerName);
-            headerValues.asIterator()
-                .forEachRemaining(headerValue -> headers.add(headerName, headerValue));
-        });
-        return headers;
-    }
 }
@@ -0,0 +1,50 @@
+package log.demo.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import log.demo.constant.ProxyModeConst;
+import log.demo.http.header.HeaderView;
+import log.demo.service.dto.PassRequestDTO;
+import log.demo.service.routing.RoutingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/*
+ * log.proxy.mode=streaming 일 때 사용하는 컨트롤러
+ * body 를 byte[] 로 바인딩하지 않고 서블릿 스트림을 그대로 RoutingService 로 넘긴다.
+ */
+@Controller
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = ProxyModeConst.PROPERTY, havingValue = ProxyModeConst.STREAMING)
+public class StreamingRoutingController {
+
+    private final RoutingService routingService;
+
+    @RequestMapping(value = "/**", method = {
+        RequestMethod.GET, RequestMethod.POST, RequestMethod.OPTIONS, RequestMethod.HEAD,
+        RequestMethod.TRACE, RequestMethod.DELETE, RequestMethod.PATCH, RequestMethod.PUT
+    })
+    public void routes(HttpServletRequest request, HttpServletResponse response)
+        throws URISyntaxException, IOException {
+        //로그에서도 같은 view 를 쓰므로 헤더는 요청당 한 번만 복사된다.
+        MultiValueMap<String, String> headers = HeaderView.from(request);
+        PassRequestDTO passRequestDTO = PassRequestDTO.builder()
+            .queryString(request.getQueryString())
+            .uri(request.getRequestURI())
+            .method(request.getMethod())
+            .headers(headers)
+            .bodyPresent(request.getContentLengthLong() > 0
+                || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null)
+            .build();
+        routingService.streamHttpRequest(passRequestDTO, request.getInputStream(),
+            new ServletServerHttpResponse(response));
+    }
+}
@@ -0,0 +1,11 @@
+package log.demo.exception;
+
+//RoutingTable 에 요청의 Host, path 에 맞는 route 가 없다.
+public class NoRouteException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public NoRouteException(String host, String path) {
+        super("No route for " + ((host == null) ? "" : host) + path);
+    }
+}
@@ -0,0 +1,22 @@
+package log.demo.exception;
+
+//circuit 이 열렸거나 동시 요청 수가 limit 에 닿아 대상 서버를 부르지 않았다. (503)
+public class UpstreamRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CIRCUIT_OPEN = "circuit-open";
+    public static final String CONCURRENCY_LIMIT = "concurrency-limit";
+
+    //다시 보내 볼 수 있을 때까지 남은 시간, 모르면 0
+    private final long retryAfterMillis;
+
+    public UpstreamRejectedException(String pool, String reason, long retryAfterMillis) {
+        super("Upstream pool " + pool + " rejected the request: " + reason);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
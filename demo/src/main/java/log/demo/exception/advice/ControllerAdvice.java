@@ -2,6 +2,10 @@ package log.demo.exception.advice;
 
 import java.net.SocketTimeoutException;
 import java.net.URISyntaxException;
+import log.demo.exception.NoRouteException;
+import log.demo.exception.UpstreamRejectedException;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -46,6 +50,10 @@ public class ControllerAdvice {
         if (cause instanceof SocketTimeoutException) {
             code = 504;
         }
+        //connection pool 이 모자라 connection-request-timeout 동안 connection 을 못 얻은 경우
+        if (cause instanceof ConnectionRequestTimeoutException) {
+            code = 503;
+        }
 
         return new ResponseEntity<>(ex.getMessage(), HttpStatusCode.valueOf(code));
     }
@@ -55,4 +63,20 @@ public class ControllerAdvice {
         return new ResponseEntity<>("Inadequate URI", HttpStatusCode.valueOf(404));
     }
 
+    @ExceptionHandler
+    public ResponseEntity<String> noRouteException(NoRouteException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatusCode.valueOf(404));
+    }
+
+    //circuit 이 열려 있으면 HALF_OPEN 이 되는 시점을 Retry-After(초)로 알려 준다.
+    @ExceptionHandler
+    public ResponseEntity<String> upstreamRejectedException(UpstreamRejectedException ex) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (ex.getRetryAfterMillis() > 0) {
+            headers.set(HttpHeaders.RETRY_AFTER,
+                String.valueOf((ex.getRetryAfterMillis() + 999) / 1000));
+        }
+        return new ResponseEntity<>(ex.getMessage(), headers, HttpStatusCode.valueOf(503));
+    }
+
 }
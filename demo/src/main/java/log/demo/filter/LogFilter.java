@@ -1,5 +1,7 @@
 package log.demo.filter;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -8,12 +10,60 @@ import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import log.demo.cache.CacheStatus;
+import log.demo.http.HttpLogEmitter;
 import log.demo.http.LoggingHttpMessage;
-import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
+import log.demo.http.SyncHttpLogEmitter;
+import log.demo.http.encoding.BodyDecoder;
+import log.demo.http.sampling.SamplingDecision;
+import log.demo.http.sampling.SamplingPolicy;
+import log.demo.http.wrapper.BodyCapturePolicy;
+import log.demo.http.wrapper.BoundedRequestWrapper;
+import log.demo.http.wrapper.TeeResponseWrapper;
+import log.demo.metrics.latency.ExchangeTimer;
+import log.demo.metrics.latency.LatencyMetrics;
+import log.demo.metrics.latency.Phase;
 
 public class LogFilter implements Filter {
 
+    private final HttpLogEmitter httpLogEmitter;
+    private final BodyCapturePolicy bodyCapturePolicy;
+    private final LatencyMetrics latencyMetrics;
+    private final SamplingPolicy samplingPolicy;
+
+    public LogFilter() {
+        this(new SyncHttpLogEmitter());
+    }
+
+    public LogFilter(HttpLogEmitter httpLogEmitter) {
+        this(httpLogEmitter, BodyCapturePolicy.defaults());
+    }
+
+    /*
+     * body 는 캐싱하지 않고 흘려보내며,
+     * bodyCapturePolicy 가 정한 길이만큼만 로그용으로 남긴다.
+     */
+    public LogFilter(HttpLogEmitter httpLogEmitter, BodyCapturePolicy bodyCapturePolicy) {
+        this(httpLogEmitter, bodyCapturePolicy, null);
+    }
+
+    public LogFilter(HttpLogEmitter httpLogEmitter, BodyCapturePolicy bodyCapturePolicy,
+        LatencyMetrics latencyMetrics) {
+        this(httpLogEmitter, bodyCapturePolicy, latencyMetrics, SamplingPolicy.alwaysSample());
+    }
+
+    /*
+     * latencyMetrics 가 있으면 요청마다 구간별 시간을 히스토그램에 더한다.
+     * samplingPolicy 가 뽑은 요청만 로그로 남긴다.
+     */
+    public LogFilter(HttpLogEmitter httpLogEmitter, BodyCapturePolicy bodyCapturePolicy,
+        LatencyMetrics latencyMetrics, SamplingPolicy samplingPolicy) {
+        this.httpLogEmitter = httpLogEmitter;
+        this.bodyCapturePolicy = bodyCapturePolicy;
+        this.latencyMetrics = latencyMetrics;
+        this.samplingPolicy = samplingPolicy;
+    }
+
     @Override
     public void init(FilterConfig filterConfig) {
     }
@@ -21,35 +71,114 @@ public class LogFilter implements Filter {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
         throws IOException {
-        final ContentCachingRequestWrapper requestWrapper = new ContentCachingRequestWrapper(
-            (HttpServletRequest) request);
-        final ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(
-            (HttpServletResponse) response);
+        final BoundedRequestWrapper requestWrapper = new BoundedRequestWrapper(
+            (HttpServletRequest) request, bodyCapturePolicy.requestLimit(request.getContentType()));
+        final TeeResponseWrapper responseWrapper = new TeeResponseWrapper(
+            (HttpServletResponse) response, bodyCapturePolicy);
+        final ExchangeTimer exchangeTimer = ExchangeTimer.start(requestWrapper);
 
         final LoggingHttpMessage loggingHttpMessage = new LoggingHttpMessage(requestWrapper,
             responseWrapper);
         loggingHttpMessage.setRequestTimeMillis(System.currentTimeMillis());
 
-        Integer statusCode = null;
-        String responseBody = "";
+        int statusCode = 500;
+        String failureMessage = null;
+        boolean async = false;
 
         try {
             chain.doFilter(requestWrapper, responseWrapper);
+            //비동기 모드로 전환됐다면 응답이 끝난 뒤(onComplete) 로그를 남긴다.
+            if (requestWrapper.isAsyncStarted()) {
+                async = true;
+                requestWrapper.getAsyncContext().addListener(new LoggingAsyncListener(
+                    requestWrapper, responseWrapper, loggingHttpMessage, exchangeTimer));
+                return;
+            }
+            responseWrapper.flushBuffer();
             statusCode = responseWrapper.getStatus();
-            responseBody = new String(responseWrapper.getContentAsByteArray(),
-                responseWrapper.getCharacterEncoding());
         } catch (Exception e) {
             statusCode = 500;
-            responseWrapper.setStatus(statusCode);
-            responseBody = e.getMessage();
+            //이미 응답이 나가기 시작했다면 status 를 바꿀 수 없다.
+            if (!responseWrapper.isCommitted()) {
+                responseWrapper.setStatus(statusCode);
+            }
+            failureMessage = e.getMessage();
             e.printStackTrace();
         } finally {
+            if (!async) {
+                emit(requestWrapper, responseWrapper, loggingHttpMessage, exchangeTimer,
+                    statusCode, failureMessage);
+            }
+        }
+    }
+
+    /*
+     * 샘플링에서 빠진 요청은 응답 body 문자열도, 로그 스냅샷도 만들지 않는다.
+     * 압축된 응답 body 는 여기서 문자열로 만들지 않고 로그를 찍을 때 푼다.
+     * latency 히스토그램에는 샘플링과 관계없이 모든 요청을 더한다.
+     */
+    private void emit(HttpServletRequest request, TeeResponseWrapper responseWrapper,
+        LoggingHttpMessage loggingHttpMessage, ExchangeTimer exchangeTimer, int statusCode,
+        String failureMessage) throws IOException {
+        exchangeTimer.markResponseFlushed();
+        final SamplingDecision samplingDecision = samplingPolicy.decide(request.getRequestURI(),
+            statusCode, exchangeTimer.nanos(Phase.TOTAL));
+        if (samplingDecision.isSampled()) {
+            String responseBody = failureMessage;
+            if (failureMessage == null) {
+                if (BodyDecoder.normalize(responseWrapper.getContentEncoding()) == null) {
+                    responseBody = new String(responseWrapper.getContentAsByteArray(),
+                        responseWrapper.getCharacterEncoding());
+                } else {
+                    loggingHttpMessage.setEncodedResponseBody(
+                        responseWrapper.getContentAsByteArray(),
+                        responseWrapper.getCharacterEncoding());
+                }
+            }
             loggingHttpMessage.setCodeAndResBodyAndResTimeMillis(statusCode, responseBody,
                 System.currentTimeMillis());
-            loggingHttpMessage.logHttpRequest();
-            loggingHttpMessage.logHttpResponse();
+            loggingHttpMessage.setSamplingDecision(samplingDecision);
+            httpLogEmitter.emit(loggingHttpMessage.capture());
+        }
+        exchangeTimer.markLogged();
+        if (latencyMetrics != null) {
+            final CacheStatus cacheStatus = CacheStatus.from(request);
+            latencyMetrics.record(request.getMethod(), request.getRequestURI(), statusCode,
+                (cacheStatus == null) ? null : cacheStatus.name(), exchangeTimer);
+        }
+    }
+
+    private class LoggingAsyncListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final TeeResponseWrapper responseWrapper;
+        private final LoggingHttpMessage loggingHttpMessage;
+        private final ExchangeTimer exchangeTimer;
+
+        LoggingAsyncListener(HttpServletRequest request, TeeResponseWrapper responseWrapper,
+            LoggingHttpMessage loggingHttpMessage, ExchangeTimer exchangeTimer) {
+            this.request = request;
+            this.responseWrapper = responseWrapper;
+            this.loggingHttpMessage = loggingHttpMessage;
+            this.exchangeTimer = exchangeTimer;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            emit(request, responseWrapper, loggingHttpMessage, exchangeTimer,
+                responseWrapper.getStatus(), null);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
 
-            responseWrapper.copyBodyToResponse();
+        @Override
+        public void onStartAsync(AsyncEvent event) {
         }
     }
 
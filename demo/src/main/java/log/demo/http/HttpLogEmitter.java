@@ -0,0 +1,17 @@
+package log.demo.http;
+
+import java.io.IOException;
+import log.demo.http.dto.HttpExchangeDTO;
+
+/*
+ * 캡처한 요청/응답 스냅샷을 HTTP 로거로 내보내는 방법
+ * 기본은 요청 스레드에서 바로 찍는 동기 방식
+ */
+public interface HttpLogEmitter extends AutoCloseable {
+
+    void emit(HttpExchangeDTO exchange) throws IOException;
+
+    @Override
+    default void close() {
+    }
+}
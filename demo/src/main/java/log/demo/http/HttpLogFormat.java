@@ -0,0 +1,21 @@
+package log.demo.http;
+
+/*
+ * 한 요청(exchange)을 몇 개의 로그 이벤트로 남길지
+ * SPLIT : REQUEST, RESPONSE 두 이벤트 (기존 형식)
+ * EXCHANGE : request, response 객체를 가진 EXCHANGE 이벤트 하나
+ */
+public enum HttpLogFormat {
+    SPLIT(2),
+    EXCHANGE(1);
+
+    private final int eventsPerExchange;
+
+    HttpLogFormat(int eventsPerExchange) {
+        this.eventsPerExchange = eventsPerExchange;
+    }
+
+    public int eventsPerExchange() {
+        return eventsPerExchange;
+    }
+}
@@ -0,0 +1,34 @@
+package log.demo.http;
+
+import log.demo.http.redaction.RedactionPolicy;
+import log.demo.http.time.TimestampPrecision;
+import lombok.Builder;
+import lombok.Getter;
+
+/*
+ * HTTP 로그 이벤트를 만들 때의 출력 옵션
+ */
+@Builder
+@Getter
+public class HttpLogOptions {
+
+    private static final HttpLogOptions DEFAULTS = HttpLogOptions.builder().build();
+
+    @Builder.Default
+    private final TimestampPrecision timestampPrecision = TimestampPrecision.NONE;
+
+    @Builder.Default
+    private final HttpLogFormat format = HttpLogFormat.SPLIT;
+
+    //헤더, 파라미터, body 에서 가릴 값
+    @Builder.Default
+    private final RedactionPolicy redaction = RedactionPolicy.none();
+
+    //압축된 body 를 풀어서 남길 최대 길이
+    @Builder.Default
+    private final int maxDecodedBodyBytes = 64 * 1024;
+
+    public static HttpLogOptions defaults() {
+        return DEFAULTS;
+    }
+}
@@ -1,106 +1,384 @@
 package log.demo.http;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
+import static net.logstash.logback.argument.StructuredArguments.raw;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.sql.Timestamp;
-import java.time.format.DateTimeFormatter;
-import java.util.Collection;
-import java.util.Enumeration;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import log.demo.constant.DatePatternConst;
+import log.demo.cache.CacheStatus;
 import log.demo.http.dto.HttpBodyDTO;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.http.encoding.BodyDecoder;
+import log.demo.http.header.HeaderView;
+import log.demo.http.json.JsonSupport;
+import log.demo.http.json.ObjectArgument;
+import log.demo.http.redaction.RedactionPolicy;
+import log.demo.http.sampling.SamplingDecision;
+import log.demo.http.time.LogTimestampFormatter;
+import log.demo.http.time.TimestampPrecision;
+import log.demo.http.wrapper.BodyCapture;
+import log.demo.http.wrapper.TeeResponseWrapper;
+import log.demo.metrics.latency.ExchangeTimer;
+import log.demo.upstream.UpstreamAttempts;
+import net.logstash.logback.argument.StructuredArgument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
 
 public class LoggingHttpMessage {
 
-    private final ContentCachingRequestWrapper requestWrapper;
-    private final ContentCachingResponseWrapper responseWrapper;
+    private static final Logger logger = LoggerFactory.getLogger("HTTP");
+    private static final LogTimestampFormatter TIMESTAMP_FORMATTER =
+        LogTimestampFormatter.systemDefault();
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private final HttpServletRequest requestWrapper;
+    private final HttpServletResponse responseWrapper;
     private int statusCode;
     private String responseBody;
+    private byte[] encodedResponseBody;
+    private String responseCharset;
     private long requestTimeMillis;
     private long responseTimeMillis;
-    private final Logger logger = LoggerFactory.getLogger("HTTP");
+    private SamplingDecision samplingDecision;
+    private HttpExchangeDTO exchange;
 
-    public LoggingHttpMessage(ContentCachingRequestWrapper requestWrapper,
-        ContentCachingResponseWrapper responseWrapper) {
+    public LoggingHttpMessage(HttpServletRequest requestWrapper,
+        HttpServletResponse responseWrapper) {
         this.requestWrapper = requestWrapper;
         this.responseWrapper = responseWrapper;
     }
 
     public void logHttpRequest() throws IOException {
-        final MultiValueMap<String, String> headers = getRequestHeaders();
-        final Map<String, String> parameters = getRequestParameters();
-        final String requestTime = millisToLocalDateTime(requestTimeMillis);
-        final String requestBody = new String(requestWrapper.getContentAsByteArray(),
-            requestWrapper.getCharacterEncoding());
-
-        Map<String, Object> requestBodyMap = null;
-        if (isJSON(requestWrapper.getContentType())) {
-            requestBodyMap = stringToMapOrNullForJSON(requestBody);
-        }
-        logger.info("REQUEST",
-            kv("request-id", requestWrapper.getRequestId()),
-            kv("method", requestWrapper.getMethod()),
-            kv("path", requestWrapper.getRequestURI()), kv("headers", headers),
-            kv("parameters", parameters), kv("timestamp", requestTime),
-            kv("body", (requestBodyMap == null) ? new HttpBodyDTO(requestBody) : requestBodyMap),
-            kv("protocol", requestWrapper.getProtocol()), kv("url", requestWrapper.getRequestURL()),
-            kv("remote-ip", requestWrapper.getRemoteAddr()),
-            kv("remote-host", requestWrapper.getRemoteHost()),
-            kv("remote-port", requestWrapper.getRemotePort())
-        );
+        logHttpRequest(capture());
     }
 
     public void logHttpResponse() {
-        final MultiValueMap<String, String> responseHeader = getResponseHeader();
-        final String responseTime = millisToLocalDateTime(responseTimeMillis);
-        final long turnaroundTimeMillis = responseTimeMillis - requestTimeMillis;
+        logHttpResponse(capture());
+    }
+
+    /*
+     * Wrapper 에서 로그에 필요한 값을 모두 복사해 불변 스냅샷을 만든다.
+     * 응답 값이 세팅된 뒤, copyBodyToResponse() 전에 호출해야 한다.
+     */
+    public HttpExchangeDTO capture() {
+        if (exchange == null) {
+            final byte[] requestBody = getRequestBody();
+            exchange = HttpExchangeDTO.builder()
+                .requestId(requestWrapper.getRequestId())
+                .method(requestWrapper.getMethod())
+                .path(requestWrapper.getRequestURI())
+                .requestHeaders(getRequestHeaders())
+                .parameters(getRequestParameters())
+                .requestBody(requestBody)
+                .requestBodyLength(getRequestBodyLength(requestBody))
+                .requestBodyTruncated(requestWrapper instanceof BodyCapture capture
+                    && capture.isTruncated())
+                .requestCharset(Optional.ofNullable(requestWrapper.getCharacterEncoding())
+                    .orElse(WebUtils.DEFAULT_CHARACTER_ENCODING))
+                .requestContentType(requestWrapper.getContentType())
+                .requestContentEncoding(BodyDecoder.normalize(
+                    requestWrapper.getHeader(HttpHeaders.CONTENT_ENCODING)))
+                .protocol(requestWrapper.getProtocol())
+                .url(requestWrapper.getRequestURL().toString())
+                .remoteIp(requestWrapper.getRemoteAddr())
+                .remoteHost(requestWrapper.getRemoteHost())
+                .remotePort(requestWrapper.getRemotePort())
+                .requestTimeMillis(requestTimeMillis)
+                .statusCode(statusCode)
+                .responseHeaders(getResponseHeader())
+                .responseBody(responseBody)
+                .responseBodyLength(getResponseBodyLength())
+                .responseBodyTruncated(responseWrapper instanceof BodyCapture capture
+                    && capture.isTruncated())
+                .responseContentType(responseWrapper.getContentType())
+                .responseContentEncoding(getResponseContentEncoding())
+                .encodedResponseBody(encodedResponseBody)
+                .responseCharset(responseCharset)
+                .responseTimeMillis(responseTimeMillis)
+                .phaseMicros(getPhaseMicros())
+                .cacheStatus(getCacheStatus())
+                .upstreamAttempts(getUpstreamAttempts())
+                .sampleRate((samplingDecision == null) ? 1.0 : samplingDecision.getRate())
+                .sampleRule((samplingDecision == null) ? null : samplingDecision.getRule())
+                .build();
+        }
+        return exchange;
+    }
+
+    public static void logHttpRequest(HttpExchangeDTO exchange) throws IOException {
+        logHttpRequest(exchange, HttpLogOptions.defaults());
+    }
+
+    public static void logHttpRequest(HttpExchangeDTO exchange, HttpLogOptions options)
+        throws IOException {
+        final List<StructuredArgument> arguments = new ArrayList<>(18);
+        addRequestArguments(arguments, exchange, options, true);
+        addSampling(arguments, exchange);
+        logger.info("REQUEST", arguments.toArray());
+    }
+
+    public static void logHttpResponse(HttpExchangeDTO exchange) {
+        logHttpResponse(exchange, HttpLogOptions.defaults());
+    }
+
+    public static void logHttpResponse(HttpExchangeDTO exchange, HttpLogOptions options) {
+        final List<StructuredArgument> arguments = new ArrayList<>(18);
+        addResponseArguments(arguments, exchange, options, true);
+        addSampling(arguments, exchange);
+        logger.info("RESPONSE", arguments.toArray());
+    }
+
+    public static void logHttpExchange(HttpExchangeDTO exchange) throws IOException {
+        logHttpExchange(exchange, HttpLogOptions.defaults());
+    }
+
+    /*
+     * 요청과 응답을 EXCHANGE 이벤트 하나로 남긴다.
+     * request-id, path, url 은 한 번만 남기고, 나머지는 REQUEST/RESPONSE 이벤트와 같은 이름으로
+     * request, response 객체 안에 넣는다.
+     */
+    public static void logHttpExchange(HttpExchangeDTO exchange, HttpLogOptions options)
+        throws IOException {
+        logger.info("EXCHANGE", exchangeArguments(exchange, options).toArray());
+    }
+
+    /*
+     * EXCHANGE 이벤트의 argument 부분(request-id, path, url, request, response, sample-*)만 JSON 객체로 쓴다.
+     * 로그 envelope(@timestamp, logger_name ...) 없이 같은 필드를 내보낼 때(live tail) 쓴다.
+     */
+    public static void writeExchange(JsonGenerator generator, HttpExchangeDTO exchange,
+        HttpLogOptions options) throws IOException {
+        generator.writeStartObject();
+        for (StructuredArgument argument : exchangeArguments(exchange, options)) {
+            argument.writeTo(generator);
+        }
+        generator.writeEndObject();
+    }
+
+    private static List<StructuredArgument> exchangeArguments(HttpExchangeDTO exchange,
+        HttpLogOptions options) throws IOException {
+        final List<StructuredArgument> requestArguments = new ArrayList<>(14);
+        addRequestArguments(requestArguments, exchange, options, false);
+        final List<StructuredArgument> responseArguments = new ArrayList<>(12);
+        addResponseArguments(responseArguments, exchange, options, false);
+
+        final List<StructuredArgument> arguments = new ArrayList<>(7);
+        arguments.add(kv("request-id", exchange.getRequestId()));
+        arguments.add(kv("path", exchange.getPath()));
+        arguments.add(kv("url", exchange.getUrl()));
+        arguments.add(new ObjectArgument("request", requestArguments));
+        arguments.add(new ObjectArgument("response", responseArguments));
+        addSampling(arguments, exchange);
+        return arguments;
+    }
+
+    //standalone 이 아니면 EXCHANGE 이벤트에서 한 번만 남기는 request-id, path, url 을 뺀다.
+    private static void addRequestArguments(List<StructuredArgument> arguments,
+        HttpExchangeDTO exchange, HttpLogOptions options, boolean standalone) throws IOException {
+        final long requestTimeMillis = exchange.getRequestTimeMillis();
+        final String requestTime = TIMESTAMP_FORMATTER.format(requestTimeMillis);
+
+        final RedactionPolicy redaction = options.getRedaction();
+        final String contentEncoding = exchange.getRequestContentEncoding();
+        byte[] requestBody = exchange.getRequestBody();
+        boolean requestBodyTruncated = exchange.isRequestBodyTruncated();
+        if (contentEncoding != null) {
+            final BodyDecoder.Decoded decoded = decode(requestBody, contentEncoding, options);
+            requestBody = decoded.body();
+            requestBodyTruncated = !decoded.complete();
+        }
+        String requestBodyJson = null;
+        if (!requestBodyTruncated && isJSON(exchange.getRequestContentType())) {
+            requestBodyJson = JsonSupport.compactObjectOrNull(requestBody,
+                exchange.getRequestCharset(), redaction);
+        }
+        if (standalone) {
+            arguments.add(kv("request-id", exchange.getRequestId()));
+        }
+        arguments.add(kv("method", exchange.getMethod()));
+        if (standalone) {
+            arguments.add(kv("path", exchange.getPath()));
+        }
+        arguments.add(kv("headers", redaction.redactHeaders(exchange.getRequestHeaders())));
+        arguments.add(kv("parameters", redaction.redactParameters(exchange.getParameters())));
+        arguments.add(kv("timestamp", requestTime));
+        addPreciseTimestamp(arguments, options, requestTimeMillis);
+        arguments.add(bodyArgument(requestBodyJson, requestBody, exchange.getRequestCharset(),
+            exchange.getRequestContentType(), redaction));
+        arguments.add(kv("body-length", exchange.getRequestBodyLength()));
+        arguments.add(kv("body-truncated", requestBodyTruncated));
+        if (contentEncoding != null) {
+            arguments.add(kv("content-encoding", contentEncoding));
+        }
+        arguments.add(kv("protocol", exchange.getProtocol()));
+        if (standalone) {
+            arguments.add(kv("url", exchange.getUrl()));
+        }
+        arguments.add(kv("remote-ip", exchange.getRemoteIp()));
+        arguments.add(kv("remote-host", exchange.getRemoteHost()));
+        arguments.add(kv("remote-port", exchange.getRemotePort()));
+    }
+
+    private static void addResponseArguments(List<StructuredArgument> arguments,
+        HttpExchangeDTO exchange, HttpLogOptions options, boolean standalone) {
+        final long responseTimeMillis = exchange.getResponseTimeMillis();
+        final String responseTime = TIMESTAMP_FORMATTER.format(responseTimeMillis);
+        final long turnaroundTimeMillis = responseTimeMillis - exchange.getRequestTimeMillis();
+        final String contentEncoding = exchange.getResponseContentEncoding();
+        String responseBody = exchange.getResponseBody();
+        boolean responseBodyTruncated = exchange.isResponseBodyTruncated();
+        if (exchange.getEncodedResponseBody() != null) {
+            final BodyDecoder.Decoded decoded = decode(exchange.getEncodedResponseBody(),
+                contentEncoding, options);
+            responseBody = new String(decoded.body(), charsetOf(exchange.getResponseCharset()));
+            responseBodyTruncated = !decoded.complete();
+        }
+
+        final RedactionPolicy redaction = options.getRedaction();
+        String responseBodyJson = null;
+        if (!responseBodyTruncated && isJSON(exchange.getResponseContentType())) {
+            responseBodyJson = JsonSupport.compactObjectOrNull(responseBody, redaction);
+        }
+        if (standalone) {
+            arguments.add(kv("request-id", exchange.getRequestId()));
+        }
+        arguments.add(kv("status-code", statusCodeToString(exchange.getStatusCode())));
+        if (standalone) {
+            arguments.add(kv("path", exchange.getPath()));
+        }
+        arguments.add(kv("headers", redaction.redactHeaders(exchange.getResponseHeaders())));
+        arguments.add(kv("timestamp", responseTime));
+        addPreciseTimestamp(arguments, options, responseTimeMillis);
+        arguments.add(kv("turnaround-time", turnaroundTimeMillis));
+        if (exchange.getPhaseMicros() != null) {
+            arguments.add(kv("phase-us", exchange.getPhaseMicros()));
+        }
+        //캐시로 응답한 요청은 대상 서버 구간이 없으므로 turnaround 와 함께 봐야 한다.
+        if (exchange.getCacheStatus() != null) {
+            arguments.add(kv("cache", exchange.getCacheStatus()));
+        }
+        if (exchange.getUpstreamAttempts() != null) {
+            arguments.add(kv("upstream-attempts", exchange.getUpstreamAttempts()));
+        }
+        arguments.add(bodyArgument(responseBodyJson, responseBody,
+            exchange.getResponseContentType(), redaction));
+        arguments.add(kv("body-length", exchange.getResponseBodyLength()));
+        arguments.add(kv("body-truncated", responseBodyTruncated));
+        if (contentEncoding != null) {
+            arguments.add(kv("content-encoding", contentEncoding));
+        }
+        if (standalone) {
+            arguments.add(kv("url", exchange.getUrl()));
+        }
+        arguments.add(kv("code-type", getCodeType(exchange.getStatusCode())));
+    }
 
-        Map<String, Object> responseBodyMap = null;
-        if (isJSON(responseWrapper.getContentType())) {
-            responseBodyMap = stringToMapOrNullForJSON(responseBody);
+    //초 단위 timestamp 로는 turnaround 분석이 어려워서 옵션으로 밀리초 시각을 같이 남긴다.
+    private static void addPreciseTimestamp(List<StructuredArgument> arguments,
+        HttpLogOptions options, long epochMillis) {
+        final TimestampPrecision precision = options.getTimestampPrecision();
+        if (precision != TimestampPrecision.NONE) {
+            arguments.add(kv("timestamp-millis",
+                TIMESTAMP_FORMATTER.preciseValue(precision, epochMillis)));
         }
-        logger.info("RESPONSE",
-            kv("request-id", requestWrapper.getRequestId()),
-            kv("status-code", statusCodeToString()),
-            kv("path", requestWrapper.getRequestURI()), kv("headers", responseHeader),
-            kv("timestamp", responseTime), kv("turnaround-time", turnaroundTimeMillis),
-            kv("body", (responseBodyMap == null) ? new HttpBodyDTO(responseBody) : responseBodyMap),
-            kv("url", requestWrapper.getRequestURL()), kv("code-type", getCodeType())
-        );
+    }
+
+    /*
+     * 압축된 body 는 잘라 둔 앞부분만 로그를 찍는 스레드에서 푼다. (body-length 는 압축된 길이 그대로)
+     * 풀 수 없는 encoding 이면 body 를 비우고 body-truncated 로 남긴다.
+     */
+    private static BodyDecoder.Decoded decode(byte[] body, String contentEncoding,
+        HttpLogOptions options) {
+        final BodyDecoder.Decoded decoded = BodyDecoder.decode(body, contentEncoding,
+            options.getMaxDecodedBodyBytes());
+        return (decoded == null) ? new BodyDecoder.Decoded(EMPTY_BODY, false) : decoded;
+    }
+
+    private static Charset charsetOf(String charset) {
+        try {
+            return (charset == null) ? StandardCharsets.ISO_8859_1 : Charset.forName(charset);
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    //샘플링으로 뽑힌 이벤트는 1 / sample-rate 개를 대표한다.
+    private static void addSampling(List<StructuredArgument> arguments, HttpExchangeDTO exchange) {
+        if (exchange.getSampleRule() != null) {
+            arguments.add(kv("sample-rate", exchange.getSampleRate()));
+            arguments.add(kv("sample-rule", exchange.getSampleRule()));
+        }
+    }
+
+    private byte[] getRequestBody() {
+        if (requestWrapper instanceof BodyCapture capture) {
+            return capture.getContentAsByteArray();
+        }
+        if (requestWrapper instanceof ContentCachingRequestWrapper cachingRequestWrapper) {
+            return cachingRequestWrapper.getContentAsByteArray();
+        }
+        return EMPTY_BODY;
+    }
 
+    private long getRequestBodyLength(byte[] requestBody) {
+        if (requestWrapper instanceof BodyCapture capture) {
+            return capture.getTotalBytes();
+        }
+        return requestBody.length;
     }
 
+    private long getResponseBodyLength() {
+        if (responseWrapper instanceof BodyCapture capture) {
+            return capture.getTotalBytes();
+        }
+        if (responseWrapper instanceof ContentCachingResponseWrapper cachingResponseWrapper) {
+            return cachingResponseWrapper.getContentSize();
+        }
+        return (responseBody == null) ? 0 : responseBody.length();
+    }
+
+    //Tomcat 이 압축하며 붙인 Content-Encoding 은 빼고 본다. (복사해 둔 body 는 압축 전이다.)
+    private String getResponseContentEncoding() {
+        return BodyDecoder.normalize((responseWrapper instanceof TeeResponseWrapper tee)
+            ? tee.getContentEncoding() : responseWrapper.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    //컨트롤러가 이미 만든 view 가 있으면 그대로 쓴다.
     private MultiValueMap<String, String> getRequestHeaders() {
-        final MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
-        requestWrapper.getHeaderNames().asIterator().forEachRemaining(headerName -> {
-            Enumeration<String> headerValues = requestWrapper.getHeaders(headerName);
-            headerValues.asIterator()
-                .forEachRemaining(headerValue -> headers.add(headerName, headerValue));
-        });
-        return headers;
+        return HeaderView.from(requestWrapper);
     }
 
     private MultiValueMap<String, String> getResponseHeader() {
-        final MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
-        responseWrapper.getHeaderNames().iterator().forEachRemaining(headerName -> {
-            Collection<String> headerValues = responseWrapper.getHeaders(headerName);
-            headerValues.iterator()
-                .forEachRemaining(headerValue -> headers.add(headerName, headerValue));
-        });
-        return headers;
+        return HeaderView.of(responseWrapper);
+    }
+
+    private Map<String, Double> getPhaseMicros() {
+        final ExchangeTimer exchangeTimer = ExchangeTimer.from(requestWrapper);
+        return (exchangeTimer == null) ? null : exchangeTimer.toMicrosMap();
+    }
+
+    private String getCacheStatus() {
+        final CacheStatus cacheStatus = CacheStatus.from(requestWrapper);
+        return (cacheStatus == null) ? null : cacheStatus.name();
+    }
+
+    private Map<String, Object> getUpstreamAttempts() {
+        final UpstreamAttempts upstreamAttempts = UpstreamAttempts.from(requestWrapper);
+        return (upstreamAttempts == null) ? null : upstreamAttempts.toMap();
     }
 
     private Map<String, String> getRequestParameters() {
@@ -112,35 +390,51 @@ public class LoggingHttpMessage {
         return params;
     }
 
-    private String millisToLocalDateTime(long requestTimeMillis) {
-        return new Timestamp(requestTimeMillis).toLocalDateTime().format(
-            DateTimeFormatter.ofPattern(DatePatternConst.LogTimeStampPattern)
-        );
+    private static boolean isJSON(String contentType) {
+        return contentType != null && contentType.contains("application/json");
     }
 
-    private boolean isJSON(String contentType) {
-        return contentType != null && contentType.contains("application/json");
+    private static boolean isForm(String contentType) {
+        return contentType != null && contentType.contains("application/x-www-form-urlencoded");
     }
 
-    private Map<String, Object> stringToMapOrNullForJSON(String requestBody) {
-        final ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> map = null;
-        try {
-            map = mapper.readValue(requestBody, new TypeReference<Map<String, Object>>() {
-            });
-        } catch (JsonProcessingException ignored) {
+    //JSON 으로 검증된 body 는 다시 직렬화하지 않고 그대로 끼워 넣는다. (가릴 값은 검증하며 이미 가렸다.)
+    private static StructuredArgument bodyArgument(String bodyJson, byte[] body, String charset,
+        String contentType, RedactionPolicy redaction) throws IOException {
+        if (bodyJson != null) {
+            return raw("body", bodyJson);
         }
-        return map;
+        return bodyArgument(null, new String(body, charset), contentType, redaction);
     }
 
-    private String statusCodeToString() {
+    private static StructuredArgument bodyArgument(String bodyJson, String body,
+        String contentType, RedactionPolicy redaction) {
+        if (bodyJson != null) {
+            return raw("body", bodyJson);
+        }
+        return kv("body", new HttpBodyDTO(redactText(body, contentType, redaction)));
+    }
+
+    //잘렸거나 object 가 아닌 JSON body 와 form body 는 text 로 남기되 가릴 값은 가린다.
+    private static String redactText(String body, String contentType,
+        RedactionPolicy redaction) {
+        if (isJSON(contentType)) {
+            return JsonSupport.redactJsonText(body, redaction);
+        }
+        if (isForm(contentType)) {
+            return redaction.redactForm(body);
+        }
+        return body;
+    }
+
+    private static String statusCodeToString(int statusCode) {
         return Optional
             .ofNullable(HttpStatus.resolve(statusCode))
             .map(HttpStatus::toString)
             .orElse(String.valueOf(statusCode));
     }
 
-    private String getCodeType() {
+    private static String getCodeType(int statusCode) {
         int type = statusCode / 100;
         return type + "XX";
     }
@@ -149,6 +443,10 @@ public class LoggingHttpMessage {
         this.requestTimeMillis = requestTimeMillis;
     }
 
+    public void setSamplingDecision(SamplingDecision samplingDecision) {
+        this.samplingDecision = samplingDecision;
+    }
+
     public void setCodeAndResBodyAndResTimeMillis(int statusCode, String responseBody,
         long responseTimeMillis) {
         this.statusCode = statusCode;
@@ -156,4 +454,10 @@ public class LoggingHttpMessage {
         this.responseTimeMillis = responseTimeMillis;
     }
 
+    //압축된 응답 body 는 문자열로 바꾸지 않고 넘겨 두면 로그를 찍을 때 푼다.
+    public void setEncodedResponseBody(byte[] encodedResponseBody, String responseCharset) {
+        this.encodedResponseBody = encodedResponseBody;
+        this.responseCharset = responseCharset;
+    }
+
 }
@@ -0,0 +1,27 @@
+package log.demo.http;
+
+import java.io.IOException;
+import log.demo.http.dto.HttpExchangeDTO;
+
+public class SyncHttpLogEmitter implements HttpLogEmitter {
+
+    private final HttpLogOptions options;
+
+    public SyncHttpLogEmitter() {
+        this(HttpLogOptions.defaults());
+    }
+
+    public SyncHttpLogEmitter(HttpLogOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public void emit(HttpExchangeDTO exchange) throws IOException {
+        if (options.getFormat() == HttpLogFormat.EXCHANGE) {
+            LoggingHttpMessage.logHttpExchange(exchange, options);
+            return;
+        }
+        LoggingHttpMessage.logHttpRequest(exchange, options);
+        LoggingHttpMessage.logHttpResponse(exchange, options);
+    }
+}
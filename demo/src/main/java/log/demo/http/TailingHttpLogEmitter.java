@@ -0,0 +1,31 @@
+package log.demo.http;
+
+import java.io.IOException;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.http.tail.ExchangeEventBus;
+
+/*
+ * 로그로 내보내는 스냅샷을 live tail bus 에도 넘긴다.
+ * bus 는 기다리지 않으므로 tail 구독자가 느려도 delegate(로그)는 영향을 받지 않는다.
+ */
+public class TailingHttpLogEmitter implements HttpLogEmitter {
+
+    private final HttpLogEmitter delegate;
+    private final ExchangeEventBus bus;
+
+    public TailingHttpLogEmitter(HttpLogEmitter delegate, ExchangeEventBus bus) {
+        this.delegate = delegate;
+        this.bus = bus;
+    }
+
+    @Override
+    public void emit(HttpExchangeDTO exchange) throws IOException {
+        bus.publish(exchange);
+        delegate.emit(exchange);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,163 @@
+package log.demo.http.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import log.demo.http.HttpLogEmitter;
+import log.demo.http.dto.HttpExchangeDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * 요청 스레드는 스냅샷을 bounded queue 에 넣기만 하고
+ * 전용 writer 스레드가 batch 단위로 꺼내 delegate(HTTP 로거)로 찍는다.
+ */
+public class AsyncHttpLogEmitter implements HttpLogEmitter {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncHttpLogEmitter.class);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final HttpLogEmitter delegate;
+    private final BlockingQueue<HttpExchangeDTO> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleEvery;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    public AsyncHttpLogEmitter(HttpLogEmitter delegate, int capacity, int batchSize,
+        OverflowPolicy overflowPolicy, int sampleEvery) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = Math.max(1, batchSize);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.writer = new Thread(this::drainLoop, "http-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void emit(HttpExchangeDTO exchange) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> putBlocking(exchange);
+            case DROP_OLDEST -> offerDroppingOldest(exchange);
+            case SAMPLE -> offerSampled(exchange);
+        }
+    }
+
+    private void putBlocking(HttpExchangeDTO exchange) {
+        try {
+            queue.put(exchange);
+            published.increment();
+        } catch (InterruptedException e) {
+            dropped.increment();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void offerDroppingOldest(HttpExchangeDTO exchange) {
+        while (!queue.offer(exchange)) {
+            if (queue.poll() != null) {
+                dropped.increment();
+            }
+        }
+        published.increment();
+    }
+
+    private void offerSampled(HttpExchangeDTO exchange) {
+        if (queue.size() >= capacity / 2) {
+            if (sampleCounter.incrementAndGet() % sampleEvery != 0) {
+                dropped.increment();
+                return;
+            }
+        }
+        if (queue.offer(exchange)) {
+            published.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        final List<HttpExchangeDTO> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                final HttpExchangeDTO first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<HttpExchangeDTO> batch) {
+        for (HttpExchangeDTO exchange : batch) {
+            try {
+                delegate.emit(exchange);
+                written.increment();
+            } catch (Exception e) {
+                dropped.increment();
+                log.warn("failed to write http log", e);
+            }
+        }
+    }
+
+    //남은 로그를 모두 쓰고 writer 스레드를 종료한다.
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
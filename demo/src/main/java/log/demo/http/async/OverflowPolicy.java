@@ -0,0 +1,13 @@
+package log.demo.http.async;
+
+/*
+ * 로그 큐가 가득 찼을 때의 동작
+ * BLOCK : 큐에 자리가 날 때까지 요청 스레드가 기다린다.
+ * DROP_OLDEST : 가장 오래된 로그를 버리고 새 로그를 넣는다.
+ * SAMPLE : 큐가 절반 이상 차면 N 개 중 1 개만 넣고, 가득 차면 버린다.
+ */
+public enum OverflowPolicy {
+    BLOCK,
+    DROP_OLDEST,
+    SAMPLE
+}
@@ -0,0 +1,55 @@
+package log.demo.http.dto;
+
+import java.util.Map;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.util.MultiValueMap;
+
+/*
+ * 요청 스레드에서 떠 두는 HTTP 요청/응답 스냅샷
+ * 로그를 비동기로 찍더라도 Wrapper 를 다시 참조하지 않도록 필요한 값을 모두 복사해 둔다.
+ */
+@Builder
+@Getter
+public class HttpExchangeDTO {
+
+    private final String requestId;
+    private final String method;
+    private final String path;
+    private final MultiValueMap<String, String> requestHeaders;
+    private final Map<String, String> parameters;
+    private final byte[] requestBody;
+    private final long requestBodyLength;
+    private final boolean requestBodyTruncated;
+    private final String requestCharset;
+    private final String requestContentType;
+    //Content-Encoding (없거나 identity 면 null), 압축된 body 는 그대로 두고 로그를 찍을 때 푼다.
+    private final String requestContentEncoding;
+    private final String protocol;
+    private final String url;
+    private final String remoteIp;
+    private final String remoteHost;
+    private final int remotePort;
+    private final long requestTimeMillis;
+
+    private final int statusCode;
+    private final MultiValueMap<String, String> responseHeaders;
+    private final String responseBody;
+    private final long responseBodyLength;
+    private final boolean responseBodyTruncated;
+    private final String responseContentType;
+    private final String responseContentEncoding;
+    //responseContentEncoding 이 있으면 responseBody 대신 압축된 body 앞부분과 charset 을 둔다.
+    private final byte[] encodedResponseBody;
+    private final String responseCharset;
+    private final long responseTimeMillis;
+    //구간 이름 -> 마이크로초 (ExchangeTimer 가 없으면 null)
+    private final Map<String, Double> phaseMicros;
+    //ResponseCache 를 거친 GET 요청만 HIT, REVALIDATED, MISS, BYPASS 중 하나 (아니면 null)
+    private final String cacheStatus;
+    //대상 서버에 retry 나 hedge 를 했을 때만 UpstreamAttempts 의 내용 (아니면 null)
+    private final Map<String, Object> upstreamAttempts;
+    //샘플링으로 뽑힌 확률과 규칙 (샘플링을 거치지 않았으면 sampleRule 은 null)
+    private final double sampleRate;
+    private final String sampleRule;
+}
@@ -0,0 +1,132 @@
+package log.demo.http.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/*
+ * Content-Encoding 으로 압축된 body 를 로그용으로 푼다.
+ * 로그용으로 잘라 둔 앞부분만 받으므로 압축 스트림이 중간에 끊겨도 그때까지 푼 만큼을 돌려준다.
+ * 푼 크기는 maxBytes 까지만 만든다. (압축률이 높은 body 가 로그 스레드의 메모리를 쓰지 않도록)
+ * gzip, x-gzip, deflate(zlib, raw) 만 푼다. br 처럼 JDK 로 풀 수 없거나 여러 번 적용된 encoding 은 풀지 않는다.
+ */
+public final class BodyDecoder {
+
+    private static final int BUFFER_BYTES = 4096;
+    private static final int GZIP_HEADER_BYTES = 10;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    //complete : 압축 스트림 끝까지 풀었다. (false 면 잘렸거나 maxBytes 에 닿았다.)
+    public record Decoded(byte[] body, boolean complete) {
+
+    }
+
+    private BodyDecoder() {
+    }
+
+    //Content-Encoding 헤더 값, 없거나 identity 면 null
+    public static String normalize(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        final String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        return (encoding.isEmpty() || "identity".equals(encoding)) ? null : encoding;
+    }
+
+    public static boolean isSupported(String encoding) {
+        return "gzip".equals(encoding) || "x-gzip".equals(encoding) || "deflate".equals(encoding);
+    }
+
+    //풀 수 없는 encoding 이거나 처음부터 깨진 body 면 null
+    public static Decoded decode(byte[] body, String encoding, int maxBytes) {
+        if (!isSupported(encoding)) {
+            return null;
+        }
+        if (body.length == 0) {
+            return new Decoded(body, true);
+        }
+        final int offset;
+        final Inflater inflater;
+        if ("deflate".equals(encoding)) {
+            //RFC 상 zlib 형식이지만 raw deflate 를 보내는 서버도 있다.
+            offset = 0;
+            inflater = new Inflater(!isZlibHeader(body));
+        } else {
+            offset = gzipHeaderLength(body);
+            if (offset < 0) {
+                return null;
+            }
+            inflater = new Inflater(true);
+        }
+        try {
+            inflater.setInput(body, offset, body.length - offset);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(
+                Math.min(maxBytes, body.length * 4));
+            final byte[] buffer = new byte[BUFFER_BYTES];
+            while (out.size() < maxBytes && !inflater.finished()) {
+                final int count = inflater.inflate(buffer, 0,
+                    Math.min(buffer.length, maxBytes - out.size()));
+                if (count == 0) {
+                    //입력이 끝났거나(잘린 body) dictionary 가 필요하다.
+                    break;
+                }
+                out.write(buffer, 0, count);
+            }
+            if (out.size() == 0 && !inflater.finished()) {
+                return null;
+            }
+            return new Decoded(out.toByteArray(), inflater.finished());
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean isZlibHeader(byte[] body) {
+        return body.length >= 2 && (body[0] & 0x0f) == 8
+            && (((body[0] & 0xff) << 8) | (body[1] & 0xff)) % 31 == 0;
+    }
+
+    //RFC 1952 header 길이, gzip 이 아니거나 header 가 잘렸으면 -1
+    private static int gzipHeaderLength(byte[] body) {
+        if (body.length < GZIP_HEADER_BYTES || (body[0] & 0xff) != 0x1f
+            || (body[1] & 0xff) != 0x8b || body[2] != 8) {
+            return -1;
+        }
+        final int flags = body[3] & 0xff;
+        int position = GZIP_HEADER_BYTES;
+        if ((flags & FEXTRA) != 0) {
+            if (position + 2 > body.length) {
+                return -1;
+            }
+            position += 2 + ((body[position] & 0xff) | ((body[position + 1] & 0xff) << 8));
+        }
+        if ((flags & FNAME) != 0) {
+            position = skipZeroTerminated(body, position);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            position = skipZeroTerminated(body, position);
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        return (position < 0 || position > body.length) ? -1 : position;
+    }
+
+    private static int skipZeroTerminated(byte[] body, int position) {
+        if (position < 0) {
+            return -1;
+        }
+        for (int i = position; i < body.length; i++) {
+            if (body[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
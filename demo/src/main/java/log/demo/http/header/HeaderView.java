@@ -0,0 +1,247 @@
+package log.demo.http.header;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+/*
+ * 요청(또는 응답) 헤더를 한 번만 복사해 두는 읽기 전용 MultiValueMap
+ * 컨트롤러, PassRequestDTO, 로그가 같은 인스턴스를 공유해 헤더를 다시 복사하지 않는다.
+ * 요청 헤더는 request attribute 에 한 번 만들어 두고, 대상 서버로 넘기면 안 되는 hop-by-hop 헤더는 뺀다.
+ * 헤더 이름은 HttpHeaders 처럼 대소문자를 구분하지 않고 찾는다.
+ */
+public final class HeaderView extends AbstractMap<String, List<String>>
+    implements MultiValueMap<String, String> {
+
+    public static final String ATTRIBUTE = HeaderView.class.getName();
+
+    //Proxy-Connection 은 표준이 아니지만 오래된 클라이언트가 Connection 대신 보낸다.
+    private static final List<String> HOP_BY_HOP_HEADERS = List.of(
+        HttpHeaders.CONNECTION, "Keep-Alive", "Proxy-Connection", HttpHeaders.TRANSFER_ENCODING,
+        HttpHeaders.TE, HttpHeaders.UPGRADE);
+
+    private final String[] names;
+    private final List<String>[] values;
+    private final int size;
+    private Set<Entry<String, List<String>>> entrySet;
+
+    private HeaderView(String[] names, List<String>[] values, int size) {
+        this.names = names;
+        this.values = values;
+        this.size = size;
+    }
+
+    //같은 요청에서는 처음 만든 view 를 계속 쓴다.
+    public static HeaderView from(HttpServletRequest request) {
+        final Object cached = request.getAttribute(ATTRIBUTE);
+        if (cached instanceof HeaderView headerView) {
+            return headerView;
+        }
+        final HeaderView headerView = of(request);
+        request.setAttribute(ATTRIBUTE, headerView);
+        return headerView;
+    }
+
+    public static HeaderView of(HttpServletRequest request) {
+        final List<String> headerNames = new ArrayList<>();
+        request.getHeaderNames().asIterator().forEachRemaining(headerNames::add);
+        final List<String> connectionOptions = connectionOptions(request);
+
+        final String[] names = new String[headerNames.size()];
+        final List<String>[] values = newValues(headerNames.size());
+        int size = 0;
+        for (String headerName : headerNames) {
+            if (isHopByHop(headerName, connectionOptions)) {
+                continue;
+            }
+            names[size] = headerName;
+            values[size++] = toList(request.getHeaders(headerName));
+        }
+        return new HeaderView(names, values, size);
+    }
+
+    public static HeaderView of(HttpServletResponse response) {
+        final Collection<String> headerNames = response.getHeaderNames();
+        final String[] names = new String[headerNames.size()];
+        final List<String>[] values = newValues(headerNames.size());
+        int size = 0;
+        for (String headerName : headerNames) {
+            names[size] = headerName;
+            values[size++] = List.copyOf(response.getHeaders(headerName));
+        }
+        return new HeaderView(names, values, size);
+    }
+
+    //제네릭 배열은 만들 수 없으므로 raw 배열을 만들어 넘긴다. (List<String> 만 넣는다.)
+    @SuppressWarnings("unchecked")
+    private static List<String>[] newValues(int length) {
+        return (List<String>[]) new List<?>[length];
+    }
+
+    //Connection 헤더에 나열된 헤더도 hop-by-hop 이다. (RFC 7230 6.1)
+    private static List<String> connectionOptions(HttpServletRequest request) {
+        final Enumeration<String> connection = request.getHeaders(HttpHeaders.CONNECTION);
+        if (connection == null || !connection.hasMoreElements()) {
+            return List.of();
+        }
+        final List<String> options = new ArrayList<>();
+        connection.asIterator().forEachRemaining(value -> {
+            for (String option : StringUtils.commaDelimitedListToStringArray(value)) {
+                if (StringUtils.hasText(option)) {
+                    options.add(option.trim());
+                }
+            }
+        });
+        return options;
+    }
+
+    //다음 hop 으로 넘기지 않는 헤더인지 (Connection 에 나열된 헤더는 보지 않는다.) 프록시, 캐시가 같이 쓴다.
+    public static boolean isHopByHopHeader(String headerName) {
+        return containsIgnoreCase(HOP_BY_HOP_HEADERS, headerName);
+    }
+
+    private static boolean isHopByHop(String headerName, List<String> connectionOptions) {
+        return isHopByHopHeader(headerName) || containsIgnoreCase(connectionOptions, headerName);
+    }
+
+    private static boolean containsIgnoreCase(List<String> candidates, String headerName) {
+        for (String candidate : candidates) {
+            if (candidate.equalsIgnoreCase(headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //대부분의 헤더는 값이 하나라 List.of 하나로 끝난다.
+    private static List<String> toList(Enumeration<String> headerValues) {
+        if (headerValues == null || !headerValues.hasMoreElements()) {
+            return List.of();
+        }
+        final String first = headerValues.nextElement();
+        if (!headerValues.hasMoreElements()) {
+            return List.of(first);
+        }
+        final List<String> list = new ArrayList<>(2);
+        list.add(first);
+        headerValues.asIterator().forEachRemaining(list::add);
+        return List.copyOf(list);
+    }
+
+    private int indexOf(Object key) {
+        if (key instanceof String headerName) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equalsIgnoreCase(headerName)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        final int index = indexOf(key);
+        return (index < 0) ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getFirst(String key) {
+        final List<String> headerValues = get(key);
+        return (headerValues == null || headerValues.isEmpty()) ? null : headerValues.get(0);
+    }
+
+    @Override
+    public Map<String, String> toSingleValueMap() {
+        final Map<String, String> singleValueMap = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            singleValueMap.put(names[i], values[i].isEmpty() ? null : values[i].get(0));
+        }
+        return singleValueMap;
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    @Override
+    public void add(String key, String value) {
+        throw new UnsupportedOperationException("HeaderView is read-only");
+    }
+
+    @Override
+    public void addAll(String key, List<? extends String> values) {
+        throw new UnsupportedOperationException("HeaderView is read-only");
+    }
+
+    @Override
+    public void addAll(MultiValueMap<String, String> values) {
+        throw new UnsupportedOperationException("HeaderView is read-only");
+    }
+
+    @Override
+    public void set(String key, String value) {
+        throw new UnsupportedOperationException("HeaderView is read-only");
+    }
+
+    @Override
+    public void setAll(Map<String, String> values) {
+        throw new UnsupportedOperationException("HeaderView is read-only");
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, List<String>>> {
+
+        @Override
+        public Iterator<Entry<String, List<String>>> iterator() {
+            return new Iterator<>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public Entry<String, List<String>> next() {
+                    if (index >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    final int current = index++;
+                    return new SimpleImmutableEntry<>(names[current], values[current]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
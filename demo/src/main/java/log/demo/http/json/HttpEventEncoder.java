@@ -0,0 +1,205 @@
+package log.demo.http.json;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.EncoderBase;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import log.demo.http.time.LogTimestampFormatter;
+import net.logstash.logback.argument.StructuredArgument;
+import net.logstash.logback.encoder.LogstashEncoder;
+
+/*
+ * HTTP 로거 전용 encoder
+ * LogstashEncoder 기본 설정과 같은 바이트를 만들지만, provider 목록을 돌지 않고 필드를 순서대로 바로 쓴다.
+ * 값은 StreamingJsonGenerator 가 ObjectMapper 없이 쓴다.
+ * 버퍼와 generator 는 pool 에서 꺼내 재사용한다. 가상 스레드는 요청마다 새 스레드라 ThreadLocal 로는 재사용되지 않는다.
+ * 예외(stack_trace)나 marker(tags)가 붙은 이벤트는 드물어서 LogstashEncoder 에 그대로 맡긴다.
+ */
+public class HttpEventEncoder extends EncoderBase<ILoggingEvent> {
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final int INITIAL_BUFFER_BYTES = 1024;
+    //큰 body 로 커진 버퍼는 pool 에 돌려놓지 않는다.
+    private static final int MAX_POOLED_BUFFER_BYTES = 256 * 1024;
+
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+        .disable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING)
+        .build()
+        .setCodec(JsonSupport.OBJECT_MAPPER);
+    private final LogTimestampFormatter timestampFormatter =
+        new LogTimestampFormatter(ZoneId.systemDefault());
+    private final LogstashEncoder fallback = new LogstashEncoder();
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private ArrayBlockingQueue<EncodingBuffer> buffers;
+    private int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+
+    @Override
+    public void start() {
+        buffers = new ArrayBlockingQueue<>(poolSize);
+        fallback.setContext(getContext());
+        fallback.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        fallback.stop();
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return EMPTY_BYTES;
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return EMPTY_BYTES;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        if (!isStarted()) {
+            throw new IllegalStateException("Encoder is not started");
+        }
+        if (event.getThrowableProxy() != null
+            || (event.getMarkerList() != null && !event.getMarkerList().isEmpty())) {
+            return fallback.encode(event);
+        }
+        EncodingBuffer buffer = buffers.poll();
+        try {
+            if (buffer == null) {
+                buffer = new EncodingBuffer(jsonFactory);
+            }
+            writeEvent(buffer.generator, event);
+            buffer.generator.flush();
+            buffer.write(lineSeparator);
+            final byte[] bytes = buffer.toByteArray();
+            release(buffer);
+            return bytes;
+        } catch (IOException e) {
+            //쓰다 만 generator 는 상태가 깨졌으므로 pool 에 돌려놓지 않는다.
+            addWarn("Error encountered while encoding log event. Event: " + event, e);
+            return EMPTY_BYTES;
+        }
+    }
+
+    private void release(EncodingBuffer buffer) {
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_BYTES) {
+            buffer.reset();
+            buffers.offer(buffer);
+        }
+    }
+
+    //LogstashEncoder 의 기본 provider 순서: timestamp, version, message, logger, thread, level, context, mdc, arguments
+    private void writeEvent(JsonGenerator generator, ILoggingEvent event) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("@timestamp",
+            timestampFormatter.formatIsoOffset(event.getTimeStamp()));
+        generator.writeStringField("@version", "1");
+        writeStringField(generator, "message", event.getFormattedMessage());
+        writeStringField(generator, "logger_name", event.getLoggerName());
+        writeStringField(generator, "thread_name", event.getThreadName());
+        writeStringField(generator, "level", event.getLevel().toString());
+        generator.writeNumberField("level_value", event.getLevel().toInt());
+        if (getContext() != null) {
+            writeEntries(generator, getContext().getCopyOfPropertyMap());
+        }
+        writeEntries(generator, event.getMDCPropertyMap());
+
+        final Object[] arguments = event.getArgumentArray();
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                if (argument instanceof StructuredArgument structuredArgument) {
+                    structuredArgument.writeTo(generator);
+                }
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeStringField(JsonGenerator generator, String name, String value)
+        throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    private static void writeEntries(JsonGenerator generator, Map<String, ?> entries)
+        throws IOException {
+        if (entries == null) {
+            return;
+        }
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                generator.writeFieldName(entry.getKey());
+                generator.writeObject(entry.getValue());
+            }
+        }
+    }
+
+    //logback.xml 에서 <poolSize> 로 바꿀 수 있다.
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    /*
+     * 재사용하는 byte 버퍼와 그 위에 만든 generator
+     * generator 는 이벤트마다 flush 만 하고 닫지 않는다.
+     */
+    private static final class EncodingBuffer extends OutputStream {
+
+        private final JsonGenerator generator;
+        private byte[] bytes = new byte[INITIAL_BUFFER_BYTES];
+        private int count;
+
+        private EncodingBuffer(JsonFactory jsonFactory) throws IOException {
+            final JsonGenerator jsonGenerator = jsonFactory.createGenerator(this, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            //이벤트 사이에 root value 구분자(공백)를 넣지 않는다.
+            jsonGenerator.setRootValueSeparator(new SerializedString(""));
+            this.generator = new StreamingJsonGenerator(jsonGenerator);
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) {
+            ensureCapacity(count + length);
+            System.arraycopy(source, offset, bytes, count, length);
+            count += length;
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(minCapacity, bytes.length * 2));
+            }
+        }
+
+        private int capacity() {
+            return bytes.length;
+        }
+
+        private void reset() {
+            count = 0;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+    }
+}
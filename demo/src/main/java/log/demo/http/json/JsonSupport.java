@@ -0,0 +1,121 @@
+package log.demo.http.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import log.demo.http.redaction.RedactionPolicy;
+
+/*
+ * 요청마다 ObjectMapper 를 만들지 않도록 공유하는 mapper 와
+ * body 를 Map 으로 만들지 않고 토큰 단위로 검증/압축하는 기능
+ */
+public final class JsonSupport {
+
+    public static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+        .disable(StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .build();
+
+    private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+
+    private JsonSupport() {
+    }
+
+    /*
+     * body 가 JSON object 하나로만 이루어져 있으면 공백을 뺀 JSON 문자열을, 아니면 null 을 돌려준다.
+     * 한 번의 토큰 패스로 검증과 복사를 같이 하므로 중간에 Map 트리를 만들지 않는다.
+     */
+    public static String compactObjectOrNull(String body) {
+        return compactObjectOrNull(body, RedactionPolicy.none());
+    }
+
+    //같은 토큰 패스에서 redaction 의 JSON 경로에 걸리는 값을 가린다.
+    public static String compactObjectOrNull(String body, RedactionPolicy redaction) {
+        if (body == null || body.isEmpty()) {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            return compactObjectOrNull(parser, body.length(), redaction);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static String compactObjectOrNull(byte[] body, String charset) {
+        return compactObjectOrNull(body, charset, RedactionPolicy.none());
+    }
+
+    public static String compactObjectOrNull(byte[] body, String charset,
+        RedactionPolicy redaction) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        if (!StandardCharsets.UTF_8.name().equalsIgnoreCase(charset)) {
+            return compactObjectOrNull(new String(body, Charset.forName(charset)), redaction);
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            return compactObjectOrNull(parser, body.length, redaction);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /*
+     * JSON 으로 끝까지 읽을 수 없는 body(잘렸거나, object 가 아니거나, 깨진 것)를 text 로 남길 때 쓴다.
+     * 읽은 데까지 경로를 가려 돌려주고, 읽지 못한 나머지는 버린다.
+     * object, array 로 시작하지 않으면 어디를 가려야 할지 모르므로 body 전체를 MASK 로 바꾼다.
+     */
+    public static String redactJsonText(String body, RedactionPolicy redaction) {
+        if (body == null || body.isEmpty() || !redaction.hasJsonPaths()) {
+            return body;
+        }
+        final StringWriter writer = new StringWriter(body.length());
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            final JsonToken first = parser.nextToken();
+            if (first != JsonToken.START_OBJECT && first != JsonToken.START_ARRAY) {
+                return RedactionPolicy.MASK;
+            }
+            final JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+            try {
+                redaction.copyRedacted(parser, generator);
+            } catch (IOException e) {
+                //잘린 곳까지만 남긴다.
+            }
+            generator.flush();
+            return writer.toString();
+        } catch (IOException e) {
+            return RedactionPolicy.MASK;
+        }
+    }
+
+    private static String compactObjectOrNull(JsonParser parser, int sizeHint,
+        RedactionPolicy redaction) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        final StringWriter writer = new StringWriter(sizeHint);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            if (redaction.hasJsonPaths()) {
+                redaction.copyRedacted(parser, generator);
+            } else {
+                generator.copyCurrentStructure(parser);
+            }
+        }
+        //object 뒤에 다른 값이 더 붙어 있으면 JSON 이 아니다.
+        if (parser.nextToken() != null) {
+            return null;
+        }
+        return writer.toString();
+    }
+}
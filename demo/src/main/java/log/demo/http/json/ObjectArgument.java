@@ -0,0 +1,35 @@
+package log.demo.http.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.util.List;
+import net.logstash.logback.argument.StructuredArgument;
+
+/*
+ * 여러 StructuredArgument 를 name 아래의 JSON 객체 하나로 묶는다.
+ * 안쪽 argument 는 각자의 writeTo 로 쓰므로 raw body 도 다시 직렬화하지 않는다.
+ */
+public class ObjectArgument implements StructuredArgument {
+
+    private final String name;
+    private final List<StructuredArgument> arguments;
+
+    public ObjectArgument(String name, List<StructuredArgument> arguments) {
+        this.name = name;
+        this.arguments = arguments;
+    }
+
+    @Override
+    public void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeObjectFieldStart(name);
+        for (StructuredArgument argument : arguments) {
+            argument.writeTo(generator);
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + arguments;
+    }
+}
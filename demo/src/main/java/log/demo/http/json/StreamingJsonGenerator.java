@@ -0,0 +1,65 @@
+package log.demo.http.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import log.demo.http.dto.HttpBodyDTO;
+
+/*
+ * HTTP 로그 값(헤더/파라미터 Map, 헤더 값 List, HttpBodyDTO, 숫자, 문자열)을 ObjectMapper 를 거치지 않고 바로 쓴다.
+ * kv(...) argument 는 writeObject 로 값을 쓰므로, 여기서 알려진 타입을 처리하면 serializer 조회와 bean introspection 이 없다.
+ * 결과는 ObjectMapper 로 쓴 것과 같고, 그 밖의 타입은 delegate(ObjectMapper)에 맡긴다.
+ */
+public class StreamingJsonGenerator extends JsonGeneratorDelegate {
+
+    public StreamingJsonGenerator(JsonGenerator delegate) {
+        super(delegate, false);
+    }
+
+    @Override
+    public void writeObject(Object value) throws IOException {
+        if (value == null) {
+            writeNull();
+        } else if (value instanceof String string) {
+            writeString(string);
+        } else if (value instanceof Integer number) {
+            writeNumber(number.intValue());
+        } else if (value instanceof Long number) {
+            writeNumber(number.longValue());
+        } else if (value instanceof Double number) {
+            writeNumber(number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            writeBoolean(bool);
+        } else if (value instanceof Map<?, ?> map) {
+            writeMap(map);
+        } else if (value instanceof Collection<?> collection) {
+            writeCollection(collection);
+        } else if (value instanceof HttpBodyDTO body) {
+            writeStartObject();
+            writeFieldName("content");
+            writeObject(body.getContent());
+            writeEndObject();
+        } else {
+            delegate.writeObject(value);
+        }
+    }
+
+    private void writeMap(Map<?, ?> map) throws IOException {
+        writeStartObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeFieldName(String.valueOf(entry.getKey()));
+            writeObject(entry.getValue());
+        }
+        writeEndObject();
+    }
+
+    private void writeCollection(Collection<?> collection) throws IOException {
+        writeStartArray();
+        for (Object element : collection) {
+            writeObject(element);
+        }
+        writeEndArray();
+    }
+}
@@ -0,0 +1,234 @@
+package log.demo.http.redaction;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+/*
+ * 로그에 남기기 전에 가릴 값
+ * - 헤더 : 이름이 denylist 에 있으면 값을 모두 MASK 로 바꾼다. (대소문자 무시)
+ * - 파라미터 : 이름이 목록에 있으면 값을 MASK 로 바꾼다. form body(x-www-form-urlencoded)에도 같이 쓴다.
+ * - JSON body : $.password, $.card.number 같은 필드 경로의 값을 MASK 로 바꾼다.
+ *   배열은 경로에 넣지 않는다($.cards[*].number 와 $.cards.number 는 같다). $..token 은 깊이와 관계없이 token 필드다.
+ * 가릴 것이 없으면 원래 인스턴스를 그대로 돌려주므로, 설정하지 않은 항목은 비용이 없다.
+ */
+public final class RedactionPolicy {
+
+    public static final String MASK = "***";
+    //log.redaction.* 를 설정하지 않았을 때 가리는 값
+    public static final String DEFAULT_HEADERS =
+        "Authorization,Proxy-Authorization,Cookie,Set-Cookie";
+    public static final String DEFAULT_PARAMETERS = "password,access_token,refresh_token";
+    public static final String DEFAULT_JSON_PATHS = "$..password,$..accessToken,$..refreshToken";
+
+    private static final RedactionPolicy NONE = new RedactionPolicy(Set.of(), Set.of(),
+        new PathNode(), Set.of());
+
+    private final Set<String> headers;
+    private final Set<String> parameters;
+    private final PathNode jsonPaths;
+    private final Set<String> anyDepthFields;
+
+    private RedactionPolicy(Set<String> headers, Set<String> parameters, PathNode jsonPaths,
+        Set<String> anyDepthFields) {
+        this.headers = headers;
+        this.parameters = parameters;
+        this.jsonPaths = jsonPaths;
+        this.anyDepthFields = anyDepthFields;
+    }
+
+    public static RedactionPolicy none() {
+        return NONE;
+    }
+
+    /*
+     * 모두 쉼표로 구분한 목록
+     * headers : "Authorization,Cookie", parameters : "password,token", jsonPaths : "$.password,$..secret"
+     * 경로가 $ 로 시작하지 않으면 IllegalArgumentException
+     */
+    public static RedactionPolicy of(String headers, String parameters, String jsonPaths) {
+        final Set<String> headerNames = new HashSet<>();
+        for (String header : StringUtils.commaDelimitedListToStringArray(headers)) {
+            if (StringUtils.hasText(header)) {
+                headerNames.add(header.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        final Set<String> parameterNames = new HashSet<>();
+        for (String parameter : StringUtils.commaDelimitedListToStringArray(parameters)) {
+            if (StringUtils.hasText(parameter)) {
+                parameterNames.add(parameter.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        final PathNode root = new PathNode();
+        final Set<String> anyDepthFields = new HashSet<>();
+        for (String path : StringUtils.commaDelimitedListToStringArray(jsonPaths)) {
+            if (StringUtils.hasText(path)) {
+                addPath(root, anyDepthFields, path.trim());
+            }
+        }
+        return new RedactionPolicy(Set.copyOf(headerNames), Set.copyOf(parameterNames), root,
+            Set.copyOf(anyDepthFields));
+    }
+
+    private static void addPath(PathNode root, Set<String> anyDepthFields, String path) {
+        if (path.startsWith("$..")) {
+            final String field = path.substring(3).replace("[*]", "");
+            if (field.isEmpty() || field.contains(".")) {
+                throw new IllegalArgumentException("Invalid JSON path mask: " + path);
+            }
+            anyDepthFields.add(field);
+            return;
+        }
+        if (!path.startsWith("$.") || path.length() == 2) {
+            throw new IllegalArgumentException("Invalid JSON path mask: " + path);
+        }
+        PathNode node = root;
+        for (String field : path.substring(2).replace("[*]", "").split("\\.")) {
+            if (field.isEmpty()) {
+                throw new IllegalArgumentException("Invalid JSON path mask: " + path);
+            }
+            node = node.children.computeIfAbsent(field, key -> new PathNode());
+        }
+        node.masked = true;
+    }
+
+    public boolean hasJsonPaths() {
+        return !jsonPaths.children.isEmpty() || !anyDepthFields.isEmpty();
+    }
+
+    public MultiValueMap<String, String> redactHeaders(MultiValueMap<String, String> values) {
+        if (values == null || headers.isEmpty() || !containsAny(values.keySet(), headers)) {
+            return values;
+        }
+        final MultiValueMap<String, String> redacted = new LinkedMultiValueMap<>(values.size());
+        values.forEach((name, headerValues) -> redacted.put(name,
+            headers.contains(name.toLowerCase(Locale.ROOT)) ? mask(headerValues) : headerValues));
+        return redacted;
+    }
+
+    public Map<String, String> redactParameters(Map<String, String> values) {
+        if (values == null || parameters.isEmpty() || !containsAny(values.keySet(), parameters)) {
+            return values;
+        }
+        final Map<String, String> redacted = new LinkedHashMap<>(values.size() * 2);
+        values.forEach((name, value) -> redacted.put(name,
+            (value != null && parameters.contains(name.toLowerCase(Locale.ROOT))) ? MASK : value));
+        return redacted;
+    }
+
+    //name=value&name=value 형식의 body, 이름은 URL 디코딩해서 비교한다. (p%61ssword, pass+word)
+    public String redactForm(String body) {
+        if (body == null || body.isEmpty() || parameters.isEmpty()) {
+            return body;
+        }
+        StringBuilder redacted = null;
+        int start = 0;
+        while (start <= body.length()) {
+            int end = body.indexOf('&', start);
+            if (end < 0) {
+                end = body.length();
+            }
+            final int equals = body.indexOf('=', start);
+            if (equals >= 0 && equals < end && isFormParameter(body.substring(start, equals))) {
+                if (redacted == null) {
+                    redacted = new StringBuilder(body.length()).append(body, 0, start);
+                }
+                redacted.append(body, start, equals + 1).append(MASK);
+            } else if (redacted != null) {
+                redacted.append(body, start, end);
+            }
+            if (redacted != null && end < body.length()) {
+                redacted.append('&');
+            }
+            start = end + 1;
+        }
+        return (redacted == null) ? body : redacted.toString();
+    }
+
+    private boolean isFormParameter(String encodedName) {
+        String name = encodedName;
+        if (encodedName.indexOf('%') >= 0 || encodedName.indexOf('+') >= 0) {
+            try {
+                name = URLDecoder.decode(encodedName, StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                //잘못된 % 인코딩은 그대로 비교한다.
+            }
+        }
+        return parameters.contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    /*
+     * parser 의 현재 값(START_OBJECT 등)부터 끝까지 generator 로 복사하면서 경로에 걸리는 값을 MASK 로 바꾼다.
+     * 토큰을 한 번만 지나가고 트리를 만들지 않는다. 가릴 경로가 없는 하위 구조는 copyCurrentStructure 로 그대로 넘긴다.
+     */
+    public void copyRedacted(JsonParser parser, JsonGenerator generator) throws IOException {
+        copyValue(parser, generator, jsonPaths);
+    }
+
+    private void copyValue(JsonParser parser, JsonGenerator generator, PathNode node)
+        throws IOException {
+        final JsonToken token = parser.currentToken();
+        if ((node == null || node.children.isEmpty()) && anyDepthFields.isEmpty()) {
+            generator.copyCurrentStructure(parser);
+        } else if (token == JsonToken.START_OBJECT) {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final PathNode child = (node == null) ? null : node.children.get(name);
+                generator.writeFieldName(name);
+                parser.nextToken();
+                if ((child != null && child.masked) || anyDepthFields.contains(name)) {
+                    parser.skipChildren();
+                    generator.writeString(MASK);
+                } else {
+                    copyValue(parser, generator, child);
+                }
+            }
+            generator.writeEndObject();
+        } else if (token == JsonToken.START_ARRAY) {
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                copyValue(parser, generator, node);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    private static boolean containsAny(Set<String> names, Set<String> lowerCaseNames) {
+        for (String name : names) {
+            if (name != null && lowerCaseNames.contains(name.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> mask(List<String> values) {
+        final String[] masked = new String[values.size()];
+        Arrays.fill(masked, MASK);
+        return List.of(masked);
+    }
+
+    //JSON 경로 trie, masked 면 이 필드의 값을 가린다.
+    private static final class PathNode {
+
+        private final Map<String, PathNode> children = new HashMap<>();
+        private boolean masked;
+    }
+}
@@ -0,0 +1,31 @@
+package log.demo.http.sampling;
+
+/*
+ * 요청 하나를 로그로 남길지와, 남긴다면 어떤 확률(rate)로 뽑혔는지
+ * 로그를 분석할 때 count 에 1 / rate 를 곱하면 전체 요청 수를 추정할 수 있다.
+ * rule 은 결정을 내린 규칙 이름 ("slow", "default" 또는 SamplingRule 문자열)이다.
+ */
+public class SamplingDecision {
+
+    private final boolean sampled;
+    private final double rate;
+    private final String rule;
+
+    public SamplingDecision(boolean sampled, double rate, String rule) {
+        this.sampled = sampled;
+        this.rate = rate;
+        this.rule = rule;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+}
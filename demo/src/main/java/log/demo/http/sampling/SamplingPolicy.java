@@ -0,0 +1,133 @@
+package log.demo.http.sampling;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import log.demo.metrics.MetricSource;
+import org.springframework.util.StringUtils;
+
+/*
+ * 응답이 끝난 요청을 로그로 남길지 정한다. LoggingHttpMessage 가 스냅샷을 만들기 전에 호출한다.
+ * 1. slowThresholdNanos 이상 걸린 요청은 rate 1 ("slow")
+ * 2. 순서대로 처음 맞는 SamplingRule 의 rate
+ * 3. 맞는 rule 이 없으면 defaultRate ("default")
+ * rate 로 뽑힌 요청도 token bucket(초당 maxEventsPerSecond 이벤트)을 넘으면 버린다.
+ * 이때 기록하는 rate 는 rule 의 rate 에 직전 1초의 token bucket 허용 비율을 곱한 값이다.
+ * 단, 느린 요청과 rate 1 인 rule(예: "@5xx:1")은 장애 상황에서 먼저 필요한 로그이므로 token bucket 을 거치지 않는다.
+ */
+public class SamplingPolicy implements MetricSource {
+
+    //REQUEST, RESPONSE 두 이벤트 (HttpLogFormat.SPLIT)
+    public static final int DEFAULT_EVENTS_PER_EXCHANGE = 2;
+
+    private final List<SamplingRule> rules;
+    private final double defaultRate;
+    private final long slowThresholdNanos;
+    private final TokenBucket tokenBucket;
+    private final int eventsPerExchange;
+
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder forced = new LongAdder();
+    private final LongAdder droppedByRule = new LongAdder();
+    private final LongAdder droppedByRateLimit = new LongAdder();
+
+    public SamplingPolicy(List<SamplingRule> rules, double defaultRate, long slowThresholdNanos,
+        TokenBucket tokenBucket, int eventsPerExchange) {
+        this.rules = List.copyOf(rules);
+        this.defaultRate = defaultRate;
+        this.slowThresholdNanos = slowThresholdNanos;
+        this.tokenBucket = tokenBucket;
+        this.eventsPerExchange = eventsPerExchange;
+    }
+
+    public static SamplingPolicy alwaysSample() {
+        return new SamplingPolicy(List.of(), 1.0, 0, null, DEFAULT_EVENTS_PER_EXCHANGE);
+    }
+
+    /*
+     * rules : "@5xx:1,/api/hot/**@2xx:0.01"
+     * slowThresholdMillis, maxEventsPerSecond 는 0 이하면 쓰지 않는다.
+     */
+    public static SamplingPolicy of(String rules, double defaultRate, long slowThresholdMillis,
+        int maxEventsPerSecond) {
+        return of(rules, defaultRate, slowThresholdMillis, maxEventsPerSecond,
+            DEFAULT_EVENTS_PER_EXCHANGE);
+    }
+
+    //eventsPerExchange : 요청 하나가 token bucket 에서 가져가는 이벤트 수
+    public static SamplingPolicy of(String rules, double defaultRate, long slowThresholdMillis,
+        int maxEventsPerSecond, int eventsPerExchange) {
+        final List<SamplingRule> parsed = new ArrayList<>();
+        for (String rule : StringUtils.commaDelimitedListToStringArray(rules)) {
+            if (StringUtils.hasText(rule)) {
+                parsed.add(SamplingRule.parse(rule));
+            }
+        }
+        final TokenBucket tokenBucket = (maxEventsPerSecond > 0)
+            ? new TokenBucket(maxEventsPerSecond, maxEventsPerSecond) : null;
+        return new SamplingPolicy(parsed, defaultRate, slowThresholdMillis * 1_000_000L,
+            tokenBucket, eventsPerExchange);
+    }
+
+    public SamplingDecision decide(String path, int statusCode, long durationNanos) {
+        double rate = defaultRate;
+        String rule = "default";
+        //defaultRate 가 1 이어도 forced 는 아니다. (token bucket 이 전체 양을 제한해야 한다.)
+        boolean forcedRule = false;
+        if (slowThresholdNanos > 0 && durationNanos >= slowThresholdNanos) {
+            rate = 1.0;
+            rule = "slow";
+            forcedRule = true;
+        } else {
+            for (SamplingRule samplingRule : rules) {
+                if (samplingRule.matches(path, statusCode)) {
+                    rate = samplingRule.getRate();
+                    rule = samplingRule.getName();
+                    forcedRule = rate >= 1.0;
+                    break;
+                }
+            }
+        }
+
+        if (rate <= 0 || (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            droppedByRule.increment();
+            return new SamplingDecision(false, rate, rule);
+        }
+        if (tokenBucket == null) {
+            sampled.increment();
+            return new SamplingDecision(true, rate, rule);
+        }
+        if (forcedRule) {
+            sampled.increment();
+            forced.increment();
+            return new SamplingDecision(true, rate, rule);
+        }
+        if (!tokenBucket.tryAcquire(eventsPerExchange)) {
+            droppedByRateLimit.increment();
+            return new SamplingDecision(false, rate, rule);
+        }
+        sampled.increment();
+        return new SamplingDecision(true, rate * tokenBucket.getAdmitRatio(), rule);
+    }
+
+    @Override
+    public String getName() {
+        return "sampling";
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("sampled", sampled.sum());
+        snapshot.put("sampled-bypassing-rate-limit", forced.sum());
+        snapshot.put("dropped-by-rule", droppedByRule.sum());
+        snapshot.put("dropped-by-rate-limit", droppedByRateLimit.sum());
+        if (tokenBucket != null) {
+            snapshot.put("rate-limit-admit-ratio", tokenBucket.getAdmitRatio());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,73 @@
+package log.demo.http.sampling;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+/*
+ * path 패턴(Ant 스타일)과 status 조건에 맞는 요청을 rate 확률로 남긴다.
+ * 문자열 형식 : "[pathPattern][@status]:rate"
+ *   "/api/hot/**@2xx:0.01" , "@5xx:1" , "/health:0" , "/api/**@404:0.1"
+ * path 를 생략하면 모든 path, status 를 생략하면 모든 status 에 맞는다.
+ * status 는 "5xx" 같은 class 또는 "404" 같은 코드 하나다.
+ */
+public class SamplingRule {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final String name;
+    private final String pathPattern;
+    private final int statusFrom;
+    private final int statusTo;
+    private final double rate;
+
+    public SamplingRule(String name, String pathPattern, int statusFrom, int statusTo,
+        double rate) {
+        this.name = name;
+        this.pathPattern = pathPattern;
+        this.statusFrom = statusFrom;
+        this.statusTo = statusTo;
+        this.rate = Math.min(1.0, Math.max(0.0, rate));
+    }
+
+    public static SamplingRule parse(String rule) {
+        final String trimmed = rule.trim();
+        final int rateIdx = trimmed.lastIndexOf(':');
+        if (rateIdx < 0) {
+            throw new IllegalArgumentException("sampling rule needs ':rate' - " + rule);
+        }
+        final double rate = Double.parseDouble(trimmed.substring(rateIdx + 1).trim());
+        final String condition = trimmed.substring(0, rateIdx).trim();
+        final int statusIdx = condition.indexOf('@');
+        final String path = (statusIdx < 0) ? condition : condition.substring(0, statusIdx);
+        final String status = (statusIdx < 0) ? "" : condition.substring(statusIdx + 1).trim();
+
+        int statusFrom = 0;
+        int statusTo = 999;
+        if (StringUtils.hasText(status)) {
+            if (status.length() == 3 && status.substring(1).equalsIgnoreCase("xx")) {
+                statusFrom = (status.charAt(0) - '0') * 100;
+                statusTo = statusFrom + 99;
+            } else {
+                statusFrom = Integer.parseInt(status);
+                statusTo = statusFrom;
+            }
+        }
+        return new SamplingRule(condition, StringUtils.hasText(path) ? path.trim() : null,
+            statusFrom, statusTo, rate);
+    }
+
+    public boolean matches(String path, int statusCode) {
+        if (statusCode < statusFrom || statusCode > statusTo) {
+            return false;
+        }
+        return pathPattern == null || (path != null && PATH_MATCHER.match(pathPattern, path));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,62 @@
+package log.demo.http.sampling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * 초당 permitsPerSecond 개, 최대 burst 개까지 한 번에 허용하는 lock-free token bucket
+ * GCRA(Generic Cell Rate Algorithm) 로 "다음 token 이 생기는 시각" 하나만 CAS 로 갱신한다.
+ * 직전 1초 동안 허용한 비율(admitRatio)을 남겨 두어, 뽑힌 로그의 rate 보정에 쓴다.
+ */
+public class TokenBucket {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong();
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private volatile double admitRatio = 1.0;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (WINDOW_NANOS / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+        this.theoreticalArrival.set(System.nanoTime());
+    }
+
+    public boolean tryAcquire(int permits) {
+        final long now = System.nanoTime();
+        rollWindow(now);
+        offered.increment();
+        final long cost = intervalNanos * permits;
+        while (true) {
+            final long tat = theoreticalArrival.get();
+            final long newTat = Math.max(tat, now) + cost;
+            if (newTat - now > toleranceNanos + cost) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, newTat)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    //1초가 지나면 그동안의 허용 비율을 남기고 새로 센다. (경계의 몇 건은 다음 구간으로 넘어갈 수 있다.)
+    private void rollWindow(long now) {
+        final long start = windowStart.get();
+        if (now - start < WINDOW_NANOS || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        final long offeredCount = offered.sumThenReset();
+        final long admittedCount = admitted.sumThenReset();
+        admitRatio = (offeredCount == 0) ? 1.0 : (double) admittedCount / offeredCount;
+    }
+
+    public double getAdmitRatio() {
+        return admitRatio;
+    }
+}
@@ -0,0 +1,75 @@
+package log.demo.http.tail;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.metrics.MetricSource;
+
+/*
+ * 로그로 내보내는 exchange 스냅샷을 live tail 구독자들에게 나눠 주는 in-memory fan-out
+ * publish 는 요청 스레드에서 불리므로 기다리지 않는다. 구독자마다 filter 를 먼저 보고,
+ * 맞는 것만 구독자의 bounded buffer 에 넣는다. buffer 가 가득 찬 느린 구독자 몫은 버린다.
+ */
+public class ExchangeEventBus implements MetricSource {
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final int maxSubscribers;
+    private final LongAdder published = new LongAdder();
+
+    public ExchangeEventBus(int maxSubscribers) {
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    public void publish(HttpExchangeDTO exchange) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        published.increment();
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(exchange);
+        }
+    }
+
+    //구독자 수가 maxSubscribers 에 이르면 IllegalStateException
+    public synchronized Subscription subscribe(TailFilter filter, int bufferSize) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many live tail subscribers: " + maxSubscribers);
+        }
+        final Subscription subscription = new Subscription(this, filter, bufferSize);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public String getName() {
+        return "tail";
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("subscribers", subscriptions.size());
+        snapshot.put("max-subscribers", maxSubscribers);
+        snapshot.put("published", published.sum());
+        long delivered = 0;
+        long dropped = 0;
+        for (Subscription subscription : subscriptions) {
+            delivered += subscription.getDeliveredCount();
+            dropped += subscription.getDroppedCount();
+        }
+        snapshot.put("delivered", delivered);
+        snapshot.put("dropped", dropped);
+        return snapshot;
+    }
+}
@@ -0,0 +1,69 @@
+package log.demo.http.tail;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import log.demo.http.dto.HttpExchangeDTO;
+
+/*
+ * live tail 구독자 하나의 bounded buffer
+ * bus 는 offer 로 넣기만 하고, 구독자 쪽 스레드가 poll 로 꺼내 보낸다.
+ */
+public class Subscription implements AutoCloseable {
+
+    private final ExchangeEventBus bus;
+    private final TailFilter filter;
+    private final BlockingQueue<HttpExchangeDTO> buffer;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+
+    Subscription(ExchangeEventBus bus, TailFilter filter, int bufferSize) {
+        this.bus = bus;
+        this.filter = filter;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+    }
+
+    //filter 에 맞지 않으면 넣지 않고, buffer 가 가득 차면 버린다.
+    void offer(HttpExchangeDTO exchange) {
+        if (closed || !filter.matches(exchange)) {
+            return;
+        }
+        if (!buffer.offer(exchange)) {
+            dropped.increment();
+        }
+    }
+
+    //timeout 동안 들어온 것이 없으면 null
+    public HttpExchangeDTO poll(long timeout, TimeUnit unit) throws InterruptedException {
+        final HttpExchangeDTO exchange = buffer.poll(timeout, unit);
+        if (exchange != null) {
+            delivered.increment();
+        }
+        return exchange;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        bus.unsubscribe(this);
+        buffer.clear();
+    }
+
+    public TailFilter getFilter() {
+        return filter;
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,63 @@
+package log.demo.http.tail;
+
+import log.demo.http.dto.HttpExchangeDTO;
+
+/*
+ * live tail 구독자가 받을 exchange 조건
+ * 스냅샷 필드만 비교하므로 JSON 으로 만들기 전에, 요청 스레드에서 바로 거른다.
+ */
+public class TailFilter {
+
+    private static final TailFilter ALL = new TailFilter(null, 0, 0);
+
+    private final String pathPrefix;
+    //1 ~ 5 (1xx ~ 5xx), 0 이면 모두
+    private final int statusClass;
+    private final long minLatencyMillis;
+
+    private TailFilter(String pathPrefix, int statusClass, long minLatencyMillis) {
+        this.pathPrefix = pathPrefix;
+        this.statusClass = statusClass;
+        this.minLatencyMillis = minLatencyMillis;
+    }
+
+    public static TailFilter all() {
+        return ALL;
+    }
+
+    /*
+     * status 는 "5xx", "5XX", "5" 중 하나로 받는다. 비어 있으면 조건이 없는 것이다.
+     * 형식이 맞지 않으면 IllegalArgumentException
+     */
+    public static TailFilter of(String pathPrefix, String status, long minLatencyMillis) {
+        int statusClass = 0;
+        if (status != null && !status.isBlank()) {
+            final String value = status.trim();
+            if (!value.matches("[1-5]([xX]{2})?")) {
+                throw new IllegalArgumentException("Invalid status class: " + status);
+            }
+            statusClass = value.charAt(0) - '0';
+        }
+        return new TailFilter((pathPrefix == null || pathPrefix.isEmpty()) ? null : pathPrefix,
+            statusClass, Math.max(0, minLatencyMillis));
+    }
+
+    public boolean matches(HttpExchangeDTO exchange) {
+        if (pathPrefix != null
+            && (exchange.getPath() == null || !exchange.getPath().startsWith(pathPrefix))) {
+            return false;
+        }
+        if (statusClass != 0 && exchange.getStatusCode() / 100 != statusClass) {
+            return false;
+        }
+        return minLatencyMillis == 0
+            || exchange.getResponseTimeMillis() - exchange.getRequestTimeMillis()
+            >= minLatencyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "TailFilter{pathPrefix=" + pathPrefix + ", statusClass=" + statusClass
+            + ", minLatencyMillis=" + minLatencyMillis + "}";
+    }
+}
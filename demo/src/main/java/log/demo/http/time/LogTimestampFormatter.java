@@ -0,0 +1,107 @@
+package log.demo.http.time;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import log.demo.constant.DatePatternConst;
+
+/*
+ * 로그 timestamp 포맷터
+ * 같은 초에 들어온 요청이 많으므로 초 단위까지 포맷한 문자열을 캐싱해서 재사용한다.
+ * 여러 스레드가 함께 쓰며, 캐시는 마지막으로 포맷한 초 하나만 들고 있다.
+ */
+public class LogTimestampFormatter {
+
+    private static final LogTimestampFormatter SYSTEM_DEFAULT =
+        new LogTimestampFormatter(ZoneId.systemDefault());
+
+    private final ZoneId zoneId;
+    private final DateTimeFormatter secondFormatter;
+    private final DateTimeFormatter isoSecondFormatter;
+    private volatile CachedSecond cachedSecond = new CachedSecond(Long.MIN_VALUE, "", "", "");
+
+    public LogTimestampFormatter(ZoneId zoneId) {
+        this.zoneId = zoneId;
+        this.secondFormatter = DateTimeFormatter.ofPattern(DatePatternConst.LogTimeStampPattern)
+            .withZone(zoneId);
+        this.isoSecondFormatter = DateTimeFormatter.ofPattern(DatePatternConst.IsoSecondPattern)
+            .withZone(zoneId);
+    }
+
+    public static LogTimestampFormatter systemDefault() {
+        return SYSTEM_DEFAULT;
+    }
+
+    //yyyy-MM-dd HH:mm:ss
+    public String format(long epochMillis) {
+        return cachedSecond(epochMillis).formatted;
+    }
+
+    //yyyy-MM-dd'T'HH:mm:ss.SSS+09:00
+    public String formatIsoMillis(long epochMillis) {
+        final CachedSecond second = cachedSecond(epochMillis);
+        final int millis = (int) Math.floorMod(epochMillis, 1000L);
+        return new StringBuilder(second.isoPrefix.length() + 4 + second.offset.length())
+            .append(second.isoPrefix)
+            .append('.')
+            .append((char) ('0' + millis / 100))
+            .append((char) ('0' + millis / 10 % 10))
+            .append((char) ('0' + millis % 10))
+            .append(second.offset)
+            .toString();
+    }
+
+    //DateTimeFormatter.ISO_OFFSET_DATE_TIME 과 같은 결과, 밀리초 끝의 0 은 생략한다. (LogstashEncoder 의 @timestamp)
+    public String formatIsoOffset(long epochMillis) {
+        final CachedSecond second = cachedSecond(epochMillis);
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        if (millis == 0) {
+            return second.isoPrefix + second.offset;
+        }
+        int digits = 3;
+        while (millis % 10 == 0) {
+            millis /= 10;
+            digits--;
+        }
+        final StringBuilder builder = new StringBuilder(
+            second.isoPrefix.length() + 4 + second.offset.length())
+            .append(second.isoPrefix)
+            .append('.');
+        for (int divisor = (digits == 3) ? 100 : (digits == 2) ? 10 : 1; divisor > 0;
+            divisor /= 10) {
+            builder.append((char) ('0' + millis / divisor % 10));
+        }
+        return builder.append(second.offset).toString();
+    }
+
+    public Object preciseValue(TimestampPrecision precision, long epochMillis) {
+        return switch (precision) {
+            case NONE -> null;
+            case EPOCH_MILLIS -> epochMillis;
+            case ISO_MILLIS -> formatIsoMillis(epochMillis);
+        };
+    }
+
+    private CachedSecond cachedSecond(long epochMillis) {
+        final long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        CachedSecond second = cachedSecond;
+        if (second.epochSecond != epochSecond) {
+            second = newCachedSecond(epochSecond);
+            cachedSecond = second;
+        }
+        return second;
+    }
+
+    private CachedSecond newCachedSecond(long epochSecond) {
+        final Instant instant = Instant.ofEpochSecond(epochSecond);
+        final ZoneOffset offset = zoneId.getRules().getOffset(instant);
+        return new CachedSecond(epochSecond, secondFormatter.format(instant),
+            isoSecondFormatter.format(instant), offset.getId());
+    }
+
+    private record CachedSecond(long epochSecond, String formatted, String isoPrefix,
+                                String offset) {
+
+    }
+}
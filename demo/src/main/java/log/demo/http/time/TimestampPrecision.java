@@ -0,0 +1,13 @@
+package log.demo.http.time;
+
+/*
+ * timestamp 외에 추가로 남길 밀리초 단위 시각
+ * NONE : 추가하지 않는다.
+ * EPOCH_MILLIS : 1672196443123
+ * ISO_MILLIS : 2022-12-28T12:10:43.123+09:00
+ */
+public enum TimestampPrecision {
+    NONE,
+    EPOCH_MILLIS,
+    ISO_MILLIS
+}
@@ -0,0 +1,17 @@
+package log.demo.http.wrapper;
+
+/*
+ * 로그용으로 body 앞부분만 잘라서 보관하는 wrapper 의 공통 인터페이스
+ */
+public interface BodyCapture {
+
+    //로그용으로 잘라 둔 body
+    byte[] getContentAsByteArray();
+
+    //실제로 주고받은 body 의 전체 길이
+    long getTotalBytes();
+
+    default boolean isTruncated() {
+        return getTotalBytes() > getContentAsByteArray().length;
+    }
+}
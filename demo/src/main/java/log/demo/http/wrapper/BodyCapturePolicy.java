@@ -0,0 +1,130 @@
+package log.demo.http.wrapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+/*
+ * 로그에 남길 body 의 최대 길이를 방향(요청/응답)과 Content-Type 별로 정한다.
+ * denyTypes 에 해당하거나, allowTypes 가 있는데 해당하지 않으면 body 를 남기지 않는다(0 바이트).
+ * contentTypeLimits 에 해당하면 그 값을, 아니면 방향별 기본값을 쓴다.
+ */
+public class BodyCapturePolicy {
+
+    public static final int DEFAULT_MAX_BYTES = 16 * 1024;
+    public static final String DEFAULT_DENY_TYPES =
+        "application/octet-stream,multipart/*,image/*,audio/*,video/*,application/zip,application/pdf";
+
+    private final int maxRequestBytes;
+    private final int maxResponseBytes;
+    private final Map<MediaType, Integer> contentTypeLimits;
+    private final List<MediaType> allowTypes;
+    private final List<MediaType> denyTypes;
+
+    public BodyCapturePolicy(int maxRequestBytes, int maxResponseBytes,
+        Map<MediaType, Integer> contentTypeLimits, List<MediaType> allowTypes,
+        List<MediaType> denyTypes) {
+        this.maxRequestBytes = maxRequestBytes;
+        this.maxResponseBytes = maxResponseBytes;
+        this.contentTypeLimits = sortBySpecificity(contentTypeLimits);
+        this.allowTypes = allowTypes;
+        this.denyTypes = denyTypes;
+    }
+
+    public static BodyCapturePolicy defaults() {
+        return of(DEFAULT_MAX_BYTES, DEFAULT_MAX_BYTES, "", "", DEFAULT_DENY_TYPES);
+    }
+
+    /*
+     * contentTypeLimits : "application/json:65536,text/*:16384"
+     * allowTypes, denyTypes : "image/*,application/octet-stream"
+     */
+    public static BodyCapturePolicy of(int maxRequestBytes, int maxResponseBytes,
+        String contentTypeLimits, String allowTypes, String denyTypes) {
+        final Map<MediaType, Integer> limits = new LinkedHashMap<>();
+        for (String entry : StringUtils.commaDelimitedListToStringArray(contentTypeLimits)) {
+            final int idx = entry.lastIndexOf(':');
+            if (idx > 0) {
+                limits.put(MediaType.parseMediaType(entry.substring(0, idx).trim()),
+                    Integer.parseInt(entry.substring(idx + 1).trim()));
+            }
+        }
+        return new BodyCapturePolicy(maxRequestBytes, maxResponseBytes, limits,
+            parseMediaTypes(allowTypes), parseMediaTypes(denyTypes));
+    }
+
+    public int requestLimit(String contentType) {
+        return limit(maxRequestBytes, contentType);
+    }
+
+    public int responseLimit(String contentType) {
+        return limit(maxResponseBytes, contentType);
+    }
+
+    private int limit(int directionMax, String contentType) {
+        final MediaType mediaType = parseOrNull(contentType);
+        if (mediaType == null) {
+            return allowTypes.isEmpty() ? directionMax : 0;
+        }
+        if (includes(denyTypes, mediaType)) {
+            return 0;
+        }
+        if (!allowTypes.isEmpty() && !includes(allowTypes, mediaType)) {
+            return 0;
+        }
+        for (Map.Entry<MediaType, Integer> entry : contentTypeLimits.entrySet()) {
+            if (entry.getKey().includes(mediaType)) {
+                return entry.getValue();
+            }
+        }
+        return directionMax;
+    }
+
+    private static boolean includes(List<MediaType> mediaTypes, MediaType mediaType) {
+        for (MediaType candidate : mediaTypes) {
+            if (candidate.includes(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MediaType parseOrNull(String contentType) {
+        if (!StringUtils.hasText(contentType)) {
+            return null;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+
+    private static List<MediaType> parseMediaTypes(String mediaTypes) {
+        final List<MediaType> parsed = new ArrayList<>();
+        for (String mediaType : StringUtils.commaDelimitedListToStringArray(mediaTypes)) {
+            if (StringUtils.hasText(mediaType)) {
+                parsed.add(MediaType.parseMediaType(mediaType.trim()));
+            }
+        }
+        return parsed;
+    }
+
+    //text/plain 처럼 구체적인 타입이 text/* 보다 먼저 매칭되도록 정렬한다.
+    private static Map<MediaType, Integer> sortBySpecificity(Map<MediaType, Integer> limits) {
+        final Map<MediaType, Integer> sorted = new LinkedHashMap<>();
+        limits.entrySet().stream()
+            .sorted(Comparator.comparingInt(entry -> wildcardCount(entry.getKey())))
+            .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private static int wildcardCount(MediaType mediaType) {
+        return (mediaType.isWildcardType() ? 2 : 0) + (mediaType.isWildcardSubtype() ? 1 : 0);
+    }
+}
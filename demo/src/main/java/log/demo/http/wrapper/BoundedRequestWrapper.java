@@ -0,0 +1,190 @@
+package log.demo.http.wrapper;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.Enumeration;
+import java.util.Map;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.util.WebUtils;
+
+/*
+ * ContentCachingRequestWrapper 와 달리 captureLimit 바이트까지만 복사하고
+ * 그 이후로는 읽은 길이만 센다.
+ * form POST 는 컨테이너가 getParameter* 에서 body 를 읽으므로, ContentCachingRequestWrapper 처럼
+ * 파라미터를 name=value&... 로 다시 만들어 남긴다. (역시 captureLimit 까지만)
+ */
+public class BoundedRequestWrapper extends HttpServletRequestWrapper implements BodyCapture {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+    private final int captureLimit;
+    private final ByteArrayOutputStream captured;
+    private long totalBytes;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+    private boolean formCaptured;
+
+    public BoundedRequestWrapper(HttpServletRequest request, int captureLimit) {
+        super(request);
+        this.captureLimit = Math.max(0, captureLimit);
+        final int contentLength = request.getContentLength();
+        final int expected = (contentLength >= 0) ? contentLength : DEFAULT_INITIAL_CAPACITY;
+        this.captured = new ByteArrayOutputStream(Math.min(this.captureLimit, expected));
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new CapturingInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            final String encoding = (getCharacterEncoding() == null)
+                ? WebUtils.DEFAULT_CHARACTER_ENCODING : getCharacterEncoding();
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+        return reader;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        captureForm();
+        return super.getParameter(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        captureForm();
+        return super.getParameterMap();
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        captureForm();
+        return super.getParameterNames();
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        captureForm();
+        return super.getParameterValues(name);
+    }
+
+    //body 를 스트림으로 읽기 시작했다면 컨테이너가 form 을 파싱하지 않으므로 그대로 둔다.
+    private void captureForm() {
+        if (formCaptured || inputStream != null || !isFormPost()) {
+            return;
+        }
+        formCaptured = true;
+        final Charset charset = Charset.forName((getCharacterEncoding() == null)
+            ? WebUtils.DEFAULT_CHARACTER_ENCODING : getCharacterEncoding());
+        final StringBuilder form = new StringBuilder();
+        super.getParameterMap().forEach((name, values) -> {
+            for (String value : values) {
+                if (form.length() > 0) {
+                    form.append('&');
+                }
+                form.append(URLEncoder.encode(name, charset));
+                if (value != null) {
+                    form.append('=').append(URLEncoder.encode(value, charset));
+                }
+            }
+        });
+        final byte[] bytes = form.toString().getBytes(charset);
+        capture(bytes, 0, bytes.length);
+    }
+
+    private boolean isFormPost() {
+        final String contentType = getContentType();
+        return contentType != null
+            && contentType.contains(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+            && HttpMethod.POST.matches(getMethod());
+    }
+
+    //요청을 처리하는 동안 아무도 body 를 읽지 않은 form POST 도 파라미터로 남긴다.
+    @Override
+    public byte[] getContentAsByteArray() {
+        captureForm();
+        return captured.toByteArray();
+    }
+
+    //body 를 끝까지 읽지 않았다면 Content-Length 를 원래 길이로 본다.
+    @Override
+    public long getTotalBytes() {
+        return Math.max(totalBytes, getContentLengthLong());
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        if (len <= 0) {
+            return;
+        }
+        totalBytes += len;
+        final int remaining = captureLimit - captured.size();
+        if (remaining > 0) {
+            captured.write(b, off, Math.min(remaining, len));
+        }
+    }
+
+    private class CapturingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        CapturingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int ch = delegate.read();
+            if (ch != -1) {
+                totalBytes++;
+                if (captured.size() < captureLimit) {
+                    captured.write(ch);
+                }
+            }
+            return ch;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int count = delegate.read(b, off, len);
+            capture(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int readLine(byte[] b, int off, int len) throws IOException {
+            final int count = delegate.readLine(b, off, len);
+            capture(b, off, count);
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package log.demo.http.wrapper;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import org.springframework.http.HttpHeaders;
+
+/*
+ * 응답을 버퍼링하지 않고 그대로 클라이언트로 흘려보내면서
+ * 앞부분 captureLimit 바이트만 로그용으로 복사해 둔다.
+ * policy 가 주어지면 첫 write 시점의 Content-Type 으로 captureLimit 을 정한다.
+ * Content-Encoding 은 이 wrapper 로 정한 것만 기억한다. Tomcat 이 압축하며 붙이는 것은 복사해 둔 body 와 상관없다.
+ */
+public class TeeResponseWrapper extends HttpServletResponseWrapper implements BodyCapture {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 256;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final BodyCapturePolicy policy;
+    private int captureLimit = -1;
+    private ByteArrayOutputStream captured;
+    private long totalBytes;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private String contentEncoding;
+
+    public TeeResponseWrapper(HttpServletResponse response, int captureLimit) {
+        super(response);
+        this.policy = null;
+        this.captureLimit = Math.max(0, captureLimit);
+    }
+
+    public TeeResponseWrapper(HttpServletResponse response, BodyCapturePolicy policy) {
+        super(response);
+        this.policy = policy;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+            contentEncoding = value;
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) && contentEncoding == null) {
+            contentEncoding = value;
+        }
+        super.addHeader(name, value);
+    }
+
+    //복사해 둔 body 의 Content-Encoding (정하지 않았으면 null)
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+                getCharacterEncoding()), true);
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public byte[] getContentAsByteArray() {
+        return (captured == null) ? EMPTY : captured.toByteArray();
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private int remainingCapacity() {
+        if (captureLimit < 0) {
+            captureLimit = policy.responseLimit(getContentType());
+        }
+        if (captured == null) {
+            if (captureLimit == 0) {
+                return 0;
+            }
+            captured = new ByteArrayOutputStream(Math.min(captureLimit, DEFAULT_INITIAL_CAPACITY));
+        }
+        return captureLimit - captured.size();
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        totalBytes += len;
+        final int remaining = remainingCapacity();
+        if (remaining > 0) {
+            captured.write(b, off, Math.min(remaining, len));
+        }
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        TeeOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            totalBytes++;
+            if (remainingCapacity() > 0) {
+                captured.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
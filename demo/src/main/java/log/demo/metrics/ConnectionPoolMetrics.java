@@ -0,0 +1,91 @@
+package log.demo.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * 대상 서버 connection pool 상태(leased, pending, available, max)를 전체와 route 별로 보여 준다.
+ * pending 이 계속 0 보다 크면 pool 이 모자라 요청이 connection-request-timeout 까지 기다리고 있다는 뜻이다.
+ * logIntervalMillis 가 0 보다 크면 그 주기로 상태를 로그로도 남긴다.
+ */
+public class ConnectionPoolMetrics implements MetricSource, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPoolMetrics.class);
+
+    private final String name;
+    private final ConnPoolControl<HttpRoute> pool;
+    private final ScheduledExecutorService logScheduler;
+
+    public ConnectionPoolMetrics(String name, ConnPoolControl<HttpRoute> pool,
+        long logIntervalMillis) {
+        this.name = name;
+        this.pool = pool;
+        if (logIntervalMillis > 0) {
+            logScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, name + "-stats");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logScheduler.scheduleAtFixedRate(this::logStats, logIntervalMillis,
+                logIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            logScheduler = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = toMap(pool.getTotalStats());
+        final Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : pool.getRoutes()) {
+            routes.put(route.getTargetHost().toURI(), toMap(pool.getStats(route)));
+        }
+        snapshot.put("routes", routes);
+        return snapshot;
+    }
+
+    public PoolStats getTotalStats() {
+        return pool.getTotalStats();
+    }
+
+    private static Map<String, Object> toMap(PoolStats stats) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("pending", stats.getPending());
+        map.put("available", stats.getAvailable());
+        map.put("max", stats.getMax());
+        return map;
+    }
+
+    private void logStats() {
+        try {
+            log.info("{} total {}", name, pool.getTotalStats());
+            for (HttpRoute route : pool.getRoutes()) {
+                log.info("{} route {} {}", name, route.getTargetHost().toURI(),
+                    pool.getStats(route));
+            }
+        } catch (Exception e) {
+            log.warn("failed to read connection pool stats", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (logScheduler != null) {
+            logScheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package log.demo.metrics;
+
+import java.util.Map;
+
+/*
+ * MetricsController 가 모아서 보여 줄 지표
+ * snapshot 은 호출 시점의 값을 JSON 으로 바꿀 수 있는 Map 으로 돌려준다.
+ */
+public interface MetricSource {
+
+    String getName();
+
+    Map<String, Object> snapshot();
+}
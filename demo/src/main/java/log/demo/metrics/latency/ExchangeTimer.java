@@ -0,0 +1,129 @@
+package log.demo.metrics.latency;
+
+import jakarta.servlet.ServletRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/*
+ * 요청 하나가 지나는 시점들을 System.nanoTime() 으로 기록한다.
+ * LogFilter 가 만들어 request attribute 에 두고, 대상 서버 호출 쪽(UpstreamTimingHandler)이 중간 시점을 채운다.
+ * async 모드에서는 IO reactor 스레드가 쓰고 컨테이너 스레드가 읽으므로 volatile 로 둔다.
+ * 기록되지 않은 시점은 0 이고, 그 시점이 걸린 구간은 -1 을 돌려준다.
+ */
+public class ExchangeTimer {
+
+    public static final String ATTRIBUTE = ExchangeTimer.class.getName();
+    //요청 스레드가 아닌 스레드에서 대상 서버를 부를 때(hedge) 그 스레드에 묶어 둔다.
+    private static final ThreadLocal<ExchangeTimer> BOUND = new ThreadLocal<>();
+
+    private final long start;
+    private volatile long upstreamStart;
+    private volatile long upstreamConnected;
+    private volatile long upstreamFirstByte;
+    private volatile long upstreamComplete;
+    private volatile long responseFlushed;
+    private volatile long logged;
+
+    private ExchangeTimer(long start) {
+        this.start = start;
+    }
+
+    public static ExchangeTimer start(ServletRequest request) {
+        final ExchangeTimer exchangeTimer = new ExchangeTimer(System.nanoTime());
+        request.setAttribute(ATTRIBUTE, exchangeTimer);
+        return exchangeTimer;
+    }
+
+    public static ExchangeTimer from(ServletRequest request) {
+        return (request.getAttribute(ATTRIBUTE) instanceof ExchangeTimer exchangeTimer)
+            ? exchangeTimer : null;
+    }
+
+    //요청 스레드에서 호출되는 RestTemplate 처럼 요청 객체를 받지 못하는 곳에서 쓴다.
+    public static ExchangeTimer current() {
+        final ExchangeTimer bound = BOUND.get();
+        if (bound != null) {
+            return bound;
+        }
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return null;
+        }
+        return (requestAttributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+            instanceof ExchangeTimer exchangeTimer) ? exchangeTimer : null;
+    }
+
+    /*
+     * call 이 끝날 때까지 이 스레드의 current() 가 exchangeTimer 를 돌려준다.
+     * 요청 attribute 를 다른 스레드로 넘기면 요청이 끝나고 재사용된 request 객체를 읽을 수 있으므로 timer 만 넘긴다.
+     */
+    public static <T> T callBound(ExchangeTimer exchangeTimer, Supplier<T> call) {
+        if (exchangeTimer == null) {
+            return call.get();
+        }
+        BOUND.set(exchangeTimer);
+        try {
+            return call.get();
+        } finally {
+            BOUND.remove();
+        }
+    }
+
+    public void markUpstreamStart() {
+        upstreamStart = System.nanoTime();
+    }
+
+    public void markUpstreamConnected() {
+        upstreamConnected = System.nanoTime();
+    }
+
+    public void markUpstreamFirstByte() {
+        upstreamFirstByte = System.nanoTime();
+    }
+
+    //응답 body 를 EOF 와 close 에서 두 번 알릴 수 있으므로 처음 것만 남긴다.
+    public void markUpstreamComplete() {
+        if (upstreamComplete == 0) {
+            upstreamComplete = System.nanoTime();
+        }
+    }
+
+    public void markResponseFlushed() {
+        responseFlushed = System.nanoTime();
+    }
+
+    public void markLogged() {
+        logged = System.nanoTime();
+    }
+
+    public long nanos(Phase phase) {
+        return switch (phase) {
+            case PRE_UPSTREAM -> between(start, upstreamStart);
+            case CONNECT -> between(upstreamStart, upstreamConnected);
+            case FIRST_BYTE -> between(upstreamConnected, upstreamFirstByte);
+            case UPSTREAM_BODY -> between(upstreamFirstByte, upstreamComplete);
+            case FLUSH -> between(upstreamComplete, responseFlushed);
+            case LOGGING -> between(responseFlushed, logged);
+            case TOTAL -> between(start, responseFlushed);
+        };
+    }
+
+    //로그에는 logging 을 뺀, 그 시점까지 기록된 구간만 마이크로초로 남긴다.
+    public Map<String, Double> toMicrosMap() {
+        final Map<String, Double> micros = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            final long nanos = nanos(phase);
+            if (nanos >= 0 && phase != Phase.LOGGING) {
+                micros.put(phase.getKey(), LatencyHistogram.toMicros(nanos));
+            }
+        }
+        return micros;
+    }
+
+    private static long between(long from, long to) {
+        return (from == 0 || to == 0) ? -1 : Math.max(0, to - from);
+    }
+}
@@ -0,0 +1,96 @@
+package log.demo.metrics.latency;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import log.demo.metrics.MetricSource;
+
+/*
+ * route 와 status class 별로 구간(Phase)마다 LatencyHistogram 을 둔다.
+ * route 는 method 와 path 의 첫 segment 로 정한다. ("GET /api/orders/1" -> "GET /api")
+ * 캐시를 거친 요청은 cache status 도 key 에 붙여, 캐시로 응답한 요청이 대상 서버 latency 에 섞이지 않게 한다.
+ * series 하나가 히스토그램 Phase 개를 가지므로, maxSeries 를 넘는 route 는 "*" 하나로 모은다.
+ */
+public class LatencyMetrics implements MetricSource {
+
+    static final String OTHER_ROUTE = "*";
+
+    private final int maxSeries;
+    private final Map<String, Map<Phase, LatencyHistogram>> series = new ConcurrentHashMap<>();
+
+    public LatencyMetrics(int maxSeries) {
+        this.maxSeries = Math.max(1, maxSeries);
+    }
+
+    @Override
+    public String getName() {
+        return "latency";
+    }
+
+    public void record(String method, String path, int statusCode, ExchangeTimer exchangeTimer) {
+        record(method, path, statusCode, null, exchangeTimer);
+    }
+
+    public void record(String method, String path, int statusCode, String cacheStatus,
+        ExchangeTimer exchangeTimer) {
+        final String statusClass = statusCode / 100 + "XX";
+        final Map<Phase, LatencyHistogram> histograms = histograms(method, routeOf(path),
+            (cacheStatus == null) ? statusClass : statusClass + " " + cacheStatus);
+        for (Phase phase : Phase.values()) {
+            histograms.get(phase).record(exchangeTimer.nanos(phase));
+        }
+    }
+
+    public LatencyHistogram histogram(String key, Phase phase) {
+        final Map<Phase, LatencyHistogram> histograms = series.get(key);
+        return (histograms == null) ? null : histograms.get(phase);
+    }
+
+    private Map<Phase, LatencyHistogram> histograms(String method, String route,
+        String statusClass) {
+        final String key = method + " " + route + " " + statusClass;
+        final Map<Phase, LatencyHistogram> histograms = series.get(key);
+        if (histograms != null) {
+            return histograms;
+        }
+        final String seriesKey = (series.size() < maxSeries) ? key
+            : method + " " + OTHER_ROUTE + " " + statusClass;
+        return series.computeIfAbsent(seriesKey, ignored -> newHistograms());
+    }
+
+    private static Map<Phase, LatencyHistogram> newHistograms() {
+        final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+        return histograms;
+    }
+
+    static String routeOf(String path) {
+        if (path == null || path.length() <= 1) {
+            return "/";
+        }
+        final int end = path.indexOf('/', 1);
+        return (end < 0) ? path : path.substring(0, end);
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> routes = new TreeMap<>();
+        series.forEach((key, histograms) -> {
+            final Map<String, Object> phases = new LinkedHashMap<>();
+            histograms.forEach((phase, histogram) -> {
+                if (histogram.getCount() > 0) {
+                    phases.put(phase.getKey(), histogram.snapshot());
+                }
+            });
+            routes.put(key, phases);
+        });
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("unit", "us");
+        snapshot.put("routes", routes);
+        return snapshot;
+    }
+}
@@ -0,0 +1,32 @@
+package log.demo.metrics.latency;
+
+/*
+ * ExchangeTimer 의 두 시점 사이 구간
+ * pre-upstream : 필터 진입 ~ 대상 서버 호출 시작 (필터, 디스패치, 헤더 추출)
+ * connect : 호출 시작 ~ connection 준비 (pool 대기 + 연결)
+ * first-byte : connection 준비 ~ 대상 서버 응답 헤더 도착
+ * upstream-body : 응답 헤더 ~ 대상 서버 응답 body 끝 (streaming 모드에서는 클라이언트로 쓰는 시간도 포함)
+ * flush : 대상 서버 응답 끝 ~ 클라이언트 응답 flush
+ * logging : 로그 스냅샷을 뜨고 emit 하는 데 요청 스레드가 쓴 시간
+ * total : 필터 진입 ~ 클라이언트 응답 flush
+ */
+public enum Phase {
+
+    PRE_UPSTREAM("pre-upstream"),
+    CONNECT("connect"),
+    FIRST_BYTE("first-byte"),
+    UPSTREAM_BODY("upstream-body"),
+    FLUSH("flush"),
+    LOGGING("logging"),
+    TOTAL("total");
+
+    private final String key;
+
+    Phase(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,185 @@
+package log.demo.metrics.latency;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/*
+ * httpclient5 exec chain 의 CONNECT 다음에 끼워 대상 서버 구간 시점을 ExchangeTimer 에 남긴다.
+ * 이 handler 가 불리면 connection 이 준비된 것이고, 응답 헤더가 돌아오면 first byte,
+ * 응답 body 를 끝까지 읽으면(async 는 streamEnd) upstream complete 이다.
+ * ExchangeTimer 는 HttpContext attribute 로 넘겨받는다. (newContext)
+ */
+public class UpstreamTimingHandler implements ExecChainHandler, AsyncExecChainHandler {
+
+    public static final String NAME = "upstream-timing";
+
+    //대상 서버 호출을 시작하는 시점에 만들어 client 로 넘긴다.
+    public static HttpClientContext newContext(ExchangeTimer exchangeTimer) {
+        final HttpClientContext context = HttpClientContext.create();
+        if (exchangeTimer != null) {
+            exchangeTimer.markUpstreamStart();
+            context.setAttribute(ExchangeTimer.ATTRIBUTE, exchangeTimer);
+        }
+        return context;
+    }
+
+    private static ExchangeTimer timerOf(HttpContext context) {
+        return (context.getAttribute(ExchangeTimer.ATTRIBUTE) instanceof ExchangeTimer timer)
+            ? timer : null;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope,
+        ExecChain chain) throws IOException, HttpException {
+        final ExchangeTimer exchangeTimer = timerOf(scope.clientContext);
+        if (exchangeTimer == null) {
+            return chain.proceed(request, scope);
+        }
+        exchangeTimer.markUpstreamConnected();
+        final ClassicHttpResponse response = chain.proceed(request, scope);
+        exchangeTimer.markUpstreamFirstByte();
+        final HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            exchangeTimer.markUpstreamComplete();
+        } else {
+            response.setEntity(new TimedEntity(entity, exchangeTimer));
+        }
+        return response;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer,
+        AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback)
+        throws HttpException, IOException {
+        final ExchangeTimer exchangeTimer = timerOf(scope.clientContext);
+        if (exchangeTimer == null) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+        exchangeTimer.markUpstreamConnected();
+        chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+            @Override
+            public AsyncDataConsumer handleResponse(HttpResponse response,
+                EntityDetails entityDetails) throws HttpException, IOException {
+                exchangeTimer.markUpstreamFirstByte();
+                final AsyncDataConsumer dataConsumer = asyncExecCallback.handleResponse(response,
+                    entityDetails);
+                if (dataConsumer == null) {
+                    exchangeTimer.markUpstreamComplete();
+                    return null;
+                }
+                return new TimedDataConsumer(dataConsumer, exchangeTimer);
+            }
+
+            @Override
+            public void handleInformationResponse(HttpResponse response)
+                throws HttpException, IOException {
+                asyncExecCallback.handleInformationResponse(response);
+            }
+
+            @Override
+            public void completed() {
+                asyncExecCallback.completed();
+            }
+
+            @Override
+            public void failed(Exception cause) {
+                asyncExecCallback.failed(cause);
+            }
+        });
+    }
+
+    private static class TimedEntity extends HttpEntityWrapper {
+
+        private final ExchangeTimer exchangeTimer;
+
+        TimedEntity(HttpEntity entity, ExchangeTimer exchangeTimer) {
+            super(entity);
+            this.exchangeTimer = exchangeTimer;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    final int b = super.read();
+                    if (b == -1) {
+                        exchangeTimer.markUpstreamComplete();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    final int count = super.read(b, off, len);
+                    if (count == -1) {
+                        exchangeTimer.markUpstreamComplete();
+                    }
+                    return count;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    exchangeTimer.markUpstreamComplete();
+                    super.close();
+                }
+            };
+        }
+    }
+
+    //consumer 가 streamEnd 에서 클라이언트 응답까지 끝낼 수 있으므로 그 전에 남긴다.
+    private static class TimedDataConsumer implements AsyncDataConsumer {
+
+        private final AsyncDataConsumer delegate;
+        private final ExchangeTimer exchangeTimer;
+
+        TimedDataConsumer(AsyncDataConsumer delegate, ExchangeTimer exchangeTimer) {
+            this.delegate = delegate;
+            this.exchangeTimer = exchangeTimer;
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            delegate.updateCapacity(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) throws IOException {
+            delegate.consume(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+            exchangeTimer.markUpstreamComplete();
+            delegate.streamEnd(trailers);
+        }
+
+        @Override
+        public void releaseResources() {
+            delegate.releaseResources();
+        }
+    }
+}
@@ -12,4 +12,7 @@ public class PassRequestDTO {
     private String queryString;
     private String method;
     private MultiValueMap<String, String> headers;
+    //body 를 스트림으로 넘길 때 서블릿 요청에 body 가 있는지 (Content-Length 또는 Transfer-Encoding)
+    //headers 에서는 Transfer-Encoding 이 빠지므로 따로 넘긴다.
+    private boolean bodyPresent;
 }
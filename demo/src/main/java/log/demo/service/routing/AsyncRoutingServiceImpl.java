@@ -0,0 +1,300 @@
+package log.demo.service.routing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import log.demo.constant.ProxyModeConst;
+import log.demo.http.header.HeaderView;
+import log.demo.metrics.latency.ExchangeTimer;
+import log.demo.metrics.latency.UpstreamTimingHandler;
+import log.demo.service.dto.PassRequestDTO;
+import log.demo.service.routing.async.Http2Upstreams;
+import log.demo.service.routing.async.ServletRequestEntityProducer;
+import log.demo.service.routing.async.ServletResponseConsumer;
+import log.demo.upstream.RoutingTable;
+import log.demo.upstream.Upstream;
+import log.demo.upstream.UpstreamPermit;
+import log.demo.upstream.UpstreamPool;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.util.DeadlineTimeoutException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+
+/*
+ * log.proxy.mode=async 일 때 사용하는 RoutingService
+ * httpclient5 의 비동기 client(IO reactor)로 대상 서버를 호출하므로 응답을 기다리는 동안 스레드를 잡고 있지 않는다.
+ * passHttpRequestAsync 는 요청/응답 body 를 chunk 버퍼 단위로 서블릿 비동기 I/O 와 주고받는다.
+ * Http2Upstreams 가 있으면 HTTP/2 를 하는 대상 서버에는 HTTP/2 client 로 보낸다.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = ProxyModeConst.PROPERTY, havingValue = ProxyModeConst.ASYNC)
+public class AsyncRoutingServiceImpl implements RoutingService {
+
+    //대상 서버에서 미리 받아 둘 응답 chunk 수
+    private static final int WINDOW_CHUNKS = 4;
+
+    private final CloseableHttpAsyncClient httpAsyncClient;
+    //RoutingTable 이 없으면(RoutingConfig 없이 만든 경우) destHost 로 보낸다.
+    private final RoutingTable routingTable;
+    private final Http2Upstreams http2Upstreams;
+    @Value("${log.destination.host}")
+    private String destHost;
+    @Value("${log.proxy.chunk-size:8192}")
+    private int chunkSize = 8192;
+
+    //등록되지 않은 collaborator 는 null 로 받는다.
+    @Autowired
+    public AsyncRoutingServiceImpl(CloseableHttpAsyncClient httpAsyncClient,
+        ObjectProvider<RoutingTable> routingTable, ObjectProvider<Http2Upstreams> http2Upstreams) {
+        this(httpAsyncClient, routingTable.getIfAvailable(), http2Upstreams.getIfAvailable());
+    }
+
+    public AsyncRoutingServiceImpl(CloseableHttpAsyncClient httpAsyncClient,
+        RoutingTable routingTable, Http2Upstreams http2Upstreams) {
+        this.httpAsyncClient = httpAsyncClient;
+        this.routingTable = routingTable;
+        this.http2Upstreams = http2Upstreams;
+    }
+
+    @Override
+    public ResponseEntity<byte[]> passHttpRequest(PassRequestDTO passRequestDTO)
+        throws URISyntaxException {
+        final UpstreamPool pool = resolvePool(passRequestDTO);
+        final Upstream upstream = (pool == null) ? null : pool.select();
+        final URI uri = makeURI(upstream, passRequestDTO.getUri(),
+            passRequestDTO.getQueryString());
+        final boolean http2 = http2Upstreams != null && http2Upstreams.useHttp2(uri);
+        final HttpRequest upstreamRequest = createRequest(passRequestDTO, uri, http2);
+        final AsyncEntityProducer entityProducer = (passRequestDTO.getBody() == null) ? null
+            : AsyncEntityProducers.create(passRequestDTO.getBody(),
+                contentType(passRequestDTO.getHeaders()));
+        final UpstreamPermit permit = (pool == null) ? null : pool.admit();
+        final long startNanos = (pool == null) ? 0 : pool.start(upstream);
+        boolean failed = true;
+        try {
+            final Message<HttpResponse, byte[]> message = clientOf(http2).execute(
+                new BasicRequestProducer(upstreamRequest, entityProducer),
+                new BasicResponseConsumer<>(new BasicAsyncEntityConsumer()),
+                UpstreamTimingHandler.newContext(ExchangeTimer.current()), null).get();
+            failed = message.getHead().getCode() >= 500;
+            return toResponseEntity(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for " + upstreamRequest);
+        } catch (ExecutionException e) {
+            if (http2) {
+                http2Upstreams.onFailure(uri, e.getCause());
+            }
+            throw toResourceAccessException(upstreamRequest, e.getCause());
+        } finally {
+            finish(pool, upstream, permit, startNanos, failed);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> passHttpRequestAsync(PassRequestDTO passRequestDTO,
+        HttpServletRequest request, HttpServletResponse response)
+        throws URISyntaxException, IOException {
+        final UpstreamPool pool = resolvePool(passRequestDTO);
+        final Upstream upstream = (pool == null) ? null : pool.select();
+        final URI uri = makeURI(upstream, passRequestDTO.getUri(),
+            passRequestDTO.getQueryString());
+        final boolean http2 = http2Upstreams != null && http2Upstreams.useHttp2(uri);
+        final HttpRequest upstreamRequest = createRequest(passRequestDTO, uri, http2);
+        //거절되면 요청 body 를 읽기 시작하기 전에 실패한다.
+        final UpstreamPermit permit = (pool == null) ? null : pool.admit();
+        ServletRequestEntityProducer entityProducer = null;
+        try {
+            if (hasBody(request)) {
+                entityProducer = new ServletRequestEntityProducer(request, chunkSize,
+                    chunkSize * WINDOW_CHUNKS);
+                entityProducer.start();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (pool != null) {
+                pool.release(permit, false);
+            }
+            throw e;
+        }
+
+        final ServletRequestEntityProducer requestProducer = entityProducer;
+        final ServletResponseConsumer responseConsumer = new ServletResponseConsumer(response,
+            chunkSize * WINDOW_CHUNKS);
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final long startNanos = (pool == null) ? 0 : pool.start(upstream);
+        final Future<Void> exchange;
+        try {
+            exchange = clientOf(http2).execute(
+                new BasicRequestProducer(upstreamRequest, requestProducer), responseConsumer,
+                UpstreamTimingHandler.newContext(ExchangeTimer.from(request)),
+                new FutureCallback<Void>() {
+                    @Override
+                    public void completed(Void ignored) {
+                        finish(pool, upstream, permit, startNanos, response.getStatus() >= 500);
+                        result.complete(null);
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        final boolean clientFailure =
+                            e instanceof ServletResponseConsumer.ClientWriteException;
+                        finish(pool, upstream, permit, startNanos, !clientFailure);
+                        if (http2 && !clientFailure) {
+                            http2Upstreams.onFailure(uri, e);
+                        }
+                        result.completeExceptionally(
+                            toResourceAccessException(upstreamRequest, e));
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        finish(pool, upstream, permit, startNanos, false);
+                        result.cancel(false);
+                    }
+                });
+        } catch (RuntimeException e) {
+            //client 가 닫혔을 때처럼 callback 없이 바로 실패하면 여기서 permit 과 in-flight 를 돌려준다.
+            finish(pool, upstream, permit, startNanos, true);
+            throw e;
+        }
+        //호출한 쪽이 result 를 cancel 하면(async timeout 등) 대상 서버 호출을 끊고 서블릿 스트림을 더 쓰지 않는다.
+        result.whenComplete((ignored, throwable) -> {
+            if (result.isCancelled()) {
+                responseConsumer.cancel();
+                if (requestProducer != null) {
+                    requestProducer.cancel();
+                }
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private UpstreamPool resolvePool(PassRequestDTO passRequestDTO) {
+        if (routingTable == null) {
+            return null;
+        }
+        final String host = (passRequestDTO.getHeaders() == null) ? null
+            : passRequestDTO.getHeaders().getFirst(HttpHeaders.HOST);
+        return routingTable.route(host, passRequestDTO.getUri());
+    }
+
+    //연결 실패, timeout, 5xx 는 upstream 의 실패로 pool 에 알린다. (outlier ejection, circuit breaker, limiter)
+    private static void finish(UpstreamPool pool, Upstream upstream, UpstreamPermit permit,
+        long startNanos, boolean failed) {
+        if (pool != null) {
+            pool.finish(upstream, startNanos, failed);
+            pool.release(permit, failed);
+        }
+    }
+
+    private CloseableHttpAsyncClient clientOf(boolean http2) {
+        return http2 ? http2Upstreams.getClient() : httpAsyncClient;
+    }
+
+    private HttpRequest createRequest(PassRequestDTO passRequestDTO, URI uri, boolean http2) {
+        final HttpRequest upstreamRequest = new BasicHttpRequest(passRequestDTO.getMethod(), uri);
+        if (passRequestDTO.getHeaders() != null) {
+            //Content-Length 는 entity producer 가 정한다. HTTP/2 에서 Host 는 대상 서버 주소(:authority)로 바뀐다.
+            passRequestDTO.getHeaders().forEach((headerName, headerValues) -> {
+                if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(headerName)
+                    || HeaderView.isHopByHopHeader(headerName)
+                    || (http2 && HttpHeaders.HOST.equalsIgnoreCase(headerName))) {
+                    return;
+                }
+                headerValues.forEach(headerValue -> upstreamRequest.addHeader(headerName,
+                    headerValue));
+            });
+        }
+        return upstreamRequest;
+    }
+
+    private boolean hasBody(HttpServletRequest request) {
+        return request.getContentLengthLong() > 0
+            || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+    }
+
+    private ContentType contentType(Map<String, List<String>> headers) {
+        final List<String> contentTypes = (headers == null) ? null
+            : headers.get(HttpHeaders.CONTENT_TYPE);
+        if (contentTypes == null || contentTypes.isEmpty()) {
+            return ContentType.APPLICATION_OCTET_STREAM;
+        }
+        return ContentType.parseLenient(contentTypes.get(0));
+    }
+
+    private ResponseEntity<byte[]> toResponseEntity(Message<HttpResponse, byte[]> message) {
+        final HttpHeaders headers = new HttpHeaders();
+        for (Header header : message.getHead().getHeaders()) {
+            if (!HeaderView.isHopByHopHeader(header.getName())) {
+                headers.add(header.getName(), header.getValue());
+            }
+        }
+        return ResponseEntity.status(message.getHead().getCode())
+            .headers(headers)
+            .body(message.getBody());
+    }
+
+    //RestTemplate 과 같이 ResourceAccessException 으로 알리고, timeout 은 classic client 와 같은 예외로 바꾼다.
+    private ResourceAccessException toResourceAccessException(HttpRequest upstreamRequest,
+        Throwable cause) {
+        final IOException ioException;
+        if (cause instanceof IOException e) {
+            ioException = e;
+        } else if (cause instanceof DeadlineTimeoutException) {
+            ioException = new ConnectionRequestTimeoutException(
+                "Timeout waiting for upstream connection: " + cause.getMessage());
+        } else if (cause instanceof TimeoutException) {
+            //응답 timeout 은 RestTemplate 처럼 SocketTimeoutException 으로 알려 504 가 되게 한다.
+            ioException = new SocketTimeoutException(
+                "Timeout waiting for upstream response: " + cause.getMessage());
+        } else {
+            ioException = new IOException(cause);
+        }
+        return new ResourceAccessException("I/O error on " + upstreamRequest + ": "
+            + ioException.getMessage(), ioException);
+    }
+
+    private URI makeURI(Upstream upstream, String uri, String queryString)
+        throws URISyntaxException {
+        final String destURI = (upstream == null) ? makeDestURIString(uri, queryString)
+            : upstream.uriOf(uri, queryString);
+        return new URI(destURI);
+    }
+
+    private String makeDestURIString(String uri, String queryString) {
+        String uriString = destHost + uri;
+        uriString = (queryString == null) ? uriString : uriString + "?" + queryString;
+        return uriString;
+    }
+}
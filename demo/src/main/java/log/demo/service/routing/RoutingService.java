@@ -1,12 +1,54 @@
 package log.demo.service.routing;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import log.demo.service.dto.PassRequestDTO;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 
 public interface RoutingService {
 
     ResponseEntity<byte[]> passHttpRequest(PassRequestDTO passRequestDTO)
         throws URISyntaxException;
+
+    /*
+     * body 를 스트림으로 받아 대상 서버로 흘려보내고, 응답도 response 로 바로 흘려보낸다.
+     * 기본 구현은 body 를 모두 읽어서 passHttpRequest 로 위임한다.
+     */
+    default void streamHttpRequest(PassRequestDTO passRequestDTO, InputStream body,
+        ServerHttpResponse response) throws URISyntaxException, IOException {
+        final PassRequestDTO bufferedRequestDTO = PassRequestDTO.builder()
+            .queryString(passRequestDTO.getQueryString())
+            .uri(passRequestDTO.getUri())
+            .body(body.readAllBytes())
+            .method(passRequestDTO.getMethod())
+            .headers(passRequestDTO.getHeaders())
+            .build();
+        final ResponseEntity<byte[]> responseEntity = passHttpRequest(bufferedRequestDTO);
+        response.setStatusCode(responseEntity.getStatusCode());
+        response.getHeaders().putAll(responseEntity.getHeaders());
+        if (responseEntity.getBody() != null) {
+            response.getBody().write(responseEntity.getBody());
+        }
+        response.flush();
+    }
+
+    /*
+     * request.startAsync() 이후에 호출한다. 응답을 모두 쓰면 future 가 완료되며,
+     * AsyncContext.complete() 는 호출한 쪽에서 한다.
+     * 기본 구현은 현재 스레드에서 streamHttpRequest 로 처리한다.
+     */
+    default CompletableFuture<Void> passHttpRequestAsync(PassRequestDTO passRequestDTO,
+        HttpServletRequest request, HttpServletResponse response)
+        throws URISyntaxException, IOException {
+        streamHttpRequest(passRequestDTO, request.getInputStream(),
+            new ServletServerHttpResponse(response));
+        return CompletableFuture.completedFuture(null);
+    }
 }
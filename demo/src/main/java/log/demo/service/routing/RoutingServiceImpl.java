@@ -1,43 +1,266 @@
 package log.demo.service.routing;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.function.Supplier;
+import log.demo.cache.ResponseCache;
+import log.demo.http.header.HeaderView;
 import log.demo.service.dto.PassRequestDTO;
-import lombok.RequiredArgsConstructor;
+import log.demo.thread.ConnectionLeaseGate;
+import log.demo.upstream.RoutingTable;
+import log.demo.upstream.Upstream;
+import log.demo.upstream.UpstreamInvoker;
+import log.demo.upstream.UpstreamPermit;
+import log.demo.upstream.UpstreamPool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 
 @Service
-@RequiredArgsConstructor
 public class RoutingServiceImpl implements RoutingService {
 
     private final RestTemplate restTemplate;
+    private final RestTemplate streamingRestTemplate;
+    //RoutingTable 이 없으면(RoutingConfig 없이 만든 경우) destHost 로 보낸다.
+    private final RoutingTable routingTable;
+    //RoutingTable 과 함께 등록된다. 없으면 retry, hedge 없이 한 번만 부른다.
+    private final UpstreamInvoker upstreamInvoker;
+    //가상 스레드 모드에서만 등록된다. (VirtualThreadConfig)
+    private final ConnectionLeaseGate connectionLeaseGate;
+    //log.cache.enabled=true 일 때만 등록된다. (ResponseCacheConfig)
+    private final ResponseCache responseCache;
     @Value("${log.destination.host}")
     private String destHost;
+    @Value("${log.proxy.chunk-size:8192}")
+    private int chunkSize = 8192;
+
+    //등록되지 않은 collaborator 는 null 로 받는다.
+    @Autowired
+    public RoutingServiceImpl(RestTemplate restTemplate,
+        @Qualifier("streamingRestTemplate") ObjectProvider<RestTemplate> streamingRestTemplate,
+        ObjectProvider<RoutingTable> routingTable, ObjectProvider<UpstreamInvoker> upstreamInvoker,
+        ObjectProvider<ConnectionLeaseGate> connectionLeaseGate,
+        ObjectProvider<ResponseCache> responseCache) {
+        this(restTemplate, streamingRestTemplate.getIfAvailable(), routingTable.getIfAvailable(),
+            upstreamInvoker.getIfAvailable(), connectionLeaseGate.getIfAvailable(),
+            responseCache.getIfAvailable());
+    }
+
+    public RoutingServiceImpl(RestTemplate restTemplate, RestTemplate streamingRestTemplate,
+        RoutingTable routingTable, UpstreamInvoker upstreamInvoker,
+        ConnectionLeaseGate connectionLeaseGate, ResponseCache responseCache) {
+        this.restTemplate = restTemplate;
+        this.streamingRestTemplate = streamingRestTemplate;
+        this.routingTable = routingTable;
+        this.upstreamInvoker = upstreamInvoker;
+        this.connectionLeaseGate = connectionLeaseGate;
+        this.responseCache = responseCache;
+    }
+
+    //destHost 로 한 번만 보내고, streaming, 캐시 없이 쓴다.
+    public RoutingServiceImpl(RestTemplate restTemplate) {
+        this(restTemplate, (RestTemplate) null, null, null, null, null);
+    }
 
     public ResponseEntity<byte[]> passHttpRequest(PassRequestDTO passRequestDTO) throws URISyntaxException {
-        final URI uri = makeURI(passRequestDTO.getUri(), passRequestDTO.getQueryString());
+        final UpstreamPool pool = resolvePool(passRequestDTO);
+        final Upstream upstream = (pool == null) ? null : pool.select();
+        final URI uri = makeURI(upstream, passRequestDTO.getUri(), passRequestDTO.getQueryString());
+        final HttpMethod httpMethod = HttpMethod.valueOf(passRequestDTO.getMethod());
+        if (responseCache == null) {
+            return withoutHopByHopHeaders(exchange(pool, upstream, uri, httpMethod,
+                passRequestDTO, passRequestDTO.getHeaders()));
+        }
+        //같은 pool 의 upstream 들은 같은 응답을 주므로 key 에 upstream 주소 대신 pool 이름을 쓴다.
+        final String cacheKey = (pool == null) ? uri.toString()
+            : pool.getName() + " " + makePathAndQuery(passRequestDTO.getUri(),
+                passRequestDTO.getQueryString());
+        //캐시가 조건부 헤더를 붙여 재검증할 수 있도록 보낼 헤더를 넘겨받는다.
+        return withoutHopByHopHeaders(responseCache.exchange(httpMethod, cacheKey,
+            passRequestDTO.getHeaders(),
+            headers -> exchange(pool, upstream, uri, httpMethod, passRequestDTO, headers)));
+    }
+
+    private static ResponseEntity<byte[]> withoutHopByHopHeaders(ResponseEntity<byte[]> response) {
+        final HttpHeaders headers = new HttpHeaders();
+        copyResponseHeaders(response.getHeaders(), headers);
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    //retry, hedge 로 다른 upstream 을 부를 때는 그 upstream 의 주소로 바꿔 보낸다.
+    private ResponseEntity<byte[]> exchange(UpstreamPool pool, Upstream upstream, URI uri,
+        HttpMethod httpMethod, PassRequestDTO passRequestDTO,
+        MultiValueMap<String, String> headers) {
+        final HttpEntity<byte[]> httpEntity = new HttpEntity<>(passRequestDTO.getBody(), headers);
+        if (pool == null || upstreamInvoker == null) {
+            return withAdmission(pool, () -> withUpstream(pool, upstream, () -> withConnectionLease(
+                () -> restTemplate.exchange(uri, httpMethod, httpEntity, byte[].class))));
+        }
+        return withAdmission(pool, () -> upstreamInvoker.invoke(pool, upstream, httpMethod.name(),
+            target -> {
+                final URI targetUri = (target == upstream) ? uri : URI.create(
+                    target.uriOf(passRequestDTO.getUri(), passRequestDTO.getQueryString()));
+                return withUpstream(pool, target, () -> withConnectionLease(
+                    () -> restTemplate.exchange(targetUri, httpMethod, httpEntity, byte[].class)));
+            }));
+    }
+
+    @Override
+    public void streamHttpRequest(PassRequestDTO passRequestDTO, InputStream body,
+        ServerHttpResponse response) throws URISyntaxException {
+        final UpstreamPool pool = resolvePool(passRequestDTO);
+        final Upstream upstream = (pool == null) ? null : pool.select();
+        final URI uri = makeURI(upstream, passRequestDTO.getUri(), passRequestDTO.getQueryString());
         final HttpMethod httpMethod = HttpMethod.valueOf(passRequestDTO.getMethod());
-        final HttpEntity<byte[]> httpEntity = new HttpEntity<>(passRequestDTO.getBody(),
-            passRequestDTO.getHeaders());
+        final RestTemplate template =
+            (streamingRestTemplate == null) ? restTemplate : streamingRestTemplate;
+
+        withAdmission(pool, () -> withUpstream(pool, upstream, () -> withConnectionLease(
+            () -> template.execute(uri, httpMethod,
+                request -> writeRequest(request, passRequestDTO, body),
+                upstreamResponse -> {
+                    response.setStatusCode(upstreamResponse.getStatusCode());
+                    copyResponseHeaders(upstreamResponse.getHeaders(), response.getHeaders());
+                    copy(upstreamResponse.getBody(), response.getBody());
+                    response.flush();
+                    return null;
+                }))));
+    }
 
-        return restTemplate.exchange(uri, httpMethod, httpEntity, byte[].class);
+    private UpstreamPool resolvePool(PassRequestDTO passRequestDTO) {
+        if (routingTable == null) {
+            return null;
+        }
+        final String host = (passRequestDTO.getHeaders() == null) ? null
+            : passRequestDTO.getHeaders().getFirst(HttpHeaders.HOST);
+        return routingTable.route(host, passRequestDTO.getUri());
     }
 
-    private URI makeURI(String uri, String queryString) throws URISyntaxException {
-        final String destURI = makeDestURIString(uri, queryString);
+    /*
+     * 연결 실패, timeout, 5xx 는 upstream 의 실패로 pool 에 알린다. (outlier ejection)
+     * 4xx 는 요청의 문제이므로 성공으로 본다.
+     */
+    private <T> T withUpstream(UpstreamPool pool, Upstream upstream, Supplier<T> upstreamCall) {
+        if (pool == null) {
+            return upstreamCall.get();
+        }
+        final long startNanos = pool.start(upstream);
+        boolean failed = true;
+        try {
+            final T result = upstreamCall.get();
+            failed = false;
+            return result;
+        } catch (HttpClientErrorException e) {
+            failed = false;
+            throw e;
+        } finally {
+            pool.finish(upstream, startNanos, failed);
+        }
+    }
+
+    /*
+     * circuit breaker 와 concurrency limiter 는 retry, hedge 를 합친 요청 하나의 결과로 판단한다.
+     * 거절되면 UpstreamRejectedException 으로 connection 을 기다리지 않고 바로 실패한다.
+     */
+    private <T> T withAdmission(UpstreamPool pool, Supplier<T> upstreamCall) {
+        if (pool == null) {
+            return upstreamCall.get();
+        }
+        final UpstreamPermit permit = pool.admit();
+        boolean failed = true;
+        try {
+            final T result = upstreamCall.get();
+            failed = false;
+            return result;
+        } catch (HttpClientErrorException e) {
+            failed = false;
+            throw e;
+        } finally {
+            pool.release(permit, failed);
+        }
+    }
+
+    //RestTemplate 은 응답을 닫고(connection 을 pool 에 돌려주고) 반환하므로 그 뒤에 permit 을 돌려준다.
+    private <T> T withConnectionLease(Supplier<T> upstreamCall) {
+        if (connectionLeaseGate == null) {
+            return upstreamCall.get();
+        }
+        connectionLeaseGate.acquire();
+        try {
+            return upstreamCall.get();
+        } finally {
+            connectionLeaseGate.release();
+        }
+    }
+
+    private void writeRequest(ClientHttpRequest request, PassRequestDTO passRequestDTO,
+        InputStream body) throws IOException {
+        if (passRequestDTO.getHeaders() != null) {
+            request.getHeaders().addAll(passRequestDTO.getHeaders());
+        }
+        if (body == null || !hasBody(passRequestDTO, request.getHeaders())) {
+            return;
+        }
+        if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+            streamingRequest.setBody(outputStream -> copy(body, outputStream));
+        } else {
+            copy(body, request.getBody());
+        }
+    }
+
+    //HeaderView 는 Transfer-Encoding 을 빼므로 chunked 요청은 컨트롤러가 넘긴 bodyPresent 로 안다.
+    private boolean hasBody(PassRequestDTO passRequestDTO, HttpHeaders headers) {
+        return passRequestDTO.isBodyPresent() || headers.getContentLength() > 0
+            || headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    //Connection, Transfer-Encoding 같은 hop-by-hop 헤더는 서블릿 컨테이너가 다시 정하므로 넘기지 않는다.
+    private static void copyResponseHeaders(HttpHeaders upstreamHeaders, HttpHeaders headers) {
+        upstreamHeaders.forEach((headerName, headerValues) -> {
+            if (!HeaderView.isHopByHopHeader(headerName)) {
+                headers.addAll(headerName, headerValues);
+            }
+        });
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        final byte[] buffer = new byte[chunkSize];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        out.flush();
+    }
+
+    private URI makeURI(Upstream upstream, String uri, String queryString)
+        throws URISyntaxException {
+        final String destURI = (upstream == null) ? makeDestURIString(uri, queryString)
+            : upstream.uriOf(uri, queryString);
         return new URI(destURI);
     }
 
     private String makeDestURIString(String uri, String queryString) {
-        String uriString = destHost + uri;
-        uriString = (queryString == null) ? uriString : uriString + "?" + queryString;
-        return uriString;
+        return destHost + makePathAndQuery(uri, queryString);
+    }
+
+    private String makePathAndQuery(String uri, String queryString) {
+        return (queryString == null) ? uri : uri + "?" + queryString;
     }
 
 }
@@ -0,0 +1,177 @@
+package log.demo.service.routing.async;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import log.demo.metrics.MetricSource;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.ProtocolException;
+import org.apache.hc.core5.http2.H2ConnectionException;
+import org.apache.hc.core5.io.CloseMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * log.client.http2.enabled=true 일 때 대상 서버(scheme://host:port)마다 HTTP/2 를 쓸 수 있는지 기억해 둔다.
+ * 처음 보는 대상 서버는 HTTP/1.1 client 로 보내면서 HTTP/2 client 로 "OPTIONS *" 를 보내 본다.
+ * (http 는 prior knowledge h2c, https 는 ALPN) 응답이 오면 그 뒤로는 HTTP/2 client 로 보내
+ * connection 몇 개에 요청을 여러 개 싣는다. (multiplexing)
+ * probe 가 실패하거나 HTTP/2 로 보내다 protocol 오류가 나면 HTTP/1.1 로 두고 probeIntervalMillis 뒤에 다시 본다.
+ * 실패한 요청을 HTTP/1.1 로 다시 보내지는 않는다. (body 를 스트림으로 보내므로 다시 만들 수 없다.)
+ */
+public class Http2Upstreams implements MetricSource, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Http2Upstreams.class);
+
+    public enum Protocol {
+        PROBING, HTTP_2, HTTP_1_1
+    }
+
+    private final CloseableHttpAsyncClient http2Client;
+    private final long probeIntervalNanos;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    private final LongAdder http2Requests = new LongAdder();
+    private final LongAdder http1Requests = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    //http2Client 는 시작된 것을 받고, close 할 때 같이 닫는다.
+    public Http2Upstreams(CloseableHttpAsyncClient http2Client, long probeIntervalMillis) {
+        this.http2Client = http2Client;
+        this.probeIntervalNanos = probeIntervalMillis * 1_000_000;
+    }
+
+    //true 면 getClient() 로, false 면 HTTP/1.1 client 로 보낸다. 필요하면 probe 를 시작한다.
+    public boolean useHttp2(URI uri) {
+        final String key = keyOf(uri);
+        Target target = targets.get(key);
+        if (target == null) {
+            final Target created = new Target();
+            target = targets.putIfAbsent(key, created);
+            if (target == null) {
+                target = created;
+                probe(key, target, uri);
+            }
+        }
+        final Protocol protocol = target.protocol.get();
+        if (protocol == Protocol.HTTP_2) {
+            http2Requests.increment();
+            return true;
+        }
+        if (protocol == Protocol.HTTP_1_1
+            && System.nanoTime() - target.checkedAtNanos.get() >= probeIntervalNanos
+            && target.protocol.compareAndSet(Protocol.HTTP_1_1, Protocol.PROBING)) {
+            probe(key, target, uri);
+        }
+        http1Requests.increment();
+        return false;
+    }
+
+    //HTTP/2 로 보낸 요청이 실패했을 때 부른다. protocol 오류면 HTTP/1.1 로 돌린다. (timeout 등은 그대로 둔다.)
+    public void onFailure(URI uri, Throwable cause) {
+        if (!(cause instanceof H2ConnectionException || cause instanceof ProtocolException)) {
+            return;
+        }
+        final Target target = targets.get(keyOf(uri));
+        if (target != null && target.protocol.compareAndSet(Protocol.HTTP_2, Protocol.HTTP_1_1)) {
+            target.checkedAtNanos.set(System.nanoTime());
+            fallbacks.increment();
+            log.warn("HTTP/2 failed, falling back to HTTP/1.1: {} ({})", keyOf(uri),
+                cause.toString());
+        }
+    }
+
+    public CloseableHttpAsyncClient getClient() {
+        return http2Client;
+    }
+
+    //아직 본 적 없는 대상 서버면 null
+    public Protocol protocolOf(URI uri) {
+        final Target target = targets.get(keyOf(uri));
+        return (target == null) ? null : target.protocol.get();
+    }
+
+    private void probe(String key, Target target, URI uri) {
+        final SimpleHttpRequest request = SimpleRequestBuilder.options()
+            .setHttpHost(HttpHost.create(uri))
+            .setPath("*")
+            .build();
+        try {
+            http2Client.execute(request, new FutureCallback<SimpleHttpResponse>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    //status 와 상관없이 HTTP/2 로 응답했으면 쓸 수 있다.
+                    probed(key, target, Protocol.HTTP_2, null);
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    probed(key, target, Protocol.HTTP_1_1, e);
+                }
+
+                @Override
+                public void cancelled() {
+                    probed(key, target, Protocol.HTTP_1_1, null);
+                }
+            });
+        } catch (RuntimeException e) {
+            probed(key, target, Protocol.HTTP_1_1, e);
+        }
+    }
+
+    private void probed(String key, Target target, Protocol protocol, Exception cause) {
+        target.checkedAtNanos.set(System.nanoTime());
+        target.protocol.set(protocol);
+        if (protocol == Protocol.HTTP_2) {
+            log.info("HTTP/2 enabled for upstream {}", key);
+        } else {
+            log.debug("HTTP/2 not available for upstream {}: {}", key,
+                (cause == null) ? "cancelled" : cause.toString());
+        }
+    }
+
+    private static String keyOf(URI uri) {
+        final String scheme = (uri.getScheme() == null) ? "http"
+            : uri.getScheme().toLowerCase(Locale.ROOT);
+        final int port = (uri.getPort() >= 0) ? uri.getPort()
+            : ("https".equals(scheme) ? 443 : 80);
+        return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+    }
+
+    @Override
+    public String getName() {
+        return "upstream-http2";
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> protocols = new LinkedHashMap<>();
+        targets.forEach((key, target) -> protocols.put(key, target.protocol.get().name()));
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("http2-requests", http2Requests.sum());
+        snapshot.put("http1-requests", http1Requests.sum());
+        snapshot.put("fallbacks", fallbacks.sum());
+        snapshot.put("upstreams", protocols);
+        return snapshot;
+    }
+
+    @Override
+    public void close() {
+        http2Client.close(CloseMode.GRACEFUL);
+    }
+
+    private static final class Target {
+
+        private final AtomicReference<Protocol> protocol = new AtomicReference<>(Protocol.PROBING);
+        private final AtomicLong checkedAtNanos = new AtomicLong();
+    }
+}
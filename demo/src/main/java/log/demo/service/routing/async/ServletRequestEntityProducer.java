@@ -0,0 +1,218 @@
+package log.demo.service.routing.async;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.springframework.http.HttpHeaders;
+
+/*
+ * 서블릿 요청 body 를 non-blocking(ReadListener)으로 읽어 대상 서버로 보내는 producer
+ * chunkSize 단위 버퍼를 maxBufferedBytes 까지만 쌓고, 대상 서버로 나간 만큼 다시 읽는다.
+ * ReadListener 콜백(서블릿 컨테이너 스레드)과 produce(IO reactor 스레드)가 lock 으로 버퍼를 나눠 쓴다.
+ */
+public class ServletRequestEntityProducer implements AsyncEntityProducer, ReadListener {
+
+    private final ServletInputStream inputStream;
+    private final String contentType;
+    private final String contentEncoding;
+    private final long contentLength;
+    private final int chunkSize;
+    private final int maxBufferedBytes;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+    private int bufferedBytes;
+    private boolean paused;
+    private boolean endOfInput;
+    private boolean endOfStream;
+    private Throwable failure;
+    private volatile DataStreamChannel dataStreamChannel;
+
+    public ServletRequestEntityProducer(HttpServletRequest request, int chunkSize,
+        int maxBufferedBytes) throws IOException {
+        this.inputStream = request.getInputStream();
+        this.contentType = request.getContentType();
+        this.contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        this.contentLength = request.getContentLengthLong();
+        this.chunkSize = chunkSize;
+        this.maxBufferedBytes = Math.max(chunkSize, maxBufferedBytes);
+    }
+
+    //startAsync() 이후 서블릿 컨테이너 스레드에서 호출해야 한다.
+    public void start() {
+        inputStream.setReadListener(this);
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        readAvailable();
+    }
+
+    @Override
+    public void onAllDataRead() {
+        synchronized (lock) {
+            endOfInput = true;
+        }
+        requestOutput();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (lock) {
+            failure = throwable;
+        }
+        requestOutput();
+    }
+
+    //isReady() 가 false 를 돌려주면 데이터가 들어올 때 컨테이너가 onDataAvailable 을 다시 부른다.
+    private void readAvailable() throws IOException {
+        boolean read = false;
+        synchronized (lock) {
+            while (!endOfInput && failure == null) {
+                if (bufferedBytes >= maxBufferedBytes) {
+                    paused = true;
+                    break;
+                }
+                if (inputStream.isFinished()) {
+                    endOfInput = true;
+                    break;
+                }
+                if (!inputStream.isReady()) {
+                    break;
+                }
+                final byte[] chunk = new byte[chunkSize];
+                final int count = inputStream.read(chunk);
+                if (count == -1) {
+                    endOfInput = true;
+                    break;
+                }
+                if (count > 0) {
+                    chunks.add(ByteBuffer.wrap(chunk, 0, count));
+                    bufferedBytes += count;
+                    read = true;
+                }
+            }
+            read |= endOfInput;
+        }
+        if (read) {
+            requestOutput();
+        }
+    }
+
+    private void requestOutput() {
+        final DataStreamChannel channel = dataStreamChannel;
+        if (channel != null) {
+            channel.requestOutput();
+        }
+    }
+
+    @Override
+    public int available() {
+        synchronized (lock) {
+            if (endOfStream) {
+                return 0;
+            }
+            //끝났거나 실패했으면 produce 가 한 번 더 불려 endStream / 예외를 낼 수 있도록 한다.
+            if (failure != null || (endOfInput && chunks.isEmpty())) {
+                return 1;
+            }
+            return bufferedBytes;
+        }
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+        this.dataStreamChannel = channel;
+        final boolean resume;
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Failed to read request body", failure);
+            }
+            while (!chunks.isEmpty()) {
+                final ByteBuffer chunk = chunks.peek();
+                bufferedBytes -= channel.write(chunk);
+                if (chunk.hasRemaining()) {
+                    break;
+                }
+                chunks.poll();
+            }
+            if (endOfInput && chunks.isEmpty() && !endOfStream) {
+                endOfStream = true;
+                channel.endStream();
+                return;
+            }
+            resume = paused && bufferedBytes < maxBufferedBytes / 2;
+            if (resume) {
+                paused = false;
+            }
+        }
+        if (resume) {
+            readAvailable();
+        }
+    }
+
+    //요청이 끝난 뒤(timeout 등)에는 서블릿 입력 스트림을 더 읽지 않는다.
+    public void cancel() {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = new CancellationException();
+            }
+            chunks.clear();
+            bufferedBytes = 0;
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = cause;
+            }
+        }
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return contentLength < 0;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return null;
+    }
+
+    @Override
+    public void releaseResources() {
+        synchronized (lock) {
+            chunks.clear();
+            bufferedBytes = 0;
+        }
+    }
+}
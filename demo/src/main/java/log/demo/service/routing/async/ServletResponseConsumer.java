@@ -0,0 +1,225 @@
+package log.demo.service.routing.async;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import log.demo.http.header.HeaderView;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/*
+ * 대상 서버 응답을 받아 서블릿 응답으로 non-blocking(WriteListener)으로 쓰는 consumer
+ * 대상 서버에서는 windowBytes 만큼만 미리 받고, 클라이언트로 써 보낸 만큼 capacity 를 다시 열어 준다.
+ * 그래서 느린 클라이언트 때문에 IO reactor 스레드가 막히거나 응답이 메모리에 모두 쌓이지 않는다.
+ * 응답을 모두 쓰면 resultCallback 을 완료하고, AsyncContext.complete() 는 호출한 쪽에서 한다.
+ * 클라이언트로 쓰다 실패하거나 cancel 되면, 대상 서버 응답이 이미 끝났더라도 resultCallback 을 한 번 실패(취소)시킨다.
+ */
+public class ServletResponseConsumer implements AsyncResponseConsumer<Void>, WriteListener {
+
+    //클라이언트 쪽 연결이 실패했다. 대상 서버의 실패로 세지 않는다.
+    public static final class ClientWriteException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        ClientWriteException(Throwable cause) {
+            super("Client connection failed", cause);
+        }
+    }
+
+    private final HttpServletResponse response;
+    private final int windowBytes;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private int bufferedBytes;
+    private boolean endOfStream;
+    private boolean completed;
+    private Throwable failure;
+    private ServletOutputStream outputStream;
+    private CapacityChannel capacityChannel;
+    private FutureCallback<Void> resultCallback;
+
+    public ServletResponseConsumer(HttpServletResponse response, int windowBytes) {
+        this.response = response;
+        this.windowBytes = windowBytes;
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse upstreamResponse, EntityDetails entityDetails,
+        HttpContext context, FutureCallback<Void> resultCallback) throws IOException {
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Exchange cancelled", failure);
+            }
+        }
+        response.setStatus(upstreamResponse.getCode());
+        for (Header header : upstreamResponse.getHeaders()) {
+            if (!HeaderView.isHopByHopHeader(header.getName())) {
+                response.addHeader(header.getName(), header.getValue());
+            }
+        }
+        if (entityDetails == null) {
+            synchronized (lock) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+            }
+            resultCallback.completed(null);
+            return;
+        }
+        synchronized (lock) {
+            this.resultCallback = resultCallback;
+            this.outputStream = response.getOutputStream();
+        }
+        //컨테이너가 쓸 수 있을 때 onWritePossible 을 부른다.
+        outputStream.setWriteListener(this);
+    }
+
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) {
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        final int increment;
+        synchronized (lock) {
+            this.capacityChannel = capacityChannel;
+            increment = windowBytes - bufferedBytes;
+        }
+        if (increment > 0) {
+            capacityChannel.update(increment);
+        }
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Client connection failed", failure);
+            }
+            final byte[] chunk = new byte[src.remaining()];
+            src.get(chunk);
+            chunks.add(chunk);
+            bufferedBytes += chunk.length;
+        }
+        drain();
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) throws IOException {
+        synchronized (lock) {
+            endOfStream = true;
+        }
+        drain();
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        final FutureCallback<Void> callback = abort(throwable);
+        if (callback != null) {
+            callback.failed(new ClientWriteException(throwable));
+        }
+    }
+
+    /*
+     * 요청이 timeout 되었거나 컨테이너가 요청을 끝냈을 때 호출한다.
+     * 그 뒤로는 서블릿 응답을 건드리지 않는다.
+     */
+    public void cancel() {
+        final FutureCallback<Void> callback = abort(new CancellationException());
+        if (callback != null) {
+            callback.cancelled();
+        }
+    }
+
+    //남은 chunk 를 버리고, 아직 resultCallback 을 부르지 않았으면 돌려준다.
+    private FutureCallback<Void> abort(Throwable cause) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = cause;
+            }
+            chunks.clear();
+            bufferedBytes = 0;
+            if (completed || resultCallback == null) {
+                return null;
+            }
+            completed = true;
+            return resultCallback;
+        }
+    }
+
+    /*
+     * IO reactor 스레드(consume)와 컨테이너 스레드(onWritePossible) 양쪽에서 불린다.
+     * isReady() 가 false 면 쓸 수 있게 될 때 컨테이너가 onWritePossible 을 다시 부른다.
+     */
+    private void drain() throws IOException {
+        int written = 0;
+        boolean done = false;
+        final CapacityChannel channel;
+        final FutureCallback<Void> callback;
+        synchronized (lock) {
+            if (outputStream == null || completed || failure != null) {
+                return;
+            }
+            while (!chunks.isEmpty() && outputStream.isReady()) {
+                final byte[] chunk = chunks.poll();
+                outputStream.write(chunk);
+                written += chunk.length;
+            }
+            bufferedBytes -= written;
+            if (endOfStream && chunks.isEmpty() && outputStream.isReady()) {
+                completed = true;
+                done = true;
+            }
+            channel = capacityChannel;
+            callback = resultCallback;
+        }
+        if (written > 0 && channel != null && !done) {
+            channel.update(written);
+        }
+        if (done) {
+            callback.completed(null);
+        }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = cause;
+            }
+        }
+    }
+
+    /*
+     * client 는 streamEnd 직후에 바로 호출하므로, 정상 종료라면 아직 못 쓴 chunk 는
+     * onWritePossible 에서 마저 쓰도록 남겨 둔다.
+     */
+    @Override
+    public void releaseResources() {
+        synchronized (lock) {
+            capacityChannel = null;
+            if (failure != null || !endOfStream) {
+                chunks.clear();
+                bufferedBytes = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package log.demo.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import log.demo.store.SegmentReader.RecordConsumer;
+
+/*
+ * 압축한 세그먼트(.segz)
+ * 헤더 : [int MAGIC][int VERSION]
+ * 블록 : [int compressedLength][int uncompressedLength][deflate bytes]
+ * 블록 안은 세그먼트와 같은 [int length][payload] 레코드다. 블록마다 따로 압축하므로 블록 하나만 풀어 읽을 수 있다.
+ * 레코드 위치는 (블록의 파일 offset << 32) | 블록 안 offset 이다.
+ */
+final class CompressedSegment {
+
+    static final int MAGIC = 0x48535a31; //"HSZ1"
+    static final int VERSION = 1;
+    static final int BLOCK_HEADER_BYTES = 8;
+
+    private CompressedSegment() {
+    }
+
+    /*
+     * source 를 블록 단위로 압축해 temp 에 쓴다.
+     * .segz 로 이름을 바꾸고 source 를 지우는 것은 retention 과 함께 막아야 해서 SegmentStore 가 한다.
+     * 중간에 멈춰도 반쯤 쓴 .segz 는 남지 않는다.
+     */
+    static void compress(Path source, Path temp, int level, int blockBytes) throws IOException {
+        final Deflater deflater = new Deflater(level, true);
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            final BlockWriter blockWriter = new BlockWriter(out, deflater, blockBytes);
+            SegmentReader.forEachRecord(source, (offset, record) -> blockWriter.add(record));
+            blockWriter.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static void forEachRecord(Path segment, MappedByteBuffer buffer, RecordConsumer consumer)
+        throws IOException {
+        checkVersion(segment, buffer);
+        final BlockReader blockReader = new BlockReader(segment, buffer);
+        try {
+            int position = SegmentFile.HEADER_BYTES;
+            while (blockReader.read(position)) {
+                forEachRecordInBlock(position, blockReader.block, blockReader.length, consumer);
+                position = blockReader.next;
+            }
+        } finally {
+            blockReader.end();
+        }
+    }
+
+    //positions 는 오름차순이어야 한다. 같은 블록의 레코드는 블록을 한 번만 풀어 읽는다.
+    static void forEachRecord(Path segment, MappedByteBuffer buffer, long[] positions,
+        RecordConsumer consumer) throws IOException {
+        checkVersion(segment, buffer);
+        final BlockReader blockReader = new BlockReader(segment, buffer);
+        try {
+            int currentBlock = -1;
+            for (long position : positions) {
+                final int blockOffset = (int) (position >>> 32);
+                if (blockOffset != currentBlock) {
+                    if (!blockReader.read(blockOffset)) {
+                        throw new IOException("Invalid record position " + position + ": "
+                            + segment);
+                    }
+                    currentBlock = blockOffset;
+                }
+                final ByteBuffer record = recordAt(blockReader.block, blockReader.length,
+                    (int) position);
+                if (record == null) {
+                    throw new IOException("Invalid record position " + position + ": " + segment);
+                }
+                consumer.accept(position, record);
+            }
+        } finally {
+            blockReader.end();
+        }
+    }
+
+    private static void checkVersion(Path segment, MappedByteBuffer buffer) throws IOException {
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported compressed log segment version " + buffer.getInt(4)
+                + ": " + segment);
+        }
+    }
+
+    private static void inflate(Inflater inflater, ByteBuffer input, byte[] output, int length,
+        Path segment) throws IOException {
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            int inflated = 0;
+            while (inflated < length) {
+                final int count = inflater.inflate(output, inflated, length - inflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != length) {
+                throw new IOException("Truncated block in compressed log segment: " + segment);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted compressed log segment: " + segment, e);
+        }
+    }
+
+    private static void forEachRecordInBlock(long blockOffset, byte[] block, int length,
+        RecordConsumer consumer) throws IOException {
+        int position = 0;
+        ByteBuffer record;
+        while ((record = recordAt(block, length, position)) != null) {
+            final int next = position + SegmentFile.RECORD_HEADER_BYTES + record.remaining();
+            consumer.accept((blockOffset << 32) | position, record);
+            position = next;
+        }
+    }
+
+    //블록 안 position 의 레코드, 레코드가 없으면 null
+    private static ByteBuffer recordAt(byte[] block, int length, int position) {
+        if (position < 0 || length - position < SegmentFile.RECORD_HEADER_BYTES) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(block, 0, length);
+        final int recordLength = buffer.getInt(position);
+        final int start = position + SegmentFile.RECORD_HEADER_BYTES;
+        if (recordLength <= 0 || recordLength > length - start) {
+            return null;
+        }
+        return buffer.slice(start, recordLength);
+    }
+
+    //파일 offset 의 블록을 풀어 block 에 담는다. 풀어 둔 버퍼와 Inflater 는 블록마다 재사용한다.
+    private static final class BlockReader {
+
+        private final Path segment;
+        private final MappedByteBuffer buffer;
+        private final Inflater inflater = new Inflater(true);
+        private byte[] block = new byte[0];
+        private int length;
+        private int next;
+
+        private BlockReader(Path segment, MappedByteBuffer buffer) {
+            this.segment = segment;
+            this.buffer = buffer;
+        }
+
+        private boolean read(int position) throws IOException {
+            if (position < SegmentFile.HEADER_BYTES
+                || buffer.limit() - position < BLOCK_HEADER_BYTES) {
+                return false;
+            }
+            final int compressedLength = buffer.getInt(position);
+            final int uncompressedLength = buffer.getInt(position + 4);
+            final int start = position + BLOCK_HEADER_BYTES;
+            if (compressedLength <= 0 || compressedLength > buffer.limit() - start) {
+                return false;
+            }
+            if (block.length < uncompressedLength) {
+                block = new byte[uncompressedLength];
+            }
+            inflate(inflater, buffer.slice(start, compressedLength), block, uncompressedLength,
+                segment);
+            length = uncompressedLength;
+            next = start + compressedLength;
+            return true;
+        }
+
+        private void end() {
+            inflater.end();
+        }
+    }
+
+    //레코드를 blockBytes 가까이 모았다가 한 블록으로 압축해 쓴다. 블록에는 레코드가 최소 하나 들어간다.
+    private static final class BlockWriter {
+
+        private final DataOutputStream out;
+        private final Deflater deflater;
+        private final int blockBytes;
+        private byte[] block;
+        private int length;
+        private byte[] compressed;
+
+        private BlockWriter(DataOutputStream out, Deflater deflater, int blockBytes) {
+            this.out = out;
+            this.deflater = deflater;
+            this.blockBytes = blockBytes;
+            this.block = new byte[blockBytes];
+            this.compressed = new byte[blockBytes];
+        }
+
+        private void add(ByteBuffer record) throws IOException {
+            final int required = SegmentFile.RECORD_HEADER_BYTES + record.remaining();
+            if (length > 0 && length + required > blockBytes) {
+                flush();
+            }
+            if (length + required > block.length) {
+                block = Arrays.copyOf(block, length + required);
+            }
+            ByteBuffer.wrap(block, length, required).putInt(record.remaining()).put(record);
+            length += required;
+        }
+
+        private void flush() throws IOException {
+            if (length == 0) {
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedLength += deflater.deflate(compressed, compressedLength,
+                    compressed.length - compressedLength);
+            }
+            out.writeInt(compressedLength);
+            out.writeInt(length);
+            out.write(compressed, 0, compressedLength);
+            length = 0;
+        }
+    }
+}
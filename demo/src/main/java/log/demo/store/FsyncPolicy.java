@@ -0,0 +1,13 @@
+package log.demo.store;
+
+/*
+ * 세그먼트에 쓴 레코드를 디스크로 내리는(MappedByteBuffer.force) 시점
+ * NONE : OS 가 알아서 내린다. 프로세스가 죽어도 page cache 에 남은 레코드는 유지된다.
+ * INTERVAL : fsyncIntervalMillis 마다 내린다.
+ * EVERY_N : fsyncEveryRecords 개를 쓸 때마다 내린다.
+ */
+public enum FsyncPolicy {
+    NONE,
+    INTERVAL,
+    EVERY_N
+}
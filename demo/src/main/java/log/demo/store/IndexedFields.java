@@ -0,0 +1,92 @@
+package log.demo.store;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * 레코드(JSON)에서 인덱스할 값만 꺼낸다.
+ * REQUEST, RESPONSE 이벤트는 최상위에서, EXCHANGE 이벤트는 request, response 객체 안에서도 찾는다.
+ * headers, body 같은 나머지 값은 파싱만 하고 건너뛴다. 인스턴스 하나를 레코드마다 재사용하고, 스레드 간에 공유하지 않는다.
+ */
+final class IndexedFields {
+
+    static final List<String> NAMES = LogQuery.FIELDS;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String TIMESTAMP = "@timestamp";
+
+    private final String[] values = new String[NAMES.size()];
+    private byte[] bytes = new byte[4096];
+    private long timeMillis;
+
+    //JSON 객체가 아니면 false
+    boolean read(ByteBuffer record) {
+        Arrays.fill(values, null);
+        timeMillis = 0;
+        final int length = record.remaining();
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        record.get(record.position(), bytes, 0, length);
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            readObject(parser, true);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void readObject(JsonParser parser, boolean root) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                if (root && ("request".equals(name) || "response".equals(name))) {
+                    readObject(parser, false);
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            } else if (root && TIMESTAMP.equals(name)) {
+                timeMillis = parseTime(parser.getValueAsString());
+            } else {
+                final int index = NAMES.indexOf(name);
+                if (index >= 0 && values[index] == null && token != JsonToken.VALUE_NULL) {
+                    values[index] = parser.getValueAsString();
+                }
+            }
+        }
+    }
+
+    private static long parseTime(String timestamp) {
+        if (timestamp == null) {
+            return 0;
+        }
+        try {
+            return OffsetDateTime.parse(timestamp).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    //NAMES 와 같은 순서, 값이 없으면 null
+    String value(int index) {
+        return values[index];
+    }
+
+    //@timestamp, 없으면 0
+    long timeMillis() {
+        return timeMillis;
+    }
+}
@@ -0,0 +1,28 @@
+package log.demo.store;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Getter;
+
+/*
+ * SegmentSearch 조건
+ * terms 는 인덱스 필드(FIELDS) 이름과 값이고, 모두 같아야 맞는다.
+ * 시간은 @timestamp 기준 [fromMillis, toMillis) 이다.
+ */
+@Builder
+@Getter
+public class LogQuery {
+
+    public static final List<String> FIELDS = List.of("request-id", "path", "status-code",
+        "code-type", "remote-ip");
+
+    @Builder.Default
+    private final Map<String, String> terms = Map.of();
+    @Builder.Default
+    private final long fromMillis = Long.MIN_VALUE;
+    @Builder.Default
+    private final long toMillis = Long.MAX_VALUE;
+    @Builder.Default
+    private final int limit = 1000;
+}
@@ -0,0 +1,130 @@
+package log.demo.store;
+
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.util.Duration;
+import ch.qos.logback.core.util.FileSize;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/*
+ * 인코딩한 이벤트를 SegmentStore 에 쓰는 appender
+ * 인코딩은 로그를 남기는 스레드에서 하고, 파일 쓰기는 SegmentStore 의 writer 스레드가 한다.
+ * 설정은 logback.xml 의 SEGMENT_LOG 참고
+ */
+public class SegmentAppender<E> extends UnsynchronizedAppenderBase<E> {
+
+    private Encoder<E> encoder;
+    private String directory = "./logs/segments";
+    private String prefix = "info";
+    private FileSize segmentSize = FileSize.valueOf("100MB");
+    private int maxHistory = 180;
+    private FileSize totalSizeCap = FileSize.valueOf("18GB");
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+    private Duration fsyncInterval = Duration.buildBySeconds(1);
+    private int fsyncEveryRecords = 1000;
+    private int queueSize = 8192;
+    private SegmentCompression compression = SegmentCompression.NONE;
+    private FileSize compressionBlockSize = FileSize.valueOf("64KB");
+    private boolean indexed;
+    private SegmentStore store;
+
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for the appender named [" + name + "].");
+            return;
+        }
+        if (segmentSize.getSize() > Integer.MAX_VALUE) {
+            addError("segmentSize must be smaller than 2GB for the appender named [" + name + "].");
+            return;
+        }
+        final SegmentStoreOptions options = SegmentStoreOptions.builder()
+            .directory(Path.of(directory))
+            .prefix(prefix)
+            .segmentBytes((int) segmentSize.getSize())
+            .maxHistoryDays(maxHistory)
+            .totalSizeCapBytes(totalSizeCap.getSize())
+            .fsyncPolicy(fsyncPolicy)
+            .fsyncIntervalMillis(fsyncInterval.getMilliseconds())
+            .fsyncEveryRecords(fsyncEveryRecords)
+            .queueCapacity(queueSize)
+            .compression(compression)
+            .compressionBlockBytes((int) compressionBlockSize.getSize())
+            .indexed(indexed)
+            .build();
+        try {
+            store = new SegmentStore(options, this::addError);
+        } catch (IOException e) {
+            addError("Failed to open log segment directory [" + directory + "].", e);
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    protected void append(E event) {
+        store.append(encoder.encode(event));
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        store.close();
+    }
+
+    public void setEncoder(Encoder<E> encoder) {
+        this.encoder = encoder;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void setSegmentSize(FileSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public void setMaxHistory(int maxHistory) {
+        this.maxHistory = maxHistory;
+    }
+
+    public void setTotalSizeCap(FileSize totalSizeCap) {
+        this.totalSizeCap = totalSizeCap;
+    }
+
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public void setFsyncInterval(Duration fsyncInterval) {
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    public void setFsyncEveryRecords(int fsyncEveryRecords) {
+        this.fsyncEveryRecords = fsyncEveryRecords;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setCompression(SegmentCompression compression) {
+        this.compression = compression;
+    }
+
+    public void setCompressionBlockSize(FileSize compressionBlockSize) {
+        this.compressionBlockSize = compressionBlockSize;
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+}
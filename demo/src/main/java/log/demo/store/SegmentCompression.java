@@ -0,0 +1,25 @@
+package log.demo.store;
+
+import java.util.zip.Deflater;
+
+/*
+ * 닫힌 세그먼트를 압축하는 방식, 압축은 SegmentStore 의 압축 스레드에서만 한다.
+ * NONE : 압축하지 않는다.
+ * FAST : deflate level 1, 압축이 빠르다. (LZ4 대신 JDK 구현을 쓴다.)
+ * HIGH : deflate level 9, 압축률이 높다.
+ */
+public enum SegmentCompression {
+    NONE(Deflater.NO_COMPRESSION),
+    FAST(Deflater.BEST_SPEED),
+    HIGH(Deflater.BEST_COMPRESSION);
+
+    private final int level;
+
+    SegmentCompression(int level) {
+        this.level = level;
+    }
+
+    public int level() {
+        return level;
+    }
+}
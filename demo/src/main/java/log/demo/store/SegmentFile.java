@@ -0,0 +1,106 @@
+package log.demo.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * 쓰기 중인 세그먼트 하나
+ * 파일을 capacity 만큼 미리 늘려 통째로 mmap 하고, 레코드를 [int length][payload] 로 이어 붙인다.
+ * 헤더 : [int MAGIC][int VERSION]
+ * 미리 늘린 영역은 0 이므로 length 0 을 만나면 끝이다. payload 를 먼저 쓰고 length 를 나중에 써서
+ * 읽는 쪽이 반쯤 쓴 레코드를 보지 않게 한다.
+ * writer 스레드 하나만 쓴다.
+ */
+class SegmentFile implements Closeable {
+
+    static final int MAGIC = 0x48534547; //"HSEG"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 4;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+
+    private SegmentFile(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = HEADER_BYTES;
+    }
+
+    static SegmentFile create(Path path, int capacity) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            return new SegmentFile(path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //남은 공간이 모자라면 false
+    boolean append(byte[] record) {
+        if (buffer.capacity() - position < RECORD_HEADER_BYTES + record.length) {
+            return false;
+        }
+        buffer.put(position + RECORD_HEADER_BYTES, record);
+        buffer.putInt(position, record.length);
+        position += RECORD_HEADER_BYTES + record.length;
+        return true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /*
+     * 쓴 곳까지만 임시 파일에 복사한 뒤 이름을 바꿔 원래 파일을 대신한다. 미리 늘려 둔 빈 영역이 retention 용량에 잡히지 않게 한다.
+     * 제자리에서 truncate 하면 같은 파일을 capacity 만큼 mmap 해 읽고 있던 조회가 잘린 영역에 접근해 SIGBUS 로 죽는다.
+     * 이름을 바꾸면 원래 파일(inode)은 mapping 이 풀릴 때까지 남으므로 읽던 쪽은 그대로 끝까지 읽는다.
+     * 복사하다 멈추면 원래 파일이 그대로 남고, 임시 파일은 다음에 시작할 때 지운다.
+     */
+    void seal(boolean force) throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long copied = 0;
+            while (copied < position) {
+                copied += channel.transferTo(copied, position - copied, out);
+            }
+            if (force) {
+                out.force(false);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
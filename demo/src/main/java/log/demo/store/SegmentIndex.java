@@ -0,0 +1,389 @@
+package log.demo.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/*
+ * 닫힌 세그먼트 하나의 인덱스 파일({세그먼트 파일 이름}.idx)
+ * 헤더   : [int MAGIC][int VERSION][int recordCount][int fieldCount][long minTime][long maxTime]
+ *          [int filterBytes][request-id Bloom filter, filterBytes]
+ * 시간   : recordCount x [long @timestamp][long position], 시간 순
+ * 필드마다: [int nameLength][name][int termCount]
+ *          termCount x [int termOffset][int termLength][int postingsOffset][int postingsCount], term 바이트 순
+ *          [term bytes][postings: long position, 오름차순]
+ * term 표는 고정 길이라 mmap 한 채로 이분 탐색한다. position 은 SegmentReader 가 넘겨준 offset 이다.
+ * request-id 는 세그먼트 몇 개에만 있으므로, mayContain 이 헤더의 Bloom filter 만 읽어 없는 세그먼트를 거른다.
+ */
+public final class SegmentIndex {
+
+    public static final String EXTENSION = ".idx";
+
+    static final int MAGIC = 0x48535831; //"HSX1"
+    static final int VERSION = 2;
+    static final String FILTERED_FIELD = "request-id";
+    private static final int HEADER_BYTES = 36;
+    //request-id 하나에 10 bit, hash 7 개면 false positive 가 1% 쯤이다.
+    private static final int FILTER_BITS_PER_TERM = 10;
+    private static final int FILTER_HASHES = 7;
+    private static final int TIME_ENTRY_BYTES = 16;
+    private static final int TERM_ENTRY_BYTES = 16;
+    private static final long[] EMPTY = new long[0];
+
+    private final MappedByteBuffer buffer;
+    private final int recordCount;
+    private final int timeOffset;
+    private final long minTimeMillis;
+    private final long maxTimeMillis;
+    private final Map<String, TermTable> fields = new HashMap<>();
+
+    private SegmentIndex(Path path, MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a log segment index: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported log segment index version " + buffer.getInt(4)
+                + ": " + path);
+        }
+        this.recordCount = buffer.getInt(8);
+        final int fieldCount = buffer.getInt(12);
+        this.minTimeMillis = buffer.getLong(16);
+        this.maxTimeMillis = buffer.getLong(24);
+        this.timeOffset = HEADER_BYTES + buffer.getInt(32);
+
+        int position = timeOffset + recordCount * TIME_ENTRY_BYTES;
+        for (int i = 0; i < fieldCount; i++) {
+            final int nameLength = buffer.getInt(position);
+            final byte[] name = new byte[nameLength];
+            buffer.get(position + 4, name);
+            position += 4 + nameLength;
+            final int termCount = buffer.getInt(position);
+            position += 4;
+            fields.put(new String(name, StandardCharsets.UTF_8), new TermTable(position, termCount));
+            //마지막 term 의 postings 가 이 필드의 끝이다.
+            if (termCount > 0) {
+                final int last = position + (termCount - 1) * TERM_ENTRY_BYTES;
+                position = buffer.getInt(last + 8) + buffer.getInt(last + 12) * Long.BYTES;
+            }
+        }
+    }
+
+    public static Path pathOf(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + EXTENSION);
+    }
+
+    public static SegmentIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            return new SegmentIndex(path, channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    //index 가 없거나 예전 VERSION 이면 false, 다시 만들어야 한다.
+    static boolean isCurrent(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index)) {
+            final ByteBuffer header = ByteBuffer.allocate(8);
+            return channel.read(header, 0) == 8 && header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /*
+     * field 값이 value 인 레코드가 index 의 세그먼트에 있을 수 있으면 true
+     * FILTERED_FIELD 가 아니면 늘 true 이고, 헤더와 filter 만 읽는다. false 면 term 표를 볼 필요가 없다.
+     */
+    public static boolean mayContain(Path index, String field, String value) throws IOException {
+        if (!FILTERED_FIELD.equals(field) || value == null) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(index)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                //open 에서 알맞은 예외를 던진다.
+                return true;
+            }
+            final ByteBuffer filter = ByteBuffer.allocate(header.getInt(32));
+            readFully(channel, filter, HEADER_BYTES);
+            return filterContains(filter, value);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated log segment index");
+            }
+        }
+    }
+
+    private static boolean filterContains(ByteBuffer filter, String value) {
+        final long bits = (long) filter.capacity() * Byte.SIZE;
+        final long hash = filterHash(value);
+        for (int i = 0; i < FILTER_HASHES; i++) {
+            final long bit = filterBit(hash, i, bits);
+            if ((filter.get((int) (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //hash 두 개(상위, 하위 32 bit)를 섞어 i 번째 bit 를 고른다.
+    private static long filterBit(long hash, int i, long bits) {
+        return Math.floorMod((int) hash + i * (int) (hash >>> 32), bits);
+    }
+
+    //UTF-8 바이트의 FNV-1a 64 bit 에 murmur3 fmix64 를 덧씌운다.
+    private static long filterHash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static byte[] buildFilter(Collection<String> values) {
+        //8 바이트 단위, term 이 없어도 8 바이트
+        final int bytes = Math.max(1, (values.size() * FILTER_BITS_PER_TERM + 63) / 64) * Long.BYTES;
+        final byte[] filter = new byte[bytes];
+        final long bits = (long) bytes * Byte.SIZE;
+        for (String value : values) {
+            final long hash = filterHash(value);
+            for (int i = 0; i < FILTER_HASHES; i++) {
+                final long bit = filterBit(hash, i, bits);
+                filter[(int) (bit >>> 3)] |= (byte) (1 << (bit & 7));
+            }
+        }
+        return filter;
+    }
+
+    /*
+     * segment 의 레코드를 모두 읽어 index 에 쓴다.
+     * 임시 파일에 다 쓴 뒤 이름을 바꾸므로, 읽는 쪽은 다 쓴 인덱스만 본다.
+     */
+    static void build(Path segment, Path index) throws IOException {
+        final IndexedFields indexedFields = new IndexedFields();
+        final LongList times = new LongList();
+        final LongList positions = new LongList();
+        final List<Map<String, LongList>> postings = new ArrayList<>();
+        for (int i = 0; i < IndexedFields.NAMES.size(); i++) {
+            postings.add(new HashMap<>());
+        }
+        SegmentReader.forEachRecord(segment, (offset, record) -> {
+            if (!indexedFields.read(record)) {
+                return;
+            }
+            times.add(indexedFields.timeMillis());
+            positions.add(offset);
+            for (int i = 0; i < IndexedFields.NAMES.size(); i++) {
+                final String value = indexedFields.value(i);
+                if (value != null) {
+                    postings.get(i).computeIfAbsent(value, key -> new LongList()).add(offset);
+                }
+            }
+        });
+
+        final Path temp = index.resolveSibling(index.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            long minTime = Long.MAX_VALUE;
+            long maxTime = Long.MIN_VALUE;
+            for (int i = 0; i < times.size; i++) {
+                minTime = Math.min(minTime, times.values[i]);
+                maxTime = Math.max(maxTime, times.values[i]);
+            }
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(times.size);
+            out.writeInt(IndexedFields.NAMES.size());
+            out.writeLong(minTime);
+            out.writeLong(maxTime);
+            final byte[] filter = buildFilter(
+                postings.get(IndexedFields.NAMES.indexOf(FILTERED_FIELD)).keySet());
+            out.writeInt(filter.length);
+            out.write(filter);
+            //레코드는 대부분 시간 순으로 들어오지만, queue 를 거치며 조금씩 섞인다.
+            final int[] order = IntStream.range(0, times.size).boxed()
+                .sorted(Comparator.comparingLong(i -> times.values[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+            for (int i : order) {
+                out.writeLong(times.values[i]);
+                out.writeLong(positions.values[i]);
+            }
+            for (int i = 0; i < IndexedFields.NAMES.size(); i++) {
+                writeField(out, IndexedFields.NAMES.get(i), postings.get(i));
+            }
+        }
+        Files.move(temp, index, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeField(DataOutputStream out, String name, Map<String, LongList> terms)
+        throws IOException {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(nameBytes.length);
+        out.write(nameBytes);
+        out.writeInt(terms.size());
+
+        final List<byte[]> termBytes = new ArrayList<>(terms.size());
+        final Map<byte[], LongList> termPostings = new HashMap<>();
+        terms.forEach((term, termPositions) -> {
+            final byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            termBytes.add(bytes);
+            termPostings.put(bytes, termPositions);
+        });
+        termBytes.sort(Arrays::compareUnsigned);
+
+        int termOffset = out.size() + terms.size() * TERM_ENTRY_BYTES;
+        int postingsOffset = termOffset;
+        for (byte[] bytes : termBytes) {
+            postingsOffset += bytes.length;
+        }
+        for (byte[] bytes : termBytes) {
+            final int postingsCount = termPostings.get(bytes).size;
+            out.writeInt(termOffset);
+            out.writeInt(bytes.length);
+            out.writeInt(postingsOffset);
+            out.writeInt(postingsCount);
+            termOffset += bytes.length;
+            postingsOffset += postingsCount * Long.BYTES;
+        }
+        for (byte[] bytes : termBytes) {
+            out.write(bytes);
+        }
+        for (byte[] bytes : termBytes) {
+            final LongList termPositions = termPostings.get(bytes);
+            for (int i = 0; i < termPositions.size; i++) {
+                out.writeLong(termPositions.values[i]);
+            }
+        }
+    }
+
+    //field 값이 value 인 레코드의 position, 오름차순
+    public long[] positions(String field, String value) {
+        final TermTable table = fields.get(field);
+        if (table == null || value == null) {
+            return EMPTY;
+        }
+        final byte[] key = value.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = table.termCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int entry = table.offset + middle * TERM_ENTRY_BYTES;
+            final int compared = compareTerm(buffer.getInt(entry), buffer.getInt(entry + 4), key);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                final long[] positions = new long[buffer.getInt(entry + 12)];
+                final int postingsOffset = buffer.getInt(entry + 8);
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = buffer.getLong(postingsOffset + i * Long.BYTES);
+                }
+                return positions;
+            }
+        }
+        return EMPTY;
+    }
+
+    private int compareTerm(int offset, int length, byte[] key) {
+        final int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            final int compared = Byte.compareUnsigned(buffer.get(offset + i), key[i]);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    //@timestamp 가 [fromMillis, toMillis) 인 레코드의 position, 오름차순
+    public long[] positionsBetween(long fromMillis, long toMillis) {
+        final int from = lowerBound(fromMillis);
+        final int to = lowerBound(toMillis);
+        if (from >= to) {
+            return EMPTY;
+        }
+        final long[] positions = new long[to - from];
+        for (int i = from; i < to; i++) {
+            positions[i - from] = buffer.getLong(timeOffset + i * TIME_ENTRY_BYTES + 8);
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    //시간이 timeMillis 이상인 첫 항목
+    private int lowerBound(long timeMillis) {
+        int low = 0;
+        int high = recordCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (buffer.getLong(timeOffset + middle * TIME_ENTRY_BYTES) < timeMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    //레코드가 없으면 Long.MAX_VALUE
+    public long getMinTimeMillis() {
+        return minTimeMillis;
+    }
+
+    //레코드가 없으면 Long.MIN_VALUE
+    public long getMaxTimeMillis() {
+        return maxTimeMillis;
+    }
+
+    private record TermTable(int offset, int termCount) {
+    }
+
+    private static final class LongList {
+
+        private long[] values = new long[16];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
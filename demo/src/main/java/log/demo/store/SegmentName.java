@@ -0,0 +1,50 @@
+package log.demo.store;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * 세그먼트 파일 이름 : {prefix}.{yyyy-MM-dd}.{index}.seg, 압축한 세그먼트는 .segz
+ * RollingFileAppender 의 info.%d{yyyy-MM-dd}.%i.log 와 같은 규칙이다.
+ */
+public record SegmentName(String prefix, LocalDate date, int index, boolean compressed) {
+
+    public static final String EXTENSION = ".seg";
+    public static final String COMPRESSED_EXTENSION = ".segz";
+    public static final Comparator<SegmentName> ORDER = Comparator
+        .comparing(SegmentName::date)
+        .thenComparingInt(SegmentName::index);
+
+    private static final Pattern PATTERN =
+        Pattern.compile("^(.+)\\.(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)\\.seg(z?)$");
+
+    //세그먼트 이름이 아니면 null
+    public static SegmentName parse(Path path) {
+        final Matcher matcher = PATTERN.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return new SegmentName(matcher.group(1), LocalDate.parse(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)), !matcher.group(4).isEmpty());
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String fileName() {
+        return prefix + "." + date + "." + index + (compressed ? COMPRESSED_EXTENSION : EXTENSION);
+    }
+
+    public SegmentName toCompressed() {
+        return new SegmentName(prefix, date, index, true);
+    }
+
+    public SegmentName toUncompressed() {
+        return new SegmentName(prefix, date, index, false);
+    }
+}
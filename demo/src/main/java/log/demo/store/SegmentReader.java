@@ -0,0 +1,160 @@
+package log.demo.store;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/*
+ * 세그먼트 파일(.seg, .segz)의 레코드를 순서대로 읽는다.
+ * 레코드는 encoder 가 만든 바이트(JSON + 줄바꿈) 그대로라, 이어 붙이면 FILE_LOG 와 같은 JSON lines 가 된다.
+ *
+ * 세그먼트를 JSON lines 로 바꾸기:
+ * java -cp demo.jar -Dloader.main=log.demo.store.SegmentReader \
+ *     org.springframework.boot.loader.PropertiesLauncher ./logs/segments > info.log
+ */
+public final class SegmentReader {
+
+    private SegmentReader() {
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+
+        /*
+         * record 는 콜백 안에서만 유효한 view 라서 밖으로 들고 나가면 안 된다.
+         * offset 은 세그먼트 안에서 레코드의 위치다. 압축한 세그먼트는 CompressedSegment 참고
+         */
+        void accept(long offset, ByteBuffer record) throws IOException;
+    }
+
+    public static void forEachRecord(Path segment, RecordConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment)) {
+            final long size = channel.size();
+            if (size < SegmentFile.HEADER_BYTES) {
+                return;
+            }
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) == CompressedSegment.MAGIC) {
+                CompressedSegment.forEachRecord(segment, buffer, consumer);
+                return;
+            }
+            if (buffer.getInt(0) != SegmentFile.MAGIC) {
+                throw new IOException("Not a log segment: " + segment);
+            }
+            if (buffer.getInt(4) != SegmentFile.VERSION) {
+                throw new IOException("Unsupported log segment version " + buffer.getInt(4)
+                    + ": " + segment);
+            }
+            int position = SegmentFile.HEADER_BYTES;
+            while (buffer.limit() - position >= SegmentFile.RECORD_HEADER_BYTES) {
+                final int length = buffer.getInt(position);
+                final int start = position + SegmentFile.RECORD_HEADER_BYTES;
+                //미리 늘려 둔 빈 영역이거나, 쓰다 만 레코드
+                if (length <= 0 || length > buffer.limit() - start) {
+                    break;
+                }
+                consumer.accept(position, buffer.slice(start, length));
+                position = start + length;
+            }
+        }
+    }
+
+    /*
+     * 인덱스로 찾은 위치의 레코드만 읽는다. positions 는 forEachRecord 가 넘겨준 offset 이고 오름차순이어야 한다.
+     */
+    public static void forEachRecord(Path segment, long[] positions, RecordConsumer consumer)
+        throws IOException {
+        if (positions.length == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(segment)) {
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() >= SegmentFile.HEADER_BYTES
+                && buffer.getInt(0) == CompressedSegment.MAGIC) {
+                CompressedSegment.forEachRecord(segment, buffer, positions, consumer);
+                return;
+            }
+            if (buffer.limit() < SegmentFile.HEADER_BYTES || buffer.getInt(0) != SegmentFile.MAGIC) {
+                throw new IOException("Not a log segment: " + segment);
+            }
+            for (long position : positions) {
+                final int start = (int) position + SegmentFile.RECORD_HEADER_BYTES;
+                if (position < SegmentFile.HEADER_BYTES || start > buffer.limit()) {
+                    throw new IOException("Invalid record position " + position + ": " + segment);
+                }
+                final int length = buffer.getInt((int) position);
+                if (length <= 0 || length > buffer.limit() - start) {
+                    throw new IOException("Invalid record position " + position + ": " + segment);
+                }
+                consumer.accept(position, buffer.slice(start, length));
+            }
+        }
+    }
+
+    /*
+     * 디렉터리면 안의 세그먼트를 날짜, index 순으로 돌려준다. 아직 만들어지지 않은 디렉터리면 빈 목록이다.
+     * 압축한 .segz 로 바꾸는 사이에는 같은 세그먼트의 .seg 와 .segz 가 함께 보일 수 있어 .segz 만 돌려준다.
+     * (같은 레코드를 두 번 읽지 않도록)
+     */
+    public static List<Path> segments(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.exists(path) ? List.of(path) : List.of();
+        }
+        final Map<SegmentName, Path> segments = new HashMap<>();
+        try (Stream<Path> paths = Files.list(path)) {
+            paths.forEach(candidate -> {
+                final SegmentName name = SegmentName.parse(candidate);
+                if (name != null) {
+                    segments.merge(name.toUncompressed(), candidate,
+                        (existing, added) -> name.compressed() ? added : existing);
+                }
+            });
+        }
+        final List<SegmentName> names = new ArrayList<>(segments.keySet());
+        names.sort(SegmentName.ORDER);
+        final List<Path> sorted = new ArrayList<>(names.size());
+        for (SegmentName name : names) {
+            sorted.add(segments.get(name));
+        }
+        return sorted;
+    }
+
+    public static void writeJsonLines(Path path, OutputStream outputStream) throws IOException {
+        final WritableByteChannel out = Channels.newChannel(outputStream);
+        for (Path segment : segments(path)) {
+            forEachRecord(segment, (offset, record) -> {
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            });
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: SegmentReader <segment file or directory>...");
+            System.exit(1);
+        }
+        final OutputStream out = new BufferedOutputStream(
+            new FileOutputStream(FileDescriptor.out), 64 * 1024);
+        for (String arg : args) {
+            writeJsonLines(Path.of(arg), out);
+        }
+        out.flush();
+    }
+}
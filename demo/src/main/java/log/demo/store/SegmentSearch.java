@@ -0,0 +1,156 @@
+package log.demo.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import log.demo.store.SegmentReader.RecordConsumer;
+
+/*
+ * 세그먼트 디렉터리에서 LogQuery 에 맞는 레코드를 찾아 시간 순(세그먼트 순)으로 넘긴다.
+ * 인덱스가 있는 세그먼트는 term 마다 postings 를 이분 탐색으로 찾아 교집합만 읽고,
+ * 인덱스가 아직 없는 세그먼트(쓰고 있거나 압축/인덱스를 기다리는 것)는 레코드를 모두 읽어 거른다.
+ * 세그먼트 날짜와 인덱스의 min/max 시간으로 범위 밖의 세그먼트는 열지 않는다.
+ * request-id 는 인덱스 헤더의 Bloom filter 로 먼저 거르므로, 범위 안의 세그먼트마다 헤더만 읽고
+ * 그 값이 있을 수 있는 세그먼트(false positive 1% 쯤 포함)의 인덱스만 연다.
+ * from/to, last-minutes 로 범위를 좁히면 읽는 헤더도 줄어든다.
+ * 세그먼트 이름이 아닌 파일은 건너뛴다.
+ */
+public final class SegmentSearch {
+
+    private SegmentSearch() {
+    }
+
+    //찾은 레코드 수를 돌려준다.
+    public static int search(Path directory, LogQuery query, RecordConsumer consumer)
+        throws IOException {
+        for (String field : query.getTerms().keySet()) {
+            if (!IndexedFields.NAMES.contains(field)) {
+                throw new IllegalArgumentException("Not an indexed field: " + field);
+            }
+        }
+        int matched = 0;
+        for (Path segment : SegmentReader.segments(directory)) {
+            if (matched >= query.getLimit()) {
+                break;
+            }
+            final SegmentName name = SegmentName.parse(segment);
+            if (name == null || !mayContain(name, query)) {
+                continue;
+            }
+            try {
+                matched += search(segment, query, consumer, query.getLimit() - matched);
+            } catch (NoSuchFileException e) {
+                //목록을 만든 뒤 압축됐으면 .segz 에서 읽는다. 둘 다 없으면 retention 으로 지워졌다.
+                if (!name.compressed()) {
+                    try {
+                        matched += search(segment.resolveSibling(name.toCompressed().fileName()),
+                            query, consumer, query.getLimit() - matched);
+                    } catch (NoSuchFileException ignored) {
+                        //retention 으로 지워졌다.
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static int search(Path segment, LogQuery query, RecordConsumer consumer, int limit)
+        throws IOException {
+        final Path index = SegmentIndex.pathOf(segment);
+        if (!Files.exists(index)) {
+            return scan(segment, query, consumer, limit);
+        }
+        for (Map.Entry<String, String> term : query.getTerms().entrySet()) {
+            if (!SegmentIndex.mayContain(index, term.getKey(), term.getValue())) {
+                return 0;
+            }
+        }
+        return searchIndexed(segment, SegmentIndex.open(index), query, consumer, limit);
+    }
+
+    //{date} 세그먼트에는 그날이 끝나기 전에 쓴 레코드만 있다.
+    private static boolean mayContain(SegmentName name, LogQuery query) {
+        final long endOfDay = name.date().plusDays(1).atStartOfDay(ZoneId.systemDefault())
+            .toInstant().toEpochMilli();
+        return endOfDay > query.getFromMillis();
+    }
+
+    private static int searchIndexed(Path segment, SegmentIndex index, LogQuery query,
+        RecordConsumer consumer, int limit) throws IOException {
+        if (index.getMaxTimeMillis() < query.getFromMillis()
+            || index.getMinTimeMillis() >= query.getToMillis()) {
+            return 0;
+        }
+        long[] positions = null;
+        for (Map.Entry<String, String> term : query.getTerms().entrySet()) {
+            final long[] termPositions = index.positions(term.getKey(), term.getValue());
+            positions = (positions == null) ? termPositions : intersect(positions, termPositions);
+            if (positions.length == 0) {
+                return 0;
+            }
+        }
+        if (index.getMinTimeMillis() < query.getFromMillis()
+            || index.getMaxTimeMillis() >= query.getToMillis() || positions == null) {
+            final long[] timePositions = index.positionsBetween(query.getFromMillis(),
+                query.getToMillis());
+            positions = (positions == null) ? timePositions : intersect(positions, timePositions);
+        }
+        if (positions.length > limit) {
+            positions = Arrays.copyOf(positions, limit);
+        }
+        SegmentReader.forEachRecord(segment, positions, consumer);
+        return positions.length;
+    }
+
+    private static int scan(Path segment, LogQuery query, RecordConsumer consumer, int limit)
+        throws IOException {
+        final IndexedFields indexedFields = new IndexedFields();
+        final int[] matched = new int[1];
+        SegmentReader.forEachRecord(segment, (offset, record) -> {
+            if (matched[0] < limit && indexedFields.read(record)
+                && matches(indexedFields, query)) {
+                matched[0]++;
+                consumer.accept(offset, record);
+            }
+        });
+        return matched[0];
+    }
+
+    private static boolean matches(IndexedFields indexedFields, LogQuery query) {
+        final long timeMillis = indexedFields.timeMillis();
+        if (timeMillis < query.getFromMillis() || timeMillis >= query.getToMillis()) {
+            return false;
+        }
+        for (Map.Entry<String, String> term : query.getTerms().entrySet()) {
+            final int field = IndexedFields.NAMES.indexOf(term.getKey());
+            if (!term.getValue().equals(indexedFields.value(field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //오름차순 배열 두 개의 교집합
+    private static long[] intersect(long[] left, long[] right) {
+        final long[] result = new long[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,364 @@
+package log.demo.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/*
+ * 레코드를 mmap 세그먼트 파일에 이어 쓰는 append-only 저장소
+ * 여러 스레드가 append 로 bounded queue 에 넣고(multi-producer), 전용 writer 스레드 하나가 꺼내 쓴다(single-writer).
+ * 세그먼트가 차거나 날짜가 바뀌면 새 세그먼트로 넘어가고, 그때마다 retention(maxHistoryDays, totalSizeCapBytes)을 적용한다.
+ * compression 을 켜면 닫힌 세그먼트를 백그라운드 스레드가 .segz 로 바꾸고, retention 은 압축된 크기로 센다.
+ * .seg 를 .segz 로 바꾸는 것과 retention 은 segmentsLock 으로 서로 막는다. 압축은 lock 밖에서 임시 파일에 하고,
+ * lock 안에서 원본이 남아 있을 때만 이름을 바꾸고 원본을 지운다. (retention 이 지운 세그먼트를 되살리지 않도록)
+ * indexed 를 켜면 압축까지 끝난 세그먼트의 인덱스(SegmentIndex)를 같은 스레드가 만든다. 인덱스도 세그먼트와 함께 지운다.
+ */
+public class SegmentStore implements Closeable {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long POLL_MILLIS = 100;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final SegmentStoreOptions options;
+    private final BiConsumer<String, Exception> errorReporter;
+    private final BlockingQueue<byte[]> queue;
+    private final Thread writer;
+    private final ExecutorService background;
+    private volatile boolean running = true;
+    //retention 과 압축한 세그먼트로 바꾸는 것 (writer 스레드, 백그라운드 스레드)
+    private final Object segmentsLock = new Object();
+
+    //writer 스레드에서만 쓴다.
+    private SegmentFile current;
+    private LocalDate currentDate;
+    private int unforcedRecords;
+    private long lastForceMillis;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public SegmentStore(SegmentStoreOptions options, BiConsumer<String, Exception> errorReporter)
+        throws IOException {
+        this.options = options;
+        this.errorReporter = errorReporter;
+        this.queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        Files.createDirectories(options.getDirectory());
+        deleteTempFiles();
+        applyRetention();
+        this.background = (options.getCompression() == SegmentCompression.NONE
+            && !options.isIndexed()) ? null
+            : Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "log-segment-background");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        //지난번에 압축하거나 인덱스를 만들지 못하고 끝난 세그먼트, 인덱스가 예전 VERSION 인 세그먼트
+        for (SegmentName name : listSegments()) {
+            if (needsCompression(name) || (options.isIndexed() && !SegmentIndex.isCurrent(
+                SegmentIndex.pathOf(options.getDirectory().resolve(name.fileName()))))) {
+                processSealed(name);
+            }
+        }
+        this.writer = new Thread(this::writeLoop, "log-segment-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    //queue 가 가득 차면 writer 가 따라올 때까지 기다린다.
+    public void append(byte[] record) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            dropped.increment();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        final List<byte[]> batch = new ArrayList<>(BATCH_SIZE);
+        lastForceMillis = options.getClock().millis();
+        while (running || !queue.isEmpty()) {
+            try {
+                final byte[] first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    write(batch);
+                }
+                forceOnInterval();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException | RuntimeException e) {
+                errorReporter.accept("failed to write log segment", e);
+            } finally {
+                batch.clear();
+            }
+        }
+        try {
+            sealCurrent();
+        } catch (IOException e) {
+            errorReporter.accept("failed to seal log segment", e);
+        }
+    }
+
+    private void write(List<byte[]> batch) throws IOException {
+        for (byte[] record : batch) {
+            final LocalDate today = LocalDate.now(options.getClock());
+            if (current == null || !today.equals(currentDate) || !current.append(record)) {
+                roll(today, record.length);
+                if (!current.append(record)) {
+                    dropped.increment();
+                    continue;
+                }
+            }
+            appended.increment();
+            unforcedRecords++;
+            if (options.getFsyncPolicy() == FsyncPolicy.EVERY_N
+                && unforcedRecords >= options.getFsyncEveryRecords()) {
+                force();
+            }
+        }
+    }
+
+    private void forceOnInterval() {
+        if (options.getFsyncPolicy() == FsyncPolicy.INTERVAL && unforcedRecords > 0
+            && options.getClock().millis() - lastForceMillis >= options.getFsyncIntervalMillis()) {
+            force();
+        }
+    }
+
+    private void force() {
+        current.force();
+        unforcedRecords = 0;
+        lastForceMillis = options.getClock().millis();
+    }
+
+    private void roll(LocalDate today, int recordBytes) throws IOException {
+        sealCurrent();
+        final int capacity = Math.max(options.getSegmentBytes(),
+            SegmentFile.HEADER_BYTES + SegmentFile.RECORD_HEADER_BYTES + recordBytes);
+        final SegmentName name = new SegmentName(options.getPrefix(), today, nextIndex(today),
+            false);
+        current = SegmentFile.create(options.getDirectory().resolve(name.fileName()), capacity);
+        currentDate = today;
+        applyRetention();
+    }
+
+    private void sealCurrent() throws IOException {
+        if (current == null) {
+            return;
+        }
+        final Path sealed = current.getPath();
+        try {
+            current.seal(options.getFsyncPolicy() != FsyncPolicy.NONE);
+        } finally {
+            current.close();
+            current = null;
+            unforcedRecords = 0;
+        }
+        processSealed(SegmentName.parse(sealed));
+    }
+
+    private boolean needsCompression(SegmentName name) {
+        return options.getCompression() != SegmentCompression.NONE && !name.compressed();
+    }
+
+    //인덱스 position 은 압축한 파일 기준이라, 압축을 먼저 하고 인덱스를 만든다.
+    private void processSealed(SegmentName name) {
+        if (background == null) {
+            return;
+        }
+        background.execute(() -> {
+            Path segment = options.getDirectory().resolve(name.fileName());
+            try {
+                if (needsCompression(name)) {
+                    final Path target = options.getDirectory()
+                        .resolve(name.toCompressed().fileName());
+                    final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+                    CompressedSegment.compress(segment, temp, options.getCompression().level(),
+                        options.getCompressionBlockBytes());
+                    if (!replace(segment, temp, target)) {
+                        return;
+                    }
+                    segment = target;
+                }
+                final Path index = SegmentIndex.pathOf(segment);
+                if (options.isIndexed() && !SegmentIndex.isCurrent(index)) {
+                    SegmentIndex.build(segment, index);
+                    synchronized (segmentsLock) {
+                        //인덱스를 만드는 사이에 retention 으로 지워졌다.
+                        if (!Files.exists(segment)) {
+                            Files.deleteIfExists(index);
+                        }
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                //처리하기 전에 retention 으로 지워졌다.
+            } catch (IOException | RuntimeException e) {
+                errorReporter.accept("failed to compress or index log segment " + segment, e);
+            }
+        });
+    }
+
+    //원본이 남아 있으면 압축한 temp 를 target 으로 바꾸고 원본과 원본의 인덱스를 지운다. 원본이 지워졌으면 false
+    private boolean replace(Path segment, Path temp, Path target) throws IOException {
+        synchronized (segmentsLock) {
+            if (!Files.exists(segment)) {
+                Files.deleteIfExists(temp);
+                return false;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(segment);
+            Files.deleteIfExists(SegmentIndex.pathOf(segment));
+            return true;
+        }
+    }
+
+    //압축하거나 인덱스를 쓰다 멈춘 임시 파일, 세그먼트가 지워진 인덱스, 압축을 끝내고 지우지 못한 원본
+    private void deleteTempFiles() throws IOException {
+        final List<Path> garbage;
+        try (Stream<Path> paths = Files.list(options.getDirectory())) {
+            garbage = paths.filter(path -> {
+                final SegmentName name = SegmentName.parse(path);
+                if (name != null) {
+                    return !name.compressed() && Files.exists(
+                        path.resolveSibling(name.toCompressed().fileName()));
+                }
+                final String fileName = path.getFileName().toString();
+                if (fileName.endsWith(".tmp")) {
+                    return SegmentName.parse(path.resolveSibling(
+                        fileName.substring(0, fileName.length() - ".tmp".length()))) != null
+                        || fileName.endsWith(SegmentIndex.EXTENSION + ".tmp");
+                }
+                return fileName.endsWith(SegmentIndex.EXTENSION) && !Files.exists(
+                    path.resolveSibling(fileName.substring(0,
+                        fileName.length() - SegmentIndex.EXTENSION.length())));
+            }).toList();
+        }
+        for (Path path : garbage) {
+            if (SegmentName.parse(path) != null) {
+                delete(path);
+            } else {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    //재시작해도 기존 세그먼트를 덮어쓰지 않도록 오늘 날짜의 마지막 index 다음부터 쓴다.
+    private int nextIndex(LocalDate today) throws IOException {
+        int next = 0;
+        for (SegmentName name : listSegments()) {
+            if (name.date().equals(today)) {
+                next = Math.max(next, name.index() + 1);
+            }
+        }
+        return next;
+    }
+
+    private List<SegmentName> listSegments() throws IOException {
+        try (Stream<Path> paths = Files.list(options.getDirectory())) {
+            return paths.map(SegmentName::parse)
+                .filter(name -> name != null && name.prefix().equals(options.getPrefix()))
+                .sorted(SegmentName.ORDER)
+                .toList();
+        }
+    }
+
+    /*
+     * maxHistoryDays 보다 오래된 세그먼트를 지우고, 전체 크기가 totalSizeCapBytes 를 넘으면 오래된 것부터 지운다.
+     * 쓰고 있는 세그먼트는 지우지 않는다.
+     */
+    private void applyRetention() throws IOException {
+        synchronized (segmentsLock) {
+            applyRetentionLocked();
+        }
+    }
+
+    private void applyRetentionLocked() throws IOException {
+        final LocalDate oldest = LocalDate.now(options.getClock())
+            .minusDays(options.getMaxHistoryDays());
+        final List<Path> kept = new ArrayList<>();
+        long totalBytes = 0;
+        for (SegmentName name : listSegments()) {
+            final Path path = options.getDirectory().resolve(name.fileName());
+            if (current != null && path.equals(current.getPath())) {
+                totalBytes += current.getCapacity();
+                continue;
+            }
+            if (name.date().isBefore(oldest)) {
+                delete(path);
+                continue;
+            }
+            kept.add(path);
+            totalBytes += sizeOf(path);
+        }
+        for (Path path : kept) {
+            if (totalBytes <= options.getTotalSizeCapBytes()) {
+                break;
+            }
+            totalBytes -= sizeOf(path);
+            delete(path);
+        }
+    }
+
+    //세그먼트와 인덱스를 합친 크기
+    private static long sizeOf(Path segment) throws IOException {
+        return sizeIfExists(segment) + sizeIfExists(SegmentIndex.pathOf(segment));
+    }
+
+    //인덱스는 아직 만들지 않았을 수 있다.
+    private static long sizeIfExists(Path path) throws IOException {
+        try {
+            return Files.size(path);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+        Files.deleteIfExists(SegmentIndex.pathOf(segment));
+    }
+
+    //남은 레코드를 모두 쓰고 세그먼트를 닫는다. 끝내지 못한 압축, 인덱스는 다음에 시작할 때 이어서 한다.
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+            if (background != null) {
+                background.shutdown();
+                background.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getAppendedCount() {
+        return appended.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
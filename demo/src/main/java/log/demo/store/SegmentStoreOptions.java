@@ -0,0 +1,41 @@
+package log.demo.store;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import lombok.Builder;
+import lombok.Getter;
+
+/*
+ * SegmentStore 설정, 기본값은 logback.xml 의 FILE_LOG(100MB, 180일, 18GB)와 같다.
+ */
+@Builder
+@Getter
+public class SegmentStoreOptions {
+
+    @Builder.Default
+    private final Path directory = Path.of("./logs/segments");
+    @Builder.Default
+    private final String prefix = "info";
+    @Builder.Default
+    private final int segmentBytes = 100 * 1024 * 1024;
+    @Builder.Default
+    private final int maxHistoryDays = 180;
+    @Builder.Default
+    private final long totalSizeCapBytes = 18L * 1024 * 1024 * 1024;
+    @Builder.Default
+    private final FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+    @Builder.Default
+    private final long fsyncIntervalMillis = 1000;
+    @Builder.Default
+    private final int fsyncEveryRecords = 1000;
+    @Builder.Default
+    private final int queueCapacity = 8192;
+    @Builder.Default
+    private final SegmentCompression compression = SegmentCompression.NONE;
+    @Builder.Default
+    private final int compressionBlockBytes = 64 * 1024;
+    @Builder.Default
+    private final boolean indexed = false;
+    @Builder.Default
+    private final Clock clock = Clock.systemDefaultZone();
+}
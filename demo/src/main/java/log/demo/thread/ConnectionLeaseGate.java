@@ -0,0 +1,45 @@
+package log.demo.thread;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.springframework.web.client.ResourceAccessException;
+
+/*
+ * connection pool 앞에서 동시 요청 수를 pool 크기만큼으로 묶는다.
+ * httpclient5 의 pool 은 빈 connection 을 기다릴 때 synchronized 메서드 안에서 Object.wait() 를 하므로
+ * 가상 스레드가 carrier 스레드를 점유(pinning)한다.
+ * Semaphore 에서 먼저 기다리게 하면 가상 스레드는 unmount 되고, pool 에서는 기다릴 일이 없다.
+ */
+public class ConnectionLeaseGate {
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public ConnectionLeaseGate(int permits, long timeoutMillis) {
+        this.permits = new Semaphore(permits);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    //pool 에서 기다리다 timeout 난 것과 같은 예외로 알린다.
+    public void acquire() {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ResourceAccessException("Timeout waiting for upstream connection",
+                    new ConnectionRequestTimeoutException(
+                        "Timeout waiting for upstream connection " + timeoutMillis + " ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for upstream connection");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
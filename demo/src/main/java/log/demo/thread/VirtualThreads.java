@@ -0,0 +1,46 @@
+package log.demo.thread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * 빌드는 Java 17 기준이라 가상 스레드 API(Java 21)는 리플렉션으로 호출한다.
+ * Java 21 미만에서 가상 스레드 모드를 켜면 기동 시점에 IllegalStateException 으로 알린다.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    //작업마다 "prefix0", "prefix1" ... 이름의 가상 스레드를 새로 만드는 Executor
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, running on "
+                + Runtime.version());
+        }
+        try {
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class)
+                .invoke(builder, namePrefix, 0L);
+            final ThreadFactory threadFactory =
+                (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            final Method newThreadPerTaskExecutor = Executors.class.getMethod(
+                "newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+}
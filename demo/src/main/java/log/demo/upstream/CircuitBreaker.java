@@ -0,0 +1,236 @@
+package log.demo.upstream;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * pool 하나의 circuit breaker
+ * 최근 windowMillis 동안(BUCKETS 개의 시간 bucket)의 실패율이나 느린 호출 비율이 threshold 를 넘으면 OPEN 으로 바꿔
+ * openMillis 동안 대상 서버를 부르지 않고 바로 실패시킨다. 그 뒤 HALF_OPEN 에서 halfOpenCalls 개만 보내 보고,
+ * 모두 성공하면 CLOSED, 하나라도 실패하면 다시 OPEN 이다.
+ * CLOSED 의 tryAcquire 는 volatile 읽기뿐이고, 결과 기록과 상태 전이만 잠근다.
+ * Listener 는 잠금을 푼 뒤에 부른다. 그래서 거의 동시에 일어난 전이는 순서가 바뀌어 전달될 수 있다.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    //상태가 바뀔 때, 상태를 바꾼 스레드가 잠금 밖에서 부른다.
+    interface Listener {
+
+        void onTransition(State from, State to, Map<String, Object> window);
+    }
+
+    //잠근 채로 만들어 두었다가 잠금을 푼 뒤 Listener 에 넘긴다.
+    private record Transition(State from, State to, Map<String, Object> window) {
+
+    }
+
+    private static final int BUCKETS = 10;
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final Listener listener;
+
+    private final long[] bucketEpochs = new long[BUCKETS];
+    private final int[] calls = new int[BUCKETS];
+    private final int[] failures = new int[BUCKETS];
+    private final int[] slowCalls = new int[BUCKETS];
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntilMillis;
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private int halfOpenSuccesses;
+    private final LongAdder rejected = new LongAdder();
+
+    CircuitBreaker(UpstreamPoolOptions options, Listener listener) {
+        this.clock = options.getClock();
+        this.bucketMillis = Math.max(1, options.getBreakerWindowMillis() / BUCKETS);
+        this.minimumCalls = options.getBreakerMinimumCalls();
+        this.failureRateThreshold = options.getBreakerFailureRateThreshold();
+        this.slowCallRateThreshold = options.getBreakerSlowCallRateThreshold();
+        this.openMillis = options.getBreakerOpenMillis();
+        this.halfOpenCalls = Math.max(1, options.getBreakerHalfOpenCalls());
+        this.listener = listener;
+    }
+
+    static final int REJECTED = 0;
+    static final int ACQUIRED = 1;
+    //HALF_OPEN 에서 받은 허가, 결과가 다음 상태를 정한다.
+    static final int TRIAL = 2;
+
+    int tryAcquire() {
+        if (state == State.CLOSED) {
+            return ACQUIRED;
+        }
+        if (state == State.OPEN) {
+            if (clock.millis() < openUntilMillis) {
+                rejected.increment();
+                return REJECTED;
+            }
+            Transition transition = null;
+            final boolean closed;
+            synchronized (this) {
+                if (state == State.OPEN && clock.millis() >= openUntilMillis) {
+                    halfOpenPermits.set(halfOpenCalls);
+                    halfOpenSuccesses = 0;
+                    transition = transition(State.HALF_OPEN);
+                }
+                closed = state == State.CLOSED;
+            }
+            publish(transition);
+            if (closed) {
+                return ACQUIRED;
+            }
+        }
+        if (halfOpenPermits.getAndDecrement() > 0) {
+            return TRIAL;
+        }
+        rejected.increment();
+        return REJECTED;
+    }
+
+    /*
+     * trial : tryAcquire 가 TRIAL 을 돌려준 호출인지
+     * OPEN 전에 보낸 호출이 늦게 끝난 것은 HALF_OPEN 판단에 넣지 않는다.
+     */
+    void onResult(boolean trial, boolean failed, boolean slow) {
+        final Transition transition;
+        synchronized (this) {
+            transition = record(trial, failed, slow);
+        }
+        publish(transition);
+    }
+
+    //상태가 바뀌면 그 전이, 아니면 null
+    private Transition record(boolean trial, boolean failed, boolean slow) {
+        if (state == State.HALF_OPEN) {
+            if (!trial) {
+                return null;
+            }
+            if (failed || slow) {
+                return open();
+            }
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                clearWindow();
+                return transition(State.CLOSED);
+            }
+            return null;
+        }
+        if (state == State.OPEN) {
+            return null;
+        }
+        final long epoch = clock.millis() / bucketMillis;
+        final int index = (int) (epoch % BUCKETS);
+        if (bucketEpochs[index] != epoch) {
+            bucketEpochs[index] = epoch;
+            calls[index] = 0;
+            failures[index] = 0;
+            slowCalls[index] = 0;
+        }
+        calls[index]++;
+        if (failed) {
+            failures[index]++;
+        }
+        if (slow) {
+            slowCalls[index]++;
+        }
+        if (!failed && !slow) {
+            return null;
+        }
+        final int windowCalls = sum(calls, epoch);
+        final int windowFailures = sum(failures, epoch);
+        final int windowSlowCalls = sum(slowCalls, epoch);
+        if (windowCalls >= minimumCalls
+            && (exceeds(windowFailures, windowCalls, failureRateThreshold)
+            || exceeds(windowSlowCalls, windowCalls, slowCallRateThreshold))) {
+            return open();
+        }
+        return null;
+    }
+
+    //epoch 까지 BUCKETS 개 bucket 의 합, 지난 bucket 은 다시 쓰기 전까지 남아 있으므로 epoch 로 거른다.
+    private int sum(int[] counts, long epoch) {
+        int total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (epoch - bucketEpochs[i] < BUCKETS) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    //threshold 는 퍼센트, 0 이면 보지 않는다.
+    private static boolean exceeds(int count, int total, int threshold) {
+        return threshold > 0 && count * 100L >= (long) threshold * total;
+    }
+
+    private Transition open() {
+        openUntilMillis = clock.millis() + openMillis;
+        halfOpenPermits.set(0);
+        return transition(State.OPEN);
+    }
+
+    private void clearWindow() {
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketEpochs[i] = 0;
+            calls[i] = 0;
+            failures[i] = 0;
+            slowCalls[i] = 0;
+        }
+    }
+
+    //잠근 채로 부른다.
+    private Transition transition(State to) {
+        final State from = state;
+        state = to;
+        return (listener == null) ? null : new Transition(from, to, windowSnapshot());
+    }
+
+    private void publish(Transition transition) {
+        if (transition != null) {
+            listener.onTransition(transition.from(), transition.to(), transition.window());
+        }
+    }
+
+    State getState() {
+        return state;
+    }
+
+    //OPEN 이면 HALF_OPEN 까지 남은 시간, 아니면 0
+    long getRetryAfterMillis() {
+        return (state == State.OPEN) ? Math.max(0, openUntilMillis - clock.millis()) : 0;
+    }
+
+    private Map<String, Object> windowSnapshot() {
+        final long epoch = clock.millis() / bucketMillis;
+        final int windowCalls = sum(calls, epoch);
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("calls", windowCalls);
+        snapshot.put("failure-rate", rate(sum(failures, epoch), windowCalls));
+        snapshot.put("slow-call-rate", rate(sum(slowCalls, epoch), windowCalls));
+        return snapshot;
+    }
+
+    private static double rate(int count, int total) {
+        return (total == 0) ? 0.0 : Math.round(count * 1000.0 / total) / 10.0;
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("state", state.name());
+        snapshot.putAll(windowSnapshot());
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+}
@@ -0,0 +1,70 @@
+package log.demo.upstream;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * pool 로 동시에 보내는 요청 수를 AIMD 로 정하는 limiter
+ * 실패(연결 실패, timeout, 5xx)하거나 latencyThresholdNanos 보다 느린 호출이 끝나면 limit 에 backoffRatio 를 곱하고,
+ * limit 의 절반 이상을 쓰는 중에 성공하면 1 씩 늘린다. (limit 을 다 쓰지 않는 동안에는 늘리지 않는다.)
+ * limit 을 넘는 요청은 connection pool 에서 기다리게 하지 않고 바로 거절한다.
+ */
+final class ConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    ConcurrencyLimiter(UpstreamPoolOptions options) {
+        this.minLimit = Math.max(1, options.getLimiterMinLimit());
+        this.maxLimit = Math.max(minLimit, options.getLimiterMaxLimit());
+        this.backoffRatio = options.getLimiterBackoffRatio();
+        this.latencyThresholdNanos = options.getLimiterLatencyThresholdMillis() * 1_000_000;
+        this.limit = new AtomicInteger(
+            Math.min(maxLimit, Math.max(minLimit, options.getLimiterInitialLimit())));
+    }
+
+    boolean tryAcquire() {
+        int current = inFlight.get();
+        while (current < limit.get()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = inFlight.get();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    //허가를 받고 보내지 않았을 때 (limit 은 바꾸지 않는다.)
+    void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    void release(long elapsedNanos, boolean failed) {
+        final int inFlightBefore = inFlight.getAndDecrement();
+        if (failed || (latencyThresholdNanos > 0 && elapsedNanos > latencyThresholdNanos)) {
+            limit.updateAndGet(value -> Math.max(minLimit, (int) (value * backoffRatio)));
+        } else if (inFlightBefore * 2 >= limit.get()) {
+            limit.updateAndGet(value -> Math.min(maxLimit, value + 1));
+        }
+    }
+
+    int getLimit() {
+        return limit.get();
+    }
+
+    Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("limit", limit.get());
+        snapshot.put("in-flight", inFlight.get());
+        snapshot.put("rejected", rejected.sum());
+        return snapshot;
+    }
+}
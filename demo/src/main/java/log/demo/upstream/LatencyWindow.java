@@ -0,0 +1,46 @@
+package log.demo.upstream;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+import log.demo.metrics.latency.LatencyHistogram;
+
+/*
+ * 최근 windowMillis 동안 성공한 호출 시간의 quantile (hedge 를 보낼 시점)
+ * 누적 히스토그램은 대상 서버가 느려지거나 빨라져도 따라가지 못하므로, window 가 끝날 때마다 quantile 을 계산해 두고 새로 센다.
+ * 요청마다 quantile 을 계산하지 않고 volatile 값 하나만 읽는다. 샘플이 minSamples 보다 적은 window 는 -1 이다.
+ */
+final class LatencyWindow {
+
+    private final Clock clock;
+    private final long windowMillis;
+    private final double quantile;
+    private final int minSamples;
+    private final AtomicLong windowStart;
+    private volatile LatencyHistogram current = new LatencyHistogram();
+    private volatile long quantileNanos = -1;
+
+    LatencyWindow(Clock clock, long windowMillis, double quantile, int minSamples) {
+        this.clock = clock;
+        this.windowMillis = windowMillis;
+        this.quantile = quantile;
+        this.minSamples = minSamples;
+        this.windowStart = new AtomicLong(clock.millis());
+    }
+
+    void record(long nanos) {
+        final long now = clock.millis();
+        final long start = windowStart.get();
+        //window 를 바꾼 스레드 하나만 계산한다. 바꾸는 사이 이전 히스토그램에 들어간 값은 버려진다.
+        if (now - start >= windowMillis && windowStart.compareAndSet(start, now)) {
+            final LatencyHistogram finished = current;
+            current = new LatencyHistogram();
+            quantileNanos = (finished.getCount() < minSamples) ? -1
+                : finished.valueAtQuantile(quantile);
+        }
+        current.record(nanos);
+    }
+
+    long quantileNanos() {
+        return quantileNanos;
+    }
+}
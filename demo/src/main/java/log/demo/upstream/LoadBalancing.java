@@ -0,0 +1,55 @@
+package log.demo.upstream;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * pool 안에서 요청을 보낼 upstream 을 고르는 방법
+ * ROUND_ROBIN : 차례대로
+ * LEAST_IN_FLIGHT : 처리 중인 요청이 가장 적은 것, 같으면 차례대로 돌아가며 시작점을 바꾼다.
+ * POWER_OF_TWO : 둘을 무작위로 뽑아 처리 중인 요청이 적은 것, 전체를 훑지 않고도 느린 upstream 을 피한다.
+ */
+public enum LoadBalancing {
+
+    ROUND_ROBIN {
+        @Override
+        Upstream choose(Upstream[] candidates, int count, int sequence) {
+            return candidates[Math.floorMod(sequence, count)];
+        }
+    },
+    LEAST_IN_FLIGHT {
+        @Override
+        Upstream choose(Upstream[] candidates, int count, int sequence) {
+            final int start = Math.floorMod(sequence, count);
+            Upstream least = candidates[start];
+            for (int i = 1; i < count; i++) {
+                final Upstream candidate = candidates[(start + i) % count];
+                if (candidate.getInFlight() < least.getInFlight()) {
+                    least = candidate;
+                }
+            }
+            return least;
+        }
+    },
+    POWER_OF_TWO {
+        @Override
+        Upstream choose(Upstream[] candidates, int count, int sequence) {
+            if (count == 1) {
+                return candidates[0];
+            }
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int first = random.nextInt(count);
+            final int second = (first + 1 + random.nextInt(count - 1)) % count;
+            return (candidates[second].getInFlight() < candidates[first].getInFlight())
+                ? candidates[second] : candidates[first];
+        }
+    };
+
+    //candidates 의 앞 count 개 중에서 고른다. sequence 는 pool 이 요청마다 1 씩 올리는 값이다.
+    abstract Upstream choose(Upstream[] candidates, int count, int sequence);
+
+    //"least-in-flight" 처럼 설정에 쓰는 이름도 받는다.
+    public static LoadBalancing of(String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
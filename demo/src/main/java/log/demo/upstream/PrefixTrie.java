@@ -0,0 +1,121 @@
+package log.demo.upstream;
+
+import java.util.Arrays;
+
+/*
+ * path prefix -> 값, 가장 긴 prefix 를 찾는 radix tree
+ * 간선(label)을 문자열로 압축해 두므로 깊이는 prefix 수가 아니라 갈라지는 지점 수만큼이다.
+ * prefix 는 path segment 경계에서만 맞는다. ("/api" 는 "/api", "/api/x" 에 맞고 "/apis" 에는 맞지 않는다.)
+ * 설정을 읽을 때 put 으로 만들고, 그 뒤에는 읽기만 하므로 lookup 은 잠그지 않고 할당도 하지 않는다.
+ */
+final class PrefixTrie<T> {
+
+    private final Node<T> root = new Node<>("");
+
+    void put(String prefix, T value) {
+        Node<T> node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            final Node<T> child = node.child(prefix.charAt(position));
+            if (child == null) {
+                node.add(new Node<>(prefix.substring(position)));
+                node = node.child(prefix.charAt(position));
+                position = prefix.length();
+                break;
+            }
+            final int common = commonLength(child.label, prefix, position);
+            if (common < child.label.length()) {
+                final Node<T> middle = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.add(child);
+                node.replace(middle);
+            }
+            node = node.child(prefix.charAt(position));
+            position += common;
+        }
+        node.value = value;
+    }
+
+    private static int commonLength(String label, String prefix, int position) {
+        final int max = Math.min(label.length(), prefix.length() - position);
+        int length = 0;
+        while (length < max && label.charAt(length) == prefix.charAt(position + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    //맞는 prefix 가 없으면 null
+    T longestMatch(String path) {
+        Node<T> node = root;
+        int position = 0;
+        T match = null;
+        while (true) {
+            if (node.value != null && isBoundary(path, position)) {
+                match = node.value;
+            }
+            if (position == path.length()) {
+                return match;
+            }
+            final Node<T> child = node.child(path.charAt(position));
+            if (child == null || !path.startsWith(child.label, position)) {
+                return match;
+            }
+            position += child.label.length();
+            node = child;
+        }
+    }
+
+    private static boolean isBoundary(String path, int position) {
+        return position == path.length() || path.charAt(position) == '/'
+            || (position > 0 && path.charAt(position - 1) == '/');
+    }
+
+    private static final class Node<T> {
+
+        private String label;
+        private T value;
+        //label 첫 글자 순으로 정렬, 자식이 적으므로 배열을 훑는다.
+        private char[] firstChars = new char[0];
+        private Node<T>[] children = newChildren(0);
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node<T> child(char first) {
+            for (int i = 0; i < firstChars.length; i++) {
+                if (firstChars[i] == first) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void add(Node<T> child) {
+            final int index = Arrays.binarySearch(firstChars, child.label.charAt(0));
+            final int insertAt = -index - 1;
+            final char[] newFirstChars = new char[firstChars.length + 1];
+            final Node<T>[] newChildren = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(firstChars, 0, newFirstChars, 0, insertAt);
+            System.arraycopy(firstChars, insertAt, newFirstChars, insertAt + 1,
+                firstChars.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1,
+                children.length - insertAt);
+            newFirstChars[insertAt] = child.label.charAt(0);
+            newChildren[insertAt] = child;
+            firstChars = newFirstChars;
+            children = newChildren;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newChildren(int length) {
+            return (Node<T>[]) new Node<?>[length];
+        }
+
+        //첫 글자가 같은 자식을 바꾼다.
+        void replace(Node<T> child) {
+            children[Arrays.binarySearch(firstChars, child.label.charAt(0))] = child;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package log.demo.upstream;
+
+import java.util.concurrent.atomic.AtomicLong;
+import log.demo.http.sampling.TokenBucket;
+
+/*
+ * retry 와 hedge 가 원래 요청의 ratio 만큼만 더 나가게 하는 budget
+ * 원래 요청마다 ratio 만큼 token 을 쌓고, retry/hedge 한 번에 token 하나를 쓴다. (쌓이는 양은 요청 DEPOSIT_WINDOW 개 분까지)
+ * 대상 서버가 모두 느려지면(brown-out) token 이 금방 바닥나 retry storm 이 되지 않는다.
+ * 요청이 적을 때도 retry 를 할 수 있도록, token 이 없으면 초당 minPerSecond 개까지는 따로 허용한다.
+ */
+public class RetryBudget {
+
+    private static final long TOKEN = 1_000;
+    private static final int DEPOSIT_WINDOW = 1_000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance = new AtomicLong();
+    private final TokenBucket minimum;
+
+    public RetryBudget(double ratio, int minPerSecond) {
+        this.deposit = Math.max(0, Math.round(ratio * TOKEN));
+        this.maxBalance = Math.max(TOKEN, deposit * DEPOSIT_WINDOW);
+        this.minimum = (minPerSecond > 0) ? new TokenBucket(minPerSecond, minPerSecond) : null;
+    }
+
+    public void deposit() {
+        if (deposit == 0) {
+            return;
+        }
+        long current = balance.get();
+        while (current < maxBalance
+            && !balance.compareAndSet(current, Math.min(maxBalance, current + deposit))) {
+            current = balance.get();
+        }
+    }
+
+    public boolean tryWithdraw() {
+        long current = balance.get();
+        while (current >= TOKEN) {
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+            current = balance.get();
+        }
+        return minimum != null && minimum.tryAcquire(1);
+    }
+
+    //쓸 수 있는 token 수 (minPerSecond 몫은 빼고)
+    public double getBalance() {
+        return (double) balance.get() / TOKEN;
+    }
+}
@@ -0,0 +1,175 @@
+package log.demo.upstream;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import log.demo.exception.NoRouteException;
+import log.demo.metrics.MetricSource;
+import org.springframework.util.StringUtils;
+
+/*
+ * 요청의 Host 와 path 로 보낼 UpstreamPool 을 정한다.
+ * Host 별 route 중 가장 긴 path prefix 를 먼저 찾고, 없으면 Host 를 지정하지 않은 route 에서 찾는다.
+ * route 는 설정을 읽을 때 PrefixTrie 로 만들어 두므로, 요청마다 route 를 차례로 비교하지 않는다.
+ * Host 는 설정된 host 수가 적으므로 배열을 훑어 대소문자 없이 비교한다. (요청마다 문자열을 만들지 않는다.)
+ */
+public final class RoutingTable implements MetricSource {
+
+    public static final String DEFAULT_POOL = "default";
+
+    private final List<UpstreamPool> pools;
+    private final HostRoutes[] hostRoutes;
+    private final PrefixTrie<UpstreamPool> anyHostRoutes;
+
+    //host 는 소문자, port 없이
+    private record HostRoutes(String host, PrefixTrie<UpstreamPool> routes) {
+
+    }
+
+    private RoutingTable(List<UpstreamPool> pools, HostRoutes[] hostRoutes,
+        PrefixTrie<UpstreamPool> anyHostRoutes) {
+        this.pools = pools;
+        this.hostRoutes = hostRoutes;
+        this.anyHostRoutes = anyHostRoutes;
+    }
+
+    /*
+     * pools : "name[:balancing]=uri|uri,..." 예) "api:least-in-flight=http://10.0.0.1:8080|http://10.0.0.2:8080"
+     * routes : "[host]/prefix=pool,..." 예) "api.example.com/=api,/static=static,/=api"
+     * pools 가 비어 있으면 defaultUpstream 하나로 된 "default" pool 을, routes 가 비어 있으면 첫 pool 로 가는 "/" route 를 쓴다.
+     * pool 에서 지정하지 않은 balancing 은 options 의 것을 쓴다. 형식이 맞지 않으면 IllegalArgumentException
+     */
+    public static RoutingTable of(String pools, String routes, String defaultUpstream,
+        UpstreamPoolOptions options) {
+        final Map<String, UpstreamPool> poolsByName = new LinkedHashMap<>();
+        for (String pool : StringUtils.commaDelimitedListToStringArray(pools)) {
+            if (StringUtils.hasText(pool)) {
+                final UpstreamPool upstreamPool = parsePool(pool.trim(), options);
+                poolsByName.put(upstreamPool.getName(), upstreamPool);
+            }
+        }
+        if (poolsByName.isEmpty()) {
+            poolsByName.put(DEFAULT_POOL,
+                new UpstreamPool(DEFAULT_POOL, List.of(defaultUpstream), options));
+        }
+
+        final Map<String, PrefixTrie<UpstreamPool>> hostRoutes = new LinkedHashMap<>();
+        final PrefixTrie<UpstreamPool> anyHostRoutes = new PrefixTrie<>();
+        final String[] routeEntries = StringUtils.commaDelimitedListToStringArray(routes);
+        boolean hasRoute = false;
+        for (String route : routeEntries) {
+            if (!StringUtils.hasText(route)) {
+                continue;
+            }
+            final int equals = route.lastIndexOf('=');
+            final int slash = route.indexOf('/');
+            if (equals < 0 || slash < 0 || slash > equals) {
+                throw new IllegalArgumentException("Invalid route: " + route);
+            }
+            final String host = route.substring(0, slash).trim().toLowerCase(Locale.ROOT);
+            final String prefix = route.substring(slash, equals).trim();
+            final UpstreamPool pool = poolsByName.get(route.substring(equals + 1).trim());
+            if (pool == null) {
+                throw new IllegalArgumentException("Unknown upstream pool in route: " + route);
+            }
+            (host.isEmpty() ? anyHostRoutes
+                : hostRoutes.computeIfAbsent(host, key -> new PrefixTrie<>())).put(prefix, pool);
+            hasRoute = true;
+        }
+        if (!hasRoute) {
+            anyHostRoutes.put("/", poolsByName.values().iterator().next());
+        }
+        final HostRoutes[] hostRoutesArray = hostRoutes.entrySet().stream()
+            .map(entry -> new HostRoutes(entry.getKey(), entry.getValue()))
+            .toArray(HostRoutes[]::new);
+        return new RoutingTable(List.copyOf(poolsByName.values()), hostRoutesArray,
+            anyHostRoutes);
+    }
+
+    private static UpstreamPool parsePool(String pool, UpstreamPoolOptions options) {
+        final int equals = pool.indexOf('=');
+        if (equals <= 0) {
+            throw new IllegalArgumentException("Invalid upstream pool: " + pool);
+        }
+        String name = pool.substring(0, equals).trim();
+        UpstreamPoolOptions poolOptions = options;
+        final int colon = name.indexOf(':');
+        if (colon >= 0) {
+            poolOptions = options.toBuilder()
+                .balancing(LoadBalancing.of(name.substring(colon + 1)))
+                .build();
+            name = name.substring(0, colon).trim();
+        }
+        final List<String> upstreams = new ArrayList<>();
+        for (String upstream : pool.substring(equals + 1).split("\\|")) {
+            if (StringUtils.hasText(upstream)) {
+                upstreams.add(upstream.trim());
+            }
+        }
+        return new UpstreamPool(name, upstreams, poolOptions);
+    }
+
+    //host 는 Host 헤더 값 그대로 받는다. (port 는 떼고 비교한다.) 맞는 route 가 없으면 null
+    public UpstreamPool resolve(String host, String path) {
+        final String normalizedPath = (path == null || path.isEmpty()) ? "/" : path;
+        if (host != null && hostRoutes.length > 0) {
+            final PrefixTrie<UpstreamPool> routes = hostRoutesOf(host);
+            if (routes != null) {
+                final UpstreamPool pool = routes.longestMatch(normalizedPath);
+                if (pool != null) {
+                    return pool;
+                }
+            }
+        }
+        return anyHostRoutes.longestMatch(normalizedPath);
+    }
+
+    //맞는 route 가 없으면 NoRouteException
+    public UpstreamPool route(String host, String path) {
+        final UpstreamPool pool = resolve(host, path);
+        if (pool == null) {
+            throw new NoRouteException(host, path);
+        }
+        return pool;
+    }
+
+    private PrefixTrie<UpstreamPool> hostRoutesOf(String host) {
+        final int end = host.startsWith("[") ? host.indexOf(']') + 1 : host.indexOf(':');
+        final int length = (end <= 0) ? host.length() : end;
+        for (HostRoutes candidate : hostRoutes) {
+            if (candidate.host().length() == length
+                && host.regionMatches(true, 0, candidate.host(), 0, length)) {
+                return candidate.routes();
+            }
+        }
+        return null;
+    }
+
+    public List<UpstreamPool> getPools() {
+        return pools;
+    }
+
+    public int getUpstreamCount() {
+        int count = 0;
+        for (UpstreamPool pool : pools) {
+            count += pool.getUpstreams().size();
+        }
+        return count;
+    }
+
+    @Override
+    public String getName() {
+        return "upstreams";
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        for (UpstreamPool pool : pools) {
+            snapshot.put(pool.getName(), pool.snapshot());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,78 @@
+package log.demo.upstream;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * pool 에 속한 대상 서버 하나 (scheme://host:port)
+ * 상태는 UpstreamPool 이 바꾼다. 요청 스레드와 health check 스레드가 같이 쓰므로 atomic/volatile 로 둔다.
+ */
+public final class Upstream {
+
+    private final String baseUri;
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger consecutiveFailures = new AtomicInteger();
+    final AtomicInteger ejections = new AtomicInteger();
+    //다음 ejection 시간의 배수, 시간이 지나면 줄어든다. (UpstreamPool.eject)
+    final AtomicInteger ejectionMultiplier = new AtomicInteger();
+    //health check 가 연속으로 성공(+), 실패(-)한 횟수
+    final AtomicInteger healthCheckStreak = new AtomicInteger();
+    final LongAdder requests = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    volatile boolean healthy = true;
+    volatile long ejectedUntilMillis;
+
+    Upstream(String baseUri) {
+        final URI uri = URI.create(baseUri.trim());
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid upstream: " + baseUri);
+        }
+        final String value = uri.toString();
+        this.baseUri = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    //path 는 / 로 시작한다.
+    public String uriOf(String path, String queryString) {
+        final String uri = baseUri + path;
+        return (queryString == null) ? uri : uri + "?" + queryString;
+    }
+
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    boolean isEjected(long nowMillis) {
+        return ejectedUntilMillis > nowMillis;
+    }
+
+    boolean isAvailable(long nowMillis) {
+        return healthy && !isEjected(nowMillis);
+    }
+
+    Map<String, Object> snapshot(long nowMillis) {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("healthy", healthy);
+        snapshot.put("ejected", isEjected(nowMillis));
+        snapshot.put("in-flight", inFlight.get());
+        snapshot.put("requests", requests.sum());
+        snapshot.put("failures", failures.sum());
+        snapshot.put("ejections", ejections.get());
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return baseUri;
+    }
+}
@@ -0,0 +1,83 @@
+package log.demo.upstream;
+
+import jakarta.servlet.ServletRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/*
+ * 요청 하나가 대상 서버를 몇 번 불렀는지 (retry, hedge)
+ * UpstreamInvoker 가 retry 나 hedge 를 했을 때만 request attribute 로 남기고, LoggingHttpMessage 가 읽는다.
+ * retry 는 hedge 스레드에서도 세므로 atomic 으로 둔다.
+ */
+public final class UpstreamAttempts {
+
+    public static final String ATTRIBUTE = UpstreamAttempts.class.getName();
+
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private volatile boolean hedged;
+    private volatile boolean hedgeWon;
+
+    public static UpstreamAttempts from(ServletRequest request) {
+        return (request.getAttribute(ATTRIBUTE) instanceof UpstreamAttempts upstreamAttempts)
+            ? upstreamAttempts : null;
+    }
+
+    void onAttempt() {
+        attempts.incrementAndGet();
+    }
+
+    void onRetry() {
+        retries.incrementAndGet();
+    }
+
+    void onHedge() {
+        hedged = true;
+    }
+
+    void onHedgeWon() {
+        hedgeWon = true;
+    }
+
+    boolean isEventful() {
+        return hedged || retries.get() > 0;
+    }
+
+    //요청 스레드에서 부른다.
+    void setCurrent() {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(ATTRIBUTE, this, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public int getAttempts() {
+        return attempts.get();
+    }
+
+    public int getRetries() {
+        return retries.get();
+    }
+
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    public boolean isHedgeWon() {
+        return hedgeWon;
+    }
+
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("attempts", attempts.get());
+        map.put("retries", retries.get());
+        map.put("hedged", hedged);
+        if (hedged) {
+            map.put("winner", hedgeWon ? "hedge" : "primary");
+        }
+        return map;
+    }
+}
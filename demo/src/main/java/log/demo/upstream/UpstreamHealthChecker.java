@@ -0,0 +1,71 @@
+package log.demo.upstream;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * healthCheckPath 가 있는 pool 의 upstream 마다 주기적으로 GET 을 보내 2xx 인지 본다. (active health check)
+ * 대상 서버 호출용 connection pool 을 쓰지 않으므로, pool 이 가득 차도 health check 는 밀리지 않는다.
+ * 응답은 HttpClient 의 스레드에서 받고, 스케줄 스레드는 보내기만 한다.
+ */
+public class UpstreamHealthChecker implements AutoCloseable {
+
+    private final List<UpstreamPool> pools;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+            final Thread thread = new Thread(runnable, "upstream-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public UpstreamHealthChecker(List<UpstreamPool> pools) {
+        this.pools = pools;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    }
+
+    public void start() {
+        for (UpstreamPool pool : pools) {
+            final UpstreamPoolOptions options = pool.getOptions();
+            if (options.getHealthCheckPath() != null && !options.getHealthCheckPath().isBlank()) {
+                scheduler.scheduleWithFixedDelay(() -> check(pool), 0,
+                    options.getHealthCheckIntervalMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void check(UpstreamPool pool) {
+        final UpstreamPoolOptions options = pool.getOptions();
+        for (Upstream upstream : pool.getUpstreams()) {
+            final HttpRequest request;
+            try {
+                request = HttpRequest.newBuilder(
+                        URI.create(upstream.uriOf(options.getHealthCheckPath(), null)))
+                    .timeout(Duration.ofMillis(options.getHealthCheckTimeoutMillis()))
+                    .GET()
+                    .build();
+            } catch (IllegalArgumentException e) {
+                pool.onHealthCheck(upstream, false);
+                continue;
+            }
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, e) -> pool.onHealthCheck(upstream,
+                    e == null && response.statusCode() / 100 == 2));
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
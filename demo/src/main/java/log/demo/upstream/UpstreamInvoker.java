@@ -0,0 +1,239 @@
+package log.demo.upstream;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import log.demo.metrics.MetricSource;
+import log.demo.metrics.latency.ExchangeTimer;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.springframework.web.client.ResourceAccessException;
+
+/*
+ * pool 의 upstream 하나를 부르는 call 에 retry 와 hedge 를 더한다.
+ * retry : 연결하지 못했으면(요청을 보내기 전이므로 method 와 상관없이) 다른 upstream 으로 maxRetries 번까지 다시 보낸다.
+ * hedge : hedgeMethods 의 요청에 pool 의 latencyQuantile 안에 응답이 없으면 다른 upstream 으로 한 번 더 보내고 먼저 온 응답을 쓴다.
+ *         4xx, 5xx 도 응답이므로 먼저 오면 그것을 쓰고, I/O 실패는 다른 쪽을 기다린다.
+ *         늦은 쪽은 끊지 않고 끝날 때까지 둔다. (pool 의 in-flight 와 outlier 판단에는 그대로 들어간다.)
+ * 둘 다 RetryBudget 의 token 을 써서, 대상 서버가 모두 느려져도 원래 요청의 budgetRatio 이상 더 보내지 않는다.
+ * hedge 를 하는 요청은 첫 호출도 executor 에서 하므로 요청 스레드 대신 executor 스레드가 대상 서버를 기다린다.
+ */
+public class UpstreamInvoker implements MetricSource, AutoCloseable {
+
+    private final UpstreamInvokerOptions options;
+    private final RetryBudget budget;
+    private final ExecutorService executor;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    //executor 는 hedge 를 켰을 때만 쓴다.
+    public UpstreamInvoker(UpstreamInvokerOptions options, ExecutorService executor) {
+        this.options = options;
+        this.budget = new RetryBudget(options.getBudgetRatio(), options.getBudgetMinPerSecond());
+        this.executor = executor;
+    }
+
+    /*
+     * call 은 upstream 하나를 부르고 UpstreamPool 의 start/finish 까지 한다.
+     * retry 나 hedge 를 했으면 UpstreamAttempts 를 request attribute 로 남긴다. (요청 스레드에서 불러야 한다.)
+     */
+    public <T> T invoke(UpstreamPool pool, Upstream upstream, String method,
+        Function<Upstream, T> call) {
+        requests.increment();
+        budget.deposit();
+        final UpstreamAttempts attempts = new UpstreamAttempts();
+        try {
+            final long hedgeDelayNanos = hedgeDelayNanos(pool, method);
+            return (hedgeDelayNanos < 0) ? callWithRetry(pool, upstream, call, attempts)
+                : callWithHedge(pool, upstream, call, attempts, hedgeDelayNanos);
+        } finally {
+            if (attempts.isEventful()) {
+                attempts.setCurrent();
+            }
+        }
+    }
+
+    //hedge 하지 않으면 -1, pool 에 아직 latency 가 모이지 않았을 때도 하지 않는다.
+    private long hedgeDelayNanos(UpstreamPool pool, String method) {
+        if (!options.isHedgeEnabled() || executor == null
+            || !options.getHedgeMethods().contains(method)) {
+            return -1;
+        }
+        final long quantileNanos = pool.getLatencyQuantileNanos();
+        return (quantileNanos < 0) ? -1
+            : Math.max(quantileNanos, TimeUnit.MILLISECONDS.toNanos(options.getHedgeMinDelayMillis()));
+    }
+
+    private <T> T callWithRetry(UpstreamPool pool, Upstream upstream, Function<Upstream, T> call,
+        UpstreamAttempts attempts) {
+        Upstream target = upstream;
+        int retryCount = 0;
+        while (true) {
+            attempts.onAttempt();
+            try {
+                return call.apply(target);
+            } catch (RuntimeException e) {
+                if (retryCount >= options.getMaxRetries() || !isConnectFailure(e)) {
+                    throw e;
+                }
+                if (!budget.tryWithdraw()) {
+                    budgetExhausted.increment();
+                    throw e;
+                }
+                retryCount++;
+                retries.increment();
+                attempts.onRetry();
+                target = pool.select(target);
+            }
+        }
+    }
+
+    private <T> T callWithHedge(UpstreamPool pool, Upstream upstream, Function<Upstream, T> call,
+        UpstreamAttempts attempts, long hedgeDelayNanos) {
+        //ExchangeTimer 는 첫 호출에만 넘긴다. 두 호출이 같은 timer 에 시점을 남기면 구간이 섞인다.
+        final ExchangeTimer exchangeTimer = ExchangeTimer.current();
+        final Race<T> race = new Race<>();
+        executor.execute(() -> race.run(false, () -> ExchangeTimer.callBound(exchangeTimer,
+            () -> callWithRetry(pool, upstream, call, attempts))));
+        try {
+            return race.result.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (!race.result.isDone()) {
+                hedge(pool, upstream, call, attempts, race);
+            }
+            return await(race, attempts);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for upstream response");
+        }
+    }
+
+    private <T> void hedge(UpstreamPool pool, Upstream upstream, Function<Upstream, T> call,
+        UpstreamAttempts attempts, Race<T> race) {
+        if (!budget.tryWithdraw()) {
+            budgetExhausted.increment();
+            return;
+        }
+        hedges.increment();
+        attempts.onHedge();
+        race.pending.incrementAndGet();
+        final Upstream hedgeUpstream = pool.select(upstream);
+        executor.execute(() -> race.run(true,
+            () -> callWithRetry(pool, hedgeUpstream, call, attempts)));
+    }
+
+    private <T> T await(Race<T> race, UpstreamAttempts attempts) {
+        try {
+            final T result = race.result.get();
+            if (race.hedgeWon) {
+                hedgeWins.increment();
+                attempts.onHedgeWon();
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for upstream response");
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    //연결을 맺지 못한 경우만, 요청을 보낸 뒤의 timeout 은 대상 서버가 처리했을 수 있으므로 다시 보내지 않는다.
+    static boolean isConnectFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException
+                || cause instanceof NoRouteToHostException
+                || cause instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIoFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //진행 중인 호출은 끝나게 두고 새 hedge 는 받지 않는다.
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "upstream-invoker";
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("requests", requests.sum());
+        snapshot.put("retries", retries.sum());
+        snapshot.put("hedges", hedges.sum());
+        snapshot.put("hedge-wins", hedgeWins.sum());
+        snapshot.put("budget-exhausted", budgetExhausted.sum());
+        snapshot.put("budget-balance", budget.getBalance());
+        return snapshot;
+    }
+
+    //먼저 온 응답으로 끝낸다. 모두 I/O 실패면 마지막 실패로 끝낸다.
+    private static final class Race<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicBoolean decided = new AtomicBoolean();
+        //result 를 끝내기 전에 쓰므로 result 를 받은 스레드에서 보인다.
+        private volatile boolean hedgeWon;
+
+        void run(boolean hedge, Supplier<T> call) {
+            try {
+                final T value = call.get();
+                if (decided.compareAndSet(false, true)) {
+                    hedgeWon = hedge;
+                    result.complete(value);
+                }
+            } catch (RuntimeException | Error e) {
+                final boolean last = pending.decrementAndGet() == 0;
+                if ((last || !isIoFailure(e)) && decided.compareAndSet(false, true)) {
+                    hedgeWon = hedge;
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
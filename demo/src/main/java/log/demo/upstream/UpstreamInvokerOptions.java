@@ -0,0 +1,30 @@
+package log.demo.upstream;
+
+import java.util.Set;
+import lombok.Builder;
+import lombok.Getter;
+
+/*
+ * UpstreamInvoker 의 retry, hedge 설정
+ * maxRetries 는 연결하지 못했을 때(요청을 보내기 전) 다른 upstream 으로 다시 보내는 횟수다. (0 이면 retry 하지 않는다.)
+ * hedge 는 hedgeMethods 의 요청만, pool 의 latencyQuantile 안에 응답이 없으면 한 번 더 보낸다.
+ * hedgeMinDelayMillis 는 hedge 를 보내기까지 기다리는 최소 시간이다. (빠른 대상 서버에 hedge 가 몰리지 않게)
+ * retry 와 hedge 는 모두 RetryBudget 에서 token 을 하나씩 쓴다.
+ */
+@Builder
+@Getter
+public class UpstreamInvokerOptions {
+
+    @Builder.Default
+    private final int maxRetries = 1;
+    @Builder.Default
+    private final boolean hedgeEnabled = false;
+    @Builder.Default
+    private final Set<String> hedgeMethods = Set.of("GET", "HEAD", "OPTIONS");
+    @Builder.Default
+    private final long hedgeMinDelayMillis = 10;
+    @Builder.Default
+    private final double budgetRatio = 0.1;
+    @Builder.Default
+    private final int budgetMinPerSecond = 10;
+}
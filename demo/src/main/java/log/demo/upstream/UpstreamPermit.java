@@ -0,0 +1,16 @@
+package log.demo.upstream;
+
+/*
+ * UpstreamPool.admit 이 돌려주는 허가, 대상 서버 호출이 끝나면 UpstreamPool.release 에 그대로 넘긴다.
+ * retry, hedge 를 해도 요청 하나에 하나다.
+ */
+public final class UpstreamPermit {
+
+    final long startNanos;
+    final boolean trial;
+
+    UpstreamPermit(long startNanos, boolean trial) {
+        this.startNanos = startNanos;
+        this.trial = trial;
+    }
+}
@@ -0,0 +1,226 @@
+package log.demo.upstream;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import log.demo.exception.UpstreamRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * 같은 서비스를 하는 upstream 묶음
+ * select 는 health check 에 통과했고 ejection 되지 않은 upstream 중에서 LoadBalancing 으로 고른다.
+ * 모두 쓸 수 없으면 전체에서 고른다. (panic, 요청을 모두 실패시키는 것보다 낫다.)
+ * 요청마다 start 와 finish 를 짝으로 불러야 in-flight 수와 outlier 판단이 맞는다.
+ * admit 와 release 는 retry, hedge 와 상관없이 요청마다 한 번씩 부른다. (circuit breaker, concurrency limiter)
+ */
+public final class UpstreamPool {
+
+    //circuit 상태 전이는 exchange 로그와 같은 곳에 남긴다.
+    private static final Logger logger = LoggerFactory.getLogger("HTTP");
+
+    /*
+     * ejection 시간은 base * 배수, 배수는 ejection 마다 하나씩 이 값까지만 늘린다.
+     * ejection 이 끝난 뒤 base 시간 동안 다시 ejection 되지 않을 때마다 배수를 하나씩 줄인다.
+     */
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+    private final String name;
+    private final Upstream[] upstreams;
+    private final UpstreamPoolOptions options;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final LatencyWindow latency;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter limiter;
+
+    public UpstreamPool(String name, List<String> baseUris, UpstreamPoolOptions options) {
+        if (baseUris.isEmpty()) {
+            throw new IllegalArgumentException("Upstream pool has no upstream: " + name);
+        }
+        this.name = name;
+        this.upstreams = baseUris.stream().map(Upstream::new).toArray(Upstream[]::new);
+        this.options = options;
+        this.latency = new LatencyWindow(options.getClock(), options.getLatencyWindowMillis(),
+            options.getLatencyQuantile(), options.getLatencyMinSamples());
+        this.circuitBreaker = options.isBreakerEnabled()
+            ? new CircuitBreaker(options, this::logTransition) : null;
+        this.limiter = options.isLimiterEnabled() ? new ConcurrencyLimiter(options) : null;
+    }
+
+    private void logTransition(CircuitBreaker.State from, CircuitBreaker.State to,
+        Map<String, Object> window) {
+        logger.info("CIRCUIT", kv("pool", name), kv("from", from.name()), kv("to", to.name()),
+            kv("window", window));
+    }
+
+    public Upstream select() {
+        return select(null);
+    }
+
+    //retry, hedge 용, 가능하면 excluded 가 아닌 upstream 을 고른다. (pool 에 하나뿐이면 그것을 다시 고른다.)
+    public Upstream select(Upstream excluded) {
+        final long now = options.getClock().millis();
+        int available = 0;
+        for (Upstream upstream : upstreams) {
+            if (upstream != excluded && upstream.isAvailable(now)) {
+                available++;
+            }
+        }
+        final int sequenceValue = sequence.getAndIncrement();
+        if (available == upstreams.length || (available == 0 && excluded == null)) {
+            return options.getBalancing().choose(upstreams, upstreams.length, sequenceValue);
+        }
+        final Upstream[] candidates = new Upstream[upstreams.length];
+        int count = 0;
+        for (Upstream upstream : upstreams) {
+            if (upstream != excluded && (available == 0 || upstream.isAvailable(now))) {
+                candidates[count++] = upstream;
+            }
+        }
+        return (count == 0) ? excluded
+            : options.getBalancing().choose(candidates, count, sequenceValue);
+    }
+
+    /*
+     * limit 을 먼저 잡고 circuit 을 본다. (circuit 의 HALF_OPEN 허가를 받고 limit 에 막혀 버리지 않도록)
+     * 거절하면 UpstreamRejectedException, connection pool 에서 기다리지 않고 바로 503 으로 응답한다.
+     */
+    public UpstreamPermit admit() {
+        if (limiter != null && !limiter.tryAcquire()) {
+            throw new UpstreamRejectedException(name, UpstreamRejectedException.CONCURRENCY_LIMIT,
+                0);
+        }
+        final int circuit = (circuitBreaker == null) ? CircuitBreaker.ACQUIRED
+            : circuitBreaker.tryAcquire();
+        if (circuit == CircuitBreaker.REJECTED) {
+            if (limiter != null) {
+                limiter.cancel();
+            }
+            throw new UpstreamRejectedException(name, UpstreamRejectedException.CIRCUIT_OPEN,
+                circuitBreaker.getRetryAfterMillis());
+        }
+        return new UpstreamPermit(System.nanoTime(), circuit == CircuitBreaker.TRIAL);
+    }
+
+    //failed : 연결 실패, timeout, 5xx 응답 (retry, hedge 를 거친 최종 결과)
+    public void release(UpstreamPermit permit, boolean failed) {
+        final long elapsedNanos = System.nanoTime() - permit.startNanos;
+        if (limiter != null) {
+            limiter.release(elapsedNanos, failed);
+        }
+        if (circuitBreaker != null) {
+            final boolean slow = options.getBreakerSlowCallMillis() > 0
+                && elapsedNanos > options.getBreakerSlowCallMillis() * 1_000_000;
+            circuitBreaker.onResult(permit.trial, failed, slow);
+        }
+    }
+
+    //System.nanoTime() 을 돌려주고, finish 에 그대로 넘긴다.
+    public long start(Upstream upstream) {
+        upstream.inFlight.incrementAndGet();
+        upstream.requests.increment();
+        return System.nanoTime();
+    }
+
+    /*
+     * failed : 연결 실패, timeout, 5xx 응답
+     * 연속 실패가 consecutiveFailures 에 닿으면 ejection 한다. 단, pool 의 maxEjectionPercent 를 넘지 않게 한다.
+     * 실패하지 않은 호출의 시간은 latencyQuantileNanos 계산에 쓴다.
+     */
+    public void finish(Upstream upstream, long startNanos, boolean failed) {
+        upstream.inFlight.decrementAndGet();
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        if (!failed) {
+            latency.record(elapsedNanos);
+        }
+        final boolean slow = options.getSlowCallMillis() > 0
+            && elapsedNanos > options.getSlowCallMillis() * 1_000_000;
+        if (!failed && !slow) {
+            upstream.consecutiveFailures.set(0);
+            return;
+        }
+        upstream.failures.increment();
+        if (options.getConsecutiveFailures() > 0
+            && upstream.consecutiveFailures.incrementAndGet() >= options.getConsecutiveFailures()) {
+            upstream.consecutiveFailures.set(0);
+            eject(upstream);
+        }
+    }
+
+    private void eject(Upstream upstream) {
+        final long now = options.getClock().millis();
+        if (upstream.isEjected(now)) {
+            return;
+        }
+        int ejected = 0;
+        for (Upstream member : upstreams) {
+            if (member.isEjected(now)) {
+                ejected++;
+            }
+        }
+        final int maxEjected = Math.max(1,
+            upstreams.length * options.getMaxEjectionPercent() / 100);
+        if (ejected >= maxEjected) {
+            return;
+        }
+        final long baseMillis = options.getBaseEjectionMillis();
+        final long decay = (upstream.ejectedUntilMillis == 0 || baseMillis <= 0) ? 0
+            : (now - upstream.ejectedUntilMillis) / baseMillis;
+        final int multiplier = upstream.ejectionMultiplier.updateAndGet(value ->
+            (int) Math.min(Math.max(0, value - decay) + 1, MAX_EJECTION_MULTIPLIER));
+        upstream.ejections.incrementAndGet();
+        upstream.ejectedUntilMillis = now + baseMillis * multiplier;
+    }
+
+    //연속 실패 unhealthyThreshold 번이면 빼고, 연속 성공 healthyThreshold 번이면 다시 넣는다.
+    void onHealthCheck(Upstream upstream, boolean passed) {
+        final int streak = upstream.healthCheckStreak.updateAndGet(value -> passed
+            ? Math.max(value, 0) + 1 : Math.min(value, 0) - 1);
+        if (passed && streak >= options.getHealthyThreshold()) {
+            upstream.healthy = true;
+        } else if (!passed && -streak >= options.getUnhealthyThreshold()) {
+            upstream.healthy = false;
+        }
+    }
+
+    //직전 latency window 에서 성공한 호출 시간의 latencyQuantile (샘플이 모자라면 -1)
+    public long getLatencyQuantileNanos() {
+        return latency.quantileNanos();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Upstream> getUpstreams() {
+        return List.of(upstreams);
+    }
+
+    public UpstreamPoolOptions getOptions() {
+        return options;
+    }
+
+    Map<String, Object> snapshot() {
+        final long now = options.getClock().millis();
+        final Map<String, Object> upstreamSnapshots = new LinkedHashMap<>();
+        for (Upstream upstream : upstreams) {
+            upstreamSnapshots.put(upstream.getBaseUri(), upstream.snapshot(now));
+        }
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("balancing", options.getBalancing().name());
+        final long quantileNanos = latency.quantileNanos();
+        snapshot.put("latency-quantile-ms", (quantileNanos < 0) ? null
+            : Math.round(quantileNanos / 100_000.0) / 10.0);
+        if (circuitBreaker != null) {
+            snapshot.put("circuit", circuitBreaker.snapshot());
+        }
+        if (limiter != null) {
+            snapshot.put("limiter", limiter.snapshot());
+        }
+        snapshot.put("upstreams", upstreamSnapshots);
+        return snapshot;
+    }
+}
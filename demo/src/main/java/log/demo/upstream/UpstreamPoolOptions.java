@@ -0,0 +1,75 @@
+package log.demo.upstream;
+
+import java.time.Clock;
+import lombok.Builder;
+import lombok.Getter;
+
+/*
+ * pool 의 부하 분산, passive outlier ejection, active health check 설정
+ * consecutiveFailures 가 0 이면 ejection 을, healthCheckPath 가 없으면 health check 를 하지 않는다.
+ * slowCallMillis 보다 오래 걸린 응답은 실패로 센다. (0 이면 세지 않는다.)
+ * latencyWindowMillis 마다 성공한 호출 시간의 latencyQuantile 을 다시 계산한다. (hedge 를 보낼 시점)
+ * breaker* 는 pool 의 CircuitBreaker, limiter* 는 ConcurrencyLimiter 설정이다. rate threshold 는 퍼센트 (0 이면 보지 않는다.)
+ * breakerSlowCallMillis, limiterLatencyThresholdMillis 가 0 이면 느린 호출을 따로 세지 않는다.
+ */
+@Builder(toBuilder = true)
+@Getter
+public class UpstreamPoolOptions {
+
+    @Builder.Default
+    private final LoadBalancing balancing = LoadBalancing.ROUND_ROBIN;
+    @Builder.Default
+    private final int consecutiveFailures = 5;
+    @Builder.Default
+    private final long slowCallMillis = 0;
+    @Builder.Default
+    private final long baseEjectionMillis = 30_000;
+    @Builder.Default
+    private final int maxEjectionPercent = 50;
+    @Builder.Default
+    private final String healthCheckPath = null;
+    @Builder.Default
+    private final long healthCheckIntervalMillis = 5_000;
+    @Builder.Default
+    private final long healthCheckTimeoutMillis = 1_000;
+    @Builder.Default
+    private final int unhealthyThreshold = 2;
+    @Builder.Default
+    private final int healthyThreshold = 1;
+    @Builder.Default
+    private final double latencyQuantile = 0.95;
+    @Builder.Default
+    private final long latencyWindowMillis = 10_000;
+    @Builder.Default
+    private final int latencyMinSamples = 20;
+    @Builder.Default
+    private final boolean breakerEnabled = true;
+    @Builder.Default
+    private final int breakerFailureRateThreshold = 50;
+    @Builder.Default
+    private final int breakerSlowCallRateThreshold = 80;
+    @Builder.Default
+    private final long breakerSlowCallMillis = 0;
+    @Builder.Default
+    private final long breakerWindowMillis = 10_000;
+    @Builder.Default
+    private final int breakerMinimumCalls = 20;
+    @Builder.Default
+    private final long breakerOpenMillis = 10_000;
+    @Builder.Default
+    private final int breakerHalfOpenCalls = 3;
+    @Builder.Default
+    private final boolean limiterEnabled = false;
+    @Builder.Default
+    private final int limiterInitialLimit = 20;
+    @Builder.Default
+    private final int limiterMinLimit = 1;
+    @Builder.Default
+    private final int limiterMaxLimit = 200;
+    @Builder.Default
+    private final double limiterBackoffRatio = 0.9;
+    @Builder.Default
+    private final long limiterLatencyThresholdMillis = 0;
+    @Builder.Default
+    private final Clock clock = Clock.systemUTC();
+}
@@ -0,0 +1,140 @@
+package log.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import log.demo.thread.VirtualThreads;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ * 가상 스레드 모드 부하 테스트 (Java 21 이상, -DloadTest=true 일 때만 실행)
+ * 대상 서버가 upstreamDelayMillis 만큼 늦게 응답할 때 concurrency 개 요청이 동시에 대상 서버에 머무는지 본다.
+ * 플랫폼 스레드(Tomcat 기본 200개)라면 동시에 200개까지만 머문다.
+ * 기본 concurrency 는 2000 이고, 더 큰 값은 장비의 ulimit, heap 에 맞춰 -DloadTest.concurrency 로 준다.
+ * 모든 구성 요소가 한 JVM 에서 돌기 때문에 CPU 코어가 적으면 elapsed 에는 연결 생성 비용이 크게 섞인다.
+ * 요청 하나에 소켓 4개(클라이언트, Tomcat, 프록시 client, 대상 서버)를 쓰므로 ulimit -n 을 concurrency * 4 이상으로 둔다.
+ *
+ * ./gradlew test --tests VirtualThreadLoadTest -DloadTest=true -DloadTest.concurrency=20000 -DloadTest.maxHeap=4g
+ */
+@EnabledIf("log.demo.thread.VirtualThreads#isSupported")
+@EnabledIfSystemProperty(named = "loadTest", matches = "true")
+class VirtualThreadLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadTest.class);
+
+    //Tomcat 기본 max-threads
+    static final int PLATFORM_THREADS = 200;
+    static final int CONCURRENCY = Integer.getInteger("loadTest.concurrency", 2000);
+    static final int UPSTREAM_DELAY_MILLIS = Integer.getInteger("loadTest.upstreamDelayMillis", 2000);
+    //-DloadTest.virtual=false 로 같은 부하를 플랫폼 스레드에서 돌려 비교한다.
+    static final boolean VIRTUAL = Boolean.parseBoolean(System.getProperty("loadTest.virtual", "true"));
+
+    @Test
+    @DisplayName("느린 대상 서버로 가는 요청을 플랫폼 스레드 수보다 많이 동시에 처리한다")
+    void slowUpstreamConcurrency() throws Exception {
+        //given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ExecutorService upstreamExecutor = VirtualThreads.newPerTaskExecutor("upstream-");
+        HttpServer upstream = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), CONCURRENCY);
+        upstream.createContext("/", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(UPSTREAM_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            byte[] body = "{\"ok\":true}".getBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.setExecutor(upstreamExecutor);
+        upstream.start();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+            .run("--server.port=0",
+                "--log.destination.host=http://127.0.0.1:" + upstream.getAddress().getPort(),
+                "--log.thread.virtual.enabled=" + VIRTUAL,
+                "--log.async.enabled=true",
+                "--log.response.timeout=60000",
+                "--log.client.max-conn-total=" + CONCURRENCY,
+                "--log.client.max-conn-per-route=" + CONCURRENCY,
+                "--log.client.connection-request-timeout=60000",
+                "--server.tomcat.max-connections=-1",
+                "--server.tomcat.accept-count=" + CONCURRENCY);
+        String port = context.getEnvironment().getProperty("local.server.port");
+
+        ExecutorService clientExecutor = VirtualThreads.newPerTaskExecutor("client-");
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clientExecutor)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+        //첫 요청의 DispatcherServlet 초기화 등은 측정에서 뺀다.
+        client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/warmup"))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        maxInFlight.set(0);
+
+        //when
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://127.0.0.1:" + port + "/slow/" + i))
+                .timeout(Duration.ofSeconds(120))
+                .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        int succeeded = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            if (response.join().statusCode() == 200) {
+                succeeded++;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("virtual={}, concurrency={}, succeeded={}, maxInFlight={}, elapsed={}ms "
+                + "(platform threads {} would need about {}ms)",
+            VIRTUAL, CONCURRENCY, succeeded, maxInFlight.get(), elapsedMillis,
+            PLATFORM_THREADS,
+            (long) Math.ceil(CONCURRENCY / (double) PLATFORM_THREADS) * UPSTREAM_DELAY_MILLIS);
+        context.close();
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+        clientExecutor.shutdownNow();
+
+        //then
+        assertThat(succeeded).isEqualTo(CONCURRENCY);
+        if (VIRTUAL) {
+            //플랫폼 스레드 수를 넘어 대부분의 요청이 동시에 대상 서버에 머물렀다.
+            assertThat(maxInFlight.get()).isGreaterThan(PLATFORM_THREADS)
+                .isGreaterThan(CONCURRENCY / 2);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package log.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import log.demo.support.MutableClock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+
+class ResponseCacheTest {
+
+    private static final String KEY = "http://upstream/items/1";
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2022-12-01T00:00:00Z"));
+    private final List<MultiValueMap<String, String>> upstreamRequests = new ArrayList<>();
+
+    @Test
+    @DisplayName("max-age 동안은 대상 서버를 부르지 않고, 지나면 ETag 로 재검증해 304 면 저장된 body 로 응답한다")
+    void freshnessAndRevalidation() {
+        //given
+        ResponseCache cache = cache(false, 1024 * 1024);
+        Function<MultiValueMap<String, String>, ResponseEntity<byte[]>> upstream = headers -> {
+            upstreamRequests.add(headers);
+            if ("\"v1\"".equals(new HttpHeaders(headers).getFirst(HttpHeaders.IF_NONE_MATCH))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.CACHE_CONTROL, "max-age=60").eTag("\"v1\"").build();
+            }
+            return ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, "max-age=10")
+                .eTag("\"v1\"").body("item-1".getBytes());
+        };
+
+        //when
+        ResponseEntity<byte[]> miss = cache.exchange(HttpMethod.GET, KEY, new HttpHeaders(),
+            upstream);
+        clock.advance(5_000);
+        ResponseEntity<byte[]> hit = cache.exchange(HttpMethod.GET, KEY, new HttpHeaders(),
+            upstream);
+        clock.advance(10_000);
+        ResponseEntity<byte[]> revalidated = cache.exchange(HttpMethod.GET, KEY,
+            new HttpHeaders(), upstream);
+        clock.advance(30_000);
+        ResponseEntity<byte[]> hitAfterRevalidation = cache.exchange(HttpMethod.GET, KEY,
+            new HttpHeaders(), upstream);
+
+        //then
+        assertThat(upstreamRequests).hasSize(2);
+        assertThat(hit.getBody()).isSameAs(miss.getBody());
+        assertThat(hit.getHeaders().getFirst(HttpHeaders.AGE)).isEqualTo("5");
+        assertThat(revalidated.getStatusCode().value()).isEqualTo(200);
+        assertThat(new String(revalidated.getBody())).isEqualTo("item-1");
+        assertThat(hitAfterRevalidation.getHeaders().getFirst(HttpHeaders.AGE)).isEqualTo("30");
+        assertThat(cache.snapshot()).containsEntry("hits", 2L).containsEntry("revalidated", 1L)
+            .containsEntry("misses", 1L);
+    }
+
+    @Test
+    @DisplayName("no-store, private, Set-Cookie, validator 없는 no-cache 응답과 no-store 요청은 저장하지 않고, 성공한 POST 는 저장된 응답을 지운다")
+    void notStored() {
+        //given
+        ResponseCache cache = cache(true, 1024 * 1024);
+        HttpHeaders noStore = new HttpHeaders();
+        noStore.setCacheControl("no-store");
+
+        //when
+        cache.exchange(HttpMethod.GET, "/private", new HttpHeaders(),
+            upstream("private, max-age=60", null));
+        cache.exchange(HttpMethod.GET, "/no-store", new HttpHeaders(),
+            upstream("no-store", null));
+        cache.exchange(HttpMethod.GET, "/cookie", new HttpHeaders(),
+            upstream("max-age=60", "session=1"));
+        cache.exchange(HttpMethod.GET, "/no-cache", new HttpHeaders(),
+            upstream("no-cache", null));
+        cache.exchange(HttpMethod.GET, KEY, noStore, upstream("max-age=60", null));
+        cache.exchange(HttpMethod.GET, KEY, new HttpHeaders(), upstream("max-age=60", null));
+        ResponseEntity<byte[]> offHeapHit = cache.exchange(HttpMethod.GET, KEY,
+            new HttpHeaders(), upstream("max-age=60", null));
+        cache.exchange(HttpMethod.POST, KEY, new HttpHeaders(), upstream(null, null));
+
+        //then
+        assertThat(new String(offHeapHit.getBody())).isEqualTo("body");
+        assertThat(cache.snapshot()).containsEntry("stored", 1L).containsEntry("hits", 1L)
+            .containsEntry("bypassed", 1L).containsEntry("invalidated", 1L)
+            .containsEntry("entries", 0);
+    }
+
+    @Test
+    @DisplayName("전체 크기를 넘으면 가장 오래 쓰지 않은 응답부터 버린다")
+    void evictsLeastRecentlyUsed() {
+        //given
+        ResponseCache cache = cache(false, 300);
+        cache.exchange(HttpMethod.GET, "/a", new HttpHeaders(), upstream("max-age=60", null));
+        cache.exchange(HttpMethod.GET, "/b", new HttpHeaders(), upstream("max-age=60", null));
+        cache.exchange(HttpMethod.GET, "/a", new HttpHeaders(), upstream("max-age=60", null));
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            cache.exchange(HttpMethod.GET, "/c" + i, new HttpHeaders(),
+                upstream("max-age=60", null));
+            cache.exchange(HttpMethod.GET, "/a", new HttpHeaders(),
+                upstream("max-age=60", null));
+        }
+        upstreamRequests.clear();
+        cache.exchange(HttpMethod.GET, "/a", new HttpHeaders(), upstream("max-age=60", null));
+        cache.exchange(HttpMethod.GET, "/b", new HttpHeaders(), upstream("max-age=60", null));
+
+        //then
+        assertThat(upstreamRequests).hasSize(1);
+        assertThat((long) cache.snapshot().get("bytes")).isLessThanOrEqualTo(300);
+        assertThat((long) cache.snapshot().get("evicted")).isPositive();
+    }
+
+    private ResponseCache cache(boolean offHeap, long maxBytes) {
+        return new ResponseCache(ResponseCacheOptions.builder()
+            .maxBytes(maxBytes)
+            .offHeap(offHeap)
+            .clock(clock)
+            .build());
+    }
+
+    private Function<MultiValueMap<String, String>, ResponseEntity<byte[]>> upstream(
+        String cacheControl, String cookie) {
+        return headers -> {
+            upstreamRequests.add(headers);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (cacheControl != null) {
+                response.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+            }
+            if (cookie != null) {
+                response.header(HttpHeaders.SET_COOKIE, cookie);
+            }
+            return response.body("body".getBytes());
+        };
+    }
+
+}
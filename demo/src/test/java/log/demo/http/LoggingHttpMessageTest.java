@@ -3,10 +3,15 @@ package log.demo.http;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
+import com.fasterxml.jackson.databind.JsonNode;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import log.demo.http.json.JsonSupport;
+import net.logstash.logback.encoder.LogstashEncoder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -344,6 +349,55 @@ class LoggingHttpMessageTest {
         }
     }
 
+    @Test
+    @DisplayName("EXCHANGE 형식은 요청/응답을 request, response 객체를 가진 이벤트 하나로 남긴다")
+    void exchangeFormatTest() throws IOException {
+        //given
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+        mockRequest.setRequestURI("/exchange");
+        mockRequest.setMethod("POST");
+        mockRequest.setContentType("application/json");
+        mockRequest.setContent("{\"a\": 1}".getBytes(StandardCharsets.UTF_8));
+        ContentCachingRequestWrapper requestWrapper = new ContentCachingRequestWrapper(mockRequest);
+        requestWrapper.getInputStream().readAllBytes();
+
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        mockResponse.setContentType("application/json");
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(mockResponse);
+
+        LoggingHttpMessage loggingHttpMessage = new LoggingHttpMessage(requestWrapper, responseWrapper);
+        loggingHttpMessage.setRequestTimeMillis(100);
+        loggingHttpMessage.setCodeAndResBodyAndResTimeMillis(201, "{\"b\":2}", 130);
+        HttpLogOptions options = HttpLogOptions.builder().format(HttpLogFormat.EXCHANGE).build();
+
+        //when
+        new SyncHttpLogEmitter(options).emit(loggingHttpMessage.capture());
+
+        //then
+        List<ILoggingEvent> testLogs = listAppender.list;
+        assertThat(testLogs).hasSize(1);
+        assertThat(testLogs.get(0).getMessage()).isEqualTo("EXCHANGE");
+
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        encoder.start();
+        JsonNode json = JsonSupport.OBJECT_MAPPER.readTree(encoder.encode(testLogs.get(0)));
+        encoder.stop();
+
+        assertThat(json.get("path").asText()).isEqualTo("/exchange");
+        assertThat(json.get("url").asText()).isEqualTo("http://localhost/exchange");
+        JsonNode request = json.get("request");
+        assertThat(request.get("method").asText()).isEqualTo("POST");
+        assertThat(request.get("body").get("a").asInt()).isEqualTo(1);
+        assertThat(request.has("path")).isFalse();
+        JsonNode response = json.get("response");
+        assertThat(response.get("status-code").asText()).isEqualTo("201 CREATED");
+        assertThat(response.get("turnaround-time").asLong()).isEqualTo(30);
+        assertThat(response.get("body").get("b").asInt()).isEqualTo(2);
+        assertThat(response.get("code-type").asText()).isEqualTo("2XX");
+        assertThat(response.has("url")).isFalse();
+    }
+
     Tuple getKeyValue(String arg) {
         int idx = arg.indexOf('=');
         String key = "";
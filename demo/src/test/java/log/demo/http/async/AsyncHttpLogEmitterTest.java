@@ -0,0 +1,111 @@
+package log.demo.http.async;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import log.demo.http.HttpLogEmitter;
+import log.demo.http.dto.HttpExchangeDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AsyncHttpLogEmitterTest {
+
+    @Test
+    @DisplayName("큐에 넣은 로그는 writer 스레드가 모두 찍는다")
+    void writesAllPublishedExchanges() {
+        //given
+        List<String> written = new CopyOnWriteArrayList<>();
+        HttpLogEmitter delegate = exchange -> written.add(exchange.getRequestId());
+        AsyncHttpLogEmitter emitter = new AsyncHttpLogEmitter(delegate, 16, 4,
+            OverflowPolicy.BLOCK, 1);
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            emitter.emit(exchange(String.valueOf(i)));
+        }
+        emitter.close();
+
+        //then
+        assertThat(written).hasSize(100);
+        assertThat(written.get(0)).isEqualTo("0");
+        assertThat(written.get(99)).isEqualTo("99");
+        assertThat(emitter.getPublishedCount()).isEqualTo(100);
+        assertThat(emitter.getWrittenCount()).isEqualTo(100);
+        assertThat(emitter.getDroppedCount()).isZero();
+        assertThat(emitter.getQueueDepth()).isZero();
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST - 큐가 가득 차면 가장 오래된 로그를 버린다")
+    void dropOldestWhenFull() throws InterruptedException {
+        //given
+        CountDownLatch blockWriter = new CountDownLatch(1);
+        CountDownLatch writerStarted = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        HttpLogEmitter delegate = exchange -> {
+            writerStarted.countDown();
+            try {
+                blockWriter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(exchange.getRequestId());
+        };
+        AsyncHttpLogEmitter emitter = new AsyncHttpLogEmitter(delegate, 2, 1,
+            OverflowPolicy.DROP_OLDEST, 1);
+
+        //when
+        emitter.emit(exchange("blocked"));
+        assertThat(writerStarted.await(1, TimeUnit.SECONDS)).isTrue();
+        emitter.emit(exchange("1"));
+        emitter.emit(exchange("2"));
+        emitter.emit(exchange("3"));
+        blockWriter.countDown();
+        emitter.close();
+
+        //then
+        assertThat(written).containsExactly("blocked", "2", "3");
+        assertThat(emitter.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("SAMPLE - 큐가 절반 이상 차면 N 개 중 1 개만 넣는다")
+    void sampleUnderPressure() throws InterruptedException {
+        //given
+        CountDownLatch blockWriter = new CountDownLatch(1);
+        CountDownLatch writerStarted = new CountDownLatch(1);
+        HttpLogEmitter delegate = exchange -> {
+            writerStarted.countDown();
+            try {
+                blockWriter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AsyncHttpLogEmitter emitter = new AsyncHttpLogEmitter(delegate, 4, 1,
+            OverflowPolicy.SAMPLE, 2);
+
+        //when
+        emitter.emit(exchange("blocked"));
+        assertThat(writerStarted.await(1, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 6; i++) {
+            emitter.emit(exchange(String.valueOf(i)));
+        }
+
+        //then
+        //2 개는 그냥 들어가고, 이후 4 개 중 절반만 들어간다.
+        assertThat(emitter.getQueueDepth()).isEqualTo(4);
+        assertThat(emitter.getDroppedCount()).isEqualTo(2);
+        blockWriter.countDown();
+        emitter.close();
+    }
+
+    private HttpExchangeDTO exchange(String requestId) {
+        return HttpExchangeDTO.builder()
+            .requestId(requestId)
+            .build();
+    }
+}
@@ -0,0 +1,92 @@
+package log.demo.http.encoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BodyDecoderTest {
+
+    byte[] original = body();
+
+    @Test
+    @DisplayName("잘라 둔 gzip 앞부분은 푼 데까지 돌려주고, 끝까지 있으면 complete")
+    void gzipPrefix() throws IOException {
+        //given
+        byte[] gzip = gzip(original);
+        byte[] prefix = Arrays.copyOf(gzip, gzip.length / 2);
+
+        //when
+        BodyDecoder.Decoded whole = BodyDecoder.decode(gzip, "gzip", 1024 * 1024);
+        BodyDecoder.Decoded partial = BodyDecoder.decode(prefix, "gzip", 1024 * 1024);
+
+        //then
+        assertThat(whole.complete()).isTrue();
+        assertThat(whole.body()).isEqualTo(original);
+        assertThat(partial.complete()).isFalse();
+        assertThat(partial.body()).isNotEmpty();
+        assertThat(partial.body()).isEqualTo(Arrays.copyOf(original, partial.body().length));
+    }
+
+    @Test
+    @DisplayName("deflate 는 zlib 과 raw 를 모두 풀고, 푼 크기는 maxBytes 까지만 만든다")
+    void deflateAndLimit() throws IOException {
+        //when
+        BodyDecoder.Decoded zlib = BodyDecoder.decode(deflate(original, false), "deflate",
+            1024 * 1024);
+        BodyDecoder.Decoded raw = BodyDecoder.decode(deflate(original, true), "deflate",
+            1024 * 1024);
+        BodyDecoder.Decoded limited = BodyDecoder.decode(gzip(original), "x-gzip", 100);
+
+        //then
+        assertThat(zlib.body()).isEqualTo(original);
+        assertThat(raw.body()).isEqualTo(original);
+        assertThat(limited.complete()).isFalse();
+        assertThat(limited.body()).isEqualTo(Arrays.copyOf(original, 100));
+    }
+
+    @Test
+    @DisplayName("풀 수 없는 encoding 과 깨진 body 는 null, identity 는 encoding 이 없는 것으로 본다")
+    void unsupported() throws IOException {
+        assertThat(BodyDecoder.decode(original, "br", 1024)).isNull();
+        assertThat(BodyDecoder.decode(original, "gzip", 1024)).isNull();
+        assertThat(BodyDecoder.decode(gzip(original), "gzip, br", 1024)).isNull();
+        assertThat(BodyDecoder.normalize(" GZIP ")).isEqualTo("gzip");
+        assertThat(BodyDecoder.normalize("identity")).isNull();
+        assertThat(BodyDecoder.normalize(null)).isNull();
+    }
+
+    private static byte[] body() {
+        StringBuilder builder = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < 2000; i++) {
+            builder.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i * 7919)
+                .append("\"},");
+        }
+        builder.append("{}]}");
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] body, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out,
+            new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(body);
+        }
+        return out.toByteArray();
+    }
+}
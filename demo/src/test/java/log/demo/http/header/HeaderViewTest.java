@@ -0,0 +1,79 @@
+package log.demo.http.header;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class HeaderViewTest {
+
+    @Test
+    @DisplayName("hop-by-hop 헤더와 Connection 에 나열된 헤더는 빠진다")
+    void stripHopByHopHeaders() {
+        //given
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+        mockRequest.addHeader("Accept", "application/json");
+        mockRequest.addHeader("Connection", "keep-alive, X-Trace-Hop");
+        mockRequest.addHeader("Keep-Alive", "timeout=5");
+        mockRequest.addHeader("Proxy-Connection", "keep-alive");
+        mockRequest.addHeader("TE", "trailers");
+        mockRequest.addHeader("Upgrade", "h2c");
+        mockRequest.addHeader("Transfer-Encoding", "chunked");
+        mockRequest.addHeader("X-Trace-Hop", "1");
+        mockRequest.addHeader("X-Forwarded-For", "10.0.0.1");
+        mockRequest.addHeader("X-Forwarded-For", "10.0.0.2");
+
+        //when
+        HeaderView headerView = HeaderView.of(mockRequest);
+
+        //then
+        assertThat(headerView).containsOnlyKeys("Accept", "X-Forwarded-For");
+        assertThat(headerView.get("x-forwarded-for")).containsExactly("10.0.0.1", "10.0.0.2");
+        assertThat(headerView.getFirst("accept")).isEqualTo("application/json");
+        assertThat(headerView.toString())
+            .isEqualTo("{Accept=[application/json], X-Forwarded-For=[10.0.0.1, 10.0.0.2]}");
+        assertThat(HeaderView.isHopByHopHeader("proxy-connection")).isTrue();
+        assertThat(HeaderView.isHopByHopHeader("X-Trace-Hop")).isFalse();
+    }
+
+    @Test
+    @DisplayName("같은 요청에서는 한 번 만든 view 를 공유하고, 수정할 수 없다")
+    void sharedAndReadOnly() {
+        //given
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+        mockRequest.addHeader("Accept", "application/json");
+
+        //when
+        HeaderView first = HeaderView.from(mockRequest);
+        HeaderView second = HeaderView.from(mockRequest);
+
+        //then
+        assertThat(second).isSameAs(first);
+        assertThatThrownBy(() -> first.add("Accept", "text/plain"))
+            .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> first.remove("Accept"))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("HttpHeaders 로 감싸도 대소문자 구분 없이 읽힌다")
+    void readableThroughHttpHeaders() {
+        //given
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+        mockRequest.addHeader("content-length", "10");
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        mockResponse.addHeader("Content-Type", "text/plain");
+
+        //when
+        HttpHeaders requestHeaders = HttpHeaders.readOnlyHttpHeaders(HeaderView.of(mockRequest));
+        HeaderView responseHeaders = HeaderView.of(mockResponse);
+
+        //then
+        assertThat(requestHeaders.getContentLength()).isEqualTo(10);
+        assertThat(responseHeaders.getFirst("content-type")).isEqualTo("text/plain");
+    }
+}
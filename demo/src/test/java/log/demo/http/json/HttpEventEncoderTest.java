@@ -0,0 +1,146 @@
+package log.demo.http.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import log.demo.http.HttpLogOptions;
+import log.demo.http.LoggingHttpMessage;
+import log.demo.http.dto.HttpExchangeDTO;
+import log.demo.http.time.TimestampPrecision;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+class HttpEventEncoderTest {
+
+    ListAppender<ILoggingEvent> listAppender;
+    Logger logger;
+    LogstashEncoder logstashEncoder;
+    HttpEventEncoder httpEventEncoder;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        listAppender = new ListAppender<>();
+        logger = (Logger) LoggerFactory.getLogger("HTTP");
+        logger.addAppender(listAppender);
+        listAppender.start();
+
+        logstashEncoder = new LogstashEncoder();
+        logstashEncoder.setContext(context);
+        logstashEncoder.start();
+        httpEventEncoder = new HttpEventEncoder();
+        httpEventEncoder.setContext(context);
+        httpEventEncoder.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(listAppender);
+        logstashEncoder.stop();
+        httpEventEncoder.stop();
+        MDC.clear();
+    }
+
+    @Test
+    @DisplayName("REQUEST, RESPONSE, EXCHANGE 이벤트를 LogstashEncoder 와 같은 바이트로 인코딩한다")
+    void sameBytesAsLogstashEncoder() throws IOException {
+        //given
+        HttpLogOptions options = HttpLogOptions.builder()
+            .timestampPrecision(TimestampPrecision.ISO_MILLIS)
+            .build();
+        MDC.put("trace-id", "abc");
+
+        //when
+        for (HttpExchangeDTO exchange : List.of(exchange("application/json", "{\"a\": [1, \"김\"]}"),
+            exchange("text/plain", "line1\n\"quoted\"\t\u0001 한글"))) {
+            LoggingHttpMessage.logHttpRequest(exchange, options);
+            LoggingHttpMessage.logHttpResponse(exchange, options);
+            LoggingHttpMessage.logHttpExchange(exchange, options);
+        }
+
+        //then
+        assertThat(listAppender.list).hasSize(6);
+        for (ILoggingEvent event : listAppender.list) {
+            assertThat(new String(httpEventEncoder.encode(event), StandardCharsets.UTF_8))
+                .isEqualTo(new String(logstashEncoder.encode(event), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("버퍼를 재사용해도 이전 이벤트가 섞이지 않고, 예외가 붙은 이벤트도 같은 바이트로 인코딩한다")
+    void reuseAndFallback() throws IOException {
+        //given
+        HttpExchangeDTO large = exchange("text/plain", "x".repeat(300_000));
+        HttpExchangeDTO small = exchange("text/plain", "y");
+
+        //when
+        LoggingHttpMessage.logHttpRequest(large);
+        LoggingHttpMessage.logHttpRequest(small);
+        LoggingHttpMessage.logHttpRequest(small);
+        logger.warn("failed", new IllegalStateException("boom"));
+
+        //then
+        for (ILoggingEvent event : listAppender.list) {
+            assertThat(httpEventEncoder.encode(event)).isEqualTo(logstashEncoder.encode(event));
+        }
+    }
+
+    private HttpExchangeDTO exchange(String contentType, String body) {
+        MultiValueMap<String, String> requestHeaders = new LinkedMultiValueMap<>();
+        requestHeaders.add("Host", "localhost:5237");
+        requestHeaders.add("Accept", "application/json");
+        requestHeaders.add("Accept", "text/plain");
+        requestHeaders.add("Content-Type", contentType);
+        MultiValueMap<String, String> responseHeaders = new LinkedMultiValueMap<>();
+        responseHeaders.add("Content-Type", contentType);
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("page", "1");
+        parameters.put("empty", null);
+        Map<String, Double> phaseMicros = new LinkedHashMap<>();
+        phaseMicros.put("first-byte", 120.5);
+        phaseMicros.put("total", 3000.0);
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return HttpExchangeDTO.builder()
+            .requestId("7")
+            .method("POST")
+            .path("/api/orders")
+            .requestHeaders(requestHeaders)
+            .parameters(parameters)
+            .requestBody(bytes)
+            .requestBodyLength(bytes.length)
+            .requestCharset(StandardCharsets.UTF_8.name())
+            .requestContentType(contentType)
+            .protocol("HTTP/1.1")
+            .url("http://localhost:5237/api/orders")
+            .remoteIp("127.0.0.1")
+            .remoteHost("localhost")
+            .remotePort(50000)
+            .requestTimeMillis(1672197043120L)
+            .statusCode(201)
+            .responseHeaders(responseHeaders)
+            .responseBody(body)
+            .responseBodyLength(bytes.length)
+            .responseContentType(contentType)
+            .responseTimeMillis(1672197043123L)
+            .phaseMicros(phaseMicros)
+            .sampleRate(0.5)
+            .sampleRule("default")
+            .build();
+    }
+}
@@ -0,0 +1,46 @@
+package log.demo.http.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class JsonSupportTest {
+
+    @Test
+    @DisplayName("JSON object 는 공백을 뺀 문자열로 돌려준다")
+    void compactObject() {
+        //given
+        String body = "{\n  \"name\": \"kim\",\n  \"age\": 20,\n  \"tags\": [1, 2, {\"a\": null}]\n}";
+
+        //when
+        String compact = JsonSupport.compactObjectOrNull(body);
+
+        //then
+        assertThat(compact).isEqualTo("{\"name\":\"kim\",\"age\":20,\"tags\":[1,2,{\"a\":null}]}");
+    }
+
+    @Test
+    @DisplayName("UTF-8 byte[] 를 바로 파싱한다")
+    void compactObjectFromBytes() {
+        //given
+        byte[] body = "{\"name\": \"김\"}".getBytes(StandardCharsets.UTF_8);
+
+        //when
+        String compact = JsonSupport.compactObjectOrNull(body, "UTF-8");
+
+        //then
+        assertThat(compact).isEqualTo("{\"name\":\"김\"}");
+    }
+
+    @Test
+    @DisplayName("JSON object 가 아니면 null")
+    void notAnObject() {
+        assertThat(JsonSupport.compactObjectOrNull("")).isNull();
+        assertThat(JsonSupport.compactObjectOrNull("plain text")).isNull();
+        assertThat(JsonSupport.compactObjectOrNull("[1, 2]")).isNull();
+        assertThat(JsonSupport.compactObjectOrNull("{\"a\": 1")).isNull();
+        assertThat(JsonSupport.compactObjectOrNull("{\"a\": 1} {\"b\": 2}")).isNull();
+    }
+}
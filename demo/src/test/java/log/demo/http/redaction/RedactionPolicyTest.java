@@ -0,0 +1,87 @@
+package log.demo.http.redaction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import log.demo.http.json.JsonSupport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+class RedactionPolicyTest {
+
+    private final RedactionPolicy policy = RedactionPolicy.of("Authorization,Cookie",
+        "password,token", "$.card.number,$.items[*].secret,$..password");
+
+    @Test
+    @DisplayName("헤더와 파라미터는 이름으로(대소문자 무시) 가리고, 가릴 것이 없으면 원래 인스턴스를 돌려준다")
+    void headersAndParameters() {
+        //given
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.put("authorization", List.of("Bearer abc"));
+        headers.put("Accept", List.of("application/json"));
+        MultiValueMap<String, String> plainHeaders = new LinkedMultiValueMap<>();
+        plainHeaders.add("Accept", "text/plain");
+        Map<String, String> parameters = Map.of("Password", "secret", "page", "1");
+
+        //when
+        MultiValueMap<String, String> redactedHeaders = policy.redactHeaders(headers);
+        Map<String, String> redactedParameters = policy.redactParameters(parameters);
+
+        //then
+        assertThat(redactedHeaders.get("authorization")).containsExactly(RedactionPolicy.MASK);
+        assertThat(redactedHeaders.get("Accept")).containsExactly("application/json");
+        assertThat(policy.redactHeaders(plainHeaders)).isSameAs(plainHeaders);
+        assertThat(redactedParameters).containsEntry("Password", RedactionPolicy.MASK)
+            .containsEntry("page", "1");
+        assertThat(policy.redactForm("user=kim&password=1234&token=x"))
+            .isEqualTo("user=kim&password=***&token=***");
+        assertThat(policy.redactForm("user=kim")).isEqualTo("user=kim");
+        assertThat(policy.redactForm("user=kim&p%61ssword=1234&%54oken=x"))
+            .isEqualTo("user=kim&p%61ssword=***&%54oken=***");
+    }
+
+    @Test
+    @DisplayName("JSON body 는 압축하는 토큰 패스에서 경로, 배열 원소, 모든 깊이의 필드 값을 가린다")
+    void jsonPaths() {
+        //given
+        String body = "{ \"card\": {\"number\": \"4111\", \"owner\": \"kim\"},"
+            + " \"items\": [{\"secret\": {\"a\": 1}, \"id\": 1}, {\"id\": 2}],"
+            + " \"user\": {\"profile\": {\"password\": \"p\"}}, \"number\": 7 }";
+
+        //when
+        String compact = JsonSupport.compactObjectOrNull(body, policy);
+
+        //then
+        assertThat(compact).isEqualTo("{\"card\":{\"number\":\"***\",\"owner\":\"kim\"},"
+            + "\"items\":[{\"secret\":\"***\",\"id\":1},{\"id\":2}],"
+            + "\"user\":{\"profile\":{\"password\":\"***\"}},\"number\":7}");
+        assertThat(JsonSupport.compactObjectOrNull(body, RedactionPolicy.none()))
+            .contains("\"4111\"");
+        assertThatThrownBy(() -> RedactionPolicy.of(null, null, "card.number"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("잘린 JSON body 는 읽은 데까지만 가려서 남긴다")
+    void truncatedJson() {
+        //given
+        String truncated = "{\"id\":1,\"password\":\"1234\",\"card\":{\"number\":\"41";
+
+        //when
+        String text = JsonSupport.redactJsonText(truncated, policy);
+
+        //then
+        assertThat(JsonSupport.compactObjectOrNull(truncated, policy)).isNull();
+        assertThat(text).startsWith("{\"id\":1,\"password\":\"***\",\"card\":{\"number\":")
+            .doesNotContain("41");
+        //JSON 으로 시작하지 않으면 어디를 가려야 할지 모르므로 모두 가린다.
+        assertThat(JsonSupport.redactJsonText("plain text", policy))
+            .isEqualTo(RedactionPolicy.MASK);
+        assertThat(JsonSupport.redactJsonText("password=1234 {\"password\":\"1234\"}", policy))
+            .isEqualTo(RedactionPolicy.MASK);
+    }
+}
@@ -0,0 +1,101 @@
+package log.demo.http.sampling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SamplingPolicyTest {
+
+    @Test
+    @DisplayName("rule 문자열 - path 패턴, status class, status 코드")
+    void parseRule() {
+        SamplingRule hot2xx = SamplingRule.parse("/api/hot/**@2xx:0.01");
+        assertThat(hot2xx.matches("/api/hot/items/1", 200)).isTrue();
+        assertThat(hot2xx.matches("/api/hot/items/1", 500)).isFalse();
+        assertThat(hot2xx.matches("/api/cold", 200)).isFalse();
+        assertThat(hot2xx.getRate()).isEqualTo(0.01);
+
+        SamplingRule all5xx = SamplingRule.parse("@5xx:1");
+        assertThat(all5xx.matches("/anything", 503)).isTrue();
+        assertThat(all5xx.matches("/anything", 404)).isFalse();
+
+        SamplingRule notFound = SamplingRule.parse("/api/**@404:0");
+        assertThat(notFound.matches("/api/x", 404)).isTrue();
+        assertThat(notFound.matches("/api/x", 400)).isFalse();
+    }
+
+    @Test
+    @DisplayName("5xx 와 느린 요청은 항상 남기고, hot path 의 2xx 는 rate 만큼만 남긴다")
+    void rulesAndSlowRequests() {
+        //given
+        SamplingPolicy policy = SamplingPolicy.of("@5xx:1,/api/hot/**@2xx:0.01", 1.0, 1000, 0);
+
+        //when
+        int sampled = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (policy.decide("/api/hot/items", 200, 1_000_000).isSampled()) {
+                sampled++;
+            }
+        }
+        SamplingDecision error = policy.decide("/api/hot/items", 500, 1_000_000);
+        SamplingDecision slow = policy.decide("/api/hot/items", 200, 2_000_000_000L);
+        SamplingDecision other = policy.decide("/api/cold", 200, 1_000_000);
+
+        //then
+        assertThat(sampled).isBetween(700, 1300);
+        assertThat(error.isSampled()).isTrue();
+        assertThat(error.getRule()).isEqualTo("@5xx");
+        assertThat(slow.isSampled()).isTrue();
+        assertThat(slow.getRule()).isEqualTo("slow");
+        assertThat(other.isSampled()).isTrue();
+        assertThat(other.getRule()).isEqualTo("default");
+        assertThat(other.getRate()).isEqualTo(1.0);
+        assertThat(policy.snapshot()).containsEntry("sampled", sampled + 3L);
+    }
+
+    @Test
+    @DisplayName("token bucket 을 넘는 요청은 버리고, 다음 구간의 rate 에 허용 비율을 반영한다")
+    void rateLimit() throws InterruptedException {
+        //given
+        SamplingPolicy policy = SamplingPolicy.of("", 1.0, 0, 20);
+
+        //when
+        int sampled = 0;
+        for (int i = 0; i < 100; i++) {
+            if (policy.decide("/api", 200, 0).isSampled()) {
+                sampled++;
+            }
+        }
+        Thread.sleep(1100);
+        SamplingDecision next = policy.decide("/api", 200, 0);
+
+        //then
+        assertThat(sampled).isEqualTo(10);
+        assertThat(policy.snapshot()).containsEntry("dropped-by-rate-limit", 90L);
+        assertThat(next.isSampled()).isTrue();
+        assertThat(next.getRate()).isCloseTo(0.1, within(0.01));
+    }
+
+    @Test
+    @DisplayName("token bucket 이 비어도 5xx 와 느린 요청은 남긴다")
+    void forcedRulesBypassRateLimit() {
+        //given
+        SamplingPolicy policy = SamplingPolicy.of("@5xx:1", 1.0, 1000, 2);
+        policy.decide("/api", 200, 0);
+        SamplingDecision limited = policy.decide("/api", 200, 0);
+
+        //when
+        SamplingDecision error = policy.decide("/api", 503, 0);
+        SamplingDecision slow = policy.decide("/api", 200, 2_000_000_000L);
+
+        //then
+        assertThat(limited.isSampled()).isFalse();
+        assertThat(error.isSampled()).isTrue();
+        assertThat(error.getRate()).isEqualTo(1.0);
+        assertThat(slow.isSampled()).isTrue();
+        assertThat(policy.snapshot()).containsEntry("sampled-bypassing-rate-limit", 2L)
+            .containsEntry("dropped-by-rate-limit", 1L);
+    }
+}
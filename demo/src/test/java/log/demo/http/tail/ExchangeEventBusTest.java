@@ -0,0 +1,80 @@
+package log.demo.http.tail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import log.demo.http.dto.HttpExchangeDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ExchangeEventBusTest {
+
+    @Test
+    @DisplayName("구독자마다 path prefix, status class, 최소 latency 로 걸러서 받는다")
+    void filtersPerSubscriber() throws InterruptedException {
+        //given
+        ExchangeEventBus bus = new ExchangeEventBus(4);
+        Subscription all = bus.subscribe(TailFilter.all(), 16);
+        Subscription failedOrders = bus.subscribe(TailFilter.of("/orders", "5xx", 0), 16);
+        Subscription slow = bus.subscribe(TailFilter.of(null, null, 500), 16);
+
+        //when
+        bus.publish(exchange("1", "/orders/1", 200, 10));
+        bus.publish(exchange("2", "/orders/2", 503, 10));
+        bus.publish(exchange("3", "/items", 500, 800));
+
+        //then
+        assertThat(drain(all)).isEqualTo("123");
+        assertThat(drain(failedOrders)).isEqualTo("2");
+        assertThat(drain(slow)).isEqualTo("3");
+        assertThatThrownBy(() -> TailFilter.of(null, "9xx", 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("buffer 가 가득 찬 구독자 몫은 버리고, 다른 구독자와 publish 는 기다리지 않는다")
+    void dropsForSlowSubscriber() throws InterruptedException {
+        //given
+        ExchangeEventBus bus = new ExchangeEventBus(2);
+        Subscription slow = bus.subscribe(TailFilter.all(), 2);
+        Subscription fast = bus.subscribe(TailFilter.all(), 16);
+
+        //when
+        for (int i = 0; i < 5; i++) {
+            bus.publish(exchange(String.valueOf(i), "/orders", 200, 10));
+        }
+
+        //then
+        assertThat(drain(slow)).isEqualTo("01");
+        assertThat(slow.getDroppedCount()).isEqualTo(3);
+        assertThat(drain(fast)).isEqualTo("01234");
+        assertThat(fast.getDroppedCount()).isZero();
+        assertThatThrownBy(() -> bus.subscribe(TailFilter.all(), 2))
+            .isInstanceOf(IllegalStateException.class);
+
+        slow.close();
+        assertThat(bus.getSubscriberCount()).isEqualTo(1);
+        assertThat(bus.snapshot()).containsEntry("dropped", 0L).containsEntry("delivered", 5L);
+    }
+
+    private String drain(Subscription subscription) throws InterruptedException {
+        StringBuilder requestIds = new StringBuilder();
+        HttpExchangeDTO exchange;
+        while ((exchange = subscription.poll(0, TimeUnit.MILLISECONDS)) != null) {
+            requestIds.append(exchange.getRequestId());
+        }
+        return requestIds.toString();
+    }
+
+    private HttpExchangeDTO exchange(String requestId, String path, int statusCode,
+        long latencyMillis) {
+        return HttpExchangeDTO.builder()
+            .requestId(requestId)
+            .path(path)
+            .statusCode(statusCode)
+            .requestTimeMillis(1000)
+            .responseTimeMillis(1000 + latencyMillis)
+            .build();
+    }
+}
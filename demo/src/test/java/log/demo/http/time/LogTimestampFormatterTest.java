@@ -0,0 +1,75 @@
+package log.demo.http.time;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import log.demo.constant.DatePatternConst;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LogTimestampFormatterTest {
+
+    @Test
+    @DisplayName("기존 Timestamp 변환과 같은 문자열을 만든다")
+    void sameAsLegacyFormat() {
+        //given
+        LogTimestampFormatter formatter = new LogTimestampFormatter(ZoneId.systemDefault());
+        long epochMillis = 1672196443123L;
+
+        //when
+        String formatted = formatter.format(epochMillis);
+
+        //then
+        String legacy = new Timestamp(epochMillis).toLocalDateTime()
+            .format(DateTimeFormatter.ofPattern(DatePatternConst.LogTimeStampPattern));
+        assertThat(formatted).isEqualTo(legacy);
+        assertThat(formatter.format(epochMillis + 500)).isEqualTo(legacy);
+    }
+
+    @Test
+    @DisplayName("ISO-8601 밀리초 포맷")
+    void isoMillis() {
+        //given
+        LogTimestampFormatter formatter = new LogTimestampFormatter(ZoneOffset.ofHours(9));
+
+        //when && then
+        assertThat(formatter.formatIsoMillis(1672197043123L))
+            .isEqualTo("2022-12-28T12:10:43.123+09:00");
+        assertThat(formatter.formatIsoMillis(1672197043007L))
+            .isEqualTo("2022-12-28T12:10:43.007+09:00");
+        assertThat(formatter.formatIsoMillis(1672197044050L))
+            .isEqualTo("2022-12-28T12:10:44.050+09:00");
+        assertThat(new LogTimestampFormatter(ZoneOffset.UTC).formatIsoMillis(0))
+            .isEqualTo("1970-01-01T00:00:00.000Z");
+    }
+
+    @Test
+    @DisplayName("precision 별 값")
+    void preciseValue() {
+        LogTimestampFormatter formatter = new LogTimestampFormatter(ZoneOffset.UTC);
+
+        assertThat(formatter.preciseValue(TimestampPrecision.NONE, 1000)).isNull();
+        assertThat(formatter.preciseValue(TimestampPrecision.EPOCH_MILLIS, 1000)).isEqualTo(1000L);
+        assertThat(formatter.preciseValue(TimestampPrecision.ISO_MILLIS, 1000))
+            .isEqualTo("1970-01-01T00:00:01.000Z");
+    }
+
+    @Test
+    @DisplayName("ISO_OFFSET_DATE_TIME 과 같은 문자열을 만든다")
+    void isoOffset() {
+        for (ZoneId zoneId : new ZoneId[]{ZoneOffset.UTC, ZoneOffset.ofHours(9),
+            ZoneId.of("America/St_Johns")}) {
+            LogTimestampFormatter formatter = new LogTimestampFormatter(zoneId);
+            DateTimeFormatter iso = DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(zoneId);
+            for (long epochMillis : new long[]{0, 1672197043000L, 1672197043100L,
+                1672197043120L, 1672197043123L, 1672197043007L, 1672197043050L}) {
+                assertThat(formatter.formatIsoOffset(epochMillis))
+                    .isEqualTo(iso.format(Instant.ofEpochMilli(epochMillis)));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package log.demo.http.wrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class BodyCapturePolicyTest {
+
+    BodyCapturePolicy policy = BodyCapturePolicy.of(8, 16,
+        "application/json:32,text/*:4,text/plain:6", "", BodyCapturePolicy.DEFAULT_DENY_TYPES);
+
+    @Test
+    @DisplayName("Content-Type 별 제한이 방향별 기본값보다 우선한다")
+    void contentTypeLimit() {
+        assertThat(policy.requestLimit("application/json")).isEqualTo(32);
+        assertThat(policy.responseLimit("application/json;charset=UTF-8")).isEqualTo(32);
+        assertThat(policy.requestLimit("text/html")).isEqualTo(4);
+        assertThat(policy.requestLimit("text/plain")).isEqualTo(6);
+        assertThat(policy.requestLimit("application/xml")).isEqualTo(8);
+        assertThat(policy.responseLimit("application/xml")).isEqualTo(16);
+        assertThat(policy.responseLimit(null)).isEqualTo(16);
+    }
+
+    @Test
+    @DisplayName("deny 목록과 allow 목록")
+    void allowAndDeny() {
+        assertThat(policy.responseLimit("image/png")).isZero();
+        assertThat(policy.requestLimit("multipart/form-data; boundary=abc")).isZero();
+        assertThat(policy.responseLimit("application/octet-stream")).isZero();
+
+        BodyCapturePolicy allowOnlyJson = BodyCapturePolicy.of(8, 8, "", "application/json", "");
+        assertThat(allowOnlyJson.requestLimit("application/json")).isEqualTo(8);
+        assertThat(allowOnlyJson.requestLimit("text/plain")).isZero();
+    }
+
+    @Test
+    @DisplayName("요청 body 는 제한 길이까지만 남기고 전체 길이를 기록한다")
+    void boundedRequest() throws IOException {
+        //given
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+        mockRequest.setContent("0123456789".getBytes(StandardCharsets.UTF_8));
+        BoundedRequestWrapper requestWrapper = new BoundedRequestWrapper(mockRequest, 4);
+
+        //when
+        byte[] read = requestWrapper.getInputStream().readAllBytes();
+
+        //then
+        assertThat(new String(read, StandardCharsets.UTF_8)).isEqualTo("0123456789");
+        assertThat(new String(requestWrapper.getContentAsByteArray(), StandardCharsets.UTF_8))
+            .isEqualTo("0123");
+        assertThat(requestWrapper.getTotalBytes()).isEqualTo(10);
+        assertThat(requestWrapper.isTruncated()).isTrue();
+    }
+
+    @Test
+    @DisplayName("form POST 는 컨테이너가 파라미터로 읽은 body 를 name=value 로 다시 만들어 제한 길이까지 남긴다")
+    void boundedFormRequest() {
+        //given
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest("POST", "/login");
+        mockRequest.setContentType("application/x-www-form-urlencoded");
+        mockRequest.addParameter("user", "kim lee");
+        mockRequest.addParameter("password", "1234");
+        BoundedRequestWrapper requestWrapper = new BoundedRequestWrapper(mockRequest, 20);
+
+        //when
+        String user = requestWrapper.getParameter("user");
+        requestWrapper.getParameterMap();
+
+        //then
+        assertThat(user).isEqualTo("kim lee");
+        assertThat(new String(requestWrapper.getContentAsByteArray(), StandardCharsets.UTF_8))
+            .isEqualTo("user=kim+lee&passwor");
+        assertThat(requestWrapper.getTotalBytes()).isEqualTo(26);
+        assertThat(requestWrapper.isTruncated()).isTrue();
+    }
+
+    @Test
+    @DisplayName("응답 body 는 그대로 흘려보내고 Content-Type 제한 길이까지만 남긴다")
+    void teeResponse() throws IOException {
+        //given
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        TeeResponseWrapper responseWrapper = new TeeResponseWrapper(mockResponse, policy);
+        responseWrapper.setContentType("text/plain");
+
+        //when
+        responseWrapper.getOutputStream().write("0123456789".getBytes(StandardCharsets.UTF_8));
+        responseWrapper.flushBuffer();
+
+        //then
+        assertThat(mockResponse.getContentAsString()).isEqualTo("0123456789");
+        assertThat(new String(responseWrapper.getContentAsByteArray(), StandardCharsets.UTF_8))
+            .isEqualTo("012345");
+        assertThat(responseWrapper.getTotalBytes()).isEqualTo(10);
+        assertThat(responseWrapper.isTruncated()).isTrue();
+    }
+
+    @Test
+    @DisplayName("deny 된 응답은 아무것도 남기지 않는다")
+    void deniedResponse() throws IOException {
+        //given
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        TeeResponseWrapper responseWrapper = new TeeResponseWrapper(mockResponse, policy);
+        responseWrapper.setContentType("image/png");
+
+        //when
+        responseWrapper.getOutputStream().write(new byte[100]);
+
+        //then
+        assertThat(mockResponse.getContentAsByteArray()).hasSize(100);
+        assertThat(responseWrapper.getContentAsByteArray()).isEmpty();
+        assertThat(responseWrapper.getTotalBytes()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,96 @@
+package log.demo.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.BasicHttpClientResponseHandler;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolMetricsTest {
+
+    HttpServer upstream;
+    PoolingHttpClientConnectionManager connectionManager;
+    CloseableHttpClient httpClient;
+    ConnectionPoolMetrics metrics;
+    String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+        url = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/";
+
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(1)
+            .setMaxConnPerRoute(1)
+            .build();
+        httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(100))
+                .build())
+            .build();
+        metrics = new ConnectionPoolMetrics("upstream-pool", connectionManager, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        metrics.close();
+        httpClient.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("응답을 처리하는 동안 connection 은 leased, 돌려준 뒤에는 available 로 보인다")
+    @SuppressWarnings("unchecked")
+    void leasedAndAvailable() throws Exception {
+        //given, when
+        //handler 가 끝나기 전에는 응답을 다 읽지 않았으므로 connection 을 돌려주지 않는다.
+        Map<String, Object> leased = httpClient.execute(new HttpGet(url),
+            response -> metrics.snapshot());
+        Map<String, Object> released = metrics.snapshot();
+
+        //then
+        assertThat(leased).containsEntry("leased", 1).containsEntry("max", 1);
+        Map<String, Object> routes = (Map<String, Object>) leased.get("routes");
+        assertThat(routes).containsOnlyKeys("http://127.0.0.1:" + upstream.getAddress().getPort());
+        assertThat(released).containsEntry("leased", 0).containsEntry("available", 1);
+    }
+
+    @Test
+    @DisplayName("pool 이 모두 leased 면 connection-request-timeout 뒤 ConnectionRequestTimeoutException 이 난다")
+    void exhausted() throws Exception {
+        //given
+        httpClient.execute(new HttpGet(url), response -> {
+            //when, then
+            assertThatThrownBy(() -> httpClient.execute(new HttpGet(url),
+                new BasicHttpClientResponseHandler()))
+                .isInstanceOf(ConnectionRequestTimeoutException.class);
+            assertThat(metrics.getTotalStats().getLeased()).isEqualTo(1);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package log.demo.metrics.latency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("버킷 경계가 끊기지 않고 모든 값이 자기 버킷 범위 안에 들어간다")
+    void bucketBoundaries() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(index).isBetween(previous, previous + 1);
+            assertThat(value).isBetween(LatencyHistogram.lowestValueAt(index),
+                LatencyHistogram.highestValueAt(index));
+            previous = index;
+        }
+        int last = LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE);
+        assertThat(LatencyHistogram.highestValueAt(last)).isEqualTo(LatencyHistogram.MAX_VALUE);
+    }
+
+    @Test
+    @DisplayName("quantile 은 상대 오차 1/32 안에서 실제 값과 같다")
+    void quantileAccuracy() {
+        //given
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            long nanos = ThreadLocalRandom.current().nextLong(1_000, 50_000_000);
+            values.add(nanos);
+            histogram.record(nanos);
+        }
+        values.sort(null);
+
+        //when, then
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long expected = values.get((int) Math.ceil(quantile * values.size()) - 1);
+            assertThat((double) histogram.valueAtQuantile(quantile))
+                .isCloseTo(expected, within(expected / 32.0));
+        }
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.getMax()).isEqualTo(values.get(values.size() - 1));
+    }
+
+    @Test
+    @DisplayName("여러 스레드가 동시에 기록해도 개수가 맞다")
+    void concurrentRecord() throws InterruptedException {
+        //given
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i * 1_000L);
+                }
+            }));
+        }
+
+        //when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //then
+        assertThat(histogram.snapshot()).containsEntry("count", 80_000L);
+        assertThat(histogram.getMax()).isEqualTo(9_999_000L);
+    }
+
+    @Test
+    @DisplayName("route 와 status class 별로 모으고, maxSeries 를 넘는 route 는 * 로 모은다")
+    @SuppressWarnings("unchecked")
+    void latencyMetricsSeries() {
+        //given
+        LatencyMetrics latencyMetrics = new LatencyMetrics(2);
+        ExchangeTimer exchangeTimer = ExchangeTimer.start(new MockHttpServletRequest());
+        exchangeTimer.markUpstreamStart();
+        exchangeTimer.markResponseFlushed();
+
+        //when
+        latencyMetrics.record("GET", "/api/orders/1", 200, exchangeTimer);
+        latencyMetrics.record("GET", "/api/orders/2", 204, exchangeTimer);
+        latencyMetrics.record("POST", "/api", 500, exchangeTimer);
+        latencyMetrics.record("GET", "/health", 200, exchangeTimer);
+
+        //then
+        Map<String, Object> routes = (Map<String, Object>) latencyMetrics.snapshot().get("routes");
+        assertThat(routes).containsOnlyKeys("GET /api 2XX", "POST /api 5XX", "GET * 2XX");
+        assertThat(latencyMetrics.histogram("GET /api 2XX", Phase.TOTAL).getCount()).isEqualTo(2);
+        assertThat(latencyMetrics.histogram("GET /api 2XX", Phase.CONNECT).getCount()).isZero();
+        assertThat((Map<String, Object>) routes.get("GET /api 2XX"))
+            .containsOnlyKeys("pre-upstream", "total");
+    }
+}
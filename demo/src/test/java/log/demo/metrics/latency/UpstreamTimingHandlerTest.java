@@ -0,0 +1,129 @@
+package log.demo.metrics.latency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import log.demo.DemoApplication;
+import log.demo.http.json.JsonSupport;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ * 실제 Tomcat 과 대상 서버를 띄워 RestTemplate 의 exec chain 에 끼운 UpstreamTimingHandler 가
+ * RESPONSE 로그의 phase-us 에 connect, first-byte 구간을 남기는지 본다.
+ */
+class UpstreamTimingHandlerTest {
+
+    static final long UPSTREAM_DELAY_MILLIS = 100;
+
+    static HttpServer upstream;
+    static ConfigurableApplicationContext context;
+    static HttpClient httpClient = HttpClient.newHttpClient();
+    static String baseUrl;
+    static ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext("/", exchange -> {
+            //응답 헤더를 늦게 보내 first-byte 구간에 드러나게 한다.
+            try {
+                Thread.sleep(UPSTREAM_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+
+        context = new SpringApplicationBuilder(DemoApplication.class)
+            .run("--server.port=0",
+                "--log.destination.host=http://127.0.0.1:" + upstream.getAddress().getPort());
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://127.0.0.1:" + port;
+
+        //Spring 이 logback 을 다시 설정한 뒤에 붙인다.
+        ((Logger) LoggerFactory.getLogger("HTTP")).addAppender(listAppender);
+        listAppender.start();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        ((Logger) LoggerFactory.getLogger("HTTP")).detachAppender(listAppender);
+        context.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("대상 서버 구간의 connect, first-byte 가 RESPONSE 로그의 phase-us 에 남는다")
+    void phasesLogged() throws Exception {
+        //when
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/timing"))
+                .GET()
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode phases = awaitEvent("RESPONSE", "/timing").get("phase-us");
+        assertThat(phases).isNotNull();
+        assertThat(phases.has(Phase.PRE_UPSTREAM.getKey())).isTrue();
+        assertThat(phases.get(Phase.CONNECT.getKey()).asDouble()).isGreaterThanOrEqualTo(0);
+        assertThat(phases.get(Phase.FIRST_BYTE.getKey()).asDouble())
+            .isGreaterThanOrEqualTo(UPSTREAM_DELAY_MILLIS * 1000);
+        assertThat(phases.has(Phase.UPSTREAM_BODY.getKey())).isTrue();
+        assertThat(phases.get(Phase.TOTAL.getKey()).asDouble())
+            .isGreaterThanOrEqualTo(phases.get(Phase.FIRST_BYTE.getKey()).asDouble());
+    }
+
+    //로그는 응답을 보낸 뒤에 남으므로 잠깐 기다린다.
+    private static JsonNode awaitEvent(String message, String path) throws Exception {
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        encoder.start();
+        try {
+            for (int i = 0; i < 100; i++) {
+                for (ILoggingEvent event : listAppender.list.toArray(new ILoggingEvent[0])) {
+                    if (!message.equals(event.getMessage())) {
+                        continue;
+                    }
+                    JsonNode json = JsonSupport.OBJECT_MAPPER.readTree(encoder.encode(event));
+                    if (path.equals(json.path("path").asText())) {
+                        return json;
+                    }
+                }
+                Thread.sleep(50);
+            }
+        } finally {
+            encoder.stop();
+        }
+        throw new AssertionError(message + " event not logged for " + path);
+    }
+}
@@ -0,0 +1,181 @@
+package log.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import log.demo.DemoApplication;
+import log.demo.service.routing.AsyncRoutingServiceImpl;
+import log.demo.service.routing.RoutingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ * log.proxy.mode=async 로 실제 Tomcat 을 띄우고
+ * 요청 body 를 그대로 돌려주는 대상 서버를 거쳐 body 가 손실 없이 오가는지 본다.
+ */
+class AsyncRoutingServiceImplTest {
+
+    static HttpServer upstream;
+    static ConfigurableApplicationContext context;
+    static HttpClient httpClient = HttpClient.newHttpClient();
+    static String baseUrl;
+    static final int RESPONSE_TIMEOUT_MILLIS = 1000;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext("/", exchange -> {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            if (exchange.getRequestURI().getPath().startsWith("/slow")) {
+                sleep(RESPONSE_TIMEOUT_MILLIS * 3);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.getResponseHeaders().add("X-Method", exchange.getRequestMethod());
+            exchange.getResponseHeaders().add("X-Echo", String.valueOf(
+                exchange.getRequestHeaders().getFirst("X-Echo")));
+            int status = exchange.getRequestURI().getPath().startsWith("/missing") ? 404 : 200;
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.setExecutor(Executors.newCachedThreadPool());
+        upstream.start();
+
+        context = new SpringApplicationBuilder(DemoApplication.class)
+            .run("--server.port=0",
+                "--log.proxy.mode=async",
+                "--log.destination.host=http://127.0.0.1:" + upstream.getAddress().getPort(),
+                "--log.response.timeout=" + RESPONSE_TIMEOUT_MILLIS);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://127.0.0.1:" + port;
+    }
+
+    @AfterAll
+    static void tearDown() {
+        context.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("async 모드에서는 AsyncRoutingServiceImpl 이 RoutingService 로 쓰인다")
+    void primaryBean() {
+        assertThat(context.getBean(RoutingService.class)).isInstanceOf(AsyncRoutingServiceImpl.class);
+    }
+
+    @Test
+    @DisplayName("GET - body 없는 요청과 헤더 전달")
+    void getTest() throws Exception {
+        //when
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/get?a=1"))
+                .header("X-Echo", "async")
+                .GET()
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("X-Method")).hasValue("GET");
+        assertThat(response.headers().firstValue("X-Echo")).hasValue("async");
+        assertThat(response.body()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("POST - 요청 body 를 그대로 돌려받는다")
+    void postTest() throws Exception {
+        //given
+        String bodyString = "{\"head\":\"snake\",\"tail\":\"dog\"}";
+
+        //when
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/post/json"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(bodyString))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo(bodyString);
+    }
+
+    @Test
+    @DisplayName("chunk 크기와 전송 window 보다 큰 body 도 순서대로 전달한다")
+    void largeBodyTest() throws Exception {
+        //given
+        byte[] body = new byte[1024 * 1024 + 7];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (i % 251);
+        }
+
+        //when
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/put/bytes"))
+                .header("Content-Type", "application/octet-stream")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(Arrays.equals(response.body(), body)).isTrue();
+    }
+
+    @Test
+    @DisplayName("대상 서버의 에러 status 를 그대로 전달한다")
+    void errorStatusTest() throws Exception {
+        //when
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/missing"))
+                .POST(HttpRequest.BodyPublishers.ofString("nothing", StandardCharsets.UTF_8))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(404);
+        assertThat(response.body()).isEqualTo("nothing");
+    }
+
+    @Test
+    @DisplayName("대상 서버가 응답 timeout 안에 응답하지 않으면 buffered 모드와 같이 504")
+    void responseTimeoutTest() throws Exception {
+        //when
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/slow"))
+                .GET()
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(504);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package log.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import log.demo.DemoApplication;
+import log.demo.http.json.JsonSupport;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ * server.compression.enabled=true 로 Tomcat 을 띄우고
+ * 압축된 요청/응답 body 는 그대로 전달하면서 로그에는 풀어서 남는지,
+ * 대상 서버가 압축하지 않은 응답은 Tomcat 이 압축하는지 본다.
+ */
+class ContentEncodingTest {
+
+    static final String JSON = "{\"id\":1,\"name\":\"gzip\"}";
+    static final byte[] GZIP_JSON = gzip(JSON.getBytes(StandardCharsets.UTF_8));
+    static final String TEXT = "plain text ".repeat(400);
+
+    static HttpServer upstream;
+    static ConfigurableApplicationContext context;
+    static HttpClient httpClient = HttpClient.newHttpClient();
+    static String baseUrl;
+    static ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+    static AtomicReference<byte[]> receivedBody = new AtomicReference<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext("/gzip", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                receivedBody.set(in.readAllBytes());
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, GZIP_JSON.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(GZIP_JSON);
+            }
+        });
+        upstream.createContext("/plain", exchange -> {
+            byte[] body = TEXT.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+
+        context = new SpringApplicationBuilder(DemoApplication.class)
+            .run("--server.port=0",
+                "--server.compression.enabled=true",
+                "--log.destination.host=http://127.0.0.1:" + upstream.getAddress().getPort());
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://127.0.0.1:" + port;
+
+        //Spring 이 logback 을 다시 설정한 뒤에 붙인다.
+        ((Logger) LoggerFactory.getLogger("HTTP")).addAppender(listAppender);
+        listAppender.start();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        ((Logger) LoggerFactory.getLogger("HTTP")).detachAppender(listAppender);
+        context.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("압축된 요청/응답 body 는 바이트 그대로 전달하고, 로그에는 풀어서 JSON 으로 남긴다")
+    void passesThroughAndLogsDecoded() throws Exception {
+        //when
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/gzip"))
+                .header("Content-Type", "application/json")
+                .header("Content-Encoding", "gzip")
+                .header("Accept-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(GZIP_JSON))
+                .build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(response.body()).isEqualTo(GZIP_JSON);
+        assertThat(receivedBody.get()).isEqualTo(GZIP_JSON);
+
+        JsonNode request = awaitEvent("REQUEST", "/gzip");
+        assertThat(request.get("body").get("name").asText()).isEqualTo("gzip");
+        assertThat(request.get("content-encoding").asText()).isEqualTo("gzip");
+        assertThat(request.get("body-length").asLong()).isEqualTo(GZIP_JSON.length);
+        JsonNode responseEvent = awaitEvent("RESPONSE", "/gzip");
+        assertThat(responseEvent.get("body").get("id").asInt()).isEqualTo(1);
+        assertThat(responseEvent.get("body-truncated").asBoolean()).isFalse();
+        assertThat(responseEvent.get("content-encoding").asText()).isEqualTo("gzip");
+    }
+
+    @Test
+    @DisplayName("대상 서버가 압축하지 않은 응답은 Tomcat 이 압축해서 보내고, 로그에는 압축 전 body 가 남는다")
+    void compressesUncompressedResponse() throws Exception {
+        //when
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/plain"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(new String(gunzip(response.body()), StandardCharsets.UTF_8)).isEqualTo(TEXT);
+        JsonNode responseEvent = awaitEvent("RESPONSE", "/plain");
+        assertThat(responseEvent.get("body").get("content").asText()).isEqualTo(TEXT);
+        assertThat(responseEvent.has("content-encoding")).isFalse();
+    }
+
+    //로그는 응답을 보낸 뒤에 남으므로 잠깐 기다린다.
+    private static JsonNode awaitEvent(String message, String path) throws Exception {
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        encoder.start();
+        try {
+            for (int i = 0; i < 100; i++) {
+                for (ILoggingEvent event : listAppender.list.toArray(new ILoggingEvent[0])) {
+                    if (!message.equals(event.getMessage())) {
+                        continue;
+                    }
+                    JsonNode json = JsonSupport.OBJECT_MAPPER.readTree(encoder.encode(event));
+                    if (path.equals(json.path("path").asText())) {
+                        return json;
+                    }
+                }
+                Thread.sleep(50);
+            }
+        } finally {
+            encoder.stop();
+        }
+        throw new AssertionError(message + " event not logged for " + path);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package log.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import log.demo.DemoApplication;
+import log.demo.service.routing.async.Http2Upstreams;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ * log.proxy.mode=async, log.client.http2.enabled=true 로 Tomcat 을 띄우고
+ * h2c(HTTP/2 cleartext)를 하는 대상 서버와 HTTP/1.1 만 하는 대상 서버로 보내 본다.
+ */
+class Http2RoutingTest {
+
+    static HttpAsyncServer h2Upstream;
+    static HttpServer h1Upstream;
+    static ConfigurableApplicationContext context;
+    static HttpClient httpClient = HttpClient.newHttpClient();
+    static String baseUrl;
+    static int h2Port;
+    //h2Upstream 이 HTTP/2 요청을 받은 connection (client 주소)
+    static Set<String> http2Connections = ConcurrentHashMap.newKeySet();
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        //prior knowledge h2c 만 받는다.
+        h2Upstream = H2ServerBootstrap.bootstrap()
+            .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+            .register("*", new EchoHandler())
+            .create();
+        h2Upstream.start();
+        ListenerEndpoint endpoint = h2Upstream.listen(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), URIScheme.HTTP).get();
+        h2Port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+
+        h1Upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            0);
+        h1Upstream.createContext("/", exchange -> {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("X-Protocol", exchange.getProtocol());
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        h1Upstream.start();
+
+        context = new SpringApplicationBuilder(DemoApplication.class)
+            .run("--server.port=0",
+                "--log.proxy.mode=async",
+                "--log.client.http2.enabled=true",
+                "--log.routing.pools=h2=http://127.0.0.1:" + h2Port
+                    + ",h1=http://127.0.0.1:" + h1Upstream.getAddress().getPort(),
+                "--log.routing.routes=/h2=h2,/h1=h1");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://127.0.0.1:" + port;
+    }
+
+    @AfterAll
+    static void tearDown() {
+        context.close();
+        h2Upstream.close(CloseMode.IMMEDIATE);
+        h1Upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("HTTP/2 를 하는 대상 서버에는 probe 뒤로 동시 요청을 connection 하나에 실어 보낸다")
+    void multiplexesOverHttp2() throws Exception {
+        //given
+        Http2Upstreams http2Upstreams = context.getBean(Http2Upstreams.class);
+        URI upstreamUri = URI.create("http://127.0.0.1:" + h2Port);
+        //probe 가 끝나기 전 첫 요청은 HTTP/1.1 로 가므로 h2c 만 하는 서버에서는 실패한다.
+        send("/h2/warm-up", "");
+        awaitProtocol(http2Upstreams, upstreamUri, Http2Upstreams.Protocol.HTTP_2);
+
+        //when
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            responses.add(httpClient.sendAsync(HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/h2/items/" + i))
+                    .header("Content-Type", "text/plain")
+                    .POST(HttpRequest.BodyPublishers.ofString("item-" + i))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString()));
+        }
+
+        //then
+        for (int i = 0; i < responses.size(); i++) {
+            HttpResponse<String> response = responses.get(i).get();
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.headers().firstValue("X-Protocol")).hasValue("HTTP/2.0");
+            assertThat(response.body()).isEqualTo("item-" + i);
+        }
+        assertThat(http2Connections).hasSize(1);
+        assertThat((long) http2Upstreams.snapshot().get("http2-requests"))
+            .isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("HTTP/2 를 하지 않는 대상 서버는 HTTP/1.1 로 보낸다")
+    void fallsBackToHttp1() throws Exception {
+        //given
+        Http2Upstreams http2Upstreams = context.getBean(Http2Upstreams.class);
+        URI upstreamUri = URI.create("http://127.0.0.1:" + h1Upstream.getAddress().getPort());
+
+        //when
+        HttpResponse<String> first = send("/h1/first", "first");
+        awaitProtocol(http2Upstreams, upstreamUri, Http2Upstreams.Protocol.HTTP_1_1);
+        HttpResponse<String> second = send("/h1/second", "second");
+
+        //then
+        assertThat(first.statusCode()).isEqualTo(200);
+        assertThat(first.body()).isEqualTo("first");
+        assertThat(second.statusCode()).isEqualTo(200);
+        assertThat(second.headers().firstValue("X-Protocol")).hasValue("HTTP/1.1");
+        assertThat(second.body()).isEqualTo("second");
+    }
+
+    private static HttpResponse<String> send(String path, String body) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void awaitProtocol(Http2Upstreams http2Upstreams, URI uri,
+        Http2Upstreams.Protocol protocol) throws InterruptedException {
+        for (int i = 0; i < 100 && http2Upstreams.protocolOf(uri) != protocol; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(http2Upstreams.protocolOf(uri)).isEqualTo(protocol);
+    }
+
+    //요청 body 를 그대로 돌려주고, 받은 protocol 을 X-Protocol 로 알려 준다.
+    static class EchoHandler implements AsyncServerRequestHandler<Message<
+        org.apache.hc.core5.http.HttpRequest, String>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<org.apache.hc.core5.http.HttpRequest, String>> prepare(
+            org.apache.hc.core5.http.HttpRequest request, EntityDetails entityDetails,
+            HttpContext context) {
+            return new BasicRequestConsumer<>(
+                entityDetails == null ? null : new StringAsyncEntityConsumer());
+        }
+
+        @Override
+        public void handle(Message<org.apache.hc.core5.http.HttpRequest, String> message,
+            ResponseTrigger responseTrigger, HttpContext context)
+            throws HttpException, IOException {
+            HttpCoreContext coreContext = HttpCoreContext.adapt(context);
+            String protocol = coreContext.getProtocolVersion().toString();
+            if ("HTTP/2.0".equals(protocol)) {
+                http2Connections.add(coreContext.getEndpointDetails().getRemoteAddress()
+                    .toString());
+            }
+            String body = (message.getBody() == null) ? "" : message.getBody();
+            responseTrigger.submitResponse(AsyncResponseBuilder.create(200)
+                .setHeader("X-Protocol", protocol)
+                .setEntity(body, ContentType.TEXT_PLAIN)
+                .build(), context);
+        }
+    }
+}
@@ -9,6 +9,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -16,6 +18,8 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
@@ -210,4 +214,104 @@ class RoutingServiceImplTest {
             .isInstanceOf(HttpServerErrorException.class);
     }
 
-}
\ No newline at end of file
+    /*
+     *  STREAMING 테스트
+     *  body 를 스트림으로 넘기고, 응답은 ServerHttpResponse 로 바로 흘려보낸다.
+     */
+    @Test
+    @DisplayName("STREAMING - request/response body 를 스트림으로 전달")
+    void streamHttpRequestTest() throws URISyntaxException, IOException {
+        //given
+        String path = "/stream";
+        String body = "{\"name\": \"kim\",\"age\": 20}";
+        mockServer.expect(requestTo(destHost + path))
+            .andExpect(method(HttpMethod.POST))
+            .andExpect(content().string(body))
+            .andRespond(withSuccess("Stream Test Success", MediaType.TEXT_PLAIN));
+
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add("Content-Length", String.valueOf(bodyBytes.length));
+        PassRequestDTO passRequestDTO = PassRequestDTO.builder()
+            .headers(headers)
+            .uri(path)
+            .method("POST")
+            .build();
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        //when
+        routingServiceImpl.streamHttpRequest(passRequestDTO, new ByteArrayInputStream(bodyBytes),
+            new ServletServerHttpResponse(mockResponse));
+
+        //then
+        mockServer.verify();
+        assertThat(mockResponse.getStatus()).isEqualTo(200);
+        assertThat(mockResponse.getContentAsString()).isEqualTo("Stream Test Success");
+    }
+
+    @Test
+    @DisplayName("STREAMING - Content-Length 없는 chunked 요청도 body 를 전달")
+    void streamChunkedRequestTest() throws URISyntaxException, IOException {
+        //given
+        String path = "/stream/chunked";
+        String body = "{\"name\": \"lee\",\"age\": 30}";
+        mockServer.expect(requestTo(destHost + path))
+            .andExpect(method(HttpMethod.POST))
+            .andExpect(content().string(body))
+            .andRespond(withSuccess("Chunked Test Success", MediaType.TEXT_PLAIN));
+
+        //HeaderView 처럼 Transfer-Encoding 이 빠진 헤더를 넘긴다.
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        headers.add("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+        PassRequestDTO passRequestDTO = PassRequestDTO.builder()
+            .headers(headers)
+            .uri(path)
+            .method("POST")
+            .bodyPresent(true)
+            .build();
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        //when
+        routingServiceImpl.streamHttpRequest(passRequestDTO,
+            new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+            new ServletServerHttpResponse(mockResponse));
+
+        //then
+        mockServer.verify();
+        assertThat(mockResponse.getContentAsString()).isEqualTo("Chunked Test Success");
+    }
+
+    @Test
+    @DisplayName("대상 서버 응답의 hop-by-hop 헤더는 buffered, streaming 모두 클라이언트로 넘기지 않는다")
+    void hopByHopResponseHeadersTest() throws URISyntaxException, IOException {
+        //given
+        String path = "/hop-by-hop";
+        for (int i = 0; i < 2; i++) {
+            mockServer.expect(requestTo(destHost + path))
+                .andRespond(withSuccess("ok", MediaType.TEXT_PLAIN)
+                    .header("Connection", "close")
+                    .header("Keep-Alive", "timeout=5")
+                    .header("Upgrade", "h2c")
+                    .header("X-Upstream", "a"));
+        }
+        PassRequestDTO passRequestDTO = PassRequestDTO.builder()
+            .uri(path)
+            .method("GET")
+            .build();
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+
+        //when
+        ResponseEntity<byte[]> responseEntity = routingServiceImpl.passHttpRequest(passRequestDTO);
+        routingServiceImpl.streamHttpRequest(passRequestDTO, new ByteArrayInputStream(new byte[0]),
+            new ServletServerHttpResponse(mockResponse));
+
+        //then
+        mockServer.verify();
+        assertThat(responseEntity.getHeaders()).containsKey("X-Upstream")
+            .doesNotContainKeys("Connection", "Keep-Alive", "Upgrade");
+        assertThat(mockResponse.getHeader("X-Upstream")).isEqualTo("a");
+        assertThat(mockResponse.getHeaderNames())
+            .doesNotContain("Connection", "Keep-Alive", "Upgrade");
+    }
+
+}
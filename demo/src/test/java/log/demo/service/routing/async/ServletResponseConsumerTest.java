@@ -0,0 +1,112 @@
+package log.demo.service.routing.async;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ServletResponseConsumerTest {
+
+    private final List<String> results = new ArrayList<>();
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    //클라이언트가 읽지 않아 쓸 수 없는 상태
+    private boolean ready;
+
+    @Test
+    @DisplayName("대상 서버 응답이 끝난 뒤 클라이언트 연결이 끊기면 남은 chunk 를 버리고 한 번만 실패시킨다")
+    void clientErrorAfterStreamEnd() throws IOException {
+        //given
+        ServletResponseConsumer consumer = new ServletResponseConsumer(response(), 1024);
+        consumer.consumeResponse(new BasicHttpResponse(200),
+            new BasicEntityDetails(5, ContentType.TEXT_PLAIN), null, callback());
+        consumer.consume(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+        consumer.streamEnd(null);
+        consumer.releaseResources();
+
+        //when
+        consumer.onError(new IOException("Connection reset by peer"));
+        consumer.onError(new IOException("Connection reset by peer"));
+        ready = true;
+        consumer.onWritePossible();
+
+        //then
+        assertThat(results).containsExactly("failed:ClientWriteException");
+        assertThat(written.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("cancel 되면 한 번만 취소를 알리고, 그 뒤의 응답 body 는 받지 않는다")
+    void cancel() throws IOException {
+        //given
+        ServletResponseConsumer consumer = new ServletResponseConsumer(response(), 1024);
+        consumer.consumeResponse(new BasicHttpResponse(200),
+            new BasicEntityDetails(-1, ContentType.TEXT_PLAIN), null, callback());
+
+        //when
+        consumer.cancel();
+        consumer.cancel();
+
+        //then
+        assertThat(results).containsExactly("cancelled");
+        assertThatThrownBy(() -> consumer.consume(ByteBuffer.wrap(new byte[] {1})))
+            .isInstanceOf(IOException.class);
+        assertThat(written.size()).isZero();
+    }
+
+    private MockHttpServletResponse response() {
+        final ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return ready;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                written.write(b);
+            }
+        };
+        return new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return outputStream;
+            }
+        };
+    }
+
+    private FutureCallback<Void> callback() {
+        return new FutureCallback<>() {
+            @Override
+            public void completed(Void result) {
+                results.add("completed");
+            }
+
+            @Override
+            public void failed(Exception e) {
+                results.add("failed:" + e.getClass().getSimpleName());
+            }
+
+            @Override
+            public void cancelled() {
+                results.add("cancelled");
+            }
+        };
+    }
+}
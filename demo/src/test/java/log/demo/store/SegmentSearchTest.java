@@ -0,0 +1,171 @@
+package log.demo.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentSearchTest {
+
+    private static final long START_MILLIS = Instant.now().toEpochMilli() - 60_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("압축한 세그먼트마다 인덱스를 만들고, 인덱스로 찾은 결과가 전체를 읽어 거른 결과와 같다")
+    void indexedSearch() throws Exception {
+        //given
+        SegmentStore store = new SegmentStore(SegmentStoreOptions.builder()
+            .directory(directory)
+            .segmentBytes(16 * 1024)
+            .compression(SegmentCompression.FAST)
+            .compressionBlockBytes(2048)
+            .indexed(true)
+            .build(), (message, e) -> {
+            throw new AssertionError(message, e);
+        });
+        for (int i = 0; i < 600; i++) {
+            store.append(event(i));
+        }
+        store.close();
+        List<LogQuery> queries = List.of(
+            LogQuery.builder().terms(Map.of("request-id", "123")).build(),
+            LogQuery.builder().terms(Map.of("path", "/orders", "code-type", "5XX")).build(),
+            LogQuery.builder().terms(Map.of("status-code", "503 SERVICE_UNAVAILABLE"))
+                .fromMillis(START_MILLIS + 100).toMillis(START_MILLIS + 400).build(),
+            LogQuery.builder().terms(Map.of("remote-ip", "10.0.0.3")).limit(5).build());
+
+        //when
+        List<List<String>> indexed = new ArrayList<>();
+        for (LogQuery query : queries) {
+            indexed.add(search(query));
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path index : paths.filter(path -> path.toString().endsWith(SegmentIndex.EXTENSION))
+                .toList()) {
+                Files.delete(index);
+            }
+        }
+        List<List<String>> scanned = new ArrayList<>();
+        for (LogQuery query : queries) {
+            scanned.add(search(query));
+        }
+
+        //then
+        assertThat(indexed.get(0)).hasSize(2)
+            .allMatch(line -> line.contains("\"request-id\":\"123\""));
+        assertThat(indexed.get(1)).hasSize(30)
+            .allMatch(line -> line.contains("\"status-code\":\"503 SERVICE_UNAVAILABLE\""));
+        assertThat(indexed.get(2)).hasSize(15);
+        assertThat(indexed.get(3)).hasSize(5);
+        assertThat(indexed).isEqualTo(scanned);
+    }
+
+    @Test
+    @DisplayName("request-id 는 인덱스 헤더의 filter 로 그 값이 있는 세그먼트만 남긴다")
+    void requestIdFilter() throws Exception {
+        //given
+        SegmentStore store = new SegmentStore(SegmentStoreOptions.builder()
+            .directory(directory)
+            .segmentBytes(16 * 1024)
+            .indexed(true)
+            .build(), (message, e) -> {
+            throw new AssertionError(message, e);
+        });
+        for (int i = 0; i < 600; i++) {
+            store.append(event(i));
+        }
+        store.close();
+        List<Path> indexes;
+        try (Stream<Path> paths = Files.list(directory)) {
+            indexes = paths.filter(path -> path.toString().endsWith(SegmentIndex.EXTENSION))
+                .toList();
+        }
+
+        //when
+        List<Path> withRequest = new ArrayList<>();
+        List<Path> withMissing = new ArrayList<>();
+        //filter 는 request-id 에만 있다.
+        List<Path> withPath = new ArrayList<>();
+        for (Path index : indexes) {
+            if (SegmentIndex.mayContain(index, "request-id", "123")) {
+                withRequest.add(index);
+            }
+            if (SegmentIndex.mayContain(index, "request-id", "no-such-request")) {
+                withMissing.add(index);
+            }
+            if (SegmentIndex.mayContain(index, "path", "/none")) {
+                withPath.add(index);
+            }
+        }
+
+        //then
+        assertThat(indexes).hasSizeGreaterThan(3);
+        assertThat(withRequest).hasSize(1);
+        assertThat(SegmentIndex.open(withRequest.get(0)).positions("request-id", "123"))
+            .hasSize(2);
+        assertThat(withMissing).isEmpty();
+        assertThat(withPath).isEqualTo(indexes);
+    }
+
+    @Test
+    @DisplayName("세그먼트 디렉터리가 아직 없거나 세그먼트가 아닌 파일이 있어도 빈 결과를 돌려준다")
+    void missingDirectory() throws IOException {
+        //given
+        Path missing = directory.resolve("segments");
+        Path notSegment = directory.resolve("info.log");
+        Files.writeString(notSegment, "{}\n");
+        LogQuery query = LogQuery.builder().terms(Map.of("request-id", "1")).build();
+
+        //when
+        int fromMissing = SegmentSearch.search(missing, query, (offset, record) -> {
+            throw new AssertionError("no record expected");
+        });
+        int fromFile = SegmentSearch.search(notSegment, query, (offset, record) -> {
+            throw new AssertionError("no record expected");
+        });
+
+        //then
+        assertThat(fromMissing).isZero();
+        assertThat(fromFile).isZero();
+        assertThat(SegmentReader.segments(missing)).isEmpty();
+    }
+
+    private List<String> search(LogQuery query) throws IOException {
+        List<String> lines = new ArrayList<>();
+        SegmentSearch.search(directory, query, (offset, record) ->
+            lines.add(StandardCharsets.UTF_8.decode(record).toString()));
+        return lines;
+    }
+
+    //짝수는 REQUEST, 홀수는 RESPONSE, 요청 하나가 이벤트 두 개다. RESPONSE 10 개 중 1 개는 /orders 503
+    private static byte[] event(int i) {
+        String requestId = String.valueOf(i / 2);
+        String timestamp = Instant.ofEpochMilli(START_MILLIS + i).toString();
+        String json;
+        if (i % 2 == 0) {
+            json = "{\"@timestamp\":\"" + timestamp + "\",\"message\":\"REQUEST\",\"request-id\":\""
+                + requestId + "\",\"method\":\"GET\",\"path\":\"/orders\",\"headers\":{\"path\":"
+                + "[\"x\"]},\"remote-ip\":\"10.0.0." + (i % 7) + "\"}\n";
+        } else {
+            boolean failed = i % 20 == 1;
+            json = "{\"@timestamp\":\"" + timestamp + "\",\"message\":\"RESPONSE\",\"request-id\":\""
+                + requestId + "\",\"status-code\":\"" + (failed ? "503 SERVICE_UNAVAILABLE"
+                : "200 OK") + "\",\"path\":\"" + (failed ? "/orders" : "/items")
+                + "\",\"body\":{\"path\":\"/nested\"},\"code-type\":\"" + (failed ? "5XX" : "2XX")
+                + "\"}\n";
+        }
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,222 @@
+package log.demo.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("여러 스레드가 쓴 레코드를 세그먼트를 넘겨 가며 모두 남기고, 다시 JSON lines 로 읽는다")
+    void appendAndRead() throws Exception {
+        //given
+        SegmentStore store = new SegmentStore(SegmentStoreOptions.builder()
+            .directory(directory)
+            .segmentBytes(4096)
+            .fsyncPolicy(FsyncPolicy.EVERY_N)
+            .fsyncEveryRecords(10)
+            .build(), (message, e) -> {
+            throw new AssertionError(message, e);
+        });
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            int producer = thread;
+            executor.execute(() -> {
+                for (int i = 0; i < 250; i++) {
+                    store.append(("{\"producer\":" + producer + ",\"seq\":" + i + "}\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        store.close();
+
+        //then
+        List<Path> segments = SegmentReader.segments(directory);
+        assertThat(segments).hasSizeGreaterThan(1);
+        assertThat(Files.size(segments.get(0))).isLessThanOrEqualTo(4096);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentReader.writeJsonLines(directory, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(1000);
+        assertThat(new HashSet<>(List.of(lines))).hasSize(1000);
+        assertThat(store.getAppendedCount()).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("닫힌 세그먼트를 블록 단위로 압축하고, 압축한 세그먼트도 같은 JSON lines 로 읽는다")
+    void compression() throws Exception {
+        //given
+        SegmentStore store = new SegmentStore(SegmentStoreOptions.builder()
+            .directory(directory)
+            .segmentBytes(64 * 1024)
+            .compression(SegmentCompression.FAST)
+            .compressionBlockBytes(4096)
+            .build(), (message, e) -> {
+            throw new AssertionError(message, e);
+        });
+        StringBuilder expected = new StringBuilder();
+
+        //when
+        for (int i = 0; i < 2000; i++) {
+            String line = "{\"path\":\"/api/orders\",\"status-code\":\"200 OK\",\"seq\":" + i + "}\n";
+            expected.append(line);
+            store.append(line.getBytes(StandardCharsets.UTF_8));
+        }
+        store.close();
+
+        //then
+        List<Path> segments = SegmentReader.segments(directory);
+        assertThat(segments).hasSizeGreaterThan(1)
+            .allMatch(path -> SegmentName.parse(path).compressed());
+        long compressedBytes = 0;
+        for (Path segment : segments) {
+            compressedBytes += Files.size(segment);
+        }
+        assertThat(compressedBytes).isLessThan(expected.length() / 4);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentReader.writeJsonLines(directory, out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+    }
+
+    @Test
+    @DisplayName("maxHistory 보다 오래된 세그먼트와 totalSizeCap 을 넘는 오래된 세그먼트를 지운다")
+    void retention() throws IOException {
+        //given
+        byte[] old = new byte[1000];
+        Files.write(directory.resolve("info.2026-01-01.0.seg"), old);
+        Files.write(directory.resolve("info.2026-10-10.0.seg"), old);
+        Files.write(directory.resolve("info.2026-10-11.0.seg"), old);
+        Files.write(directory.resolve("info.2026-10-11.1.seg"), old);
+        Files.write(directory.resolve("other.2026-01-01.0.seg"), old);
+        Clock clock = Clock.fixed(Instant.parse("2026-10-18T00:00:00Z"), ZoneOffset.UTC);
+
+        //when
+        SegmentStore store = new SegmentStore(SegmentStoreOptions.builder()
+            .directory(directory)
+            .maxHistoryDays(180)
+            .totalSizeCapBytes(2500)
+            .clock(clock)
+            .build(), (message, e) -> {
+        });
+        store.close();
+
+        //then
+        Set<String> remaining = new HashSet<>();
+        try (var paths = Files.list(directory)) {
+            paths.forEach(path -> remaining.add(path.getFileName().toString()));
+        }
+        assertThat(remaining).containsExactlyInAnyOrder(
+            "info.2026-10-11.0.seg", "info.2026-10-11.1.seg", "other.2026-01-01.0.seg");
+    }
+
+    @Test
+    @DisplayName("쓰다 만 레코드와 미리 늘려 둔 빈 영역은 읽지 않는다")
+    void partialRecord() throws IOException {
+        //given
+        Path path = directory.resolve("info.2026-10-18.0.seg");
+        SegmentFile segment = SegmentFile.create(path, 1024);
+        segment.append("{\"a\":1}\n".getBytes(StandardCharsets.UTF_8));
+        segment.close();
+
+        //when
+        List<String> records = new ArrayList<>();
+        SegmentReader.forEachRecord(path, (offset, record) -> {
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            records.add(new String(bytes, StandardCharsets.UTF_8));
+        });
+
+        //then
+        assertThat(Files.size(path)).isEqualTo(1024);
+        assertThat(records).containsExactly("{\"a\":1}\n");
+    }
+
+    @Test
+    @DisplayName("seal 해도 그 전에 mmap 해 읽고 있던 조회는 끝까지 읽고, 파일은 쓴 곳까지만 남는다")
+    void sealWhileReading() throws IOException {
+        //given
+        Path path = directory.resolve("info.2026-10-18.0.seg");
+        SegmentFile segment = SegmentFile.create(path, 64 * 1024);
+        //쓴 곳이 page(4KB) 경계에서 끝나, 마지막 레코드 다음 length 를 읽을 때 다음 page 에 접근한다.
+        byte[] payload = new byte[(4096 - SegmentFile.HEADER_BYTES) / 2
+            - SegmentFile.RECORD_HEADER_BYTES];
+        Arrays.fill(payload, (byte) 'x');
+        segment.append(payload);
+        segment.append(payload);
+        int written = segment.getPosition();
+
+        //when
+        List<Long> offsets = new ArrayList<>();
+        SegmentReader.forEachRecord(path, (offset, record) -> {
+            if (offsets.isEmpty()) {
+                segment.seal(false);
+                segment.close();
+            }
+            offsets.add(offset);
+        });
+
+        //then
+        assertThat(written).isEqualTo(4096);
+        assertThat(offsets).hasSize(2);
+        assertThat(Files.size(path)).isEqualTo(written);
+        assertThat(directory.resolve("info.2026-10-18.0.seg.tmp")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName(".seg 와 압축한 .segz 가 함께 있으면 .segz 만 읽고, 다시 시작할 때 남은 .seg 를 지운다")
+    void compressedAndOriginal() throws IOException {
+        //given
+        Path original = directory.resolve("info.2026-10-18.0.seg");
+        Path compressed = directory.resolve("info.2026-10-18.0.segz");
+        SegmentFile segment = SegmentFile.create(original, 1024);
+        segment.append("{\"a\":1}\n".getBytes(StandardCharsets.UTF_8));
+        segment.seal(false);
+        segment.close();
+        CompressedSegment.compress(original, compressed, SegmentCompression.FAST.level(), 4096);
+
+        //when
+        List<Path> segments = SegmentReader.segments(directory);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentReader.writeJsonLines(directory, out);
+        SegmentStore store = new SegmentStore(SegmentStoreOptions.builder()
+            .directory(directory)
+            .compression(SegmentCompression.FAST)
+            .build(), (message, e) -> {
+            throw new AssertionError(message, e);
+        });
+        store.close();
+
+        //then
+        assertThat(segments).containsExactly(compressed);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"a\":1}\n");
+        assertThat(original).doesNotExist();
+        assertThat(compressed).exists();
+    }
+}
@@ -0,0 +1,41 @@
+package log.demo.support;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+//테스트에서 시간을 직접 옮기는 Clock, zone 은 UTC 로 고정한다.
+public class MutableClock extends Clock {
+
+    private final AtomicReference<Instant> now;
+
+    public MutableClock(Instant start) {
+        this.now = new AtomicReference<>(start);
+    }
+
+    public void advance(long millis) {
+        now.updateAndGet(instant -> instant.plusMillis(millis));
+    }
+
+    @Override
+    public long millis() {
+        return now.get().toEpochMilli();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return now.get();
+    }
+}
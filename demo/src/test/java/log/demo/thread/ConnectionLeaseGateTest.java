@@ -0,0 +1,29 @@
+package log.demo.thread;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+class ConnectionLeaseGateTest {
+
+    @Test
+    @DisplayName("permit 이 모두 나가 있으면 timeout 뒤 pool timeout 과 같은 예외를 던진다")
+    void timeoutWhenExhausted() {
+        //given
+        ConnectionLeaseGate connectionLeaseGate = new ConnectionLeaseGate(1, 10);
+        connectionLeaseGate.acquire();
+
+        //when, then
+        assertThatThrownBy(connectionLeaseGate::acquire)
+            .isInstanceOf(ResourceAccessException.class)
+            .hasCauseInstanceOf(ConnectionRequestTimeoutException.class);
+
+        connectionLeaseGate.release();
+        connectionLeaseGate.acquire();
+        assertThat(connectionLeaseGate.getAvailablePermits()).isZero();
+    }
+}
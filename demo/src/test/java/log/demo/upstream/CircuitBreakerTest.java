@@ -0,0 +1,143 @@
+package log.demo.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import log.demo.exception.UpstreamRejectedException;
+import log.demo.support.MutableClock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2022-12-01T00:00:00Z"));
+    private final List<String> transitions = new ArrayList<>();
+    private boolean listenerHeldLock;
+
+    @Test
+    @DisplayName("실패율이 threshold 를 넘으면 OPEN, open 시간이 지나면 HALF_OPEN 에서 몇 개만 보내 보고 모두 성공하면 CLOSED")
+    void opensAndCloses() {
+        //given
+        AtomicReference<CircuitBreaker> self = new AtomicReference<>();
+        CircuitBreaker circuitBreaker = new CircuitBreaker(options().build(),
+            (from, to, window) -> {
+                transitions.add(from + "->" + to);
+                listenerHeldLock |= Thread.holdsLock(self.get());
+            });
+        self.set(circuitBreaker);
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onResult(false, i % 2 == 1, false);
+        }
+        int rejectedWhileOpen = circuitBreaker.tryAcquire();
+        clock.advance(5_000);
+        int first = circuitBreaker.tryAcquire();
+        int second = circuitBreaker.tryAcquire();
+        int third = circuitBreaker.tryAcquire();
+        circuitBreaker.onResult(false, true, false);
+        circuitBreaker.onResult(true, false, false);
+        circuitBreaker.onResult(true, false, false);
+
+        //then
+        assertThat(rejectedWhileOpen).isEqualTo(CircuitBreaker.REJECTED);
+        assertThat(first).isEqualTo(CircuitBreaker.TRIAL);
+        assertThat(second).isEqualTo(CircuitBreaker.TRIAL);
+        assertThat(third).isEqualTo(CircuitBreaker.REJECTED);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(transitions).containsExactly("CLOSED->OPEN", "OPEN->HALF_OPEN",
+            "HALF_OPEN->CLOSED");
+        //listener 는 잠금 밖에서 부른다.
+        assertThat(listenerHeldLock).isFalse();
+    }
+
+    @Test
+    @DisplayName("window 가 지난 실패는 세지 않고, HALF_OPEN 의 시도가 실패하면 다시 OPEN")
+    void slidingWindowAndReopen() {
+        //given
+        CircuitBreaker circuitBreaker = new CircuitBreaker(options().build(),
+            (from, to, window) -> transitions.add(from + "->" + to));
+
+        //when
+        for (int i = 0; i < 9; i++) {
+            circuitBreaker.onResult(false, true, false);
+        }
+        clock.advance(10_000);
+        for (int i = 0; i < 9; i++) {
+            circuitBreaker.onResult(false, false, false);
+        }
+        CircuitBreaker.State afterOldFailures = circuitBreaker.getState();
+        for (int i = 0; i < 40; i++) {
+            circuitBreaker.onResult(false, false, true);
+        }
+        clock.advance(5_000);
+        circuitBreaker.onResult(false, false, false);
+        int trial = circuitBreaker.tryAcquire();
+        circuitBreaker.onResult(true, true, false);
+
+        //then
+        assertThat(afterOldFailures).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(trial).isEqualTo(CircuitBreaker.TRIAL);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.getRetryAfterMillis()).isEqualTo(5_000);
+        assertThat(transitions).containsExactly("CLOSED->OPEN", "OPEN->HALF_OPEN",
+            "HALF_OPEN->OPEN");
+    }
+
+    @Test
+    @DisplayName("limiter 는 limit 을 넘는 요청을 503 으로 거절하고, 실패하면 limit 을 줄이고 바쁠 때 성공하면 늘린다")
+    void concurrencyLimit() {
+        //given
+        UpstreamPool pool = new UpstreamPool("api", List.of("http://a"), options()
+            .breakerEnabled(false)
+            .limiterEnabled(true)
+            .limiterInitialLimit(10)
+            .limiterMinLimit(2)
+            .limiterLatencyThresholdMillis(100)
+            .build());
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(options()
+            .limiterInitialLimit(10).limiterMinLimit(2).limiterLatencyThresholdMillis(100)
+            .build());
+        List<UpstreamPermit> permits = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            permits.add(pool.admit());
+        }
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+        int afterBusySuccess = limiter.getLimit();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10), true);
+        int afterFailure = limiter.getLimit();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(500), false);
+        int afterSlowCall = limiter.getLimit();
+
+        //then
+        assertThatThrownBy(pool::admit).isInstanceOf(UpstreamRejectedException.class)
+            .hasMessageContaining(UpstreamRejectedException.CONCURRENCY_LIMIT);
+        pool.release(permits.get(0), false);
+        assertThat(pool.admit()).isNotNull();
+        assertThat(afterBusySuccess).isEqualTo(11);
+        assertThat(afterFailure).isEqualTo(9);
+        assertThat(afterSlowCall).isEqualTo(8);
+    }
+
+    private UpstreamPoolOptions.UpstreamPoolOptionsBuilder options() {
+        return UpstreamPoolOptions.builder()
+            .breakerMinimumCalls(10)
+            .breakerFailureRateThreshold(50)
+            .breakerSlowCallRateThreshold(80)
+            .breakerWindowMillis(10_000)
+            .breakerOpenMillis(5_000)
+            .breakerHalfOpenCalls(2)
+            .clock(clock);
+    }
+
+}
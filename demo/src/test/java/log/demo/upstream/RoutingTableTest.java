@@ -0,0 +1,61 @@
+package log.demo.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import log.demo.exception.NoRouteException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RoutingTableTest {
+
+    private final RoutingTable routingTable = RoutingTable.of(
+        "api:least-in-flight=http://10.0.0.1:8080|http://10.0.0.2:8080/,"
+            + "orders=http://10.0.1.1:8080,static=http://10.0.2.1:8080,admin=http://10.0.3.1:8080",
+        "/=api,/api/orders=orders,/static/=static,Admin.Example.com/=admin,"
+            + "admin.example.com/static=static",
+        "http://unused", UpstreamPoolOptions.builder().build());
+
+    @Test
+    @DisplayName("path segment 경계에서 가장 긴 prefix 의 pool 로 보내고, Host route 가 있으면 먼저 본다")
+    void longestPrefixByHost() {
+        //then
+        assertThat(pool(null, "/api/orders")).isEqualTo("orders");
+        assertThat(pool(null, "/api/orders/1")).isEqualTo("orders");
+        assertThat(pool(null, "/api/orders-archive")).isEqualTo("api");
+        assertThat(pool(null, "/static/app.js")).isEqualTo("static");
+        assertThat(pool(null, "/static")).isEqualTo("api");
+        assertThat(pool(null, "")).isEqualTo("api");
+        assertThat(pool("admin.example.com:8443", "/users")).isEqualTo("admin");
+        assertThat(pool("ADMIN.example.com", "/static/a.css")).isEqualTo("static");
+        assertThat(pool("other.example.com", "/api/orders")).isEqualTo("orders");
+        assertThat(routingTable.resolve(null, "/api").getOptions().getBalancing())
+            .isEqualTo(LoadBalancing.LEAST_IN_FLIGHT);
+        assertThat(routingTable.resolve(null, "/api").getUpstreams().get(1).uriOf("/a", "b=1"))
+            .isEqualTo("http://10.0.0.2:8080/a?b=1");
+        assertThat(routingTable.getUpstreamCount()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("pool 설정이 없으면 기본 대상 서버 하나로 보내고, 맞는 route 가 없으면 NoRouteException")
+    void defaultsAndNoRoute() {
+        //given
+        RoutingTable defaults = RoutingTable.of("", "", "http://localhost:8081",
+            UpstreamPoolOptions.builder().build());
+        RoutingTable apiOnly = RoutingTable.of("api=http://10.0.0.1", "/api=api", null,
+            UpstreamPoolOptions.builder().build());
+
+        //then
+        assertThat(defaults.route(null, "/any").getName()).isEqualTo(RoutingTable.DEFAULT_POOL);
+        assertThat(defaults.route(null, "/any").select().uriOf("/any", null))
+            .isEqualTo("http://localhost:8081/any");
+        assertThatThrownBy(() -> apiOnly.route("example.com", "/other"))
+            .isInstanceOf(NoRouteException.class);
+        assertThatThrownBy(() -> RoutingTable.of("api=http://10.0.0.1", "/=missing", null,
+            UpstreamPoolOptions.builder().build())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String pool(String host, String path) {
+        return routingTable.route(host, path).getName();
+    }
+}
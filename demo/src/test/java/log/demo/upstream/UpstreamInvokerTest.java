@@ -0,0 +1,116 @@
+package log.demo.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import log.demo.support.MutableClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+class UpstreamInvokerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.EPOCH);
+    private final List<String> called = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("연결하지 못하면 다른 upstream 으로 다시 보내고, 응답을 받은 뒤의 실패와 budget 이 없을 때는 다시 보내지 않는다")
+    void retriesConnectFailures() {
+        //given
+        UpstreamPool pool = pool();
+        Upstream a = pool.getUpstreams().get(0);
+        UpstreamInvoker invoker = invoker(UpstreamInvokerOptions.builder().build());
+        UpstreamInvoker noBudget = invoker(UpstreamInvokerOptions.builder()
+            .budgetRatio(0).budgetMinPerSecond(0).build());
+
+        //when
+        String result = invoker.invoke(pool, a, "POST", upstream -> {
+            called.add(upstream.getBaseUri());
+            if (upstream == a) {
+                throw new ResourceAccessException("refused", new ConnectException("refused"));
+            }
+            return upstream.getBaseUri();
+        });
+
+        //then
+        assertThat(result).isEqualTo("http://b");
+        assertThat(called).containsExactly("http://a", "http://b");
+        assertThatThrownBy(() -> invoker.invoke(pool, a, "GET", upstream -> {
+            throw new ResourceAccessException("timeout", new SocketTimeoutException("timeout"));
+        })).isInstanceOf(ResourceAccessException.class);
+        assertThatThrownBy(() -> noBudget.invoke(pool, a, "GET", upstream -> {
+            throw new ResourceAccessException("refused", new ConnectException("refused"));
+        })).isInstanceOf(ResourceAccessException.class);
+        assertThat(invoker.snapshot()).containsEntry("retries", 1L);
+        assertThat(noBudget.snapshot()).containsEntry("retries", 0L)
+            .containsEntry("budget-exhausted", 1L);
+    }
+
+    @Test
+    @DisplayName("hedge 를 켜면 latency quantile 안에 응답이 없는 GET 을 다른 upstream 으로 한 번 더 보내 먼저 온 응답을 쓴다")
+    void hedgesSlowRequests() {
+        //given
+        UpstreamPool pool = pool();
+        Upstream a = pool.getUpstreams().get(0);
+        for (int i = 0; i < 20; i++) {
+            pool.finish(a, pool.start(a) - TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+        clock.advance(11_000);
+        pool.finish(a, pool.start(a), false);
+        UpstreamInvoker invoker = invoker(UpstreamInvokerOptions.builder()
+            .hedgeEnabled(true).hedgeMinDelayMillis(1).build());
+
+        //when
+        String hedged = invoker.invoke(pool, a, "GET", upstream -> {
+            if (upstream == a) {
+                stall();
+            }
+            return upstream.getBaseUri();
+        });
+        String notHedged = invoker.invoke(pool, a, "POST", upstream -> {
+            stall();
+            return upstream.getBaseUri();
+        });
+
+        //then
+        assertThat(pool.getLatencyQuantileNanos()).isPositive();
+        assertThat(hedged).isEqualTo("http://b");
+        assertThat(notHedged).isEqualTo("http://a");
+        assertThat(invoker.snapshot()).containsEntry("hedges", 1L).containsEntry("hedge-wins", 1L);
+    }
+
+    //latency quantile(약 1ms)보다 훨씬 늦게 응답하는 upstream
+    private static void stall() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private UpstreamInvoker invoker(UpstreamInvokerOptions options) {
+        return new UpstreamInvoker(options, executor);
+    }
+
+    private UpstreamPool pool() {
+        return new UpstreamPool("test", List.of("http://a", "http://b"),
+            UpstreamPoolOptions.builder()
+                .clock(clock)
+                .build());
+    }
+}
@@ -0,0 +1,145 @@
+package log.demo.upstream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import log.demo.support.MutableClock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UpstreamPoolTest {
+
+    private static final List<String> UPSTREAMS = List.of("http://a", "http://b", "http://c");
+
+    private final MutableClock clock = new MutableClock(Instant.EPOCH);
+
+    @Test
+    @DisplayName("round robin 은 차례대로, least in flight 와 power of two 는 처리 중인 요청이 적은 upstream 을 고른다")
+    void balancing() {
+        //given
+        UpstreamPool roundRobin = pool(LoadBalancing.ROUND_ROBIN, 0);
+        UpstreamPool leastInFlight = pool(LoadBalancing.LEAST_IN_FLIGHT, 0);
+        UpstreamPool powerOfTwo = pool(LoadBalancing.POWER_OF_TWO, 0);
+        Upstream busy = powerOfTwo.getUpstreams().get(0);
+        for (int i = 0; i < 10; i++) {
+            powerOfTwo.start(busy);
+        }
+        leastInFlight.start(leastInFlight.getUpstreams().get(0));
+        leastInFlight.start(leastInFlight.getUpstreams().get(2));
+
+        //when
+        Map<String, Integer> roundRobinCounts = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            roundRobinCounts.merge(roundRobin.select().getBaseUri(), 1, Integer::sum);
+        }
+        int busySelected = 0;
+        for (int i = 0; i < 300; i++) {
+            if (powerOfTwo.select() == busy) {
+                busySelected++;
+            }
+        }
+
+        //then
+        assertThat(roundRobinCounts).containsOnly(Map.entry("http://a", 100),
+            Map.entry("http://b", 100), Map.entry("http://c", 100));
+        assertThat(leastInFlight.select().getBaseUri()).isEqualTo("http://b");
+        assertThat(busySelected).isZero();
+    }
+
+    @Test
+    @DisplayName("연속으로 실패한 upstream 은 ejection 기간 동안 빼고, 한 번에 절반 넘게 빼지 않는다")
+    void outlierEjection() {
+        //given
+        UpstreamPool pool = pool(LoadBalancing.ROUND_ROBIN, 3);
+        Upstream a = pool.getUpstreams().get(0);
+        Upstream b = pool.getUpstreams().get(1);
+
+        //when
+        fail(pool, a, 3);
+        fail(pool, b, 3);
+        boolean bEjected = b.isEjected(clock.millis());
+        boolean aSelected = false;
+        for (int i = 0; i < 30; i++) {
+            aSelected |= pool.select() == a;
+        }
+        clock.advance(31_000);
+        boolean aSelectedAfterEjection = false;
+        for (int i = 0; i < 30; i++) {
+            aSelectedAfterEjection |= pool.select() == a;
+        }
+
+        //then
+        assertThat(aSelected).isFalse();
+        assertThat(bEjected).isFalse();
+        assertThat(a.isEjected(clock.millis())).isFalse();
+        assertThat(aSelectedAfterEjection).isTrue();
+        assertThat(pool.snapshot().toString()).contains("ejections=1");
+    }
+
+    @Test
+    @DisplayName("다시 ejection 되면 시간이 배로 늘고, 한동안 ejection 되지 않으면 배수가 줄어든다")
+    void ejectionMultiplierDecays() {
+        //given
+        UpstreamPool pool = pool(LoadBalancing.ROUND_ROBIN, 3);
+        Upstream a = pool.getUpstreams().get(0);
+        fail(pool, a, 3);
+        clock.advance(31_000);
+
+        //when
+        fail(pool, a, 3);
+        clock.advance(31_000);
+        boolean ejectedTwice = a.isEjected(clock.millis());
+        clock.advance(30_000 + 60_000);
+        fail(pool, a, 3);
+        clock.advance(31_000);
+
+        //then
+        assertThat(ejectedTwice).isTrue();
+        assertThat(a.isEjected(clock.millis())).isFalse();
+        assertThat(pool.snapshot().toString()).contains("ejections=3");
+    }
+
+    @Test
+    @DisplayName("health check 에 연속으로 실패한 upstream 은 빼고, 모두 빠지면 전체에서 고른다")
+    void healthCheck() {
+        //given
+        UpstreamPool pool = pool(LoadBalancing.ROUND_ROBIN, 0);
+        Upstream a = pool.getUpstreams().get(0);
+
+        //when
+        pool.onHealthCheck(a, false);
+        boolean healthyAfterOneFailure = a.isHealthy();
+        pool.onHealthCheck(a, false);
+        boolean healthyAfterTwoFailures = a.isHealthy();
+        for (Upstream upstream : pool.getUpstreams()) {
+            pool.onHealthCheck(upstream, false);
+            pool.onHealthCheck(upstream, false);
+        }
+        Upstream panicSelected = pool.select();
+        pool.onHealthCheck(a, true);
+
+        //then
+        assertThat(healthyAfterOneFailure).isTrue();
+        assertThat(healthyAfterTwoFailures).isFalse();
+        assertThat(panicSelected).isNotNull();
+        assertThat(a.isHealthy()).isTrue();
+    }
+
+    private void fail(UpstreamPool pool, Upstream upstream, int times) {
+        for (int i = 0; i < times; i++) {
+            pool.finish(upstream, pool.start(upstream), true);
+        }
+    }
+
+    private UpstreamPool pool(LoadBalancing balancing, int consecutiveFailures) {
+        return new UpstreamPool("test", UPSTREAMS, UpstreamPoolOptions.builder()
+            .balancing(balancing)
+            .consecutiveFailures(consecutiveFailures)
+            .baseEjectionMillis(30_000)
+            .clock(clock)
+            .build());
+    }
+}